@@ -12,6 +12,8 @@
  *******************************************************************************/
 package org.eclipse.hono.adapter.amqp;
 
+import org.apache.qpid.proton.amqp.Symbol;
+
 /**
  * Represent constants used throughout the Amqp adapter code base.
  */
@@ -27,6 +29,13 @@ public final class AmqpAdapterConstants {
      * is stored under in a {@code ProtonConnection}'s attachments.
      */
     public static final String KEY_CURRENT_SPAN = "CURRENT_SPAN";
+    /**
+     * The capability that the adapter offers to devices in its <em>open</em> frame
+     * in order to indicate that it supports links with a {@code null} target address
+     * (anonymous relay). Clients like Qpid JMS use a single link for sending messages
+     * to arbitrary addresses only if the peer offers this capability.
+     */
+    public static final Symbol CAP_ANONYMOUS_RELAY = Symbol.valueOf("ANONYMOUS-RELAY");
 
     private AmqpAdapterConstants() {
         // avoid instantiation
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.amqp;
+
+import org.eclipse.hono.service.metric.Metrics;
+import org.eclipse.hono.service.metric.NoopBasedMetrics;
+
+/**
+ * Metrics for the AMQP based adapters.
+ */
+public interface AmqpAdapterMetrics extends Metrics {
+
+    /**
+     * A no-op implementation this specific metrics type.
+     */
+    final class Noop extends NoopBasedMetrics implements AmqpAdapterMetrics {
+
+        private Noop() {
+        }
+
+        @Override
+        public void incrementGrantedLinkCredit(final String tenantId, final int credit) {
+        }
+
+        @Override
+        public void incrementWaitingLinks(final String tenantId) {
+        }
+
+        @Override
+        public void decrementWaitingLinks(final String tenantId) {
+        }
+    }
+
+    AmqpAdapterMetrics NOOP = new Noop();
+
+    /**
+     * Reports credit that has been granted to a device's link for uploading messages.
+     *
+     * @param tenantId The tenant that the link's messages are forwarded for.
+     * @param credit The number of credits.
+     * @throws NullPointerException if tenant is {@code null}.
+     */
+    void incrementGrantedLinkCredit(String tenantId, int credit);
+
+    /**
+     * Reports a device's link for uploading messages that waits for the
+     * downstream sender to be replenished with credit.
+     *
+     * @param tenantId The tenant that the link's messages are forwarded for.
+     * @throws NullPointerException if tenant is {@code null}.
+     */
+    void incrementWaitingLinks(String tenantId);
+
+    /**
+     * Reports a device's link for uploading messages that no longer waits for
+     * the downstream sender to be replenished with credit.
+     *
+     * @param tenantId The tenant that the link's messages are forwarded for.
+     * @throws NullPointerException if tenant is {@code null}.
+     */
+    void decrementWaitingLinks(String tenantId);
+}
@@ -40,6 +40,7 @@ import org.eclipse.hono.service.auth.device.SubjectDnCredentials;
 import org.eclipse.hono.service.auth.device.UsernamePasswordAuthProvider;
 import org.eclipse.hono.service.auth.device.UsernamePasswordCredentials;
 import org.eclipse.hono.service.auth.device.X509AuthProvider;
+import org.eclipse.hono.service.metric.Metrics;
 import org.eclipse.hono.tracing.TracingHelper;
 import org.eclipse.hono.util.AuthenticationConstants;
 import org.eclipse.hono.util.Constants;
@@ -74,8 +75,11 @@ public class AmqpAdapterSaslAuthenticatorFactory implements ProtonSaslAuthentica
 
     private final ProtocolAdapterProperties config;
     private final HonoClient tenantServiceClient;
-    private final HonoClient credentialsServiceClient;
     private final Supplier<Span> spanFactory;
+    private final DeviceCertificateValidator certValidator = new DeviceCertificateValidator();
+    // the providers are shared by all connections
+    private final UsernamePasswordAuthProvider usernamePasswordAuthProvider;
+    private final X509AuthProvider clientCertAuthProvider;
 
     /**
      * Creates a new SASL authenticator factory for an authentication provider. If the AMQP adapter supports
@@ -87,6 +91,7 @@ public class AmqpAdapterSaslAuthenticatorFactory implements ProtonSaslAuthentica
      * @param config The protocol adapter configuration object.
      * @param spanFactory The factory to use for creating and starting an OpenTracing span to
      *                    trace the authentication of the device.
+     * @param metrics The metrics to report the duration of authenticating devices to.
      *
      * @throws NullPointerException if any of the parameters are null.
      */
@@ -94,17 +99,36 @@ public class AmqpAdapterSaslAuthenticatorFactory implements ProtonSaslAuthentica
             final HonoClient tenantServiceClient,
             final HonoClient credentialsServiceClient,
             final ProtocolAdapterProperties config,
-            final Supplier<Span> spanFactory) {
+            final Supplier<Span> spanFactory,
+            final Metrics metrics) {
 
         this.tenantServiceClient = Objects.requireNonNull(tenantServiceClient, "Tenant client cannot be null");
-        this.credentialsServiceClient = Objects.requireNonNull(credentialsServiceClient, "Credentials client cannot be null");
+        Objects.requireNonNull(credentialsServiceClient, "Credentials client cannot be null");
         this.config = Objects.requireNonNull(config, "configuration cannot be null");
         this.spanFactory = Objects.requireNonNull(spanFactory);
+        Objects.requireNonNull(metrics);
+
+        usernamePasswordAuthProvider = new UsernamePasswordAuthProvider(credentialsServiceClient, config);
+        usernamePasswordAuthProvider.setMetrics(metrics);
+        usernamePasswordAuthProvider.setValidationPoolSize(config.getCredentialsValidationPoolSize());
+        usernamePasswordAuthProvider.setValidationQueueSize(config.getCredentialsValidationQueueSize());
+        clientCertAuthProvider = new X509AuthProvider(credentialsServiceClient, config);
+        clientCertAuthProvider.setMetrics(metrics);
     }
 
     @Override
     public ProtonSaslAuthenticator create() {
-        return new AmqpAdapterSaslAuthenticator(tenantServiceClient, credentialsServiceClient, config, spanFactory.get());
+        return new AmqpAdapterSaslAuthenticator(tenantServiceClient, config, spanFactory.get(),
+                certValidator, usernamePasswordAuthProvider, clientCertAuthProvider);
+    }
+
+    /**
+     * Releases the resources used by the authentication providers of this factory.
+     * <p>
+     * This method should be invoked when the protocol adapter is stopped.
+     */
+    public void close() {
+        usernamePasswordAuthProvider.close();
     }
 
     /**
@@ -116,27 +140,30 @@ public class AmqpAdapterSaslAuthenticatorFactory implements ProtonSaslAuthentica
 
         private final ProtocolAdapterProperties config;
         private final HonoClient tenantServiceClient;
-        private final HonoClient credentialsServiceClient;
         private final Span currentSpan;
+        private final DeviceCertificateValidator certValidator;
+        private final HonoClientBasedAuthProvider usernamePasswordAuthProvider;
+        private final HonoClientBasedAuthProvider clientCertAuthProvider;
 
         private Sasl sasl;
         private boolean succeeded;
         private ProtonConnection protonConnection;
         private Certificate[] peerCertificateChain;
-        private HonoClientBasedAuthProvider usernamePasswordAuthProvider;
-        private HonoClientBasedAuthProvider clientCertAuthProvider;
-        private DeviceCertificateValidator certValidator;
 
         AmqpAdapterSaslAuthenticator(
                 final HonoClient tenantServiceClient,
-                final HonoClient credentialsServiceClient,
                 final ProtocolAdapterProperties config,
-                final Span currentSpan) {
+                final Span currentSpan,
+                final DeviceCertificateValidator certValidator,
+                final HonoClientBasedAuthProvider usernamePasswordAuthProvider,
+                final HonoClientBasedAuthProvider clientCertAuthProvider) {
 
             this.tenantServiceClient = tenantServiceClient;
-            this.credentialsServiceClient = credentialsServiceClient;
             this.config = config;
             this.currentSpan = currentSpan;
+            this.certValidator = certValidator;
+            this.usernamePasswordAuthProvider = usernamePasswordAuthProvider;
+            this.clientCertAuthProvider = clientCertAuthProvider;
         }
 
         @Override
@@ -274,8 +301,8 @@ public class AmqpAdapterSaslAuthenticatorFactory implements ProtonSaslAuthentica
                         })
                         .compose(ok -> {
                             try {
-                                final TrustAnchor trustAnchor = tenantTracker.result().getTrustAnchor();
-                                return getValidator().validate(Collections.singletonList(deviceCert), trustAnchor);
+                                final TrustAnchor trustAnchor = certValidator.getTrustAnchor(tenantTracker.result());
+                                return certValidator.validate(Collections.singletonList(deviceCert), trustAnchor);
                             } catch(final GeneralSecurityException e) {
                                 return Future.failedFuture(e);
                             }
@@ -303,24 +330,11 @@ public class AmqpAdapterSaslAuthenticatorFactory implements ProtonSaslAuthentica
         }
 
         private HonoClientBasedAuthProvider getUsernamePasswordAuthProvider() {
-            if (usernamePasswordAuthProvider == null) {
-                usernamePasswordAuthProvider = new UsernamePasswordAuthProvider(credentialsServiceClient, config);
-            }
             return usernamePasswordAuthProvider;
         }
 
         private HonoClientBasedAuthProvider getCertificateAuthProvider() {
-            if (clientCertAuthProvider == null) {
-                clientCertAuthProvider = new X509AuthProvider(credentialsServiceClient, config);
-            }
             return clientCertAuthProvider;
         }
-
-        private DeviceCertificateValidator getValidator() {
-            if (certValidator == null) {
-                certValidator = new DeviceCertificateValidator();
-            }
-            return certValidator;
-        }
     }
 }
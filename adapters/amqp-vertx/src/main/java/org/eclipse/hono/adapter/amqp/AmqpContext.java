@@ -41,6 +41,7 @@ public class AmqpContext extends MapBasedExecutionContext {
     private final ResourceIdentifier resource;
     private final Device authenticatedDevice;
     private final Buffer payload;
+    private UploadLink uploadLink;
 
     /**
      * Creates an AmqpContext instance using the specified delivery, message and authenticated device.
@@ -133,6 +134,24 @@ public class AmqpContext extends MapBasedExecutionContext {
         return resource;
     }
 
+    /**
+     * Gets the link that the message has been received on.
+     *
+     * @return The link or {@code null} if not set.
+     */
+    UploadLink getUploadLink() {
+        return uploadLink;
+    }
+
+    /**
+     * Sets the link that the message has been received on.
+     *
+     * @param uploadLink The link.
+     */
+    void setUploadLink(final UploadLink uploadLink) {
+        this.uploadLink = uploadLink;
+    }
+
     /**
      * Gets the authenticated device created after a successful SASL authentication.
      *
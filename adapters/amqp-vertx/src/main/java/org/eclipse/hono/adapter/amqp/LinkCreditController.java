@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.amqp;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.hono.client.MessageSender;
+
+import io.vertx.core.Vertx;
+
+/**
+ * Grants credit to the links that devices use for uploading messages based on the
+ * credit available at the downstream senders that the messages are forwarded to.
+ * <p>
+ * A link is replenished with its fair share of the downstream sender's credit, i.e. the
+ * sender's credit divided by the number of device links that forward messages to the
+ * sender, but never with more credit than the device has used up. If the downstream
+ * sender has no credit, the link waits for the sender to be replenished. A device that
+ * has used up its credit cannot send any more messages in the meantime, so a slow
+ * downstream consumer results in back pressure on the devices instead of messages
+ * being rejected or released by the adapter.
+ * <p>
+ * Links that have not forwarded any telemetry messages or events yet or whose downstream
+ * sender has been closed are replenished without restriction.
+ * <p>
+ * Instances of this class are not thread safe. All methods must be invoked on the
+ * vert.x context of the adapter.
+ */
+final class LinkCreditController {
+
+    private final Vertx vertx;
+    private final AmqpAdapterMetrics metrics;
+    private final long creditCheckIntervalMillis;
+    private final Map<MessageSender, Set<UploadLink>> links = new HashMap<>();
+    private final Map<MessageSender, Deque<UploadLink>> waitingLinks = new HashMap<>();
+
+    /**
+     * Creates a new controller.
+     *
+     * @param vertx The vert.x instance to use for scheduling checks of the downstream credit.
+     * @param metrics The metrics to report granted credit and waiting links to.
+     * @param creditCheckIntervalMillis The interval in which the credit of a downstream sender
+     *                                  that links are waiting for is checked. The check is needed
+     *                                  for senders which are closed or which are replenished
+     *                                  without notifying this controller.
+     * @throws NullPointerException if any of the parameters are {@code null}.
+     * @throws IllegalArgumentException if the interval is &lt; 1.
+     */
+    LinkCreditController(final Vertx vertx, final AmqpAdapterMetrics metrics, final long creditCheckIntervalMillis) {
+        if (creditCheckIntervalMillis < 1) {
+            throw new IllegalArgumentException("credit check interval must be > 0");
+        }
+        this.vertx = Objects.requireNonNull(vertx);
+        this.metrics = Objects.requireNonNull(metrics);
+        this.creditCheckIntervalMillis = creditCheckIntervalMillis;
+    }
+
+    /**
+     * Sets the downstream sender that a link's messages have been forwarded to.
+     *
+     * @param link The link.
+     * @param tenantId The tenant that the messages have been forwarded for.
+     * @param sender The sender.
+     * @throws NullPointerException if any of the parameters are {@code null}.
+     */
+    void setSender(final UploadLink link, final String tenantId, final MessageSender sender) {
+
+        Objects.requireNonNull(link);
+        Objects.requireNonNull(tenantId);
+        Objects.requireNonNull(sender);
+
+        final MessageSender currentSender = link.getSender();
+        if (currentSender != sender) {
+            if (currentSender != null) {
+                removeLink(currentSender, link);
+            }
+            link.setSender(tenantId, sender);
+            links.computeIfAbsent(sender, s -> new HashSet<>()).add(link);
+        }
+    }
+
+    /**
+     * Replenishes a link with credit.
+     * <p>
+     * The link is put on hold if its downstream sender has no credit.
+     *
+     * @param link The link.
+     * @throws NullPointerException if link is {@code null}.
+     */
+    void replenish(final UploadLink link) {
+
+        final MessageSender sender = link.getSender();
+        if (sender == null || !sender.isOpen()) {
+            grant(link, link.getMissingCredit());
+        } else {
+            final int credit = getFairShare(link, sender, sender.getCredit());
+            if (credit > 0) {
+                grant(link, credit);
+            } else {
+                waitForCredit(link, sender);
+            }
+        }
+    }
+
+    /**
+     * Removes a link that has been closed.
+     *
+     * @param link The link.
+     * @throws NullPointerException if link is {@code null}.
+     */
+    void remove(final UploadLink link) {
+
+        final MessageSender awaitedSender = link.getAwaitedSender();
+        if (awaitedSender != null) {
+            final Deque<UploadLink> waiting = waitingLinks.get(awaitedSender);
+            if (waiting != null && waiting.remove(link)) {
+                metrics.decrementWaitingLinks(link.getTenantId());
+            }
+            link.setAwaitedSender(null);
+        }
+        if (link.getSender() != null) {
+            removeLink(link.getSender(), link);
+        }
+    }
+
+    /**
+     * Gets the number of links that forward messages to a downstream sender.
+     *
+     * @param sender The sender.
+     * @return The number of links.
+     */
+    int getNumberOfLinks(final MessageSender sender) {
+        final Set<UploadLink> senderLinks = links.get(sender);
+        return senderLinks == null ? 0 : senderLinks.size();
+    }
+
+    private void removeLink(final MessageSender sender, final UploadLink link) {
+        final Set<UploadLink> senderLinks = links.get(sender);
+        if (senderLinks != null) {
+            senderLinks.remove(link);
+            if (senderLinks.isEmpty()) {
+                links.remove(sender);
+            }
+        }
+    }
+
+    private int getFairShare(final UploadLink link, final MessageSender sender, final int availableCredit) {
+        if (availableCredit <= 0) {
+            return 0;
+        }
+        final int share = Math.max(1, availableCredit / Math.max(1, getNumberOfLinks(sender)));
+        return Math.min(link.getMissingCredit(), share);
+    }
+
+    private void grant(final UploadLink link, final int credit) {
+        link.flow(credit);
+        if (credit > 0 && link.getTenantId() != null) {
+            metrics.incrementGrantedLinkCredit(link.getTenantId(), credit);
+        }
+    }
+
+    private void waitForCredit(final UploadLink link, final MessageSender sender) {
+
+        Deque<UploadLink> waiting = waitingLinks.get(sender);
+        if (waiting == null) {
+            waiting = new ArrayDeque<>();
+            waitingLinks.put(sender, waiting);
+            try {
+                sender.sendQueueDrainHandler(replenished -> onCreditReplenished(sender));
+            } catch (final IllegalStateException e) {
+                // some other component is already waiting for the sender
+                // to be replenished, rely on the periodic check instead
+            }
+            vertx.setTimer(creditCheckIntervalMillis, id -> onCreditReplenished(sender));
+        }
+        waiting.add(link);
+        link.setAwaitedSender(sender);
+        metrics.incrementWaitingLinks(link.getTenantId());
+    }
+
+    private void onCreditReplenished(final MessageSender sender) {
+
+        final Deque<UploadLink> waiting = waitingLinks.remove(sender);
+        if (waiting == null) {
+            return;
+        }
+        // the links are replenished in the order in which they have started waiting,
+        // links that do not get any credit start waiting again
+        int availableCredit = sender.isOpen() ? sender.getCredit() : Integer.MAX_VALUE;
+        for (final UploadLink link : waiting) {
+            link.setAwaitedSender(null);
+            metrics.decrementWaitingLinks(link.getTenantId());
+            if (!link.isOpen()) {
+                continue;
+            }
+            if (link.getSender() != sender) {
+                // the link has started to forward messages to another sender in the meantime
+                replenish(link);
+            } else if (!sender.isOpen()) {
+                grant(link, link.getMissingCredit());
+            } else {
+                final int credit = getFairShare(link, sender, availableCredit);
+                if (credit > 0) {
+                    grant(link, credit);
+                    availableCredit -= credit;
+                } else {
+                    waitForCredit(link, sender);
+                }
+            }
+        }
+    }
+}
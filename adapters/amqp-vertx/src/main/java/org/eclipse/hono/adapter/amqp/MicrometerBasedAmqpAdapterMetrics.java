@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.amqp;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.hono.service.metric.MicrometerBasedMetrics;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Metrics for the AMQP based adapters.
+ */
+@Component
+public class MicrometerBasedAmqpAdapterMetrics extends MicrometerBasedMetrics implements AmqpAdapterMetrics {
+
+    private final Map<String, Counter> grantedLinkCredit = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> waitingLinks = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new metrics instance for AMQP adapters.
+     * 
+     * @param registry The meter registry to use.
+     * 
+     * @throws NullPointerException if either parameter is {@code null}.
+     */
+    public MicrometerBasedAmqpAdapterMetrics(final MeterRegistry registry) {
+        super(registry);
+    }
+
+    @Override
+    public final void incrementGrantedLinkCredit(final String tenantId, final int credit) {
+
+        Objects.requireNonNull(tenantId);
+        grantedLinkCredit
+                .computeIfAbsent(tenantId, t -> this.registry.counter("hono.links.credit.granted", Tags.of("tenant", t)))
+                .increment(credit);
+    }
+
+    @Override
+    public final void incrementWaitingLinks(final String tenantId) {
+
+        Objects.requireNonNull(tenantId);
+        gaugeForTenant("hono.links.waiting", this.waitingLinks, tenantId, AtomicLong::new)
+                .incrementAndGet();
+    }
+
+    @Override
+    public final void decrementWaitingLinks(final String tenantId) {
+
+        Objects.requireNonNull(tenantId);
+        gaugeForTenant("hono.links.waiting", this.waitingLinks, tenantId, AtomicLong::new)
+                .decrementAndGet();
+    }
+}
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.amqp;
+
+import java.util.Objects;
+
+import org.eclipse.hono.client.MessageSender;
+import org.eclipse.hono.util.ResourceIdentifier;
+
+import io.vertx.proton.ProtonReceiver;
+
+/**
+ * A link that a device uses for uploading messages to the adapter.
+ * <p>
+ * The link's credit is managed manually. The link keeps track of the credit that it has
+ * granted to the device and indicates when it needs to be replenished, which is the case
+ * once messages making up half of the link's credit window have been processed. Credit used
+ * up by messages which are still being forwarded is not granted again, so a device cannot
+ * have more messages in process than the link's credit window.
+ * The amount of credit to replenish the link with is determined by a {@link LinkCreditController}
+ * based on the credit of the downstream sender that the link's messages are forwarded to.
+ * <p>
+ * The link also remembers the validated address of the last pre-settled telemetry
+ * message it has received. Devices usually send many messages to the same address,
+ * so subsequent messages can be forwarded without parsing and validating the address
+ * again.
+ * <p>
+ * Instances of this class are not thread safe. All methods must be invoked on the
+ * vert.x context of the connection.
+ */
+final class UploadLink {
+
+    private final ProtonReceiver receiver;
+    private final int creditWindow;
+    private final int replenishThreshold;
+    private int outstandingCredit;
+    private int messagesInProcess;
+    private String tenantId;
+    private MessageSender sender;
+    private MessageSender awaitedSender;
+    private String telemetryAddress;
+    private ResourceIdentifier telemetryResource;
+
+    /**
+     * Creates a new link.
+     *
+     * @param receiver The receiver link to manage.
+     * @param creditWindow The maximum number of credits to grant to the device.
+     * @throws NullPointerException if receiver is {@code null}.
+     * @throws IllegalArgumentException if the credit window is &lt; 1.
+     */
+    UploadLink(final ProtonReceiver receiver, final int creditWindow) {
+        if (creditWindow < 1) {
+            throw new IllegalArgumentException("credit window must be > 0");
+        }
+        this.receiver = Objects.requireNonNull(receiver);
+        this.creditWindow = creditWindow;
+        this.replenishThreshold = Math.max(1, creditWindow / 2);
+        this.receiver.setPrefetch(0);
+    }
+
+    /**
+     * Opens the link and flows the initial credit to the device.
+     */
+    void open() {
+        receiver.open();
+        flow(creditWindow);
+    }
+
+    /**
+     * Checks if the link is open.
+     *
+     * @return {@code true} if the link is open.
+     */
+    boolean isOpen() {
+        return receiver.isOpen();
+    }
+
+    /**
+     * Marks a message as received over the link.
+     * <p>
+     * The message uses up one of the device's credits. The credit is not
+     * considered missing before the message has been processed.
+     */
+    void onMessageReceived() {
+        outstandingCredit = Math.max(0, outstandingCredit - 1);
+        messagesInProcess++;
+    }
+
+    /**
+     * Marks a message received over the link as processed.
+     *
+     * @return {@code true} if the link needs to be replenished with credit.
+     */
+    boolean onMessageProcessed() {
+        messagesInProcess = Math.max(0, messagesInProcess - 1);
+        return awaitedSender == null && getMissingCredit() >= replenishThreshold;
+    }
+
+    /**
+     * Gets the number of credits that the device has used up for messages which
+     * have been processed since the link has last been replenished.
+     *
+     * @return The number of credits.
+     */
+    int getMissingCredit() {
+        return creditWindow - outstandingCredit - messagesInProcess;
+    }
+
+    /**
+     * Flows credit to the device.
+     *
+     * @param credit The number of credits.
+     */
+    void flow(final int credit) {
+        if (credit > 0) {
+            receiver.flow(credit);
+            outstandingCredit += credit;
+        }
+    }
+
+    /**
+     * Gets the tenant that the link's messages have last been forwarded for.
+     *
+     * @return The tenant or {@code null} if no message has been forwarded yet.
+     */
+    String getTenantId() {
+        return tenantId;
+    }
+
+    /**
+     * Gets the downstream sender that the link's messages have last been forwarded to.
+     *
+     * @return The sender or {@code null} if no message has been forwarded yet.
+     */
+    MessageSender getSender() {
+        return sender;
+    }
+
+    /**
+     * Sets the downstream sender that the link's messages have last been forwarded to.
+     *
+     * @param tenantId The tenant that the message has been forwarded for.
+     * @param sender The sender.
+     */
+    void setSender(final String tenantId, final MessageSender sender) {
+        this.tenantId = tenantId;
+        this.sender = sender;
+    }
+
+    /**
+     * Gets the downstream sender that the link is waiting for to be replenished.
+     *
+     * @return The sender or {@code null} if the link is not waiting for credit.
+     */
+    MessageSender getAwaitedSender() {
+        return awaitedSender;
+    }
+
+    /**
+     * Sets the downstream sender that the link is waiting for to be replenished.
+     *
+     * @param sender The sender or {@code null} if the link is not waiting for credit.
+     */
+    void setAwaitedSender(final MessageSender sender) {
+        this.awaitedSender = sender;
+    }
+
+    /**
+     * Gets the validated resource for the address of a pre-settled telemetry message.
+     *
+     * @param address The address of the message.
+     * @return The resource or {@code null} if the address is not the address of the
+     *         last telemetry message received over the link.
+     */
+    ResourceIdentifier getTelemetryResource(final String address) {
+        if (address != null && address.equals(telemetryAddress)) {
+            return telemetryResource;
+        }
+        return null;
+    }
+
+    /**
+     * Sets the validated resource for the address of a pre-settled telemetry message.
+     *
+     * @param address The address of the message.
+     * @param resource The resource that the address has been validated to.
+     */
+    void setTelemetryResource(final String address, final ResourceIdentifier resource) {
+        this.telemetryAddress = address;
+        this.telemetryResource = resource;
+    }
+}
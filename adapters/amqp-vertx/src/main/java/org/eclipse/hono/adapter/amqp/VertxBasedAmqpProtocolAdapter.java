@@ -13,12 +13,18 @@
 package org.eclipse.hono.adapter.amqp;
 
 import java.net.HttpURLConnection;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+import org.apache.qpid.proton.amqp.Symbol;
 import org.apache.qpid.proton.amqp.messaging.Accepted;
+import org.apache.qpid.proton.amqp.messaging.Data;
 import org.apache.qpid.proton.amqp.messaging.Rejected;
 import org.apache.qpid.proton.amqp.messaging.Released;
 import org.apache.qpid.proton.amqp.transport.DeliveryState;
@@ -36,10 +42,12 @@ import org.eclipse.hono.client.ServerErrorException;
 import org.eclipse.hono.client.ServiceInvocationException;
 import org.eclipse.hono.config.ProtocolAdapterProperties;
 import org.eclipse.hono.service.AbstractProtocolAdapterBase;
+import org.eclipse.hono.service.metric.MetricsTags;
 import org.eclipse.hono.tracing.TracingHelper;
 import org.eclipse.hono.util.CommandConstants;
 import org.eclipse.hono.util.Constants;
 import org.eclipse.hono.util.EndpointType;
+import org.eclipse.hono.util.EventConstants;
 import org.eclipse.hono.util.HonoProtonHelper;
 import org.eclipse.hono.util.MessageHelper;
 import org.eclipse.hono.util.ResourceIdentifier;
@@ -47,8 +55,10 @@ import org.eclipse.hono.util.Strings;
 import org.eclipse.hono.util.TenantObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import io.opentracing.Span;
+import io.opentracing.SpanContext;
 import io.opentracing.log.Fields;
 import io.opentracing.tag.Tags;
 import io.vertx.core.AsyncResult;
@@ -77,6 +87,9 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
     private static final int DEFAULT_MAX_FRAME_SIZE = 32 * 1024; // 32 KB
     private static final int DEFAULT_MAX_SESSION_WINDOW = 100 * DEFAULT_MAX_FRAME_SIZE;
     private static final long DEFAULT_COMMAND_CONSUMER_CHECK_INTERVAL_MILLIS = 10000; // 10 seconds
+    private static final int DEFAULT_RECEIVER_LINK_CREDIT = 30;
+    private static final long DEFAULT_CREDIT_CHECK_INTERVAL_MILLIS = 1000;
+    private static final String KEY_UPLOAD_LINKS = "uploadLinks";
 
     /**
      * The AMQP server instance that maps to a secure port.
@@ -92,6 +105,37 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
      * This adapter's custom SASL authenticator factory for handling the authentication process for devices.
      */
     private ProtonSaslAuthenticatorFactory authenticatorFactory;
+    // the factory created by this adapter which needs to be closed on shutdown
+    private AmqpAdapterSaslAuthenticatorFactory defaultAuthenticatorFactory;
+
+    private AmqpAdapterMetrics metrics = AmqpAdapterMetrics.NOOP;
+
+    /**
+     * The controller for the credit of the links that devices use for uploading messages.
+     */
+    private LinkCreditController creditController;
+
+    /**
+     * Sets the metrics for this service.
+     *
+     * @param metrics The metrics
+     */
+    @Autowired
+    public void setMetrics(final AmqpAdapterMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected AmqpAdapterMetrics getMetrics() {
+        return metrics;
+    }
+
+    private LinkCreditController getCreditController() {
+        if (creditController == null) {
+            creditController = new LinkCreditController(vertx, getMetrics(), DEFAULT_CREDIT_CHECK_INTERVAL_MILLIS);
+        }
+        return creditController;
+    }
 
     // -----------------------------------------< AbstractProtocolAdapterBase >---
     /**
@@ -110,7 +154,7 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
         checkPortConfiguration()
                 .compose(success -> {
                     if (authenticatorFactory == null && getConfig().isAuthenticationRequired()) {
-                        authenticatorFactory = new AmqpAdapterSaslAuthenticatorFactory(
+                        defaultAuthenticatorFactory = new AmqpAdapterSaslAuthenticatorFactory(
                                 getTenantServiceClient(),
                                 getCredentialsServiceClient(),
                                 getConfig(),
@@ -118,7 +162,9 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
                                     .ignoreActiveSpan()
                                     .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_SERVER)
                                     .withTag(Tags.COMPONENT.getKey(), getTypeName())
-                                    .start());
+                                    .start(),
+                                getMetrics());
+                        authenticatorFactory = defaultAuthenticatorFactory;
                     }
                     return Future.succeededFuture();
                 }).compose(succcess -> {
@@ -131,6 +177,9 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
 
     @Override
     protected void doStop(final Future<Void> stopFuture) {
+        if (defaultAuthenticatorFactory != null) {
+            defaultAuthenticatorFactory.close();
+        }
         CompositeFuture.all(stopSecureServer(), stopInsecureServer())
         .compose(ok -> stopFuture.complete(), stopFuture);
     }
@@ -264,6 +313,7 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
 
         connectAuthorizationCheck.map(ok -> {
             con.setContainer(getTypeName());
+            con.setOfferedCapabilities(new Symbol[] { AmqpAdapterConstants.CAP_ANONYMOUS_RELAY });
             setConnectionHandlers(con);
             con.open();
             if (authenticatedDevice != null) {
@@ -285,10 +335,12 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
     private void setConnectionHandlers(final ProtonConnection con) {
         con.disconnectHandler(lostConnection -> {
             LOG.debug("lost connection to device [container: {}]", con.getRemoteContainer());
+            removeUploadLinks(con);
             Optional.ofNullable(getConnectionLossHandler(con)).ifPresent(handler -> handler.handle(null));
         });
         con.closeHandler(remoteClose -> {
             handleRemoteConnectionClose(con, remoteClose);
+            removeUploadLinks(con);
             Optional.ofNullable(getConnectionLossHandler(con)).ifPresent(handler -> handler.handle(null));
         });
 
@@ -374,7 +426,13 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
      * responses to be forwarded downstream.
      * <p>
      * If the attach frame contains a target address, this method simply closes the link,
-     * otherwise, it accepts and opens the link.
+     * otherwise, it accepts and opens the link. The adapter offers the
+     * {@linkplain AmqpAdapterConstants#CAP_ANONYMOUS_RELAY anonymous relay capability}
+     * when opening the connection, so that a device (or gateway) needs a single link per
+     * connection only. The address of each message is validated individually.
+     * <p>
+     * The link's credit is replenished in batches based on the credit available at the
+     * downstream senders that the link's messages are forwarded to (see {@link LinkCreditController}).
      * 
      * @param conn The connection through which the request is initiated.
      * @param receiver The receiver link for receiving the data.
@@ -417,47 +475,38 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
             receiver.setTarget(receiver.getRemoteTarget());
             receiver.setSource(receiver.getRemoteSource());
             receiver.setQoS(receiver.getRemoteQoS());
-            receiver.setPrefetch(30);
             // manage disposition handling manually
             receiver.setAutoAccept(false);
-            HonoProtonHelper.setCloseHandler(receiver, remoteDetach -> onLinkDetach(receiver));
-            HonoProtonHelper.setDetachHandler(receiver, remoteDetach -> onLinkDetach(receiver));
+            final UploadLink uploadLink = new UploadLink(receiver, DEFAULT_RECEIVER_LINK_CREDIT);
+            final Handler<AsyncResult<ProtonReceiver>> detachHandler = remoteDetach -> {
+                removeUploadLink(conn, uploadLink);
+                onLinkDetach(receiver);
+            };
+            HonoProtonHelper.setCloseHandler(receiver, detachHandler);
+            HonoProtonHelper.setDetachHandler(receiver, detachHandler);
             receiver.handler((delivery, message) -> {
 
-                final Span msgSpan = tracer.buildSpan("upload message")
-                        .ignoreActiveSpan()
-                        .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_SERVER)
-                        .withTag(Tags.COMPONENT.getKey(), getTypeName())
-                        .withTag(TracingHelper.TAG_AUTHENTICATED.getKey(), authenticatedDevice != null)
-                        .start();
-
-                if (authenticatedDevice != null) {
-                    msgSpan.setTag(MessageHelper.APP_PROPERTY_TENANT_ID, authenticatedDevice.getTenantId());
-                    msgSpan.setTag(MessageHelper.APP_PROPERTY_DEVICE_ID, authenticatedDevice.getDeviceId());
+                uploadLink.onMessageReceived();
+                final ResourceIdentifier presettledTelemetryResource = delivery.remotelySettled()
+                        ? getPresettledTelemetryResource(uploadLink, message, authenticatedDevice)
+                        : null;
+                final Future<?> processingTracker;
+                if (presettledTelemetryResource != null) {
+                    processingTracker = uploadPresettledTelemetryMessage(presettledTelemetryResource, uploadLink,
+                            delivery, message, authenticatedDevice);
+                } else {
+                    processingTracker = onMessageReceived(uploadLink, delivery, message, authenticatedDevice);
                 }
-
-                final Map<String, Object> items = new HashMap<>(1);
-                items.put(Tags.MESSAGE_BUS_DESTINATION.getKey(), message.getAddress());
-                msgSpan.log(items);
-
-                validateEndpoint(message.getAddress(), delivery)
-                .compose(address -> validateAddress(address, authenticatedDevice))
-                .recover(t -> {
-                    // invalid address / endpoint
-                    MessageHelper.rejected(delivery, AmqpContext.getErrorCondition(t));
-                    return Future.failedFuture(t);
-                })
-                .map(validatedAddress -> createContext(validatedAddress, delivery, message, authenticatedDevice))
-                .compose(context -> uploadMessage(context, msgSpan))
-                .otherwise(t -> {
-                    TracingHelper.logError(msgSpan, t);
-                    return null;
-                })
-                .setHandler(s -> {
-                    msgSpan.finish();
+                // credit is granted back only once the message has been forwarded downstream,
+                // so that the device cannot have more messages in process than its credit window
+                processingTracker.setHandler(processed -> {
+                    if (uploadLink.onMessageProcessed()) {
+                        getCreditController().replenish(uploadLink);
+                    }
                 });
             });
-            receiver.open();
+            addUploadLink(conn, uploadLink);
+            uploadLink.open();
             if (authenticatedDevice == null) {
                 LOG.debug("established link for receiving messages from device [container: {}]",
                         conn.getRemoteContainer());
@@ -470,6 +519,169 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
         span.finish();
     }
 
+    private Future<Void> onMessageReceived(
+            final UploadLink uploadLink,
+            final ProtonDelivery delivery,
+            final Message message,
+            final Device authenticatedDevice) {
+
+        final Span msgSpan = tracer.buildSpan("upload message")
+                .ignoreActiveSpan()
+                .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_SERVER)
+                .withTag(Tags.COMPONENT.getKey(), getTypeName())
+                .withTag(TracingHelper.TAG_AUTHENTICATED.getKey(), authenticatedDevice != null)
+                .start();
+
+        if (authenticatedDevice != null) {
+            msgSpan.setTag(MessageHelper.APP_PROPERTY_TENANT_ID, authenticatedDevice.getTenantId());
+            msgSpan.setTag(MessageHelper.APP_PROPERTY_DEVICE_ID, authenticatedDevice.getDeviceId());
+        }
+
+        final Map<String, Object> items = new HashMap<>(1);
+        items.put(Tags.MESSAGE_BUS_DESTINATION.getKey(), message.getAddress());
+        msgSpan.log(items);
+
+        return validateEndpoint(message.getAddress(), delivery)
+        .compose(address -> validateAddress(address, authenticatedDevice))
+        .recover(t -> {
+            // invalid address / endpoint
+            MessageHelper.rejected(delivery, AmqpContext.getErrorCondition(t));
+            return Future.failedFuture(t);
+        })
+        .map(validatedAddress -> {
+            final AmqpContext context = createContext(validatedAddress, delivery, message, authenticatedDevice);
+            context.setUploadLink(uploadLink);
+            return context;
+        })
+        .compose(context -> uploadMessage(context, msgSpan))
+        .otherwise(t -> {
+            TracingHelper.logError(msgSpan, t);
+            return null;
+        })
+        .map(ok -> {
+            msgSpan.finish();
+            return ok;
+        });
+    }
+
+    /**
+     * Gets the validated resource of a pre-settled message that can be forwarded
+     * using {@link #uploadPresettledTelemetryMessage(ResourceIdentifier, UploadLink, ProtonDelivery, Message, Device)}.
+     * 
+     * @param uploadLink The link that the message has been received on.
+     * @param message The message.
+     * @param authenticatedDevice The authenticated device or {@code null}.
+     * @return The resource or {@code null} if the message is not a valid telemetry message
+     *         or if its body is not a <em>Data</em> section.
+     */
+    private ResourceIdentifier getPresettledTelemetryResource(
+            final UploadLink uploadLink,
+            final Message message,
+            final Device authenticatedDevice) {
+
+        if (message.getBody() != null && !(message.getBody() instanceof Data)) {
+            return null;
+        }
+        ResourceIdentifier resource = uploadLink.getTelemetryResource(message.getAddress());
+        if (resource == null) {
+            final Future<ResourceIdentifier> validatedAddress = getResourceIdentifier(message.getAddress())
+                    .compose(address -> validateAddress(address, authenticatedDevice));
+            if (validatedAddress.succeeded()
+                    && EndpointType.TELEMETRY == EndpointType.fromString(validatedAddress.result().getEndpoint())) {
+                resource = validatedAddress.result();
+                uploadLink.setTelemetryResource(message.getAddress(), resource);
+            }
+        }
+        return resource;
+    }
+
+    /**
+     * Forwards a pre-settled telemetry message received from a device to downstream consumers.
+     * <p>
+     * The device does not expect an outcome for a pre-settled message. This method therefore
+     * takes a shortcut compared to {@link #uploadMessage(AmqpContext, Span)}: the delivery is
+     * settled right away, the message's <em>Data</em> section is used as the body of the downstream
+     * message without copying its content and an OpenTracing span is created only if the message
+     * cannot be forwarded.
+     * 
+     * @param resource The validated address of the message.
+     * @param uploadLink The link that the message has been received on.
+     * @param delivery The delivery of the message.
+     * @param message The message.
+     * @param authenticatedDevice The authenticated device or {@code null}.
+     * @return A future indicating the outcome.
+     */
+    Future<ProtonDelivery> uploadPresettledTelemetryMessage(
+            final ResourceIdentifier resource,
+            final UploadLink uploadLink,
+            final ProtonDelivery delivery,
+            final Message message,
+            final Device authenticatedDevice) {
+
+        final long startMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        final long start = System.nanoTime();
+        delivery.settle();
+
+        final String tenantId = resource.getTenantId();
+        final String endpoint = resource.getEndpoint();
+        final String qos = MetricsTags.VALUE_QOS_AT_MOST_ONCE;
+        final Data body = (Data) message.getBody();
+        final Future<ProtonDelivery> result;
+
+        if ((body == null || body.getValue().getLength() == 0)
+                != EventConstants.CONTENT_TYPE_EMPTY_NOTIFICATION.equals(message.getContentType())) {
+            result = Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_BAD_REQUEST,
+                    "empty notifications must not contain payload"));
+        } else {
+            final Future<JsonObject> tokenFuture = timeUploadStage(MetricsTags.VALUE_STAGE_REGISTRATION, endpoint, qos, start,
+                    getRegistrationAssertion(tenantId, resource.getResourceId(), authenticatedDevice, null));
+            final Future<TenantObject> tenantConfigFuture = timeUploadStage(MetricsTags.VALUE_STAGE_TENANT, endpoint, qos, start,
+                    getTenantConfiguration(tenantId, null));
+            final Future<MessageSender> senderFuture = timeUploadStage(MetricsTags.VALUE_STAGE_SENDER, endpoint, qos, start,
+                    getTelemetrySender(tenantId));
+
+            result = CompositeFuture.all(tenantConfigFuture, tokenFuture, senderFuture).compose(ok -> {
+                if (tenantConfigFuture.result().isAdapterEnabled(getTypeName())) {
+                    final MessageSender sender = senderFuture.result();
+                    getCreditController().setSender(uploadLink, tenantId, sender);
+                    final Message downstreamMessage = newMessage(resource, sender.isRegistrationAssertionRequired(),
+                            endpoint, message.getContentType(), null, tokenFuture.result(), null);
+                    downstreamMessage.setBody(body);
+                    final Future<ProtonDelivery> sent = timeUploadStage(MetricsTags.VALUE_STAGE_SEND, endpoint, qos, System.nanoTime(),
+                            sender.send(downstreamMessage, (SpanContext) null));
+                    if (!sent.failed()) {
+                        // a pre-settled message is handed over to the downstream link right away,
+                        // failures are reported below
+                        reportUploadStage(MetricsTags.VALUE_STAGE_TOTAL, endpoint, qos, start);
+                    }
+                    return sent;
+                } else {
+                    return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_FORBIDDEN,
+                            String.format("This adapter is not enabled for tenant [tenantId: %s].", tenantId)));
+                }
+            });
+        }
+
+        return result.recover(t -> {
+            reportUploadStage(MetricsTags.VALUE_STAGE_TOTAL, endpoint, qos, start);
+            LOG.debug("cannot process pre-settled telemetry message from device [tenant: {}, device-id: {}]",
+                    tenantId, resource.getResourceId(), t);
+            final Span span = tracer.buildSpan("upload message")
+                    .ignoreActiveSpan()
+                    .withStartTimestamp(startMicros)
+                    .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_SERVER)
+                    .withTag(Tags.COMPONENT.getKey(), getTypeName())
+                    .withTag(TracingHelper.TAG_AUTHENTICATED.getKey(), authenticatedDevice != null)
+                    .withTag(MessageHelper.APP_PROPERTY_TENANT_ID, tenantId)
+                    .withTag(MessageHelper.APP_PROPERTY_DEVICE_ID, resource.getResourceId())
+                    .withTag(Tags.MESSAGE_BUS_DESTINATION.getKey(), message.getAddress())
+                    .start();
+            TracingHelper.logError(span, t);
+            span.finish();
+            return Future.failedFuture(t);
+        });
+    }
+
     private AmqpContext createContext(
             final ResourceIdentifier validatedAddress,
             final ProtonDelivery delivery,
@@ -707,6 +919,7 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
      */
     protected Future<Void> uploadMessage(final AmqpContext context, final Span currentSpan) {
 
+        final long start = System.nanoTime();
         final Future<Void> contentTypeCheck = Future.future();
 
         if (isPayloadOfIndicatedType(context.getMessagePayload(), context.getMessageContentType())) {
@@ -720,10 +933,10 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
             switch (EndpointType.fromString(context.getEndpoint())) {
             case TELEMETRY:
                 LOG.trace("forwarding telemetry data");
-                return doUploadMessage(context, getTelemetrySender(context.getTenantId()), currentSpan);
+                return doUploadMessage(context, () -> getTelemetrySender(context.getTenantId()), currentSpan, start);
             case EVENT:
                 LOG.trace("forwarding event");
-                return doUploadMessage(context, getEventSender(context.getTenantId()), currentSpan);
+                return doUploadMessage(context, () -> getEventSender(context.getTenantId()), currentSpan, start);
             case CONTROL:
                 LOG.trace("forwarding command response");
                 return doUploadCommandResponseMessage(context, currentSpan);
@@ -733,6 +946,9 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
             }
         })
         .map(downstreamDelivery -> {
+            if (EndpointType.fromString(context.getEndpoint()) != EndpointType.CONTROL) {
+                reportUploadStage(MetricsTags.VALUE_STAGE_TOTAL, context.getEndpoint(), getQoS(context), start);
+            }
             context.accept();
             return (Void) null;
         })
@@ -745,12 +961,19 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
 
     private Future<ProtonDelivery> doUploadMessage(
             final AmqpContext context,
-            final Future<MessageSender> senderFuture,
-            final Span currentSpan) {
-
-        final Future<JsonObject> tokenFuture = getRegistrationAssertion(context.getTenantId(), context.getDeviceId(),
-                context.getAuthenticatedDevice(), currentSpan.context());
-        final Future<TenantObject> tenantConfigFuture = getTenantConfiguration(context.getTenantId(), currentSpan.context());
+            final Supplier<Future<MessageSender>> senderSupplier,
+            final Span currentSpan,
+            final long start) {
+
+        final String endpoint = context.getEndpoint();
+        final String qos = getQoS(context);
+        final Future<JsonObject> tokenFuture = timeUploadStage(MetricsTags.VALUE_STAGE_REGISTRATION, endpoint, qos, start,
+                getRegistrationAssertion(context.getTenantId(), context.getDeviceId(),
+                        context.getAuthenticatedDevice(), currentSpan.context()));
+        final Future<TenantObject> tenantConfigFuture = timeUploadStage(MetricsTags.VALUE_STAGE_TENANT, endpoint, qos, start,
+                getTenantConfiguration(context.getTenantId(), currentSpan.context()));
+        final Future<MessageSender> senderFuture = timeUploadStage(MetricsTags.VALUE_STAGE_SENDER, endpoint, qos, start,
+                senderSupplier.get());
 
         return CompositeFuture.all(tenantConfigFuture, tokenFuture, senderFuture)
                 .compose(ok -> {
@@ -758,17 +981,24 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
                     if (tenantObject.isAdapterEnabled(getTypeName())) {
 
                         final MessageSender sender = senderFuture.result();
+                        if (context.getUploadLink() != null) {
+                            getCreditController().setSender(context.getUploadLink(),
+                                    context.getResourceIdentifier().getTenantId(), sender);
+                        }
                         final Message downstreamMessage = newMessage(context.getResourceIdentifier(),
                                 sender.isRegistrationAssertionRequired(),
                                 context.getEndpoint(), context.getMessageContentType(), context.getMessagePayload(),
                                 tokenFuture.result(), null);
 
+                        final long sendStart = System.nanoTime();
                         if (context.isRemotelySettled()) {
                             // client uses AT_MOST_ONCE delivery semantics -> fire and forget
-                            return sender.send(downstreamMessage, currentSpan.context());
+                            return timeUploadStage(MetricsTags.VALUE_STAGE_SEND, endpoint, qos, sendStart,
+                                    sender.send(downstreamMessage, currentSpan.context()));
                         } else {
                             // client uses AT_LEAST_ONCE delivery semantics
-                            return sender.sendAndWaitForOutcome(downstreamMessage, currentSpan.context());
+                            return timeUploadStage(MetricsTags.VALUE_STAGE_SEND, endpoint, qos, sendStart,
+                                    sender.sendAndWaitForOutcome(downstreamMessage, currentSpan.context()));
                         }
                     } else {
                         // this adapter is not enabled for tenant
@@ -778,6 +1008,7 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
                                                 context.getTenantId())));
                     }
                 }).recover(t -> {
+                    reportUploadStage(MetricsTags.VALUE_STAGE_TOTAL, endpoint, qos, start);
                     LOG.debug("cannot process {} message from device [tenant: {}, device-id: {}]",
                             context.getEndpoint(),
                             context.getTenantId(),
@@ -786,6 +1017,12 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
                 });
     }
 
+    private static String getQoS(final AmqpContext context) {
+        return context.isRemotelySettled()
+                ? MetricsTags.VALUE_QOS_AT_MOST_ONCE
+                : MetricsTags.VALUE_QOS_AT_LEAST_ONCE;
+    }
+
     private Future<ProtonDelivery> doUploadCommandResponseMessage(final AmqpContext context, final Span currentSpan) {
 
         final String correlationId = Optional.ofNullable(context.getMessage().getCorrelationId())
@@ -931,6 +1168,37 @@ public final class VertxBasedAmqpProtocolAdapter extends AbstractProtocolAdapter
         return result;
     }
 
+    @SuppressWarnings("unchecked")
+    private static void addUploadLink(final ProtonConnection con, final UploadLink uploadLink) {
+
+        List<UploadLink> uploadLinks = con.attachments().get(KEY_UPLOAD_LINKS, List.class);
+        if (uploadLinks == null) {
+            uploadLinks = new ArrayList<>(1);
+            con.attachments().set(KEY_UPLOAD_LINKS, List.class, uploadLinks);
+        }
+        uploadLinks.add(uploadLink);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void removeUploadLink(final ProtonConnection con, final UploadLink uploadLink) {
+
+        final List<UploadLink> uploadLinks = con.attachments().get(KEY_UPLOAD_LINKS, List.class);
+        if (uploadLinks != null) {
+            uploadLinks.remove(uploadLink);
+        }
+        getCreditController().remove(uploadLink);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void removeUploadLinks(final ProtonConnection con) {
+
+        final List<UploadLink> uploadLinks = con.attachments().get(KEY_UPLOAD_LINKS, List.class);
+        if (uploadLinks != null) {
+            uploadLinks.forEach(getCreditController()::remove);
+            uploadLinks.clear();
+        }
+    }
+
     private static void addConnectionLossHandler(final ProtonConnection con, final Handler<Void> handler) {
 
         con.attachments().set("connectionLossHandler", Handler.class, handler);
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.amqp;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.eclipse.hono.client.MessageSender;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.mockito.ArgumentCaptor;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.proton.ProtonReceiver;
+
+/**
+ * Tests verifying behavior of {@link LinkCreditController}.
+ *
+ */
+public class LinkCreditControllerTest {
+
+    /**
+     * Time out each test after 5 seconds.
+     */
+    @Rule
+    public final Timeout timeout = Timeout.seconds(5);
+
+    private AmqpAdapterMetrics metrics;
+    private LinkCreditController controller;
+    private MessageSender sender;
+
+    /**
+     * Sets up the fixture.
+     */
+    @Before
+    public void setUp() {
+        metrics = mock(AmqpAdapterMetrics.class);
+        controller = new LinkCreditController(mock(Vertx.class), metrics, 1000);
+        sender = mock(MessageSender.class);
+        when(sender.isOpen()).thenReturn(true);
+    }
+
+    /**
+     * Verifies that a link which has not forwarded any messages yet is
+     * replenished with the credit that the device has used up.
+     */
+    @Test
+    public void testReplenishGrantsMissingCreditToLinkWithoutSender() {
+
+        final ProtonReceiver receiver = mock(ProtonReceiver.class);
+        final UploadLink link = givenAnOpenLinkWithUsedUpCredit(receiver, 10, 5);
+
+        controller.replenish(link);
+
+        verify(receiver).flow(5);
+        verify(metrics, never()).incrementGrantedLinkCredit(anyString(), anyInt());
+    }
+
+    /**
+     * Verifies that the downstream sender's credit is shared among the links
+     * forwarding messages to the sender.
+     */
+    @Test
+    public void testReplenishGrantsFairShareOfDownstreamCredit() {
+
+        // GIVEN two links that forward messages to the same sender
+        final ProtonReceiver firstReceiver = mock(ProtonReceiver.class);
+        final UploadLink firstLink = givenAnOpenLinkWithUsedUpCredit(firstReceiver, 10, 10);
+        final ProtonReceiver secondReceiver = mock(ProtonReceiver.class);
+        final UploadLink secondLink = givenAnOpenLinkWithUsedUpCredit(secondReceiver, 10, 10);
+        controller.setSender(firstLink, "tenant", sender);
+        controller.setSender(secondLink, "tenant", sender);
+        assertThat(controller.getNumberOfLinks(sender), is(2));
+
+        // WHEN the sender has less credit than the links have used up
+        when(sender.getCredit()).thenReturn(8);
+        controller.replenish(firstLink);
+        controller.replenish(secondLink);
+
+        // THEN each link gets half of the sender's credit
+        verify(firstReceiver).flow(4);
+        verify(secondReceiver).flow(4);
+        verify(metrics, times(2)).incrementGrantedLinkCredit("tenant", 4);
+
+        // and once a link has been closed, the remaining link gets all of the sender's credit
+        controller.remove(secondLink);
+        assertThat(controller.getNumberOfLinks(sender), is(1));
+        for (int i = 0; i < 4; i++) {
+            firstLink.onMessageReceived();
+            firstLink.onMessageProcessed();
+        }
+        controller.replenish(firstLink);
+        verify(firstReceiver).flow(8);
+    }
+
+    /**
+     * Verifies that a link waits for the downstream sender to be replenished
+     * if the sender has no credit.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testReplenishWaitsForDownstreamCredit() {
+
+        // GIVEN a link that forwards messages to a sender without credit
+        final ProtonReceiver receiver = mock(ProtonReceiver.class);
+        final UploadLink link = givenAnOpenLinkWithUsedUpCredit(receiver, 10, 10);
+        when(receiver.isOpen()).thenReturn(true);
+        controller.setSender(link, "tenant", sender);
+        when(sender.getCredit()).thenReturn(0);
+
+        // WHEN the link needs to be replenished
+        controller.replenish(link);
+
+        // THEN the link does not get any credit but waits for the sender to be replenished
+        verify(receiver, never()).flow(anyInt());
+        verify(metrics).incrementWaitingLinks("tenant");
+        final ArgumentCaptor<Handler<Void>> drainHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(sender).sendQueueDrainHandler(drainHandler.capture());
+        link.onMessageReceived();
+        assertThat(link.onMessageProcessed(), is(false));
+
+        // and WHEN the sender is replenished
+        when(sender.getCredit()).thenReturn(20);
+        drainHandler.getValue().handle(null);
+
+        // THEN the link gets the credit that the device has used up
+        verify(receiver).flow(10);
+        verify(metrics).decrementWaitingLinks("tenant");
+        verify(metrics).incrementGrantedLinkCredit("tenant", 10);
+    }
+
+    /**
+     * Verifies that a link is replenished without restriction if its downstream
+     * sender has been closed.
+     */
+    @Test
+    public void testReplenishGrantsMissingCreditIfSenderIsClosed() {
+
+        final ProtonReceiver receiver = mock(ProtonReceiver.class);
+        final UploadLink link = givenAnOpenLinkWithUsedUpCredit(receiver, 10, 6);
+        controller.setSender(link, "tenant", sender);
+        when(sender.isOpen()).thenReturn(false);
+
+        controller.replenish(link);
+
+        verify(receiver).flow(6);
+        verify(sender, never()).sendQueueDrainHandler(any(Handler.class));
+    }
+
+    private UploadLink givenAnOpenLinkWithUsedUpCredit(final ProtonReceiver receiver, final int window, final int usedUp) {
+        final UploadLink link = new UploadLink(receiver, window);
+        link.open();
+        for (int i = 0; i < usedUp; i++) {
+            link.onMessageReceived();
+            link.onMessageProcessed();
+        }
+        reset(receiver);
+        return link;
+    }
+}
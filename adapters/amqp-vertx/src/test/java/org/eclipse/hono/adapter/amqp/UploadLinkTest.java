@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.amqp;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import org.eclipse.hono.util.ResourceIdentifier;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import io.vertx.proton.ProtonReceiver;
+
+/**
+ * Tests verifying behavior of {@link UploadLink}.
+ *
+ */
+public class UploadLinkTest {
+
+    /**
+     * Time out each test after 5 seconds.
+     */
+    @Rule
+    public final Timeout timeout = Timeout.seconds(5);
+
+    /**
+     * Verifies that the link flows the initial credit when it is opened and
+     * indicates that it needs to be replenished once half of the credit window
+     * has been used up.
+     */
+    @Test
+    public void testOnMessageProcessedIndicatesNeedForCredit() {
+
+        final ProtonReceiver receiver = mock(ProtonReceiver.class);
+        final UploadLink link = new UploadLink(receiver, 10);
+        verify(receiver).setPrefetch(0);
+
+        link.open();
+        verify(receiver).open();
+        verify(receiver).flow(10);
+
+        for (int i = 0; i < 5; i++) {
+            link.onMessageReceived();
+        }
+        assertThat(link.getMissingCredit(), is(0));
+        for (int i = 0; i < 4; i++) {
+            assertFalse(link.onMessageProcessed());
+        }
+        assertTrue(link.onMessageProcessed());
+        assertThat(link.getMissingCredit(), is(5));
+
+        link.flow(5);
+        verify(receiver).flow(5);
+        assertThat(link.getMissingCredit(), is(0));
+    }
+
+    /**
+     * Verifies that the link remembers the resource of the last telemetry address only.
+     */
+    @Test
+    public void testGetTelemetryResourceReturnsResourceOfLastAddress() {
+
+        final UploadLink link = new UploadLink(mock(ProtonReceiver.class), 10);
+        final ResourceIdentifier resource = ResourceIdentifier.from("telemetry", "tenant", "device");
+
+        assertThat(link.getTelemetryResource("telemetry"), nullValue());
+        link.setTelemetryResource("telemetry", resource);
+        assertThat(link.getTelemetryResource("telemetry"), is(resource));
+        assertThat(link.getTelemetryResource("telemetry/tenant/device"), nullValue());
+        assertThat(link.getTelemetryResource(null), nullValue());
+    }
+}
@@ -12,8 +12,10 @@
  *******************************************************************************/
 package org.eclipse.hono.adapter.amqp;
 
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -26,12 +28,18 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.Symbol;
 import org.apache.qpid.proton.amqp.messaging.AmqpValue;
 import org.apache.qpid.proton.amqp.messaging.ApplicationProperties;
+import org.apache.qpid.proton.amqp.messaging.Data;
 import org.apache.qpid.proton.amqp.messaging.Rejected;
 import org.apache.qpid.proton.amqp.messaging.Target;
 import org.apache.qpid.proton.amqp.transport.Source;
@@ -67,14 +75,18 @@ import org.mockito.ArgumentCaptor;
 import io.opentracing.Span;
 import io.opentracing.SpanContext;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 import io.vertx.proton.ProtonConnection;
 import io.vertx.proton.ProtonDelivery;
+import io.vertx.proton.ProtonHelper;
+import io.vertx.proton.ProtonMessageHandler;
 import io.vertx.proton.ProtonQoS;
 import io.vertx.proton.ProtonReceiver;
 import io.vertx.proton.ProtonSender;
@@ -204,6 +216,120 @@ public class VertxBasedAmqpProtocolAdapterTest {
         verify(link).close();
     }
 
+    /**
+     * Verifies that a single anonymous relay link can be used for uploading
+     * messages of different types on behalf of multiple devices.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testAnonymousRelayReceiverForwardsMessagesForMultipleAddresses() {
+
+        // GIVEN an AMQP adapter
+        final VertxBasedAmqpProtocolAdapter adapter = givenAnAmqpAdapter();
+        final MessageSender telemetrySender = givenATelemetrySenderForAnyTenant();
+        final MessageSender eventSender = givenAnEventSender(Future.succeededFuture());
+
+        // to which a device has opened an anonymous relay link
+        final ProtonReceiver link = getReceiver(ProtonQoS.AT_LEAST_ONCE, new Target());
+        adapter.handleRemoteReceiverOpen(getConnection(null), link);
+        verify(link).open();
+        final ArgumentCaptor<ProtonMessageHandler> messageHandler = ArgumentCaptor.forClass(ProtonMessageHandler.class);
+        verify(link).handler(messageHandler.capture());
+
+        // WHEN the device sends a telemetry message and an event for different devices over the link
+        final ProtonDelivery telemetryDelivery = mock(ProtonDelivery.class);
+        when(telemetryDelivery.remotelySettled()).thenReturn(false);
+        messageHandler.getValue().handle(telemetryDelivery, getFakeMessage(
+                ResourceIdentifier.from(TelemetryConstants.TELEMETRY_ENDPOINT, TEST_TENANT_ID, TEST_DEVICE).toString()));
+        final ProtonDelivery eventDelivery = mock(ProtonDelivery.class);
+        when(eventDelivery.remotelySettled()).thenReturn(false);
+        messageHandler.getValue().handle(eventDelivery, getFakeMessage(
+                ResourceIdentifier.from(EventConstants.EVENT_ENDPOINT, TEST_TENANT_ID, "other-device").toString()));
+
+        // THEN both messages are forwarded downstream
+        verify(registrationClient).assertRegistration(eq(TEST_DEVICE), any(), (SpanContext) any());
+        verify(registrationClient).assertRegistration(eq("other-device"), any(), (SpanContext) any());
+        verify(telemetrySender).sendAndWaitForOutcome(any(Message.class), (SpanContext) any());
+        verify(eventSender).sendAndWaitForOutcome(any(Message.class), (SpanContext) any());
+        // and the link is not closed
+        verify(link, never()).close();
+    }
+
+    /**
+     * Verifies that the credit used up by messages received over a device's link is granted
+     * again only once the messages have been forwarded downstream.
+     */
+    @Test
+    public void testLinkIsReplenishedOnlyAfterMessagesHaveBeenProcessed() {
+
+        // GIVEN an AMQP adapter with a downstream sender which has not yet sent the outcome of messages
+        final VertxBasedAmqpProtocolAdapter adapter = givenAnAmqpAdapter();
+        givenAConfiguredTenant(TEST_TENANT_ID, true);
+        final MessageSender telemetrySender = givenATelemetrySenderForAnyTenant();
+        final List<Future<ProtonDelivery>> outcomes = new ArrayList<>();
+        when(telemetrySender.sendAndWaitForOutcome(any(Message.class), (SpanContext) any())).thenAnswer(invocation -> {
+            final Future<ProtonDelivery> outcome = Future.future();
+            outcomes.add(outcome);
+            return outcome;
+        });
+
+        // to which a device has opened a link
+        final ProtonReceiver link = getReceiver(ProtonQoS.AT_LEAST_ONCE, new Target());
+        adapter.handleRemoteReceiverOpen(getConnection(null), link);
+        verify(link).flow(30);
+        final ArgumentCaptor<ProtonMessageHandler> messageHandler = ArgumentCaptor.forClass(ProtonMessageHandler.class);
+        verify(link).handler(messageHandler.capture());
+
+        // WHEN the device uses up half of its credit
+        final String to = ResourceIdentifier.from(TelemetryConstants.TELEMETRY_ENDPOINT, TEST_TENANT_ID, TEST_DEVICE).toString();
+        for (int i = 0; i < 15; i++) {
+            final ProtonDelivery delivery = mock(ProtonDelivery.class);
+            when(delivery.remotelySettled()).thenReturn(false);
+            messageHandler.getValue().handle(delivery, getFakeMessage(to));
+        }
+
+        // THEN the link is not replenished as long as the messages are being forwarded
+        assertThat(outcomes.size(), is(15));
+        verify(link, never()).flow(15);
+
+        // and WHEN the downstream peer has accepted the messages
+        outcomes.forEach(outcome -> outcome.complete(mock(ProtonDelivery.class)));
+
+        // THEN the link is replenished with the credit used up by the messages
+        verify(link).flow(15);
+    }
+
+    /**
+     * Verifies that the adapter offers the anonymous relay capability to devices
+     * when opening a connection.
+     * 
+     * @param ctx The vert.x test context.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testAdapterOffersAnonymousRelayCapability(final TestContext ctx) {
+
+        // GIVEN a started AMQP adapter
+        final ProtonServer server = getAmqpServer();
+        final VertxBasedAmqpProtocolAdapter adapter = getAdapter(server);
+        final Future<Void> startupTracker = Future.future();
+        adapter.start(startupTracker);
+        assertTrue(startupTracker.succeeded());
+
+        // WHEN a device connects to the adapter
+        final ArgumentCaptor<Handler<ProtonConnection>> connectHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(server).connectHandler(connectHandler.capture());
+        final ProtonConnection deviceConnection = mock(ProtonConnection.class);
+        when(deviceConnection.attachments()).thenReturn(new RecordImpl());
+        connectHandler.getValue().handle(deviceConnection);
+
+        // THEN the adapter offers the anonymous relay capability
+        final ArgumentCaptor<Symbol[]> offeredCapabilities = ArgumentCaptor.forClass(Symbol[].class);
+        verify(deviceConnection).setOfferedCapabilities(offeredCapabilities.capture());
+        assertThat(offeredCapabilities.getValue(), is(new Symbol[] { AmqpAdapterConstants.CAP_ANONYMOUS_RELAY }));
+        verify(deviceConnection).open();
+    }
+
     /**
      * Verifies that a request to upload a pre-settled telemetry message results
      * in the downstream sender not waiting for the consumer's acknowledgment.
@@ -229,6 +355,47 @@ public class VertxBasedAmqpProtocolAdapterTest {
         verify(telemetrySender).send(any(Message.class), (SpanContext) any());
     }
 
+    /**
+     * Verifies that a pre-settled telemetry message received over a device's link is settled
+     * right away and is forwarded downstream using the message's original body.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testPresettledTelemetryMessageIsForwardedWithOriginalBody() {
+
+        // GIVEN an AMQP adapter
+        final VertxBasedAmqpProtocolAdapter adapter = givenAnAmqpAdapter();
+        final MessageSender telemetrySender = givenATelemetrySenderForAnyTenant();
+        when(telemetrySender.send(any(Message.class), (SpanContext) any())).thenReturn(Future.succeededFuture());
+
+        // to which a device has opened a link
+        final ProtonReceiver link = getReceiver(ProtonQoS.AT_LEAST_ONCE, new Target());
+        adapter.handleRemoteReceiverOpen(getConnection(null), link);
+        final ArgumentCaptor<ProtonMessageHandler> messageHandler = ArgumentCaptor.forClass(ProtonMessageHandler.class);
+        verify(link).handler(messageHandler.capture());
+
+        // WHEN the device sends pre-settled telemetry messages
+        final Data body = new Data(new Binary("hello".getBytes(StandardCharsets.UTF_8)));
+        final String to = ResourceIdentifier.from(TelemetryConstants.TELEMETRY_ENDPOINT, TEST_TENANT_ID, TEST_DEVICE).toString();
+        for (int i = 0; i < 2; i++) {
+            final ProtonDelivery delivery = mock(ProtonDelivery.class);
+            when(delivery.remotelySettled()).thenReturn(true);
+            final Message message = ProtonHelper.message(to, null);
+            message.setContentType("text/plain");
+            message.setBody(body);
+            messageHandler.getValue().handle(delivery, message);
+            // THEN the delivery is settled right away
+            verify(delivery).settle();
+        }
+
+        // and the messages are forwarded downstream without waiting for the outcome
+        final ArgumentCaptor<Message> downstreamMessage = ArgumentCaptor.forClass(Message.class);
+        verify(telemetrySender, times(2)).send(downstreamMessage.capture(), (SpanContext) any());
+        verify(telemetrySender, never()).sendAndWaitForOutcome(any(Message.class), (SpanContext) any());
+        assertThat(downstreamMessage.getValue().getBody(), is((Object) body));
+        assertThat(MessageHelper.getDeviceId(downstreamMessage.getValue()), is(TEST_DEVICE));
+    }
+
     /**
      * Verifies that a request to upload an "unsettled" telemetry message results in the sender sending the
      * message and waits for a response from the downstream peer.
@@ -567,6 +734,7 @@ public class VertxBasedAmqpProtocolAdapterTest {
     private VertxBasedAmqpProtocolAdapter getAdapter(final ProtonServer server) {
 
         final VertxBasedAmqpProtocolAdapter adapter = new VertxBasedAmqpProtocolAdapter();
+        adapter.init(mock(Vertx.class), mock(Context.class));
 
         adapter.setConfig(config);
         adapter.setInsecureAmqpServer(server);
@@ -16,26 +16,42 @@ import java.io.File;
 import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.security.Principal;
+import java.time.Clock;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Supplier;
 
+import org.apache.qpid.proton.amqp.transport.ErrorCondition;
 import org.apache.qpid.proton.message.Message;
+import org.eclipse.californium.core.CoapResource;
 import org.eclipse.californium.core.CoapServer;
 import org.eclipse.californium.core.coap.CoAP;
 import org.eclipse.californium.core.coap.CoAP.ResponseCode;
 import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.coap.MessageObserverAdapter;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
 import org.eclipse.californium.core.network.CoapEndpoint;
 import org.eclipse.californium.core.network.Endpoint;
 import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.core.network.interceptors.MessageInterceptor;
+import org.eclipse.californium.core.network.interceptors.MessageInterceptorAdapter;
+import org.eclipse.californium.core.observe.ObserveRelation;
 import org.eclipse.californium.core.server.resources.CoapExchange;
 import org.eclipse.californium.scandium.DTLSConnector;
 import org.eclipse.californium.scandium.config.DtlsConnectorConfig;
 import org.eclipse.hono.client.ClientErrorException;
+import org.eclipse.hono.client.Command;
+import org.eclipse.hono.client.CommandContext;
 import org.eclipse.hono.client.MessageSender;
 import org.eclipse.hono.auth.Device;
 import org.eclipse.hono.service.AbstractProtocolAdapterBase;
+import org.eclipse.hono.service.metric.MetricsTags;
 import org.eclipse.hono.util.Constants;
+import org.eclipse.hono.util.EndpointType;
 import org.eclipse.hono.util.EventConstants;
 import org.eclipse.hono.util.ResourceIdentifier;
 import org.eclipse.hono.util.TelemetryConstants;
@@ -59,6 +75,15 @@ import io.vertx.core.json.JsonObject;
 public abstract class AbstractVertxBasedCoapAdapter<T extends CoapAdapterProperties>
         extends AbstractProtocolAdapterBase<T> {
 
+    /**
+     * The name of the <em>Location-Query</em> parameter conveying the name of a command.
+     */
+    public static final String COMMAND_NAME_QUERY_PARAMETER = "hono-command";
+    /**
+     * The name of the <em>Location-Query</em> parameter conveying the request ID of a command.
+     */
+    public static final String COMMAND_REQUEST_ID_QUERY_PARAMETER = "hono-cmd-req-id";
+
     /**
      * A logger shared with subclasses.
      */
@@ -75,6 +100,12 @@ public abstract class AbstractVertxBasedCoapAdapter<T extends CoapAdapterPropert
      * Map for authorization handler.
      */
     protected final Map<Class<? extends Principal>, CoapAuthenticationHandler> authenticationHandlerMap = new HashMap<>();
+    /**
+     * The devices observing the command resource.
+     */
+    private final Map<String, CommandObserver> commandObservers = new HashMap<>();
+    private Clock clock = Clock.systemUTC();
+    private Long commandObserverReaperTimerId;
 
     /**
      * Sets the metrics for this service.
@@ -86,6 +117,24 @@ public abstract class AbstractVertxBasedCoapAdapter<T extends CoapAdapterPropert
         this.metrics = metrics;
     }
 
+    /**
+     * Sets the clock to use for determining whether a device observing the command
+     * resource has timed out.
+     * <p>
+     * This method is intended for testing purposes only.
+     *
+     * @param clock The clock.
+     * @throws NullPointerException if clock is {@code null}.
+     */
+    final void setClock(final Clock clock) {
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    @Override
+    protected final CoapAdapterMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * @return {@link CoAP#DEFAULT_COAP_SECURE_PORT}
      */
@@ -171,6 +220,7 @@ public abstract class AbstractVertxBasedCoapAdapter<T extends CoapAdapterPropert
             authenticationHandlerMap.put(coapPreSharedKeyProvider.getType(), coapPreSharedKeyProvider);
             final Context adapterContext = this.context;
             final CoapServer server = this.server;
+            final MessageInterceptor blockwiseUploadInterceptor = newBlockwiseUploadInterceptor(adapterContext);
 
             // delegate for blocking execution
             getVertx().executeBlocking(future -> {
@@ -191,8 +241,9 @@ public abstract class AbstractVertxBasedCoapAdapter<T extends CoapAdapterPropert
                 try {
                     final CoapEndpoint.CoapEndpointBuilder builder = new CoapEndpoint.CoapEndpointBuilder();
                     builder.setNetworkConfig(secureNetworkConfig);
-                    builder.setConnector(new DTLSConnector(dtlsConfig.build()));
+                    builder.setConnector(new DTLSConnector(dtlsConfig.build(), new CoapSessionCache(config)));
                     secureEndpoint = builder.build();
+                    secureEndpoint.addInterceptor(blockwiseUploadInterceptor);
                     startingServer.addEndpoint(secureEndpoint);
                 } catch (final IllegalStateException ex) {
                     LOG.warn("Failed to create secure endpoint!", ex);
@@ -207,6 +258,7 @@ public abstract class AbstractVertxBasedCoapAdapter<T extends CoapAdapterPropert
                         builder.setInetSocketAddress(new InetSocketAddress(config.getInsecurePortBindAddress(),
                                 config.getInsecurePort(getInsecurePortDefaultValue())));
                         insecureEndpoint = builder.build();
+                        insecureEndpoint.addInterceptor(blockwiseUploadInterceptor);
                         startingServer.addEndpoint(insecureEndpoint);
                     }
                 }
@@ -217,6 +269,7 @@ public abstract class AbstractVertxBasedCoapAdapter<T extends CoapAdapterPropert
             }, res -> {
                 if (res.succeeded()) {
                     this.server = (CoapServer) res.result();
+                    startCommandObserverReaper();
                     deployFuture.complete();
                 } else {
                     deployFuture.fail(res.cause());
@@ -256,6 +309,77 @@ public abstract class AbstractVertxBasedCoapAdapter<T extends CoapAdapterPropert
         // empty
     }
 
+    /**
+     * Creates an interceptor which notices the first block of block-wise uploads.
+     * 
+     * @param adapterContext context of this adapter.
+     * @return The interceptor.
+     */
+    private MessageInterceptor newBlockwiseUploadInterceptor(final Context adapterContext) {
+
+        return new MessageInterceptorAdapter() {
+
+            @Override
+            public void receiveRequest(final Request request) {
+                if ((request.getCode() == CoAP.Code.POST || request.getCode() == CoAP.Code.PUT)
+                        && request.getOptions().hasBlock1() && request.getOptions().getBlock1().getNum() == 0) {
+                    adapterContext.runOnContext(go -> onFirstBlockReceived(request));
+                }
+            }
+        };
+    }
+
+    /**
+     * Starts looking up the data required for forwarding a message which is uploaded by means of a block-wise
+     * transfer.
+     * <p>
+     * Californium reassembles the body of a block-wise transfer before the request is passed to a resource. This
+     * method is invoked once the first block of a transfer has been received. It authenticates the device and looks
+     * up the tenant's configuration, the device's registration status and the downstream sender so that the (cached)
+     * results are available once the last block has been received. The size of the body is limited by
+     * the <em>maxPayloadSize</em> property. Californium rejects transfers exceeding the limit based on
+     * the first block's <em>Size1</em> option or as soon as the reassembled body exceeds the limit.
+     * 
+     * @param request The request containing the first block.
+     */
+    final void onFirstBlockReceived(final Request request) {
+
+        final List<String> path = request.getOptions().getUriPath();
+        if (path.isEmpty()) {
+            return;
+        }
+        final ResourceIdentifier resource = ResourceIdentifier.fromPath(path.toArray(new String[path.size()]));
+        final EndpointType endpoint = EndpointType.fromString(resource.getEndpoint());
+        if (endpoint != EndpointType.TELEMETRY && endpoint != EndpointType.EVENT) {
+            return;
+        }
+        final Device originDevice = resource.getResourceId() == null ? null
+                : new Device(resource.getTenantId(), resource.getResourceId());
+        final Principal peer = request.getSourceContext().getPeerIdentity();
+        final CoapAuthenticationHandler authenticationHandler = getAuthenticationHandler(peer);
+        final Future<Device> authenticationTracker;
+        if (authenticationHandler != null) {
+            authenticationTracker = authenticationHandler.getAuthenticatedDevice(peer);
+        } else if (peer == null && originDevice != null) {
+            authenticationTracker = Future.succeededFuture(originDevice);
+        } else {
+            return;
+        }
+        authenticationTracker.compose(authenticatedDevice -> {
+            final Device device = originDevice == null ? authenticatedDevice : originDevice;
+            LOG.trace("block-wise upload started by device [tenantId: {}, deviceId: {}]", device.getTenantId(),
+                    device.getDeviceId());
+            return CompositeFuture.all(
+                    getRegistrationAssertion(device.getTenantId(), device.getDeviceId(), authenticatedDevice, null),
+                    getTenantConfiguration(device.getTenantId(), null),
+                    endpoint == EndpointType.TELEMETRY ? getTelemetrySender(device.getTenantId())
+                            : getEventSender(device.getTenantId()));
+        }).otherwise(t -> {
+            LOG.debug("cannot prepare block-wise upload: {}", t.getMessage());
+            return null;
+        });
+    }
+
     /**
      * Gets the CoAP network configuration for the secure endpoint.
      * <p>
@@ -272,6 +396,7 @@ public abstract class AbstractVertxBasedCoapAdapter<T extends CoapAdapterPropert
         networkConfig.setInt(NetworkConfig.Keys.PROTOCOL_STAGE_THREAD_COUNT, config.getCoapThreads());
         networkConfig.setInt(NetworkConfig.Keys.NETWORK_STAGE_RECEIVER_THREAD_COUNT, config.getConnectorThreads());
         networkConfig.setInt(NetworkConfig.Keys.NETWORK_STAGE_SENDER_THREAD_COUNT, config.getConnectorThreads());
+        networkConfig.setInt(NetworkConfig.Keys.MAX_RESOURCE_BODY_SIZE, config.getMaxPayloadSize());
         loadNetworkConfig(config.getNetworkConfig(), networkConfig);
         loadNetworkConfig(config.getSecureNetworkConfig(), networkConfig);
         return networkConfig;
@@ -293,6 +418,7 @@ public abstract class AbstractVertxBasedCoapAdapter<T extends CoapAdapterPropert
         networkConfig.setInt(NetworkConfig.Keys.PROTOCOL_STAGE_THREAD_COUNT, config.getCoapThreads());
         networkConfig.setInt(NetworkConfig.Keys.NETWORK_STAGE_RECEIVER_THREAD_COUNT, config.getConnectorThreads());
         networkConfig.setInt(NetworkConfig.Keys.NETWORK_STAGE_SENDER_THREAD_COUNT, config.getConnectorThreads());
+        networkConfig.setInt(NetworkConfig.Keys.MAX_RESOURCE_BODY_SIZE, config.getMaxPayloadSize());
         loadNetworkConfig(config.getNetworkConfig(), networkConfig);
         loadNetworkConfig(config.getInsecureNetworkConfig(), networkConfig);
         return networkConfig;
@@ -340,6 +466,11 @@ public abstract class AbstractVertxBasedCoapAdapter<T extends CoapAdapterPropert
             LOG.error("error in preShutdown", e);
         }
 
+        if (commandObserverReaperTimerId != null) {
+            getVertx().cancelTimer(commandObserverReaperTimerId);
+            commandObserverReaperTimerId = null;
+        }
+
         final Future<Void> serverStopTracker = Future.future();
         if (server != null) {
             getVertx().executeBlocking(future -> {
@@ -391,7 +522,7 @@ public abstract class AbstractVertxBasedCoapAdapter<T extends CoapAdapterPropert
                 waitForOutcome,
                 Buffer.buffer(exchange.getRequestPayload()),
                 MediaTypeRegistry.toString(exchange.getRequestOptions().getContentFormat()),
-                getTelemetrySender(authenticatedDevice.getTenantId()),
+                () -> getTelemetrySender(authenticatedDevice.getTenantId()),
                 TelemetryConstants.TELEMETRY_ENDPOINT);
     }
 
@@ -413,7 +544,7 @@ public abstract class AbstractVertxBasedCoapAdapter<T extends CoapAdapterPropert
                 true,
                 Buffer.buffer(exchange.getRequestPayload()),
                 MediaTypeRegistry.toString(exchange.getRequestOptions().getContentFormat()),
-                getEventSender(authenticatedDevice.getTenantId()), EventConstants.EVENT_ENDPOINT);
+                () -> getEventSender(authenticatedDevice.getTenantId()), EventConstants.EVENT_ENDPOINT);
     }
 
     /**
@@ -426,6 +557,7 @@ public abstract class AbstractVertxBasedCoapAdapter<T extends CoapAdapterPropert
      * <li>4.01 (Unauthorized) - if the device could not be authorized.</li>
      * <li>4.03 (Forbidden) - if the tenant/device is not authorized to send messages.</li>
      * <li>4.06 (Not Acceptable) - if the message is malformed.</li>
+     * <li>4.13 (Request Entity Too Large) - if the payload exceeds the maximum payload size.</li>
      * <li>5.00 (Internal Server Error) - if the message could not be processed due to an unknown processing error.</li>
      * <li>5.03 (Service Unavailable) - if the message could not be forwarded, e.g. due to lack of
      * connection or credit.</li>
@@ -440,25 +572,33 @@ public abstract class AbstractVertxBasedCoapAdapter<T extends CoapAdapterPropert
      *            the sent.
      * @param payload message payload
      * @param contentType content type of message payload
-     * @param senderTracker hono message sender tracker
+     * @param senderSupplier supplier of the hono message sender
      * @param endpointName message destination endpoint name
      */
     private void doUploadMessage(final CoapExchange exchange, final Device authenticatedDevice, final Device device,
             final boolean waitForOutcome, final Buffer payload, final String contentType,
-            final Future<MessageSender> senderTracker,
+            final Supplier<Future<MessageSender>> senderSupplier,
             final String endpointName) {
 
         if (contentType == null) {
             exchange.respond(ResponseCode.NOT_ACCEPTABLE);
         } else if (payload == null || payload.length() == 0) {
             exchange.respond(ResponseCode.NOT_ACCEPTABLE);
+        } else if (payload.length() > getConfig().getMaxPayloadSize()) {
+            exchange.respond(ResponseCode.REQUEST_ENTITY_TOO_LARGE);
         } else {
 
-            final Future<JsonObject> tokenTracker = getRegistrationAssertion(
-                    device.getTenantId(), device.getDeviceId(),
-                    authenticatedDevice,
-                    null);
-            final Future<TenantObject> tenantConfigTracker = getTenantConfiguration(device.getTenantId(), null);
+            final String qos = waitForOutcome ? MetricsTags.VALUE_QOS_AT_LEAST_ONCE : MetricsTags.VALUE_QOS_AT_MOST_ONCE;
+            final long start = System.nanoTime();
+            final Future<JsonObject> tokenTracker = timeUploadStage(MetricsTags.VALUE_STAGE_REGISTRATION, endpointName, qos, start,
+                    getRegistrationAssertion(
+                            device.getTenantId(), device.getDeviceId(),
+                            authenticatedDevice,
+                            null));
+            final Future<TenantObject> tenantConfigTracker = timeUploadStage(MetricsTags.VALUE_STAGE_TENANT, endpointName, qos, start,
+                    getTenantConfiguration(device.getTenantId(), null));
+            final Future<MessageSender> senderTracker = timeUploadStage(MetricsTags.VALUE_STAGE_SENDER, endpointName, qos, start,
+                    senderSupplier.get());
             CompositeFuture.all(tokenTracker, senderTracker, tenantConfigTracker).compose(ok -> {
                 if (tenantConfigTracker.result().isAdapterEnabled(getTypeName())) {
                     final MessageSender sender = senderTracker.result();
@@ -471,23 +611,28 @@ public abstract class AbstractVertxBasedCoapAdapter<T extends CoapAdapterPropert
                             tokenTracker.result(),
                             null);
                     customizeDownstreamMessage(downstreamMessage, exchange);
+                    final long sendStart = System.nanoTime();
                     if (waitForOutcome) {
                         // wait for outcome, ensure message order, if CoAP NSTART-1 is used.
-                        return sender.sendAndWaitForOutcome(downstreamMessage);
+                        return timeUploadStage(MetricsTags.VALUE_STAGE_SEND, endpointName, qos, sendStart,
+                                sender.sendAndWaitForOutcome(downstreamMessage));
                     } else {
-                        return sender.send(downstreamMessage);
+                        return timeUploadStage(MetricsTags.VALUE_STAGE_SEND, endpointName, qos, sendStart,
+                                sender.send(downstreamMessage));
                     }
                 } else {
                     // this adapter is not enabled for the tenant
                     return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_FORBIDDEN));
                 }
             }).map(delivery -> {
+                reportUploadStage(MetricsTags.VALUE_STAGE_TOTAL, endpointName, qos, start);
                 LOG.trace("successfully processed message for device [tenantId: {}, deviceId: {}, endpoint: {}]",
                         device.getTenantId(), device.getDeviceId(), endpointName);
                 metrics.incrementProcessedMessages(endpointName, device.getTenantId());
                 exchange.respond(ResponseCode.CHANGED);
                 return delivery;
             }).recover(t -> {
+                reportUploadStage(MetricsTags.VALUE_STAGE_TOTAL, endpointName, qos, start);
                 LOG.debug("cannot process message for device [tenantId: {}, deviceId: {}, endpoint: {}]: {}",
                         device.getTenantId(), device.getDeviceId(), endpointName, t.getMessage());
                 if (!(ClientErrorException.class.isInstance(t))) {
@@ -498,4 +643,369 @@ public abstract class AbstractVertxBasedCoapAdapter<T extends CoapAdapterPropert
             });
         }
     }
+
+    /**
+     * Registers a device for receiving commands by means of a CoAP <em>Observe</em> relation.
+     * <p>
+     * Commands destined to the device are delivered as notifications of the relation, one at
+     * a time. The notification's payload contains the command's payload, its <em>Location-Query</em>
+     * options contain the command's name and, for request/response commands, its request ID.
+     * <p>
+     * The type of the notifications follows the type of the device's registration request:
+     * <ul>
+     * <li>If the device has registered using a confirmable request, commands are delivered as
+     * confirmable notifications. A command is accepted once the device has acknowledged the
+     * notification and is released if the device rejects the notification or does not acknowledge it
+     * in time.</li>
+     * <li>If the device has registered using a non-confirmable request, commands are delivered as
+     * non-confirmable notifications and are accepted once the notification has been sent.</li>
+     * </ul>
+     * <p>
+     * This method is also invoked for the notifications of an established relation and for requests
+     * canceling the relation. Depending on the outcome of the request, the CoAP response's code is set as
+     * follows:
+     * <ul>
+     * <li>2.05 (Content) - if the device has been registered or deregistered or if a command is delivered.</li>
+     * <li>4.00 (Bad Request) - if the request does not contain an <em>Observe</em> option.</li>
+     * <li>4.03 (Forbidden) - if the tenant/device is not authorized to receive commands.</li>
+     * <li>5.03 (Service Unavailable) - if the command consumer could not be created or if the device
+     * is no longer registered for commands. In the latter case the relation is canceled and the device
+     * is expected to register again.</li>
+     * </ul>
+     * 
+     * @param exchange coap exchange of the <em>GET</em> request.
+     * @param authenticatedDevice authenticated device
+     * @param originDevice device to receive commands.
+     * @throws NullPointerException if exchange or origin device are {@code null}.
+     */
+    public final void observeCommands(final CoapExchange exchange, final Device authenticatedDevice,
+            final Device originDevice) {
+
+        Objects.requireNonNull(exchange);
+        Objects.requireNonNull(originDevice);
+
+        if (!exchange.getRequestOptions().hasObserve()) {
+            exchange.respond(ResponseCode.BAD_REQUEST, "observe option required");
+            return;
+        }
+        final String key = Device.asAddress(originDevice.getTenantId(), originDevice.getDeviceId());
+        final CommandObserver observer = commandObservers.get(key);
+        final ObserveRelation relation = exchange.advanced().getRelation();
+        if (relation == null) {
+            // the device has canceled its relation
+            if (observer != null) {
+                closeCommandObserver(observer);
+            }
+            exchange.respond(ResponseCode.CONTENT);
+        } else if (relation.isEstablished()) {
+            // a notification is due
+            if (observer != null && observer.getRelation() == relation) {
+                deliverCommand(observer, exchange);
+            } else {
+                // the device has been deregistered, the error response cancels the relation
+                // and tells the device to register again
+                exchange.respond(ResponseCode.SERVICE_UNAVAILABLE);
+            }
+        } else {
+            registerCommandObserver(exchange, relation, authenticatedDevice, originDevice);
+        }
+    }
+
+    private void registerCommandObserver(final CoapExchange exchange, final ObserveRelation relation,
+            final Device authenticatedDevice, final Device device) {
+
+        final String key = Device.asAddress(device.getTenantId(), device.getDeviceId());
+        final boolean confirmable = exchange.advanced().getRequest().isConfirmable();
+        final Future<JsonObject> tokenTracker = getRegistrationAssertion(
+                device.getTenantId(), device.getDeviceId(), authenticatedDevice, null);
+        final Future<TenantObject> tenantConfigTracker = getTenantConfiguration(device.getTenantId(), null);
+        CompositeFuture.all(tokenTracker, tenantConfigTracker).compose(ok -> {
+            if (!tenantConfigTracker.result().isAdapterEnabled(getTypeName())) {
+                // this adapter is not enabled for the tenant
+                return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_FORBIDDEN));
+            }
+            final CommandObserver existingObserver = commandObservers.get(key);
+            if (existingObserver != null) {
+                // the device has registered again, e.g. using a different address
+                existingObserver.setRelation(relation, confirmable);
+                existingObserver.setLastActivity(clock.millis());
+                return Future.succeededFuture(existingObserver);
+            }
+            final CommandObserver observer = new CommandObserver(device, authenticatedDevice, relation, confirmable);
+            observer.setLastActivity(clock.millis());
+            return createCommandConsumer(
+                    device.getTenantId(),
+                    device.getDeviceId(),
+                    commandContext -> onCommandReceived(observer, commandContext),
+                    remoteClose -> {
+                        LOG.debug("peer closed command consumer [tenantId: {}, deviceId: {}]",
+                                device.getTenantId(), device.getDeviceId());
+                        // a device registering again gets a new consumer
+                        closeCommandObserver(observer);
+                    })
+                    .map(consumer -> {
+                        commandObservers.put(key, observer);
+                        sendConnectedTtdEvent(device.getTenantId(), device.getDeviceId(), authenticatedDevice, null);
+                        return observer;
+                    });
+        }).map(observer -> {
+            LOG.debug("device [tenantId: {}, deviceId: {}] observes commands", device.getTenantId(),
+                    device.getDeviceId());
+            // establishes the relation
+            exchange.respond(ResponseCode.CONTENT);
+            deliverNextCommand(observer);
+            return observer;
+        }).otherwise(t -> {
+            LOG.debug("cannot register device [tenantId: {}, deviceId: {}] for commands: {}",
+                    device.getTenantId(), device.getDeviceId(), t.getMessage());
+            CoapErrorResponse.respond(exchange, t);
+            return null;
+        });
+    }
+
+    private void onCommandReceived(final CommandObserver observer, final CommandContext commandContext) {
+
+        if (commandObservers.get(getKey(observer)) != observer) {
+            // the device has canceled its relation in the meantime
+            commandContext.release(1);
+        } else if (observer.getRelation().isCanceled()) {
+            // the relation has been canceled by the CoAP stack, e.g. because a notification has not been acknowledged
+            commandContext.release(1);
+            closeCommandObserver(observer);
+        } else if (commandContext.getCommand().isValid()) {
+            observer.addCommand(commandContext);
+            deliverNextCommand(observer);
+        } else {
+            // issue credit so that application(s) can send the next command
+            commandContext.reject(new ErrorCondition(Constants.AMQP_BAD_REQUEST, "malformed command message"), 1);
+        }
+    }
+
+    private void deliverNextCommand(final CommandObserver observer) {
+
+        if (observer.nextCommand() != null) {
+            final ObserveRelation relation = observer.getRelation();
+            // trigger a notification for the device's relation only
+            ((CoapResource) relation.getResource()).changed(candidate -> candidate == relation);
+        }
+    }
+
+    private void deliverCommand(final CommandObserver observer, final CoapExchange exchange) {
+
+        final CommandContext commandContext = observer.getCommandInDelivery();
+        final boolean confirmable = exchange.advanced().getRequest().isConfirmable();
+        final ObserveRelation relation = observer.getRelation();
+        if (commandContext == null) {
+            if (confirmable) {
+                checkLiveness(observer, relation, exchange);
+            } else {
+                exchange.respond(ResponseCode.CONTENT);
+            }
+            return;
+        }
+        final Command command = commandContext.getCommand();
+        final Response response = new Response(ResponseCode.CONTENT);
+        response.setType(confirmable ? CoAP.Type.CON : CoAP.Type.NON);
+        if (command.getPayload() != null) {
+            response.setPayload(command.getPayload().getBytes());
+        }
+        if (command.getContentType() != null) {
+            final int contentFormat = MediaTypeRegistry.parse(command.getContentType());
+            if (contentFormat != MediaTypeRegistry.UNDEFINED) {
+                response.getOptions().setContentFormat(contentFormat);
+            }
+        }
+        response.getOptions().addLocationQuery(COMMAND_NAME_QUERY_PARAMETER + "=" + command.getName());
+        if (!command.isOneWay()) {
+            response.getOptions().addLocationQuery(COMMAND_REQUEST_ID_QUERY_PARAMETER + "=" + command.getRequestId());
+        }
+        response.addMessageObserver(new MessageObserverAdapter() {
+
+            @Override
+            public void onAcknowledgement() {
+                if (confirmable) {
+                    onCommandDelivered(observer, relation, commandContext, true);
+                }
+            }
+
+            @Override
+            public void onSent() {
+                if (!confirmable) {
+                    onCommandDelivered(observer, relation, commandContext, true);
+                }
+            }
+
+            @Override
+            public void onReject() {
+                onCommandDelivered(observer, relation, commandContext, false);
+            }
+
+            @Override
+            public void onTimeout() {
+                onCommandDelivered(observer, relation, commandContext, false);
+            }
+
+            @Override
+            public void onCancel() {
+                onCommandDelivered(observer, relation, commandContext, false);
+            }
+
+            @Override
+            public void onSendError(final Throwable error) {
+                onCommandDelivered(observer, relation, commandContext, false);
+            }
+        });
+        exchange.respond(response);
+    }
+
+    /**
+     * Sends an empty confirmable notification to a device which has not shown any activity
+     * within the command observer timeout.
+     * <p>
+     * The device is considered alive as long as it acknowledges the notification. Otherwise
+     * it is deregistered.
+     */
+    private void checkLiveness(final CommandObserver observer, final ObserveRelation relation,
+            final CoapExchange exchange) {
+
+        final Response response = new Response(ResponseCode.CONTENT);
+        response.setType(CoAP.Type.CON);
+        response.addMessageObserver(new MessageObserverAdapter() {
+
+            @Override
+            public void onAcknowledgement() {
+                onLivenessChecked(observer, relation, true);
+            }
+
+            @Override
+            public void onReject() {
+                onLivenessChecked(observer, relation, false);
+            }
+
+            @Override
+            public void onTimeout() {
+                onLivenessChecked(observer, relation, false);
+            }
+
+            @Override
+            public void onSendError(final Throwable error) {
+                onLivenessChecked(observer, relation, false);
+            }
+        });
+        exchange.respond(response);
+    }
+
+    private void onLivenessChecked(final CommandObserver observer, final ObserveRelation relation,
+            final boolean alive) {
+
+        context.runOnContext(go -> {
+            if (observer.getRelation() != relation) {
+                // the device has registered again in the meantime
+                return;
+            }
+            if (alive) {
+                observer.setLastActivity(clock.millis());
+            } else {
+                LOG.debug("device [tenantId: {}, deviceId: {}] has not acknowledged liveness check",
+                        observer.getDevice().getTenantId(), observer.getDevice().getDeviceId());
+                closeCommandObserver(observer);
+            }
+        });
+    }
+
+    /**
+     * Invoked when the delivery of a command has completed.
+     * <p>
+     * Message observers are notified on the threads of the CoAP stack,
+     * the outcome is therefore processed on the adapter's context.
+     */
+    private void onCommandDelivered(final CommandObserver observer, final ObserveRelation relation,
+            final CommandContext commandContext, final boolean delivered) {
+
+        context.runOnContext(go -> {
+            if (!observer.completeDelivery(commandContext)) {
+                // outcome has already been processed
+                return;
+            }
+            final Device device = observer.getDevice();
+            if (delivered) {
+                LOG.trace("command delivered to device [tenantId: {}, deviceId: {}]", device.getTenantId(),
+                        device.getDeviceId());
+                metrics.incrementCommandDeliveredToDevice(device.getTenantId());
+                commandContext.accept(1);
+                observer.setLastActivity(clock.millis());
+            } else if (observer.getRelation() != relation) {
+                // the device has registered again in the meantime
+                observer.retryCommand(commandContext);
+            } else {
+                LOG.debug("cannot deliver command to device [tenantId: {}, deviceId: {}]", device.getTenantId(),
+                        device.getDeviceId());
+                commandContext.release(1);
+                // the relation has been canceled
+                closeCommandObserver(observer);
+                return;
+            }
+            deliverNextCommand(observer);
+        });
+    }
+
+    private void closeCommandObserver(final CommandObserver observer) {
+
+        final Device device = observer.getDevice();
+        if (!commandObservers.remove(getKey(observer), observer)) {
+            return;
+        }
+        LOG.debug("device [tenantId: {}, deviceId: {}] no longer observes commands", device.getTenantId(),
+                device.getDeviceId());
+        observer.drainCommands().forEach(commandContext -> commandContext.release(1));
+        final ObserveRelation relation = observer.getRelation();
+        if (relation.isEstablished() && !relation.isCanceled()) {
+            // canceling the relation does not notify the device, a final notification is
+            // triggered instead which results in an error response (see observeCommands)
+            ((CoapResource) relation.getResource()).changed(candidate -> candidate == relation);
+        } else if (!relation.isCanceled()) {
+            relation.cancel();
+        }
+        closeCommandConsumer(device.getTenantId(), device.getDeviceId());
+        sendDisconnectedTtdEvent(device.getTenantId(), device.getDeviceId(), observer.getAuthenticatedDevice(), null);
+    }
+
+    private void startCommandObserverReaper() {
+
+        final long interval = Math.max(1000L, getConfig().getCommandObserverTimeout() * 1000L / 2);
+        commandObserverReaperTimerId = getVertx().setPeriodic(interval, id -> reapCommandObservers());
+    }
+
+    /**
+     * Deregisters devices which no longer observe the command resource.
+     * <p>
+     * This is the case if a device's relation has been canceled or if a device which has
+     * registered using a non-confirmable request has neither registered again nor acknowledged
+     * a command within the configured command observer timeout.
+     * <p>
+     * Devices which have registered using a confirmable request are not deregistered because of
+     * inactivity. Such devices are sent a confirmable notification instead and are only deregistered
+     * if they do not acknowledge it.
+     */
+    void reapCommandObservers() {
+
+        final long oldestActivity = clock.millis() - getConfig().getCommandObserverTimeout() * 1000L;
+        new ArrayList<>(commandObservers.values()).forEach(observer -> {
+            final ObserveRelation relation = observer.getRelation();
+            if (relation.isCanceled()) {
+                closeCommandObserver(observer);
+            } else if (observer.getLastActivity() < oldestActivity) {
+                if (!observer.isConfirmable()) {
+                    closeCommandObserver(observer);
+                } else if (relation.isEstablished() && observer.getCommandInDelivery() == null) {
+                    // the outcome of a command in delivery already shows if the device is alive
+                    ((CoapResource) relation.getResource()).changed(candidate -> candidate == relation);
+                }
+            }
+        });
+    }
+
+    private static String getKey(final CommandObserver observer) {
+        return Device.asAddress(observer.getDevice().getTenantId(), observer.getDevice().getDeviceId());
+    }
 }
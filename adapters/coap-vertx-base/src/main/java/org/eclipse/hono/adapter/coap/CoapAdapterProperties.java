@@ -34,6 +34,31 @@ public class CoapAdapterProperties extends ProtocolAdapterProperties {
      * The default maximum size of device cache.
      */
     public static final long DEFAULT_DEVICE_CACHE_MAX_SIZE = 1000000L;
+    /**
+     * The default number of milliseconds to wait for the pre-shared key of a device.
+     */
+    public static final long DEFAULT_PSK_LOOKUP_TIMEOUT = 1000L;
+    /**
+     * The default maximum number of pre-shared key lookups being processed concurrently.
+     */
+    public static final int DEFAULT_MAX_PENDING_PSK_LOOKUPS = 100;
+    /**
+     * The default maximum number of DTLS sessions to keep in the session cache.
+     */
+    public static final long DEFAULT_SESSION_CACHE_MAX_SIZE = 10000L;
+    /**
+     * The default number of seconds after which a cached DTLS session expires.
+     * <p>
+     * Corresponds to the period of time after which a cached pre-shared key expires, so that
+     * a device cannot resume a session based on credentials that have been removed from the
+     * Credentials service for longer than a key would have been cached.
+     */
+    public static final long DEFAULT_SESSION_TIMEOUT = 600L;
+    /**
+     * The default number of seconds after which a device that observes the command resource
+     * is considered gone if it has neither registered again nor acknowledged a command.
+     */
+    public static final long DEFAULT_COMMAND_OBSERVER_TIMEOUT = 300L;
 
     private String idSplitRegex = DEFAULT_ID_SPLIT_REGEX;
     private String networkConfig = null;
@@ -43,6 +68,11 @@ public class CoapAdapterProperties extends ProtocolAdapterProperties {
     private int coapThreads = 2;
     private int deviceCacheMinSize = DEFAULT_DEVICE_CACHE_MIN_SIZE;
     private long deviceCacheMaxSize = DEFAULT_DEVICE_CACHE_MAX_SIZE;
+    private long pskLookupTimeout = DEFAULT_PSK_LOOKUP_TIMEOUT;
+    private int maxPendingPskLookups = DEFAULT_MAX_PENDING_PSK_LOOKUPS;
+    private long sessionCacheMaxSize = DEFAULT_SESSION_CACHE_MAX_SIZE;
+    private long sessionTimeout = DEFAULT_SESSION_TIMEOUT;
+    private long commandObserverTimeout = DEFAULT_COMMAND_OBSERVER_TIMEOUT;
 
     public final String getIdSplitRegex() {
         return idSplitRegex;
@@ -135,6 +165,154 @@ public class CoapAdapterProperties extends ProtocolAdapterProperties {
         this.deviceCacheMaxSize = size;
     }
 
+    /**
+     * Gets the time to wait for the pre-shared key of a device during a DTLS handshake.
+     * <p>
+     * The lookup of a key that is not cached yet blocks a connector thread for at most this
+     * period of time. If the key cannot be retrieved in time, the handshake fails. The lookup
+     * continues in the background and the key will be available for the device's next
+     * handshake attempt.
+     * <p>
+     * The default value is {@link #DEFAULT_PSK_LOOKUP_TIMEOUT}.
+     * 
+     * @return The number of milliseconds to wait.
+     */
+    public final long getPskLookupTimeout() {
+        return pskLookupTimeout;
+    }
+
+    /**
+     * Sets the time to wait for the pre-shared key of a device during a DTLS handshake.
+     * 
+     * @param timeout The number of milliseconds to wait.
+     * @throws IllegalArgumentException if timeout is &lt; 0.
+     */
+    public final void setPskLookupTimeout(final long timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout must not be negative");
+        }
+        this.pskLookupTimeout = timeout;
+    }
+
+    /**
+     * Gets the maximum number of pre-shared key lookups being processed concurrently.
+     * <p>
+     * DTLS handshakes requiring a key that is not cached are rejected immediately
+     * once this limit has been reached.
+     * <p>
+     * The default value is {@link #DEFAULT_MAX_PENDING_PSK_LOOKUPS}.
+     * 
+     * @return The maximum number of lookups.
+     */
+    public final int getMaxPendingPskLookups() {
+        return maxPendingPskLookups;
+    }
+
+    /**
+     * Sets the maximum number of pre-shared key lookups being processed concurrently.
+     * 
+     * @param lookups The maximum number of lookups.
+     * @throws IllegalArgumentException if lookups is &lt; 1.
+     */
+    public final void setMaxPendingPskLookups(final int lookups) {
+        if (lookups < 1) {
+            throw new IllegalArgumentException("maximum number of pending lookups must not be less than one");
+        }
+        this.maxPendingPskLookups = lookups;
+    }
+
+    /**
+     * Gets the maximum number of DTLS sessions to keep in the session cache.
+     * <p>
+     * Devices may resume cached sessions using an abbreviated handshake.
+     * <p>
+     * The default value is {@link #DEFAULT_SESSION_CACHE_MAX_SIZE}.
+     * 
+     * @return The maximum number of sessions.
+     */
+    public final long getSessionCacheMaxSize() {
+        return sessionCacheMaxSize;
+    }
+
+    /**
+     * Sets the maximum number of DTLS sessions to keep in the session cache.
+     * <p>
+     * Setting this property to 0 disables caching.
+     * 
+     * @param size The maximum number of sessions.
+     * @throws IllegalArgumentException if size is &lt; 0.
+     */
+    public final void setSessionCacheMaxSize(final long size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("maximum cache size must not be negative");
+        }
+        this.sessionCacheMaxSize = size;
+    }
+
+    /**
+     * Gets the period of time after which a cached DTLS session expires.
+     * <p>
+     * Devices resuming a cached session are not required to prove possession of their
+     * credentials again. Longer periods therefore delay the point in time at which
+     * changed or removed credentials take effect.
+     * <p>
+     * The default value is {@link #DEFAULT_SESSION_TIMEOUT}.
+     * 
+     * @return The number of seconds.
+     */
+    public final long getSessionTimeout() {
+        return sessionTimeout;
+    }
+
+    /**
+     * Sets the period of time after which a cached DTLS session expires.
+     * 
+     * @param timeout The number of seconds.
+     * @throws IllegalArgumentException if timeout is &lt; 1.
+     */
+    public final void setSessionTimeout(final long timeout) {
+        if (timeout < 1) {
+            throw new IllegalArgumentException("session timeout must not be less than one second");
+        }
+        this.sessionTimeout = timeout;
+    }
+
+    /**
+     * Gets the period of time after which a device that observes the command resource
+     * is considered gone.
+     * <p>
+     * Devices which have registered using a non-confirmable request must refresh their
+     * <em>Observe</em> relation by registering again within this period, e.g. once the
+     * <em>Max-Age</em> of the last notification has passed. Such a device that has neither
+     * registered again nor acknowledged a command within this period is deregistered and its
+     * command consumer is closed.
+     * <p>
+     * Devices which have registered using a confirmable request are not deregistered because of
+     * inactivity. Once this period has passed without activity, such a device is sent a confirmable
+     * notification and is only deregistered if it does not acknowledge the notification.
+     * <p>
+     * The default value is {@link #DEFAULT_COMMAND_OBSERVER_TIMEOUT}.
+     * 
+     * @return The number of seconds.
+     */
+    public final long getCommandObserverTimeout() {
+        return commandObserverTimeout;
+    }
+
+    /**
+     * Sets the period of time after which a device that observes the command resource
+     * is considered gone.
+     * 
+     * @param timeout The number of seconds.
+     * @throws IllegalArgumentException if timeout is &lt; 1.
+     */
+    public final void setCommandObserverTimeout(final long timeout) {
+        if (timeout < 1) {
+            throw new IllegalArgumentException("command observer timeout must not be less than one second");
+        }
+        this.commandObserverTimeout = timeout;
+    }
+
     /**
      * Gets the number of connector threads.
      * 
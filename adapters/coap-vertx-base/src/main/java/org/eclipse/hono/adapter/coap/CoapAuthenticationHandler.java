@@ -13,12 +13,14 @@
 
 package org.eclipse.hono.adapter.coap;
 
+import java.net.HttpURLConnection;
 import java.security.Principal;
 
 import org.eclipse.californium.core.server.resources.CoapExchange;
 
 import io.vertx.core.Future;
 import org.eclipse.hono.auth.Device;
+import org.eclipse.hono.client.ClientErrorException;
 
 /**
  * Authentication handler for coap principals.
@@ -41,4 +43,21 @@ public interface CoapAuthenticationHandler {
      * @return future with authenticated hono device.
      */
     Future<Device> getAuthenticatedDevice(CoapExchange exchange);
+
+    /**
+     * Get authenticated hono device.
+     * <p>
+     * Used for determining the device before the request is available, e.g. when the
+     * first block of a block-wise upload has been received.
+     * <p>
+     * This default implementation does not support authentication based on the principal
+     * only and returns a future failed with a {@link ClientErrorException}.
+     * 
+     * @param principal principal of the peer.
+     * @return future with authenticated hono device.
+     */
+    default Future<Device> getAuthenticatedDevice(final Principal principal) {
+        return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_UNAUTHORIZED,
+                "authentication based on principal not supported by this handler"));
+    }
 }
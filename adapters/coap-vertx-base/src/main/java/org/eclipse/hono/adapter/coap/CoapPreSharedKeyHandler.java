@@ -13,6 +13,7 @@
 
 package org.eclipse.hono.adapter.coap;
 
+import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.security.Principal;
 import java.util.Base64;
@@ -20,7 +21,10 @@ import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -28,6 +32,7 @@ import org.eclipse.californium.core.server.resources.CoapExchange;
 import org.eclipse.californium.elements.auth.PreSharedKeyIdentity;
 import org.eclipse.californium.scandium.dtls.pskstore.PskStore;
 import org.eclipse.californium.scandium.util.ServerNames;
+import org.eclipse.hono.client.ClientErrorException;
 import org.eclipse.hono.client.HonoClient;
 import org.eclipse.hono.auth.Device;
 import org.eclipse.hono.util.CredentialsConstants;
@@ -44,9 +49,26 @@ import io.vertx.core.Vertx;
 
 /**
  * A coap pre-shared-key store based on a credentials service client.
+ * <p>
+ * Keys retrieved from the credentials service are cached. A cached key is refreshed in the
+ * background once it is older than {@link #KEY_REFRESH_MILLIS} so that subsequent handshakes of
+ * the device do not need to wait for the credentials service. The {@link PskStore} API is
+ * synchronous, so a handshake requiring a key that is not cached yet blocks the connector thread
+ * for at most {@link CoapAdapterProperties#getPskLookupTimeout()}. Concurrent handshakes using
+ * the same identity share a single lookup and handshakes are rejected immediately once
+ * {@link CoapAdapterProperties#getMaxPendingPskLookups()} lookups are pending.
  */
 public class CoapPreSharedKeyHandler implements PskStore, CoapAuthenticationHandler {
 
+    /**
+     * The number of milliseconds after which a cached key is refreshed.
+     */
+    static final long KEY_REFRESH_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    /**
+     * The number of milliseconds after which a cached key expires.
+     */
+    static final long KEY_EXPIRATION_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
     private static final Logger LOG = LoggerFactory.getLogger(CoapPreSharedKeyHandler.class);
 
     /**
@@ -62,6 +84,18 @@ public class CoapPreSharedKeyHandler implements PskStore, CoapAuthenticationHand
      * Cache mapping principal information to hono devices.
      */
     private final Cache<PreSharedKeyDeviceIdentity, Device> devices;
+    /**
+     * Cache mapping principal information to pre-shared keys.
+     */
+    private final Cache<PreSharedKeyDeviceIdentity, CachedKey> keys;
+    /**
+     * The lookups of pre-shared keys currently being processed.
+     */
+    private final ConcurrentMap<PreSharedKeyDeviceIdentity, CompletableFuture<byte[]>> pendingLookups = new ConcurrentHashMap<>();
+    /**
+     * Permits for starting a lookup of a pre-shared key.
+     */
+    private final Semaphore lookupPermits;
     /**
      * Configuration used to split identity into authentication id and tenant.
      */
@@ -88,12 +122,37 @@ public class CoapPreSharedKeyHandler implements PskStore, CoapAuthenticationHand
                 .initialCapacity(config.getDeviceCacheMinSize())
                 .maximumSize(config.getDeviceCacheMaxSize());
         this.devices = builder.build();
+        this.keys = CacheBuilder.newBuilder()
+                .initialCapacity(config.getDeviceCacheMinSize())
+                .maximumSize(config.getDeviceCacheMaxSize())
+                .expireAfterWrite(KEY_EXPIRATION_MILLIS, TimeUnit.MILLISECONDS)
+                .build();
+        this.lookupPermits = new Semaphore(config.getMaxPendingPskLookups());
+    }
+
+    /**
+     * A pre-shared key along with the point in time at which it should be refreshed.
+     */
+    private static final class CachedKey {
+
+        private final byte[] key;
+        private final long refreshAt;
+
+        private CachedKey(final byte[] key) {
+            this.key = key;
+            this.refreshAt = System.currentTimeMillis() + KEY_REFRESH_MILLIS;
+        }
+
+        private boolean isStale() {
+            return System.currentTimeMillis() >= refreshAt;
+        }
     }
 
     /**
      * Get pre-shared-key for device from credentials service.
      * <p>
-     * On success, add hono device to cache.
+     * On success, add hono device and pre-shared-key to cache. If the credentials service
+     * does not provide a key for the device, the cached key and device are removed.
      * 
      * @param handshakeIdentity pre-shared-key identity of device.
      * @return future with pre-shared-key.
@@ -108,10 +167,19 @@ public class CoapPreSharedKeyHandler implements PskStore, CoapAuthenticationHand
                     if (key != null) {
                         devices.put(handshakeIdentity,
                                 new Device(handshakeIdentity.getTenantId(), credentials.getDeviceId()));
+                        keys.put(handshakeIdentity, new CachedKey(key));
                         return Future.succeededFuture(key);
                     } else {
-                        return Future.failedFuture("secret key missing!");
+                        return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_NOT_FOUND,
+                                "secret key missing!"));
+                    }
+                }).recover(t -> {
+                    if (t instanceof ClientErrorException) {
+                        // credentials have been removed or disabled
+                        keys.invalidate(handshakeIdentity);
+                        devices.invalidate(handshakeIdentity);
                     }
+                    return Future.failedFuture(t);
                 });
     }
 
@@ -157,10 +225,61 @@ public class CoapPreSharedKeyHandler implements PskStore, CoapAuthenticationHand
         if (handshakeIdentity == null) {
             return null;
         }
-        //
+        final CachedKey cachedKey = keys.getIfPresent(handshakeIdentity);
+        if (cachedKey != null) {
+            if (cachedKey.isStale()) {
+                // prefetch key for subsequent handshakes
+                lookupKey(handshakeIdentity);
+            }
+            return cachedKey.key;
+        }
+        final CompletableFuture<byte[]> secret = lookupKey(handshakeIdentity);
+        if (secret == null) {
+            LOG.debug("too many pending key lookups, rejecting handshake of {}", identity);
+            return null;
+        }
+        try {
+            // timeout, don't block handshake too long
+            return secret.get(config.getPskLookupTimeout(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            LOG.debug("lookup of secret key for {} still pending, key will be available for next handshake", identity);
+            return null;
+        } catch (CancellationException e) {
+        } catch (ExecutionException e) {
+        }
+        LOG.warn("missing secret key for {}!", identity);
+        return null;
+    }
+
+    /**
+     * Starts the lookup of a pre-shared key.
+     * <p>
+     * The lookup is run on the vert.x context, the calling thread is not blocked.
+     * 
+     * @param handshakeIdentity pre-shared-key identity of device.
+     * @return The pending lookup or {@code null} if the maximum number of pending lookups has been reached.
+     */
+    private CompletableFuture<byte[]> lookupKey(final PreSharedKeyDeviceIdentity handshakeIdentity) {
+
+        final CompletableFuture<byte[]> pendingLookup = pendingLookups.get(handshakeIdentity);
+        if (pendingLookup != null) {
+            return pendingLookup;
+        }
+        if (!lookupPermits.tryAcquire()) {
+            return null;
+        }
         final CompletableFuture<byte[]> secret = new CompletableFuture<>();
+        final CompletableFuture<byte[]> concurrentLookup = pendingLookups.putIfAbsent(handshakeIdentity, secret);
+        if (concurrentLookup != null) {
+            lookupPermits.release();
+            return concurrentLookup;
+        }
         vertx.runOnContext((v) -> {
             getSharedKeyForDevice(handshakeIdentity).setHandler((getAttempt) -> {
+                pendingLookups.remove(handshakeIdentity, secret);
+                lookupPermits.release();
                 if (getAttempt.succeeded()) {
                     secret.complete(getAttempt.result());
                 } else {
@@ -168,16 +287,7 @@ public class CoapPreSharedKeyHandler implements PskStore, CoapAuthenticationHand
                 }
             });
         });
-        try {
-            // timeout, don't block handshake too long
-            return secret.get(10000, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-        } catch (TimeoutException e) {
-        } catch (CancellationException e) {
-        } catch (ExecutionException e) {
-        }
-        LOG.warn("missing secret key for {}!", identity);
-        return null;
+        return secret;
     }
 
     @Override
@@ -220,7 +330,11 @@ public class CoapPreSharedKeyHandler implements PskStore, CoapAuthenticationHand
 
     @Override
     public Future<Device> getAuthenticatedDevice(final CoapExchange exchange) {
-        final Principal peer = exchange.advanced().getRequest().getSourceContext().getPeerIdentity();
+        return getAuthenticatedDevice(exchange.advanced().getRequest().getSourceContext().getPeerIdentity());
+    }
+
+    @Override
+    public Future<Device> getAuthenticatedDevice(final Principal peer) {
         if (PreSharedKeyIdentity.class.isInstance(peer)) {
             LOG.debug("authenticate psk identity {}", peer.getName());
             final PreSharedKeyDeviceIdentity handshakeIdentity = getHandshakeIdentity(
@@ -230,6 +344,16 @@ public class CoapPreSharedKeyHandler implements PskStore, CoapAuthenticationHand
                 if (authorizedDevice != null) {
                     return Future.succeededFuture(authorizedDevice);
                 }
+                // the device may have resumed a cached DTLS session without
+                // its key being looked up during the abbreviated handshake
+                return getSharedKeyForDevice(handshakeIdentity).compose(key -> {
+                    final Device device = devices.getIfPresent(handshakeIdentity);
+                    if (device != null) {
+                        return Future.succeededFuture(device);
+                    } else {
+                        return Future.failedFuture("missing device for " + peer + "!");
+                    }
+                });
             }
             return Future.failedFuture("missing device for " + peer + "!");
         }
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.eclipse.hono.adapter.coap;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.scandium.dtls.DTLSSession;
+import org.eclipse.californium.scandium.dtls.SessionCache;
+import org.eclipse.californium.scandium.dtls.SessionId;
+import org.eclipse.californium.scandium.dtls.SessionTicket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A bounded cache of established DTLS sessions.
+ * <p>
+ * The DTLS connector looks up sessions in this cache when a device requests to resume a session
+ * that is no longer kept in the connector's connection store, e.g. because the device's address
+ * has changed while it was sleeping. The ticket of a session contains the device's PSK identity,
+ * so an abbreviated handshake requires neither a key exchange nor a lookup of the device's
+ * credentials.
+ * <p>
+ * Sessions expire after a configurable period of time.
+ */
+public class CoapSessionCache implements SessionCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CoapSessionCache.class);
+
+    private final Cache<SessionId, SessionTicket> sessions;
+
+    /**
+     * Creates a new cache for a given configuration.
+     * 
+     * @param config The adapter configuration. Specifies the maximum size of the cache and the
+     *            period of time after which sessions expire.
+     * @throws NullPointerException if config is {@code null}.
+     */
+    public CoapSessionCache(final CoapAdapterProperties config) {
+        this(config, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a new cache for a given configuration and time source.
+     * 
+     * @param config The adapter configuration.
+     * @param ticker The time source to use for expiring sessions.
+     * @throws NullPointerException if any of the parameters is {@code null}.
+     */
+    CoapSessionCache(final CoapAdapterProperties config, final Ticker ticker) {
+        Objects.requireNonNull(config);
+        Objects.requireNonNull(ticker);
+        this.sessions = CacheBuilder.newBuilder()
+                .maximumSize(config.getSessionCacheMaxSize())
+                .expireAfterWrite(config.getSessionTimeout(), TimeUnit.SECONDS)
+                .ticker(ticker)
+                .build();
+    }
+
+    @Override
+    public void put(final DTLSSession session) {
+        put(session.getSessionIdentifier(), session.getSessionTicket());
+    }
+
+    /**
+     * Caches the ticket of an established session.
+     * 
+     * @param id The session's identifier.
+     * @param ticket The session's ticket or {@code null} if the session has no ticket.
+     */
+    void put(final SessionId id, final SessionTicket ticket) {
+        if (ticket != null) {
+            LOG.trace("caching DTLS session {} of {}", id, ticket.getClientIdentity());
+            sessions.put(id, ticket);
+        }
+    }
+
+    @Override
+    public SessionTicket get(final SessionId id) {
+        return sessions.getIfPresent(id);
+    }
+
+    @Override
+    public void remove(final SessionId id) {
+        sessions.invalidate(id);
+    }
+}
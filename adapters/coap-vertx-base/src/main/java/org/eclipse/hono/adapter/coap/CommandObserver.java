@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.eclipse.hono.adapter.coap;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+
+import org.eclipse.californium.core.observe.ObserveRelation;
+import org.eclipse.hono.auth.Device;
+import org.eclipse.hono.client.CommandContext;
+
+/**
+ * A device that observes the command resource in order to receive commands.
+ * <p>
+ * Commands are delivered to the device as notifications of its <em>Observe</em> relation,
+ * one at a time. Commands received while a command is being delivered are queued.
+ * <p>
+ * Instances of this class are not thread safe. All methods must be invoked on the
+ * vert.x context of the adapter.
+ */
+final class CommandObserver {
+
+    private final Device device;
+    private final Device authenticatedDevice;
+    private final Deque<CommandContext> pendingCommands = new ArrayDeque<>();
+    private ObserveRelation relation;
+    private boolean confirmable;
+    private CommandContext commandInDelivery;
+    private long lastActivity;
+
+    /**
+     * Creates a new observer.
+     *
+     * @param device The device that commands are destined to.
+     * @param authenticatedDevice The authenticated device which has registered the observer.
+     * @param relation The device's observe relation.
+     * @param confirmable {@code true} if the device has registered using a confirmable request.
+     * @throws NullPointerException if device or relation are {@code null}.
+     */
+    CommandObserver(final Device device, final Device authenticatedDevice, final ObserveRelation relation,
+            final boolean confirmable) {
+        this.device = Objects.requireNonNull(device);
+        this.authenticatedDevice = authenticatedDevice;
+        this.relation = Objects.requireNonNull(relation);
+        this.confirmable = confirmable;
+    }
+
+    /**
+     * Gets the device that commands are destined to.
+     *
+     * @return The device.
+     */
+    Device getDevice() {
+        return device;
+    }
+
+    /**
+     * Gets the authenticated device which has registered this observer.
+     *
+     * @return The device or {@code null} if the device has not been authenticated.
+     */
+    Device getAuthenticatedDevice() {
+        return authenticatedDevice;
+    }
+
+    /**
+     * Gets the device's observe relation.
+     *
+     * @return The relation.
+     */
+    ObserveRelation getRelation() {
+        return relation;
+    }
+
+    /**
+     * Checks if the device has registered using a confirmable request.
+     * <p>
+     * Notifications of such relations are sent as confirmable messages,
+     * i.e. the device's liveness can be checked by means of a notification.
+     *
+     * @return {@code true} if the relation is confirmable.
+     */
+    boolean isConfirmable() {
+        return confirmable;
+    }
+
+    /**
+     * Replaces the device's observe relation.
+     * <p>
+     * This is the case if the device has registered again, e.g. after it has
+     * woken up using a different address. The previous relation is canceled.
+     *
+     * @param newRelation The new relation.
+     * @param newRelationConfirmable {@code true} if the device has registered again using a confirmable request.
+     * @throws NullPointerException if relation is {@code null}.
+     */
+    void setRelation(final ObserveRelation newRelation, final boolean newRelationConfirmable) {
+        final ObserveRelation previousRelation = relation;
+        relation = Objects.requireNonNull(newRelation);
+        confirmable = newRelationConfirmable;
+        if (previousRelation != newRelation && !previousRelation.isCanceled()) {
+            previousRelation.cancel();
+        }
+    }
+
+    /**
+     * Gets the point in time at which the device has last shown activity.
+     *
+     * @return The number of milliseconds since the epoch.
+     */
+    long getLastActivity() {
+        return lastActivity;
+    }
+
+    /**
+     * Records that the device has shown activity, e.g. by registering again
+     * or by acknowledging a command.
+     *
+     * @param now The current number of milliseconds since the epoch.
+     */
+    void setLastActivity(final long now) {
+        lastActivity = now;
+    }
+
+    /**
+     * Adds a command to the end of the queue of commands to be delivered.
+     *
+     * @param command The command.
+     */
+    void addCommand(final CommandContext command) {
+        pendingCommands.addLast(command);
+    }
+
+    /**
+     * Adds a command to the head of the queue of commands to be delivered.
+     *
+     * @param command The command.
+     */
+    void retryCommand(final CommandContext command) {
+        pendingCommands.addFirst(command);
+    }
+
+    /**
+     * Starts the delivery of the next pending command.
+     * <p>
+     * A command is only delivered if no other command is being delivered and if the
+     * device's observe relation has been established and not been canceled.
+     *
+     * @return The command to deliver or {@code null} if no command can be delivered.
+     */
+    CommandContext nextCommand() {
+        if (commandInDelivery != null || !relation.isEstablished() || relation.isCanceled()) {
+            return null;
+        }
+        commandInDelivery = pendingCommands.poll();
+        return commandInDelivery;
+    }
+
+    /**
+     * Gets the command that is being delivered.
+     *
+     * @return The command or {@code null} if no command is being delivered.
+     */
+    CommandContext getCommandInDelivery() {
+        return commandInDelivery;
+    }
+
+    /**
+     * Marks the delivery of a command as completed.
+     *
+     * @param command The command.
+     * @return {@code true} if the command has been in delivery.
+     */
+    boolean completeDelivery(final CommandContext command) {
+        if (command != null && commandInDelivery == command) {
+            commandInDelivery = null;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes all commands which have not been delivered yet.
+     *
+     * @return The commands.
+     */
+    Deque<CommandContext> drainCommands() {
+        final Deque<CommandContext> result = new ArrayDeque<>(pendingCommands);
+        if (commandInDelivery != null) {
+            result.addFirst(commandInDelivery);
+            commandInDelivery = null;
+        }
+        pendingCommands.clear();
+        return result;
+    }
+}
@@ -13,22 +13,40 @@
 
 package org.eclipse.hono.adapter.coap;
 
+import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
 
+import org.apache.qpid.proton.amqp.messaging.Accepted;
+import org.apache.qpid.proton.amqp.messaging.Released;
 import org.apache.qpid.proton.message.Message;
+import org.eclipse.californium.core.CoapResource;
 import org.eclipse.californium.core.CoapServer;
+import org.eclipse.californium.core.coap.BlockOption;
+import org.eclipse.californium.core.coap.CoAP;
 import org.eclipse.californium.core.coap.CoAP.ResponseCode;
 import org.eclipse.californium.core.coap.MediaTypeRegistry;
 import org.eclipse.californium.core.coap.OptionSet;
+import org.eclipse.californium.core.coap.Request;
 import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.network.Exchange;
+import org.eclipse.californium.core.observe.ObserveRelation;
+import org.eclipse.californium.core.observe.ObserveRelationFilter;
 import org.eclipse.californium.core.server.resources.CoapExchange;
+import org.eclipse.californium.elements.AddressEndpointContext;
 import org.eclipse.hono.client.ClientErrorException;
+import org.eclipse.hono.client.Command;
+import org.eclipse.hono.client.CommandContext;
 import org.eclipse.hono.client.HonoClient;
+import org.eclipse.hono.client.MessageConsumer;
 import org.eclipse.hono.client.MessageSender;
 import org.eclipse.hono.client.RegistrationClient;
 import org.eclipse.hono.client.TenantClient;
@@ -54,7 +72,9 @@ import io.vertx.core.json.JsonObject;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.opentracing.Span;
 import io.vertx.proton.ProtonDelivery;
+import io.vertx.proton.ProtonReceiver;
 
 /**
  * Verifies behavior of {@link AbstractVertxBasedCoapAdapter}.
@@ -363,6 +383,305 @@ public class AbstractVertxBasedCoapAdapterTest {
         verify(coapExchange).respond(ResponseCode.CHANGED);
     }
 
+    /**
+     * Verifies that a device observing the command resource is registered for receiving
+     * commands and that a command is delivered to the device as a confirmable notification
+     * which is accepted once the device has acknowledged the notification.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testObserveCommandsDeliversCommandAsNotification() {
+
+        // GIVEN an adapter with a command connection
+        final AbstractVertxBasedCoapAdapter<CoapAdapterProperties> adapter = getCommandAdapter();
+        final ArgumentCaptor<Handler<CommandContext>> commandHandler = ArgumentCaptor.forClass(Handler.class);
+        when(commandConnection.createCommandConsumer(eq("tenant"), eq("device"), commandHandler.capture(), any(Handler.class)))
+            .thenReturn(Future.succeededFuture(mock(MessageConsumer.class)));
+
+        // WHEN a device registers as an observer of the command resource using a confirmable request
+        final CoapResource resource = mock(CoapResource.class);
+        final ObserveRelation relation = mock(ObserveRelation.class);
+        when(relation.getResource()).thenReturn(resource);
+        final CoapExchange registration = newObserveExchange(relation);
+        final Device device = new Device("tenant", "device");
+        adapter.observeCommands(registration, device, device);
+
+        // THEN a command consumer is created and the relation is established
+        verify(registration).respond(ResponseCode.CONTENT);
+        when(relation.isEstablished()).thenReturn(true);
+
+        // and WHEN a command for the device is received
+        final ProtonDelivery commandDelivery = mock(ProtonDelivery.class);
+        commandHandler.getValue().handle(newCommandContext(commandDelivery));
+
+        // THEN a notification is triggered
+        verify(resource).changed(any(ObserveRelationFilter.class));
+        final CoapExchange notification = newObserveExchange(relation);
+        adapter.observeCommands(notification, device, device);
+
+        // which contains the command
+        final ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+        verify(notification).respond(response.capture());
+        assertThat(response.getValue().getType(), is(CoAP.Type.CON));
+        assertThat(response.getValue().getOptions().getLocationQuery(),
+                hasItem(AbstractVertxBasedCoapAdapter.COMMAND_NAME_QUERY_PARAMETER + "=doThis"));
+        verify(commandDelivery, never()).disposition(any(Accepted.class), anyBoolean());
+
+        // and the command is accepted once the device has acknowledged the notification
+        response.getValue().getMessageObservers().forEach(observer -> observer.onAcknowledgement());
+        verify(commandDelivery).disposition(any(Accepted.class), eq(true));
+    }
+
+    /**
+     * Verifies that a device observing the command resource is deregistered once the peer
+     * has closed its command consumer and that a new consumer is created when the device
+     * registers again.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testObserveCommandsCreatesNewConsumerAfterRemoteClose() {
+
+        // GIVEN a device observing the command resource
+        final AbstractVertxBasedCoapAdapter<CoapAdapterProperties> adapter = getCommandAdapter();
+        final ArgumentCaptor<Handler<Void>> closeHandler = ArgumentCaptor.forClass(Handler.class);
+        when(commandConnection.createCommandConsumer(eq("tenant"), eq("device"), any(Handler.class), closeHandler.capture()))
+            .thenReturn(Future.succeededFuture(mock(MessageConsumer.class)));
+        final ObserveRelation relation = mock(ObserveRelation.class);
+        final Device device = new Device("tenant", "device");
+        adapter.observeCommands(newObserveExchange(relation), device, device);
+
+        // WHEN the peer closes the command consumer
+        closeHandler.getValue().handle(null);
+
+        // THEN the device's relation is canceled
+        verify(relation).cancel();
+
+        // and WHEN the device registers again
+        final ObserveRelation newRelation = mock(ObserveRelation.class);
+        final CoapExchange registration = newObserveExchange(newRelation);
+        adapter.observeCommands(registration, device, device);
+
+        // THEN a new command consumer is created and the new relation is established
+        verify(commandConnection, times(2)).createCommandConsumer(eq("tenant"), eq("device"), any(Handler.class), any(Handler.class));
+        verify(registration).respond(ResponseCode.CONTENT);
+        verify(newRelation, never()).cancel();
+    }
+
+    /**
+     * Verifies that the command consumer of a device is closed and pending commands
+     * are released once the device cancels its observation of the command resource.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testObserveCommandsClosesConsumerWhenDeviceCancelsObservation() {
+
+        // GIVEN a device observing the command resource
+        final AbstractVertxBasedCoapAdapter<CoapAdapterProperties> adapter = getCommandAdapter();
+        final ArgumentCaptor<Handler<CommandContext>> commandHandler = ArgumentCaptor.forClass(Handler.class);
+        when(commandConnection.createCommandConsumer(eq("tenant"), eq("device"), commandHandler.capture(), any(Handler.class)))
+            .thenReturn(Future.succeededFuture(mock(MessageConsumer.class)));
+        final ObserveRelation relation = mock(ObserveRelation.class);
+        when(relation.getResource()).thenReturn(mock(CoapResource.class));
+        final Device device = new Device("tenant", "device");
+        adapter.observeCommands(newObserveExchange(relation), device, device);
+        when(relation.isEstablished()).thenReturn(true);
+
+        // with a command being delivered to the device
+        final ProtonDelivery commandDelivery = mock(ProtonDelivery.class);
+        commandHandler.getValue().handle(newCommandContext(commandDelivery));
+
+        // WHEN the device cancels its observation
+        final CoapExchange cancellation = newObserveExchange(null);
+        adapter.observeCommands(cancellation, device, device);
+
+        // THEN the request succeeds
+        verify(cancellation).respond(ResponseCode.CONTENT);
+        // and the command consumer is closed
+        verify(commandConnection).closeCommandConsumer("tenant", "device");
+        // and the command is released
+        verify(commandDelivery).disposition(any(Released.class), eq(true));
+    }
+
+    /**
+     * Verifies that devices whose relation has been canceled or which have registered using a
+     * non-confirmable request and have not registered again within the command observer timeout
+     * are deregistered and that deregistered devices with an established relation are notified.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testReapCommandObserversClosesCanceledAndTimedOutObservers() {
+
+        // GIVEN two devices observing the command resource
+        config.setCommandObserverTimeout(60);
+        final AbstractVertxBasedCoapAdapter<CoapAdapterProperties> adapter = getCommandAdapter();
+        adapter.setClock(Clock.fixed(Instant.ofEpochSecond(1000), ZoneOffset.UTC));
+        when(commandConnection.createCommandConsumer(anyString(), anyString(), any(Handler.class), any(Handler.class)))
+            .thenReturn(Future.succeededFuture(mock(MessageConsumer.class)));
+        final ObserveRelation canceledRelation = mock(ObserveRelation.class);
+        final Device canceledDevice = new Device("tenant", "canceled");
+        adapter.observeCommands(newObserveExchange(canceledRelation), canceledDevice, canceledDevice);
+        // one of them using a non-confirmable request
+        final CoapResource resource = mock(CoapResource.class);
+        final ObserveRelation relation = mock(ObserveRelation.class);
+        when(relation.getResource()).thenReturn(resource);
+        final Device device = new Device("tenant", "device");
+        adapter.observeCommands(newObserveExchange(relation, false), device, device);
+        when(relation.isEstablished()).thenReturn(true);
+
+        // WHEN the relation of one of the devices is canceled by the CoAP stack
+        when(canceledRelation.isCanceled()).thenReturn(true);
+        adapter.reapCommandObservers();
+
+        // THEN only the device with the canceled relation is deregistered
+        verify(commandConnection).closeCommandConsumer("tenant", "canceled");
+        verify(commandConnection, never()).closeCommandConsumer("tenant", "device");
+
+        // and WHEN the other device has not registered again within the timeout
+        adapter.setClock(Clock.fixed(Instant.ofEpochSecond(1060), ZoneOffset.UTC));
+        adapter.reapCommandObservers();
+        verify(commandConnection, never()).closeCommandConsumer("tenant", "device");
+        adapter.setClock(Clock.fixed(Instant.ofEpochSecond(1061), ZoneOffset.UTC));
+        adapter.reapCommandObservers();
+
+        // THEN the device is deregistered as well
+        verify(commandConnection).closeCommandConsumer("tenant", "device");
+        // and a final notification is triggered instead of silently canceling the relation
+        verify(resource).changed(any(ObserveRelationFilter.class));
+        verify(relation, never()).cancel();
+        final CoapExchange notification = newObserveExchange(relation, false);
+        adapter.observeCommands(notification, device, device);
+        verify(notification).respond(ResponseCode.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Verifies that a device which has registered using a confirmable request is not deregistered
+     * because of inactivity as long as it acknowledges the liveness check notifications.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testReapCommandObserversChecksLivenessOfConfirmableObservers() {
+
+        // GIVEN a device observing the command resource using a confirmable request
+        config.setCommandObserverTimeout(60);
+        final AbstractVertxBasedCoapAdapter<CoapAdapterProperties> adapter = getCommandAdapter();
+        adapter.setClock(Clock.fixed(Instant.ofEpochSecond(1000), ZoneOffset.UTC));
+        when(commandConnection.createCommandConsumer(anyString(), anyString(), any(Handler.class), any(Handler.class)))
+            .thenReturn(Future.succeededFuture(mock(MessageConsumer.class)));
+        final CoapResource resource = mock(CoapResource.class);
+        final ObserveRelation relation = mock(ObserveRelation.class);
+        when(relation.getResource()).thenReturn(resource);
+        final Device device = new Device("tenant", "device");
+        adapter.observeCommands(newObserveExchange(relation), device, device);
+        when(relation.isEstablished()).thenReturn(true);
+
+        // WHEN the device has not shown any activity within the timeout
+        adapter.setClock(Clock.fixed(Instant.ofEpochSecond(1061), ZoneOffset.UTC));
+        adapter.reapCommandObservers();
+
+        // THEN the device is not deregistered
+        verify(commandConnection, never()).closeCommandConsumer("tenant", "device");
+        // but a confirmable notification is sent to the device
+        verify(resource).changed(any(ObserveRelationFilter.class));
+        final CoapExchange notification = newObserveExchange(relation);
+        adapter.observeCommands(notification, device, device);
+        final ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+        verify(notification).respond(response.capture());
+        assertThat(response.getValue().getType(), is(CoAP.Type.CON));
+
+        // and WHEN the device acknowledges the notification
+        response.getValue().getMessageObservers().forEach(observer -> observer.onAcknowledgement());
+        adapter.reapCommandObservers();
+
+        // THEN the device is considered alive
+        verify(resource).changed(any(ObserveRelationFilter.class));
+        verify(commandConnection, never()).closeCommandConsumer("tenant", "device");
+
+        // and WHEN the device does not acknowledge the next notification
+        adapter.setClock(Clock.fixed(Instant.ofEpochSecond(1122), ZoneOffset.UTC));
+        adapter.reapCommandObservers();
+        verify(resource, times(2)).changed(any(ObserveRelationFilter.class));
+        final CoapExchange nextNotification = newObserveExchange(relation);
+        adapter.observeCommands(nextNotification, device, device);
+        verify(nextNotification).respond(response.capture());
+        response.getValue().getMessageObservers().forEach(observer -> observer.onTimeout());
+
+        // THEN the device is deregistered
+        verify(commandConnection).closeCommandConsumer("tenant", "device");
+    }
+
+    /**
+     * Verifies that the adapter starts looking up the device's registration status, the tenant
+     * configuration and the downstream sender as soon as the first block of a block-wise upload
+     * has been received.
+     */
+    @Test
+    public void testFirstBlockOfUploadTriggersLookups() {
+
+        // GIVEN an adapter
+        givenATelemetrySender(Future.future());
+        final AbstractVertxBasedCoapAdapter<CoapAdapterProperties> adapter = getAdapter(getCoapServer(false), true, null);
+
+        // WHEN an unauthenticated device starts a block-wise upload of a telemetry message
+        final Request request = Request.newPut();
+        request.setSourceContext(new AddressEndpointContext(new InetSocketAddress(0)));
+        request.getOptions().setUriPath("telemetry/tenant/device").setBlock1(BlockOption.size2Szx(64), true, 0);
+        adapter.onFirstBlockReceived(request);
+
+        // THEN the data required for forwarding the message is looked up
+        verify(regClient).assertRegistration(eq("device"), any(), any());
+        verify(tenantClient).get(eq("tenant"), any());
+        verify(messagingClient).getOrCreateTelemetrySender("tenant");
+    }
+
+    /**
+     * Verifies that the adapter rejects a message with a payload exceeding the maximum payload size.
+     */
+    @Test
+    public void testUploadTelemetryFailsForPayloadExceedingMaxSize() {
+
+        // GIVEN an adapter with a limited payload size
+        config.setMaxPayloadSize(256);
+        givenATelemetrySender(Future.future());
+        final AbstractVertxBasedCoapAdapter<CoapAdapterProperties> adapter = getAdapter(getCoapServer(false), true, null);
+
+        // WHEN a device uploads a message with a larger payload
+        final CoapExchange coapExchange = newCoapExchange(Buffer.buffer(new byte[257]));
+        final Device authenticatedDevice = new Device("tenant", "device");
+        adapter.uploadTelemetryMessage(coapExchange, authenticatedDevice, authenticatedDevice, false);
+
+        // THEN the message is rejected
+        verify(coapExchange).respond(ResponseCode.REQUEST_ENTITY_TOO_LARGE);
+        verify(messagingClient, never()).getOrCreateTelemetrySender(anyString());
+    }
+
+    private static CoapExchange newObserveExchange(final ObserveRelation relation) {
+        return newObserveExchange(relation, true);
+    }
+
+    private static CoapExchange newObserveExchange(final ObserveRelation relation, final boolean confirmable) {
+
+        final OptionSet options = new OptionSet().setObserve(0);
+        final Exchange exchange = mock(Exchange.class);
+        when(exchange.getRelation()).thenReturn(relation);
+        final Request request = mock(Request.class);
+        when(request.isConfirmable()).thenReturn(confirmable);
+        when(exchange.getRequest()).thenReturn(request);
+        final CoapExchange coapExchange = mock(CoapExchange.class);
+        when(coapExchange.getRequestOptions()).thenReturn(options);
+        when(coapExchange.advanced()).thenReturn(exchange);
+        return coapExchange;
+    }
+
+    private static CommandContext newCommandContext(final ProtonDelivery delivery) {
+
+        final Message msg = mock(Message.class);
+        when(msg.getSubject()).thenReturn("doThis");
+        when(msg.getCorrelationId()).thenReturn("the-correlation-id");
+        when(msg.getReplyTo()).thenReturn("control/tenant/device/the-reply-to-id");
+        return CommandContext.from(
+                Command.from(msg, "tenant", "device"), delivery, mock(ProtonReceiver.class), mock(Span.class));
+    }
+
     private static CoapExchange newCoapExchange(final Buffer payload) {
 
         final OptionSet options = new OptionSet().setContentFormat(MediaTypeRegistry.TEXT_PLAIN);
@@ -433,6 +752,33 @@ public class AbstractVertxBasedCoapAdapterTest {
         return adapter;
     }
 
+    /**
+     * Creates a protocol adapter for delivering commands to devices.
+     * <p>
+     * The adapter runs all handlers on the current thread and emits TTD events
+     * when devices are registered and deregistered.
+     * 
+     * @return The adapter.
+     */
+    @SuppressWarnings("unchecked")
+    private AbstractVertxBasedCoapAdapter<CoapAdapterProperties> getCommandAdapter() {
+
+        final MessageSender eventSender = mock(MessageSender.class);
+        when(eventSender.sendAndWaitForOutcome(any(Message.class), any()))
+            .thenReturn(Future.succeededFuture(mock(ProtonDelivery.class)));
+        when(messagingClient.getOrCreateEventSender(anyString())).thenReturn(Future.succeededFuture(eventSender));
+        when(commandConnection.closeCommandConsumer(anyString(), anyString())).thenReturn(Future.succeededFuture());
+        final AbstractVertxBasedCoapAdapter<CoapAdapterProperties> adapter = getAdapter(getCoapServer(false), true, null);
+        final Context context = mock(Context.class);
+        doAnswer(invocation -> {
+            final Handler<Void> handler = invocation.getArgument(0);
+            handler.handle(null);
+            return null;
+        }).when(context).runOnContext(any(Handler.class));
+        adapter.init(vertx, context);
+        return adapter;
+    }
+
     private void givenAnEventSenderForOutcome(final Future<ProtonDelivery> outcome) {
 
         final MessageSender sender = mock(MessageSender.class);
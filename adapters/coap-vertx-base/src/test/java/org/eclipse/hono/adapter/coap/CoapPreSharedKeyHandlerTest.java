@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.eclipse.hono.adapter.coap;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.californium.core.server.resources.CoapExchange;
+import org.eclipse.californium.elements.auth.PreSharedKeyIdentity;
+import org.eclipse.hono.client.CredentialsClient;
+import org.eclipse.hono.client.HonoClient;
+import org.eclipse.hono.util.CredentialsObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.junit.runner.RunWith;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+/**
+ * Verifies behavior of {@link CoapPreSharedKeyHandler}.
+ */
+@RunWith(VertxUnitRunner.class)
+public class CoapPreSharedKeyHandlerTest {
+
+    private static final byte[] KEY = "secret".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Global timeout for all test cases.
+     */
+    @Rule
+    public final Timeout globalTimeout = Timeout.seconds(5);
+
+    private CoapAdapterProperties config;
+    private Vertx vertx;
+    private HonoClient credentialsServiceClient;
+    private CredentialsClient credentialsClient;
+
+    /**
+     * Sets up the fixture.
+     */
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() {
+
+        config = new CoapAdapterProperties();
+        config.setPskLookupTimeout(10);
+        vertx = mock(Vertx.class);
+        doAnswer(invocation -> {
+            final Handler<Void> handler = invocation.getArgument(0);
+            handler.handle(null);
+            return null;
+        }).when(vertx).runOnContext(any(Handler.class));
+        credentialsClient = mock(CredentialsClient.class);
+        credentialsServiceClient = mock(HonoClient.class);
+        when(credentialsServiceClient.getOrCreateCredentialsClient(anyString()))
+            .thenReturn(Future.succeededFuture(credentialsClient));
+    }
+
+    /**
+     * Verifies that a handshake does not wait for a slow credentials service longer
+     * than configured and that the key is available to the next handshake once the
+     * lookup has completed.
+     */
+    @Test
+    public void testGetKeyDoesNotWaitForSlowCredentialsService() {
+
+        final Future<CredentialsObject> credentials = Future.future();
+        when(credentialsClient.get(anyString(), eq("device"))).thenReturn(credentials);
+        final CoapPreSharedKeyHandler handler = new CoapPreSharedKeyHandler(vertx, config, credentialsServiceClient);
+
+        // WHEN the credentials service does not respond in time
+        assertThat(handler.getKey("device@tenant"), nullValue());
+        assertThat(handler.getKey("device@tenant"), nullValue());
+        // THEN concurrent handshakes share the pending lookup
+        verify(credentialsClient, times(1)).get(anyString(), eq("device"));
+
+        // and WHEN the credentials service finally responds
+        credentials.complete(CredentialsObject.fromPresharedKey("4711", "device", KEY, null, null));
+
+        // THEN the next handshake uses the cached key
+        assertThat(handler.getKey("device@tenant"), is(KEY));
+        assertThat(handler.getCachedDevice("device@tenant").getDeviceId(), is("4711"));
+        verify(credentialsClient, times(1)).get(anyString(), eq("device"));
+    }
+
+    /**
+     * Verifies that handshakes are rejected without looking up the key once the
+     * maximum number of pending lookups has been reached.
+     */
+    @Test
+    public void testGetKeyRejectsHandshakesIfTooManyLookupsArePending() {
+
+        config.setMaxPendingPskLookups(1);
+        when(credentialsClient.get(anyString(), anyString())).thenReturn(Future.future());
+        final CoapPreSharedKeyHandler handler = new CoapPreSharedKeyHandler(vertx, config, credentialsServiceClient);
+
+        assertThat(handler.getKey("device@tenant"), nullValue());
+        assertThat(handler.getKey("other-device@tenant"), nullValue());
+        verify(credentialsClient).get(anyString(), eq("device"));
+        verify(credentialsClient, never()).get(anyString(), eq("other-device"));
+    }
+
+    /**
+     * Verifies that a device which has resumed a DTLS session is authenticated
+     * even if the device is no longer cached.
+     * 
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testGetAuthenticatedDeviceSucceedsForResumedSession(final TestContext ctx) {
+
+        when(credentialsClient.get(anyString(), eq("device"))).thenReturn(
+                Future.succeededFuture(CredentialsObject.fromPresharedKey("4711", "device", KEY, null, null)));
+        final CoapPreSharedKeyHandler handler = new CoapPreSharedKeyHandler(vertx, config, credentialsServiceClient);
+        final CoapExchange exchange = mock(CoapExchange.class, RETURNS_DEEP_STUBS);
+        when(exchange.advanced().getRequest().getSourceContext().getPeerIdentity())
+            .thenReturn(new PreSharedKeyIdentity("device@tenant"));
+
+        // WHEN a device that has resumed a session without a key lookup sends a request
+        final Async authentication = ctx.async();
+        handler.getAuthenticatedDevice(exchange).setHandler(ctx.asyncAssertSuccess(device -> {
+            // THEN the device is authenticated
+            ctx.assertEquals("tenant", device.getTenantId());
+            ctx.assertEquals("4711", device.getDeviceId());
+            authentication.complete();
+        }));
+        authentication.await();
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.eclipse.hono.adapter.coap;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.californium.elements.auth.PreSharedKeyIdentity;
+import org.eclipse.californium.elements.util.DatagramReader;
+import org.eclipse.californium.elements.util.DatagramWriter;
+import org.eclipse.californium.scandium.auth.PrincipalSerializer;
+import org.eclipse.californium.scandium.dtls.CompressionMethod;
+import org.eclipse.californium.scandium.dtls.SessionId;
+import org.eclipse.californium.scandium.dtls.SessionTicket;
+import org.eclipse.californium.scandium.dtls.cipher.CipherSuite;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+/**
+ * Verifies behavior of {@link CoapSessionCache}.
+ */
+public class CoapSessionCacheTest {
+
+    private static final long SESSION_TIMEOUT = 60L;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private CoapSessionCache cache;
+
+    /**
+     * Sets up the fixture.
+     */
+    @Before
+    public void setUp() {
+
+        final CoapAdapterProperties config = new CoapAdapterProperties();
+        config.setSessionTimeout(SESSION_TIMEOUT);
+        cache = new CoapSessionCache(config, new Ticker() {
+
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        });
+    }
+
+    /**
+     * Verifies that the default session timeout does not exceed the period of time
+     * after which cached pre-shared keys expire.
+     */
+    @Test
+    public void testDefaultSessionTimeoutDoesNotExceedKeyExpiration() {
+
+        assertThat(TimeUnit.SECONDS.toMillis(CoapAdapterProperties.DEFAULT_SESSION_TIMEOUT)
+                <= CoapPreSharedKeyHandler.KEY_EXPIRATION_MILLIS, is(true));
+    }
+
+    /**
+     * Verifies that the ticket of a cached session is returned.
+     */
+    @Test
+    public void testGetReturnsTicketOfCachedSession() {
+
+        final SessionId id = new SessionId();
+        cache.put(id, newTicket("device@tenant"));
+
+        final PreSharedKeyIdentity identity = (PreSharedKeyIdentity) cache.get(id).getClientIdentity();
+        assertThat(identity.getIdentity(), is("device@tenant"));
+    }
+
+    /**
+     * Verifies that no ticket is returned for an unknown or removed session.
+     */
+    @Test
+    public void testGetReturnsNullForUnknownSession() {
+
+        final SessionId id = new SessionId();
+        assertThat(cache.get(id), nullValue());
+
+        cache.put(id, newTicket("device@tenant"));
+        cache.remove(id);
+        assertThat(cache.get(id), nullValue());
+    }
+
+    /**
+     * Verifies that a cached session expires once the session timeout has passed.
+     */
+    @Test
+    public void testGetReturnsNullForExpiredSession() {
+
+        final SessionId id = new SessionId();
+        cache.put(id, newTicket("device@tenant"));
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(SESSION_TIMEOUT) - 1);
+        assertThat(cache.get(id), notNullValue());
+        nanos.addAndGet(1);
+        assertThat(cache.get(id), nullValue());
+    }
+
+    /**
+     * Creates the ticket of a session established with a device using a pre-shared key.
+     * <p>
+     * The ticket is created from its serialized form because Scandium does not
+     * expose a way of creating a ticket directly.
+     */
+    private static SessionTicket newTicket(final String identity) {
+
+        final DatagramWriter writer = new DatagramWriter();
+        // DTLS 1.2
+        writer.write(254, 8);
+        writer.write(253, 8);
+        writer.write(CipherSuite.TLS_PSK_WITH_AES_128_CCM_8.getCode(), 16);
+        writer.write(CompressionMethod.NULL.getCode(), 8);
+        // master secret
+        writer.writeBytes(new byte[48]);
+        PrincipalSerializer.serialize(new PreSharedKeyIdentity(identity), writer);
+        writer.writeLong(System.currentTimeMillis(), 32);
+        return SessionTicket.decode(new DatagramReader(writer.toByteArray()));
+    }
+}
@@ -14,6 +14,7 @@
 package org.eclipse.hono.adapter.coap.vertx;
 
 import org.eclipse.californium.core.CoapResource;
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
 import org.eclipse.californium.core.server.resources.CoapExchange;
 
 /**
@@ -40,4 +41,17 @@ public interface CoapRequestHandler {
      * @see CoapResource#handlePUT(CoapExchange)
      */
     void handlePUT(CoapExchange exchange);
+
+    /**
+     * Handle COAP GET request.
+     * 
+     * Called, when a COAP GET request is forwarded to vertx. This default implementation responds with 4.05 (Method
+     * Not Allowed).
+     * 
+     * @param exchange coap exchange of request
+     * @see CoapResource#handleGET(CoapExchange)
+     */
+    default void handleGET(final CoapExchange exchange) {
+        exchange.respond(ResponseCode.METHOD_NOT_ALLOWED);
+    }
 }
@@ -24,6 +24,7 @@ import org.eclipse.hono.adapter.coap.CoapAdapterProperties;
 import org.eclipse.hono.adapter.coap.CoapAuthenticationHandler;
 import org.eclipse.hono.adapter.coap.CoapErrorResponse;
 import org.eclipse.hono.auth.Device;
+import org.eclipse.hono.util.CommandConstants;
 import org.eclipse.hono.util.Constants;
 import org.eclipse.hono.util.EventConstants;
 import org.eclipse.hono.util.ResourceIdentifier;
@@ -50,6 +51,9 @@ public final class VertxBasedCoapAdapter extends AbstractVertxBasedCoapAdapter<C
 
     /**
      * Get extended device.
+     * <p>
+     * Authenticated devices may omit the tenant and device from the URI, in which case the
+     * message is considered to originate from the authenticated device.
      * 
      * @param exchange coap exchange with URI and/or peer's principal.
      * @param handler handler for determined extended device
@@ -59,8 +63,13 @@ public final class VertxBasedCoapAdapter extends AbstractVertxBasedCoapAdapter<C
             final List<String> pathList = exchange.getRequestOptions().getUriPath();
             final String[] path = pathList.toArray(new String[pathList.size()]);
             final ResourceIdentifier identifier = ResourceIdentifier.fromPath(path);
-            final Device device = new Device(identifier.getTenantId(), identifier.getResourceId());
             final Principal peer = exchange.advanced().getRequest().getSourceContext().getPeerIdentity();
+            if (peer != null && identifier.getTenantId() == null) {
+                // tenant and device are implied by the authenticated identity
+                getAuthenticatedExtendedDevice(null, exchange, handler);
+                return;
+            }
+            final Device device = new Device(identifier.getTenantId(), identifier.getResourceId());
             if (peer == null) {
                 final ExtendedDevice extendedDevice = new ExtendedDevice(device, device);
                 log.debug("use {}", extendedDevice);
@@ -153,7 +162,33 @@ public final class VertxBasedCoapAdapter extends AbstractVertxBasedCoapAdapter<C
             }
         };
 
+        final CoapRequestHandler command = new CoapRequestHandler() {
+
+            @Override
+            public void handleGET(final CoapExchange exchange) {
+                getExtendedDevice(exchange,
+                        (device) -> observeCommands(exchange, device.authenticatedDevice, device.originDevice));
+            }
+
+            @Override
+            public void handlePOST(final CoapExchange exchange) {
+                exchange.respond(ResponseCode.METHOD_NOT_ALLOWED);
+            }
+
+            @Override
+            public void handlePUT(final CoapExchange exchange) {
+                exchange.respond(ResponseCode.METHOD_NOT_ALLOWED);
+            }
+        };
+
         server.add(new VertxCoapResource(TelemetryConstants.TELEMETRY_ENDPOINT, adapterContext, telemetry));
+        server.add(new VertxCoapResource(TelemetryConstants.TELEMETRY_ENDPOINT_SHORT, adapterContext, telemetry));
         server.add(new VertxCoapResource(EventConstants.EVENT_ENDPOINT, adapterContext, event));
+        server.add(new VertxCoapResource(EventConstants.EVENT_ENDPOINT_SHORT, adapterContext, event));
+        for (final String name : new String[] { CommandConstants.COMMAND_ENDPOINT, CommandConstants.COMMAND_ENDPOINT_SHORT }) {
+            final VertxCoapResource commandResource = new VertxCoapResource(name, adapterContext, command);
+            commandResource.setObservable(true);
+            server.add(commandResource);
+        }
     }
 }
@@ -60,6 +60,13 @@ public class VertxCoapResource extends CoapResource {
         return this;
     }
 
+    @Override
+    public void handleGET(final CoapExchange exchange) {
+        adapterContext.runOnContext((v) -> {
+            handler.handleGET(exchange);
+        });
+    }
+
     @Override
     public void handlePOST(final CoapExchange exchange) {
         adapterContext.runOnContext((v) -> {
@@ -0,0 +1,275 @@
+/**
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+
+package org.eclipse.hono.adapter.coap.vertx;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+
+import org.apache.qpid.proton.message.Message;
+import org.eclipse.californium.core.CoapServer;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.coap.OptionSet;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.network.Exchange;
+import org.eclipse.californium.core.server.resources.CoapExchange;
+import org.eclipse.californium.core.server.resources.Resource;
+import org.eclipse.californium.elements.AddressEndpointContext;
+import org.eclipse.californium.elements.auth.PreSharedKeyIdentity;
+import org.eclipse.hono.adapter.coap.CoapAdapterMetrics;
+import org.eclipse.hono.adapter.coap.CoapAdapterProperties;
+import org.eclipse.hono.client.CommandConnection;
+import org.eclipse.hono.client.CredentialsClient;
+import org.eclipse.hono.client.HonoClient;
+import org.eclipse.hono.client.MessageSender;
+import org.eclipse.hono.client.RegistrationClient;
+import org.eclipse.hono.client.TenantClient;
+import org.eclipse.hono.util.CredentialsObject;
+import org.eclipse.hono.util.RegistrationConstants;
+import org.eclipse.hono.util.TenantObject;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.proton.ProtonDelivery;
+
+/**
+ * Verifies behavior of {@link VertxBasedCoapAdapter}.
+ */
+@RunWith(VertxUnitRunner.class)
+public class VertxBasedCoapAdapterTest {
+
+    private static final byte[] KEY = "secret".getBytes(StandardCharsets.UTF_8);
+
+    private static final Vertx vertx = Vertx.vertx();
+
+    /**
+     * Time out all tests after 10 seconds (the timeout also covers starting
+     * the adapter, which may take longer in slow environments).
+     */
+    @Rule
+    public final Timeout globalTimeout = Timeout.seconds(10);
+
+    private CoapAdapterProperties config;
+    private HonoClient messagingClient;
+    private RegistrationClient regClient;
+    private MessageSender telemetrySender;
+    private MessageSender eventSender;
+    private CoapServer server;
+
+    /**
+     * Sets up the fixture and starts the adapter.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp(final TestContext ctx) {
+
+        config = new CoapAdapterProperties();
+        config.setInsecurePortEnabled(true);
+        config.setAuthenticationRequired(false);
+
+        regClient = mock(RegistrationClient.class);
+        final JsonObject result = new JsonObject().put(RegistrationConstants.FIELD_ASSERTION, "token");
+        when(regClient.assertRegistration(anyString(), any(), any())).thenReturn(Future.succeededFuture(result));
+        final HonoClient registrationServiceClient = mock(HonoClient.class);
+        when(registrationServiceClient.connect(any(Handler.class))).thenReturn(Future.succeededFuture(registrationServiceClient));
+        when(registrationServiceClient.getOrCreateRegistrationClient(anyString())).thenReturn(Future.succeededFuture(regClient));
+
+        final TenantClient tenantClient = mock(TenantClient.class);
+        when(tenantClient.get(anyString(), any())).thenAnswer(invocation -> {
+            return Future.succeededFuture(TenantObject.from(invocation.getArgument(0), true));
+        });
+        final HonoClient tenantServiceClient = mock(HonoClient.class);
+        when(tenantServiceClient.connect(any(Handler.class))).thenReturn(Future.succeededFuture(tenantServiceClient));
+        when(tenantServiceClient.getOrCreateTenantClient()).thenReturn(Future.succeededFuture(tenantClient));
+
+        // the credentials service knows the pre-shared key of device "device" of tenant "tenant"
+        final CredentialsClient credentialsClient = mock(CredentialsClient.class);
+        when(credentialsClient.get(anyString(), eq("device")))
+            .thenReturn(Future.succeededFuture(CredentialsObject.fromPresharedKey("device", "device", KEY, null, null)));
+        final HonoClient credentialsServiceClient = mock(HonoClient.class);
+        when(credentialsServiceClient.connect(any(Handler.class))).thenReturn(Future.succeededFuture(credentialsServiceClient));
+        when(credentialsServiceClient.getOrCreateCredentialsClient(anyString())).thenReturn(Future.succeededFuture(credentialsClient));
+
+        telemetrySender = mock(MessageSender.class);
+        when(telemetrySender.send(any(Message.class))).thenReturn(Future.succeededFuture(mock(ProtonDelivery.class)));
+        eventSender = mock(MessageSender.class);
+        when(eventSender.sendAndWaitForOutcome(any(Message.class))).thenReturn(Future.succeededFuture(mock(ProtonDelivery.class)));
+        messagingClient = mock(HonoClient.class);
+        when(messagingClient.connect(any(Handler.class))).thenReturn(Future.succeededFuture(messagingClient));
+        when(messagingClient.getOrCreateTelemetrySender(anyString())).thenReturn(Future.succeededFuture(telemetrySender));
+        when(messagingClient.getOrCreateEventSender(anyString())).thenReturn(Future.succeededFuture(eventSender));
+
+        final CommandConnection commandConnection = mock(CommandConnection.class);
+        when(commandConnection.connect(any(Handler.class))).thenReturn(Future.succeededFuture(commandConnection));
+
+        final Context context = mock(Context.class);
+        doAnswer(invocation -> {
+            final Handler<Void> handler = invocation.getArgument(0);
+            handler.handle(null);
+            return null;
+        }).when(context).runOnContext(any(Handler.class));
+
+        server = mock(CoapServer.class);
+        final VertxBasedCoapAdapter adapter = new VertxBasedCoapAdapter();
+        adapter.setConfig(config);
+        adapter.setCoapServer(server);
+        adapter.setTenantServiceClient(tenantServiceClient);
+        adapter.setHonoMessagingClient(messagingClient);
+        adapter.setRegistrationServiceClient(registrationServiceClient);
+        adapter.setCredentialsServiceClient(credentialsServiceClient);
+        adapter.setCommandConnection(commandConnection);
+        adapter.setMetrics(mock(CoapAdapterMetrics.class));
+        adapter.init(vertx, context);
+
+        final Future<Void> startupTracker = Future.future();
+        startupTracker.setHandler(ctx.asyncAssertSuccess());
+        adapter.start(startupTracker);
+    }
+
+    /**
+     * Cleans up fixture.
+     */
+    @AfterClass
+    public static void shutDown() {
+        vertx.close();
+    }
+
+    /**
+     * Verifies that an authenticated device can POST a telemetry message to the
+     * short alias of the telemetry resource.
+     */
+    @Test
+    public void testPostTelemetryToShortAliasSucceedsForAuthenticatedDevice() {
+
+        // WHEN an authenticated device POSTs a telemetry message to "t"
+        final CoapExchange exchange = newCoapExchange(Request.newPost(), "t", new PreSharedKeyIdentity("device@tenant"));
+        getResource("t").handlePOST(exchange);
+
+        // THEN the message is forwarded on behalf of the authenticated device
+        verify(regClient).assertRegistration(eq("device"), any(), any());
+        verify(messagingClient).getOrCreateTelemetrySender("tenant");
+        verify(telemetrySender).send(any(Message.class));
+        verify(exchange).respond(ResponseCode.CHANGED);
+    }
+
+    /**
+     * Verifies that a device can PUT an event to the short alias of the event resource.
+     */
+    @Test
+    public void testPutEventToShortAliasSucceeds() {
+
+        // WHEN an unauthenticated device PUTs an event to "e/tenant/device"
+        final CoapExchange exchange = newCoapExchange(Request.newPut(), "e/tenant/device", null);
+        getResource("e").handlePUT(exchange);
+
+        // THEN the message is forwarded on behalf of the device given in the URI
+        verify(regClient).assertRegistration(eq("device"), any(), any());
+        verify(messagingClient).getOrCreateEventSender("tenant");
+        verify(eventSender).sendAndWaitForOutcome(any(Message.class));
+        verify(exchange).respond(ResponseCode.CHANGED);
+    }
+
+    /**
+     * Verifies that an authenticated device may omit the tenant and device from
+     * the URI of a PUT request.
+     */
+    @Test
+    public void testPutTelemetryWithoutTenantSucceedsForAuthenticatedDevice() {
+
+        // WHEN an authenticated device PUTs a telemetry message without tenant and device
+        final CoapExchange exchange = newCoapExchange(Request.newPut(), "telemetry", new PreSharedKeyIdentity("device@tenant"));
+        getResource("telemetry").handlePUT(exchange);
+
+        // THEN the message is forwarded on behalf of the authenticated device
+        verify(regClient).assertRegistration(eq("device"), any(), any());
+        verify(messagingClient).getOrCreateTelemetrySender("tenant");
+        verify(telemetrySender).send(any(Message.class));
+        verify(exchange).respond(ResponseCode.CHANGED);
+    }
+
+    /**
+     * Verifies that a PUT request of an unauthenticated device is rejected with a 4.00
+     * if the tenant and device are missing from the URI.
+     */
+    @Test
+    public void testPutTelemetryWithoutTenantFailsForUnauthenticatedDevice() {
+
+        // WHEN an unauthenticated device PUTs a telemetry message without tenant and device
+        final CoapExchange exchange = newCoapExchange(Request.newPut(), "telemetry", null);
+        getResource("telemetry").handlePUT(exchange);
+
+        // THEN the request is rejected
+        final ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+        verify(exchange).respond(response.capture());
+        assertThat(response.getValue().getCode(), is(ResponseCode.BAD_REQUEST));
+        // and no message is forwarded
+        verify(telemetrySender, never()).send(any(Message.class));
+    }
+
+    private VertxCoapResource getResource(final String name) {
+
+        final ArgumentCaptor<Resource> resources = ArgumentCaptor.forClass(Resource.class);
+        verify(server, atLeastOnce()).add(resources.capture());
+        return resources.getAllValues().stream()
+                .filter(resource -> resource.getName().equals(name))
+                .map(resource -> (VertxCoapResource) resource)
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no resource registered for " + name));
+    }
+
+    private static CoapExchange newCoapExchange(final Request request, final String uriPath, final Principal peer) {
+
+        request.setType(CoAP.Type.NON);
+        request.setSourceContext(new AddressEndpointContext(new InetSocketAddress(0), peer));
+        final OptionSet options = new OptionSet()
+                .setUriPath(uriPath)
+                .setContentFormat(MediaTypeRegistry.TEXT_PLAIN);
+        final Exchange exchange = mock(Exchange.class);
+        when(exchange.getRequest()).thenReturn(request);
+        final CoapExchange coapExchange = mock(CoapExchange.class);
+        when(coapExchange.getRequestPayload()).thenReturn("some payload".getBytes(StandardCharsets.UTF_8));
+        when(coapExchange.getRequestOptions()).thenReturn(options);
+        when(coapExchange.advanced()).thenReturn(exchange);
+        return coapExchange;
+    }
+}
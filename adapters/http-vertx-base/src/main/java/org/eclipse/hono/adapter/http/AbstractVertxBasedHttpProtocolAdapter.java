@@ -15,11 +15,12 @@ package org.eclipse.hono.adapter.http;
 
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.function.Supplier;
 
 import org.apache.qpid.proton.amqp.transport.ErrorCondition;
 import org.apache.qpid.proton.message.Message;
@@ -28,6 +29,7 @@ import org.eclipse.hono.client.ClientErrorException;
 import org.eclipse.hono.client.Command;
 import org.eclipse.hono.client.CommandContext;
 import org.eclipse.hono.client.CommandResponse;
+import org.eclipse.hono.client.HonoClient;
 import org.eclipse.hono.client.MessageConsumer;
 import org.eclipse.hono.client.MessageSender;
 import org.eclipse.hono.client.ResourceConflictException;
@@ -36,10 +38,12 @@ import org.eclipse.hono.service.AbstractProtocolAdapterBase;
 import org.eclipse.hono.service.auth.DeviceUser;
 import org.eclipse.hono.service.http.DefaultFailureHandler;
 import org.eclipse.hono.service.http.HttpUtils;
+import org.eclipse.hono.service.metric.MetricsTags;
 import org.eclipse.hono.tracing.TracingHelper;
 import org.eclipse.hono.util.Constants;
 import org.eclipse.hono.util.EventConstants;
 import org.eclipse.hono.util.MessageHelper;
+import org.eclipse.hono.util.RequestResponseApiConstants;
 import org.eclipse.hono.util.ResourceIdentifier;
 import org.eclipse.hono.util.TelemetryConstants;
 import org.eclipse.hono.util.TenantObject;
@@ -53,14 +57,25 @@ import io.opentracing.contrib.vertx.ext.web.WebSpanDecorator;
 import io.opentracing.tag.Tags;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.Http2Settings;
+import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpServer;
 import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.parsetools.JsonEvent;
+import io.vertx.core.parsetools.JsonParser;
+import io.vertx.ext.auth.User;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
+import io.vertx.proton.ProtonDelivery;
 
 /**
  * Base class for a Vert.x based Hono protocol adapter that uses the HTTP protocol.
@@ -80,11 +95,25 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
     private static final int AT_LEAST_ONCE = 1;
     private static final int HEADER_QOS_INVALID = -1;
 
-    private static final String KEY_TIMER_ID = "timerId";
+    private static final String KEY_STREAMING_UPLOAD = "streamingUpload";
+
+    private static final long TIMER_WHEEL_TICK_MILLIS = 100;
+    private static final int TIMER_WHEEL_SIZE = 512;
+
+    private static final String SPAN_NAME_UPLOAD_TELEMETRY = "upload " + TelemetryConstants.TELEMETRY_ENDPOINT;
+    private static final String SPAN_NAME_UPLOAD_EVENT = "upload " + EventConstants.EVENT_ENDPOINT;
+    private static final String SPAN_NAME_UPLOAD_TELEMETRY_BULK = "upload bulk " + TelemetryConstants.TELEMETRY_ENDPOINT;
+
+    private static final String FIELD_RECORD_CONTENT_TYPE = "content-type";
+    private static final String FIELD_RECORD_DEVICE_ID = RequestResponseApiConstants.FIELD_PAYLOAD_DEVICE_ID;
+    private static final String FIELD_RECORD_ERROR = RequestResponseApiConstants.FIELD_ERROR;
+    private static final String FIELD_RECORD_PAYLOAD = RequestResponseApiConstants.FIELD_PAYLOAD;
+    private static final String FIELD_RECORD_STATUS = "status";
 
     private HttpServer server;
     private HttpServer insecureServer;
     private HttpAdapterMetrics metrics = HttpAdapterMetrics.NOOP;
+    private SharedCommandReceivers commandReceivers;
 
     /**
      * Sets the metrics for this service.
@@ -96,6 +125,11 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
         this.metrics = metrics;
     }
 
+    @Override
+    protected final HttpAdapterMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * @return 8443
      */
@@ -259,7 +293,10 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
      * <p>
      * This method creates a router instance with the following routes:
      * <ol>
-     * <li>A default route limiting the body size of requests to the maximum payload size set in the <em>config</em> properties.</li>
+     * <li>A default route limiting the body size of requests to the maximum payload size set in the <em>config</em> properties.
+     * If streaming of uploads is enabled in the <em>config</em> properties, the bodies of requests for which
+     * {@link #isStreamingUploadSupported(HttpServerRequest)} returns {@code true} are not read by this route
+     * but by the upload methods once the message can be forwarded downstream.</li>
      * </ol>
      *
      * @return The newly created router (never {@code null}).
@@ -268,7 +305,19 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
 
         final Router router = Router.router(vertx);
         LOG.info("limiting size of inbound request body to {} bytes", getConfig().getMaxPayloadSize());
-        router.route().handler(BodyHandler.create(DEFAULT_UPLOADS_DIRECTORY).setBodyLimit(getConfig().getMaxPayloadSize()));
+        final BodyHandler bodyHandler = BodyHandler.create(DEFAULT_UPLOADS_DIRECTORY).setBodyLimit(getConfig().getMaxPayloadSize());
+        if (getConfig().isStreamingUploadsEnabled()) {
+            LOG.info("streaming bodies of upload requests");
+            router.route().handler(ctx -> {
+                if (isStreamingUploadSupported(ctx.request())) {
+                    prepareStreamingUpload(ctx);
+                } else {
+                    bodyHandler.handle(ctx);
+                }
+            });
+        } else {
+            router.route().handler(bodyHandler);
+        }
         addTracingHandler(router, -5);
         // add default handler for failed routes
         router.route().order(-1).failureHandler(new DefaultFailureHandler());
@@ -276,6 +325,109 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
         return router;
     }
 
+    /**
+     * Checks whether the body of a request may be streamed.
+     * <p>
+     * This method is invoked for each request if streaming of uploads is enabled in the
+     * <em>config</em> properties. The body of a request that may be streamed is not read
+     * before the request is routed. Such requests must therefore only be routed to (one of)
+     * the <em>uploadTelemetryMessage</em> or <em>uploadEventMessage</em> methods which take
+     * the routing context, tenant and device identifier only.
+     * <p>
+     * Subclasses should override this method in order to indicate the requests that are
+     * routed accordingly. This default implementation returns {@code false}.
+     *
+     * @param request The request to check.
+     * @return {@code true} if the request's body may be streamed.
+     */
+    protected boolean isStreamingUploadSupported(final HttpServerRequest request) {
+        return false;
+    }
+
+    /**
+     * Pauses a request until its body can be forwarded downstream.
+     * <p>
+     * Fails the request right away if the request's <em>Content-Length</em> exceeds the max payload size.
+     */
+    private void prepareStreamingUpload(final RoutingContext ctx) {
+
+        final String contentLength = ctx.request().getHeader(HttpHeaders.CONTENT_LENGTH);
+        if (contentLength != null && isPayloadTooLarge(contentLength)) {
+            closeConnectionAfterResponse(ctx);
+            ctx.fail(new ClientErrorException(HttpURLConnection.HTTP_ENTITY_TOO_LARGE,
+                    "request body exceeds max payload size"));
+        } else {
+            ctx.request().pause();
+            ctx.put(KEY_STREAMING_UPLOAD, Boolean.TRUE);
+            // make sure that the body is discarded if the request fails
+            // before it has been read, e.g. because of failed authentication
+            ctx.addHeadersEndHandler(v -> ctx.request().resume());
+            ctx.next();
+        }
+    }
+
+    private boolean isPayloadTooLarge(final String contentLength) {
+        try {
+            return Long.parseLong(contentLength) > getConfig().getMaxPayloadSize();
+        } catch (final NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static void closeConnectionAfterResponse(final RoutingContext ctx) {
+
+        if (ctx.request().version() != HttpVersion.HTTP_2) {
+            // do not read the remainder of the body
+            ctx.response().putHeader(HttpHeaders.CONNECTION, HttpHeaders.CLOSE);
+        }
+    }
+
+    /**
+     * Reads the (paused) body of a streamed request.
+     * <p>
+     * The chunks of the body are collected into a single buffer which is also set as
+     * the routing context's body.
+     *
+     * @param ctx The routing context of the request.
+     * @return A future containing the body or failed with a {@link ClientErrorException}
+     *         if the body exceeds the max payload size.
+     */
+    private Future<Buffer> readStreamedBody(final RoutingContext ctx) {
+
+        final HttpServerRequest request = ctx.request();
+        final int maxPayloadSize = getConfig().getMaxPayloadSize();
+        final String contentLength = request.getHeader(HttpHeaders.CONTENT_LENGTH);
+        final Buffer body = Buffer.buffer(getInitialBodySize(contentLength, maxPayloadSize));
+        final Future<Buffer> result = Future.future();
+
+        request.handler(chunk -> {
+            if (result.isComplete()) {
+                return;
+            } else if (body.length() + chunk.length() > maxPayloadSize) {
+                closeConnectionAfterResponse(ctx);
+                result.tryFail(new ClientErrorException(HttpURLConnection.HTTP_ENTITY_TOO_LARGE,
+                        "request body exceeds max payload size"));
+            } else {
+                body.appendBuffer(chunk);
+            }
+        });
+        request.exceptionHandler(result::tryFail);
+        request.endHandler(v -> {
+            ctx.setBody(body);
+            result.tryComplete(body);
+        });
+        request.resume();
+        return result;
+    }
+
+    private static int getInitialBodySize(final String contentLength, final int maxPayloadSize) {
+        try {
+            return contentLength == null ? 0 : (int) Math.min(Long.parseLong(contentLength), maxPayloadSize);
+        } catch (final NumberFormatException e) {
+            return 0;
+        }
+    }
+
     /**
      * Adds custom routes for handling requests.
      * <p>
@@ -293,8 +445,11 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
      * <p>
      * This method returns default options with the host and port being set to the corresponding values
      * from the <em>config</em> properties and using a maximum chunk size of 4096 bytes.
+     * If HTTP/2 is enabled in the <em>config</em> properties, the options also offer
+     * HTTP/2 (h2) and HTTP/1.1 to clients by means of ALPN.
      *
      * @return The http server options.
+     * @see #addHttp2Settings(HttpServerOptions)
      */
     protected HttpServerOptions getHttpServerOptions() {
 
@@ -303,6 +458,10 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
             .setMaxChunkSize(4096);
         addTlsKeyCertOptions(options);
         addTlsTrustOptions(options);
+        if (getConfig().isHttp2Enabled()) {
+            options.setUseAlpn(true).setAlpnVersions(Arrays.asList(HttpVersion.HTTP_2, HttpVersion.HTTP_1_1));
+        }
+        addHttp2Settings(options);
         return options;
     }
 
@@ -313,16 +472,49 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
      * <p>
      * This method returns default options with the host and port being set to the corresponding values
      * from the <em>config</em> properties and using a maximum chunk size of 4096 bytes.
+     * Clients may use HTTP/2 over clear text (h2c) on the insecure port, either by means of an
+     * HTTP/1.1 upgrade request or with prior knowledge.
      *
      * @return The http server options.
+     * @see #addHttp2Settings(HttpServerOptions)
      */
     protected HttpServerOptions getInsecureHttpServerOptions() {
 
         final HttpServerOptions options = new HttpServerOptions();
         options.setHost(getConfig().getInsecurePortBindAddress()).setPort(getConfig().getInsecurePort(getInsecurePortDefaultValue())).setMaxChunkSize(4096);
+        addHttp2Settings(options);
         return options;
     }
 
+    /**
+     * Sets the flow control parameters for HTTP/2 connections on server options.
+     * <p>
+     * Each HTTP/2 stream carries a single upload which is forwarded downstream using
+     * (at most) one unit of credit granted by the downstream peer. The settings therefore
+     * <ul>
+     * <li>limit the number of concurrent streams per connection to the configured
+     * maximum, thus bounding the downstream credit a single connection can consume,</li>
+     * <li>use the maximum payload size as the initial flow control window of a stream,
+     * so that a client can transfer a complete request body without waiting for
+     * a window update while not being able to buffer more than one message per stream and</li>
+     * <li>size the connection's flow control window to accommodate the maximum number of
+     * concurrent streams.</li>
+     * </ul>
+     *
+     * @param options The options to set the parameters on.
+     * @throws NullPointerException if options is {@code null}.
+     */
+    protected final void addHttp2Settings(final HttpServerOptions options) {
+
+        Objects.requireNonNull(options);
+        final int maxStreams = getConfig().getHttp2MaxConcurrentStreams();
+        final int streamWindowSize = getConfig().getMaxPayloadSize();
+        options.setInitialSettings(new Http2Settings()
+                .setMaxConcurrentStreams(maxStreams)
+                .setInitialWindowSize(streamWindowSize));
+        options.setHttp2ConnectionWindowSize((int) Math.min(Integer.MAX_VALUE, (long) maxStreams * streamWindowSize));
+    }
+
     /**
      * Invoked before the message is sent to the downstream peer.
      * <p>
@@ -344,13 +536,12 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
      */
     protected final Device getAuthenticatedDevice(final RoutingContext ctx) {
 
-        return Optional.ofNullable(ctx.user()).map(user -> {
-            if (DeviceUser.class.isInstance(user)) {
-                return (Device) user;
-            } else {
-                return null;
-            }
-        }).orElse(null);
+        final User user = ctx.user();
+        if (DeviceUser.class.isInstance(user)) {
+            return (Device) user;
+        } else {
+            return null;
+        }
     }
 
     private Future<HttpServer> bindSecureHttpServer(final Router router) {
@@ -422,6 +613,10 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
             insecureServerStopTracker.complete();
         }
 
+        if (commandReceivers != null) {
+            commandReceivers.close();
+        }
+
         CompositeFuture.all(serverStopTracker, insecureServerStopTracker)
             .compose(v -> postShutdown())
             .compose(s -> stopFuture.complete(), stopFuture);
@@ -449,7 +644,8 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
      * Uploads the body of an HTTP request as a telemetry message to Hono.
      * <p>
      * This method simply invokes {@link #uploadTelemetryMessage(RoutingContext, String, String, Buffer, String)}
-     * with objects retrieved from the routing context.
+     * with objects retrieved from the routing context. If the request's body is streamed, the body
+     * is read once the message can be forwarded downstream.
      *
      * @param ctx The context to retrieve the message payload and content type from.
      * @param tenant The tenant of the device that has produced the data.
@@ -458,12 +654,23 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
      */
     public final void uploadTelemetryMessage(final RoutingContext ctx, final String tenant, final String deviceId) {
 
-        uploadTelemetryMessage(
-                Objects.requireNonNull(ctx),
-                Objects.requireNonNull(tenant),
-                Objects.requireNonNull(deviceId),
-                ctx.getBody(),
-                HttpUtils.getContentType(ctx));
+        Objects.requireNonNull(ctx);
+        Objects.requireNonNull(tenant);
+        Objects.requireNonNull(deviceId);
+
+        if (isStreamingUpload(ctx)) {
+            doUploadMessage(
+                    ctx,
+                    tenant,
+                    deviceId,
+                    () -> readStreamedBody(ctx),
+                    HttpUtils.getContentType(ctx),
+                    () -> getTelemetrySender(tenant),
+                    TelemetryConstants.TELEMETRY_ENDPOINT,
+                    SPAN_NAME_UPLOAD_TELEMETRY);
+        } else {
+            uploadTelemetryMessage(ctx, tenant, deviceId, ctx.getBody(), HttpUtils.getContentType(ctx));
+        }
     }
 
     /**
@@ -490,15 +697,17 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
                 Objects.requireNonNull(deviceId),
                 payload,
                 contentType,
-                getTelemetrySender(tenant),
-                TelemetryConstants.TELEMETRY_ENDPOINT);
+                () -> getTelemetrySender(tenant),
+                TelemetryConstants.TELEMETRY_ENDPOINT,
+                SPAN_NAME_UPLOAD_TELEMETRY);
     }
 
     /**
      * Uploads the body of an HTTP request as an event message to Hono.
      * <p>
      * This method simply invokes {@link #uploadEventMessage(RoutingContext, String, String, Buffer, String)}
-     * with objects retrieved from the routing context.
+     * with objects retrieved from the routing context. If the request's body is streamed, the body
+     * is read once the message can be forwarded downstream.
      *
      * @param ctx The context to retrieve the message payload and content type from.
      * @param tenant The tenant of the device that has produced the data.
@@ -507,12 +716,27 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
      */
     public final void uploadEventMessage(final RoutingContext ctx, final String tenant, final String deviceId) {
 
-        uploadEventMessage(
-                Objects.requireNonNull(ctx),
-                Objects.requireNonNull(tenant),
-                Objects.requireNonNull(deviceId),
-                ctx.getBody(),
-                HttpUtils.getContentType(ctx));
+        Objects.requireNonNull(ctx);
+        Objects.requireNonNull(tenant);
+        Objects.requireNonNull(deviceId);
+
+        if (isStreamingUpload(ctx)) {
+            doUploadMessage(
+                    ctx,
+                    tenant,
+                    deviceId,
+                    () -> readStreamedBody(ctx),
+                    HttpUtils.getContentType(ctx),
+                    () -> getEventSender(tenant),
+                    EventConstants.EVENT_ENDPOINT,
+                    SPAN_NAME_UPLOAD_EVENT);
+        } else {
+            uploadEventMessage(ctx, tenant, deviceId, ctx.getBody(), HttpUtils.getContentType(ctx));
+        }
+    }
+
+    private static boolean isStreamingUpload(final RoutingContext ctx) {
+        return Boolean.TRUE.equals(ctx.get(KEY_STREAMING_UPLOAD));
     }
 
     /**
@@ -539,42 +763,164 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
                 Objects.requireNonNull(deviceId),
                 payload,
                 contentType,
-                getEventSender(tenant),
-                EventConstants.EVENT_ENDPOINT);
+                () -> getEventSender(tenant),
+                EventConstants.EVENT_ENDPOINT,
+                SPAN_NAME_UPLOAD_EVENT);
+    }
+
+    /**
+     * Uploads the records contained in the body of an HTTP request as telemetry messages to Hono.
+     * <p>
+     * The request body must either be a JSON array of records (content type <em>application/json</em>)
+     * or a sequence of newline delimited records (content type <em>application/x-ndjson</em>).
+     * Each record is a JSON object containing the data to upload in its <em>payload</em> property.
+     * The payload is forwarded as JSON unless the record also contains a <em>content-type</em>
+     * property, in which case the payload must be a string that is forwarded verbatim.
+     * A record may contain a <em>device-id</em> property in order to upload data on behalf of
+     * another device, e.g. a gateway uploading data of the devices connected to it.
+     * <p>
+     * Each record is forwarded downstream as soon as it has been parsed, preserving the order of
+     * the records in the request body. This method always sends a response to the device. If the
+     * request body could be parsed, the response has status 200 and contains a JSON array with an
+     * entry for each record. The entry's <em>status</em> property indicates the outcome of uploading
+     * the record using the status codes defined for uploading a single telemetry message.
+     *
+     * @param ctx The context to retrieve the request body, the QoS level and the HTTP response from.
+     * @param tenant The tenant of the devices that have produced the data.
+     * @param deviceId The id of the device to assume for records that do not contain a device id.
+     * @throws NullPointerException if any of the parameters is {@code null}.
+     */
+    public final void uploadTelemetryMessages(final RoutingContext ctx, final String tenant, final String deviceId) {
+
+        Objects.requireNonNull(ctx);
+        Objects.requireNonNull(tenant);
+        Objects.requireNonNull(deviceId);
+
+        final String contentType = HttpUtils.getContentType(ctx);
+        final String qosHeaderValue = ctx.request().getHeader(Constants.HEADER_QOS_LEVEL);
+        final Integer qos = getQoSLevel(qosHeaderValue);
+
+        if (!HttpUtils.CONTENT_TYPE_JSON.equals(contentType) && !HttpUtils.CONTENT_TYPE_NDJSON.equals(contentType)) {
+            HttpUtils.badRequest(ctx, String.format("content type must be one of [%s, %s]",
+                    HttpUtils.CONTENT_TYPE_JSON, HttpUtils.CONTENT_TYPE_NDJSON));
+        } else if (qos != null && qos == HEADER_QOS_INVALID) {
+            HttpUtils.badRequest(ctx, "unsupported QoS-Level header value");
+        } else {
+
+            final String endpointName = TelemetryConstants.TELEMETRY_ENDPOINT;
+            final Device authenticatedDevice = getAuthenticatedDevice(ctx);
+            final Span currentSpan = tracer.buildSpan(SPAN_NAME_UPLOAD_TELEMETRY_BULK)
+                    .asChildOf(TracingHandler.serverSpanContext(ctx))
+                    .ignoreActiveSpan()
+                    .withTag(Tags.COMPONENT.getKey(), getTypeName())
+                    .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_CLIENT)
+                    .withTag(MessageHelper.APP_PROPERTY_TENANT_ID, tenant)
+                    .withTag(MessageHelper.APP_PROPERTY_DEVICE_ID, deviceId)
+                    .withTag(TracingHelper.TAG_AUTHENTICATED.getKey(), authenticatedDevice != null)
+                    .start();
+            if (qos != null) {
+                currentSpan.setTag(Constants.HEADER_QOS_LEVEL, qosHeaderValue);
+            }
+
+            final String qosTag = qos == null ? MetricsTags.VALUE_QOS_AT_MOST_ONCE : MetricsTags.VALUE_QOS_AT_LEAST_ONCE;
+            final long start = System.nanoTime();
+            final Future<TenantObject> tenantConfigTracker = timeUploadStage(MetricsTags.VALUE_STAGE_TENANT, endpointName, qosTag, start,
+                    getTenantConfiguration(tenant, currentSpan.context()));
+            final Future<MessageSender> senderTracker = timeUploadStage(MetricsTags.VALUE_STAGE_SENDER, endpointName, qosTag, start,
+                    getTelemetrySender(tenant));
+
+            CompositeFuture.all(tenantConfigTracker, senderTracker).compose(ok -> {
+
+                if (tenantConfigTracker.result().isAdapterEnabled(getTypeName())) {
+                    final RecordUploader uploader = new RecordUploader(ctx, tenant, deviceId, authenticatedDevice,
+                            senderTracker.result(), qos != null, qosTag, currentSpan);
+                    return uploader.upload(ctx.getBody(), HttpUtils.CONTENT_TYPE_JSON.equals(contentType));
+                } else {
+                    // this adapter is not enabled for the tenant
+                    return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_FORBIDDEN,
+                            "adapter is not enabled for tenant"));
+                }
+            }).setHandler(attempt -> {
+
+                if (attempt.succeeded()) {
+                    currentSpan.log(String.format("processed %d records", attempt.result().size()));
+                    ctx.response().setStatusCode(HttpURLConnection.HTTP_OK);
+                    HttpUtils.setResponseBody(ctx.response(), attempt.result().toBuffer(), HttpUtils.CONTENT_TYPE_JSON_UTF8);
+                    ctx.response().end();
+                } else {
+                    LOG.debug("cannot process bulk [{}] upload of device [tenantId: {}, deviceId: {}]",
+                            endpointName, tenant, deviceId, attempt.cause());
+                    if (ClientErrorException.class.isInstance(attempt.cause())) {
+                        ctx.fail(attempt.cause());
+                    } else {
+                        HttpUtils.serviceUnavailable(ctx, 2, "temporarily unavailable");
+                    }
+                    TracingHelper.logError(currentSpan, attempt.cause());
+                }
+                currentSpan.finish();
+            });
+        }
     }
 
     private void doUploadMessage(final RoutingContext ctx, final String tenant, final String deviceId,
-            final Buffer payload, final String contentType, final Future<MessageSender> senderTracker, final String endpointName) {
+            final Buffer payload, final String contentType, final Supplier<Future<MessageSender>> senderSupplier,
+            final String endpointName, final String spanName) {
 
         if (!isPayloadOfIndicatedType(payload, contentType)) {
             HttpUtils.badRequest(ctx, String.format("content type [%s] does not match payload", contentType));
         } else {
-            final String qosHeaderValue = ctx.request().getHeader(Constants.HEADER_QOS_LEVEL);
-            final Integer qos = getQoSLevel(qosHeaderValue);
-            if (qos != null && qos == HEADER_QOS_INVALID) {
-                HttpUtils.badRequest(ctx, "unsupported QoS-Level header value");
-            } else {
+            doUploadMessage(ctx, tenant, deviceId, () -> Future.succeededFuture(payload), contentType,
+                    senderSupplier, endpointName, spanName);
+        }
+    }
+
+    private void doUploadMessage(final RoutingContext ctx, final String tenant, final String deviceId,
+            final Supplier<Future<Buffer>> payloadSupplier, final String contentType,
+            final Supplier<Future<MessageSender>> senderSupplier, final String endpointName, final String spanName) {
+
+        final String qosHeaderValue = ctx.request().getHeader(Constants.HEADER_QOS_LEVEL);
+        final Integer qos = getQoSLevel(qosHeaderValue);
+        if (qos != null && qos == HEADER_QOS_INVALID) {
+            HttpUtils.badRequest(ctx, "unsupported QoS-Level header value");
+        } else {
 
-                final Device authenticatedDevice = getAuthenticatedDevice(ctx);
-                final Span currentSpan = tracer.buildSpan("upload " + endpointName)
-                        .asChildOf(TracingHandler.serverSpanContext(ctx))
-                        .ignoreActiveSpan()
-                        .withTag(Tags.COMPONENT.getKey(), getTypeName())
-                        .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_CLIENT)
-                        .withTag(MessageHelper.APP_PROPERTY_TENANT_ID, tenant)
-                        .withTag(MessageHelper.APP_PROPERTY_DEVICE_ID, deviceId)
-                        .withTag(TracingHelper.TAG_AUTHENTICATED.getKey(), authenticatedDevice != null)
-                        .start();
-
-                final Future<Void> responseReady = Future.future();
-                final Future<JsonObject> tokenTracker = getRegistrationAssertion(
-                        tenant,
-                        deviceId,
-                        authenticatedDevice,
-                        currentSpan.context());
-                final Future<TenantObject> tenantConfigTracker = getTenantConfiguration(tenant, currentSpan.context());
-                final Future<Integer> ttdTracker = tenantConfigTracker.compose(tenantObj -> {
-                    final Integer ttdParam = HttpUtils.getTimeTilDisconnect(ctx);
+            final Device authenticatedDevice = getAuthenticatedDevice(ctx);
+            final Span currentSpan = tracer.buildSpan(spanName)
+                    .asChildOf(TracingHandler.serverSpanContext(ctx))
+                    .ignoreActiveSpan()
+                    .withTag(Tags.COMPONENT.getKey(), getTypeName())
+                    .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_CLIENT)
+                    .withTag(MessageHelper.APP_PROPERTY_TENANT_ID, tenant)
+                    .withTag(MessageHelper.APP_PROPERTY_DEVICE_ID, deviceId)
+                    .withTag(TracingHelper.TAG_AUTHENTICATED.getKey(), authenticatedDevice != null)
+                    .start();
+
+            final String qosTag = qos == null && TelemetryConstants.TELEMETRY_ENDPOINT.equals(endpointName)
+                    ? MetricsTags.VALUE_QOS_AT_MOST_ONCE
+                    : MetricsTags.VALUE_QOS_AT_LEAST_ONCE;
+            final Future<Void> responseReady = Future.future();
+            final long start = System.nanoTime();
+            final Future<MessageSender> senderTracker = timeUploadStage(MetricsTags.VALUE_STAGE_SENDER, endpointName, qosTag, start,
+                    senderSupplier.get());
+            final Future<JsonObject> tokenTracker = timeUploadStage(MetricsTags.VALUE_STAGE_REGISTRATION, endpointName, qosTag, start,
+                    getRegistrationAssertion(
+                            tenant,
+                            deviceId,
+                            authenticatedDevice,
+                            currentSpan.context()));
+            final Future<TenantObject> tenantConfigTracker = timeUploadStage(MetricsTags.VALUE_STAGE_TENANT, endpointName, qosTag, start,
+                    getTenantConfiguration(tenant, currentSpan.context()));
+            final Integer ttdParam = HttpUtils.getTimeTilDisconnect(ctx);
+            final Future<Integer> ttdTracker;
+            final Future<MessageConsumer> commandConsumerTracker;
+            if (ttdParam == null) {
+                // most requests do not wait for a command so we can skip
+                // the creation of (and the allocations for) the command consumer chain
+                responseReady.complete();
+                ttdTracker = Future.succeededFuture();
+                commandConsumerTracker = Future.succeededFuture();
+            } else {
+                ttdTracker = tenantConfigTracker.compose(tenantObj -> {
                     return getTimeUntilDisconnect(tenantObj, ttdParam).map(effectiveTtd -> {
                         if (effectiveTtd != null) {
                             currentSpan.setTag(MessageHelper.APP_PROPERTY_DEVICE_TTD, effectiveTtd);
@@ -582,16 +928,30 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
                         return effectiveTtd;
                     });
                 });
-                final Future<MessageConsumer> commandConsumerTracker = ttdTracker
+                commandConsumerTracker = ttdTracker
                         .compose(ttd -> createCommandConsumer(ttd, tenant, deviceId, ctx, responseReady, currentSpan));
+            }
+
+            final Future<ProtonDelivery> uploadTracker = CompositeFuture.all(
+                    tokenTracker, tenantConfigTracker, senderTracker, commandConsumerTracker).compose(ok -> {
+
+                if (tenantConfigTracker.result().isAdapterEnabled(getTypeName())) {
+                    final MessageSender sender = senderTracker.result();
+
+                    if (isStreamingUpload(ctx) && sender.sendQueueFull()) {
+                        // do not read the body of a message that cannot be forwarded
+                        return Future.failedFuture(new ServerErrorException(HttpURLConnection.HTTP_UNAVAILABLE,
+                                "no credit available for sending message"));
+                    }
 
-                CompositeFuture.all(tokenTracker, senderTracker, commandConsumerTracker).compose(ok -> {
+                    return payloadSupplier.get().compose(payload -> {
 
-                    if (tenantConfigTracker.result().isAdapterEnabled(getTypeName())) {
-                        final MessageSender sender = senderTracker.result();
+                        if (!isPayloadOfIndicatedType(payload, contentType)) {
+                            return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_BAD_REQUEST,
+                                    String.format("content type [%s] does not match payload", contentType)));
+                        }
 
-                        final Integer ttd = Optional.ofNullable(commandConsumerTracker.result()).map(c -> ttdTracker.result())
-                                .orElse(null);
+                        final Integer ttd = commandConsumerTracker.result() == null ? null : ttdTracker.result();
                         final Message downstreamMessage = newMessage(
                                 ResourceIdentifier.from(endpointName, tenant, deviceId),
                                 sender.isRegistrationAssertionRequired(),
@@ -604,102 +964,319 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
 
                         addConnectionCloseHandler(ctx, commandConsumerTracker.result(), tenant, deviceId);
 
+                        final long sendStart = System.nanoTime();
                         if (qos == null) {
-                            return CompositeFuture.all(
-                                    sender.send(downstreamMessage, currentSpan.context()),
-                                    responseReady)
-                                    .map(s -> (Void) null);
+                            return timeUploadStage(MetricsTags.VALUE_STAGE_SEND, endpointName, qosTag, sendStart,
+                                    sender.send(downstreamMessage, currentSpan.context()));
                         } else {
                             currentSpan.setTag(Constants.HEADER_QOS_LEVEL, qosHeaderValue);
-                            return CompositeFuture.all(
-                                    sender.sendAndWaitForOutcome(downstreamMessage, currentSpan.context()),
-                                    responseReady)
-                                    .map(s -> (Void) null);
+                            return timeUploadStage(MetricsTags.VALUE_STAGE_SEND, endpointName, qosTag, sendStart,
+                                    sender.sendAndWaitForOutcome(downstreamMessage, currentSpan.context()));
                         }
-                    } else {
-                        // this adapter is not enabled for the tenant
-                        return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_FORBIDDEN,
-                                "adapter is not enabled for tenant"));
-                    }
-                })
-                .recover(t -> {
-                    if (t instanceof ResourceConflictException) {
-                        // simply return an empty response
-                        LOG.debug("ignoring empty notification [tenant: {}, device-id: {}], command consumer is already in use",
-                                tenant, deviceId);
-                        return Future.succeededFuture();
-                    } else {
-                        return Future.failedFuture(t);
-                    }
-                })
-                .compose(proceed -> {
-
-                    if (!ctx.response().closed()) {
-                        final CommandContext commandContext = ctx.get(CommandContext.KEY_COMMAND_CONTEXT);
-                        setResponsePayload(ctx.response(), commandContext, currentSpan);
-                        ctx.addBodyEndHandler(ok -> {
-                            LOG.trace("successfully processed [{}] message for device [tenantId: {}, deviceId: {}]",
-                                    endpointName, tenant, deviceId);
-                            metrics.incrementProcessedMessages(endpointName, tenant);
-                            metrics.incrementProcessedPayload(endpointName, tenant, messagePayloadSize(ctx));
-                            if (commandContext != null) {
-                                commandContext.getCurrentSpan().log("forwarded command to device in HTTP response body");
-                                commandContext.accept();
-                                metrics.incrementCommandDeliveredToDevice(tenant);
-                            }
-                            currentSpan.finish();
-                            // the command consumer is used for a single request only
-                            // we can close the consumer only AFTER we have accepted a
-                            // potential command
-                            Optional.ofNullable(commandConsumerTracker.result()).ifPresent(consumer -> consumer.close(null));
-                        });
-                        ctx.response().exceptionHandler(t -> {
-                            LOG.debug("failed to send http response for [{}] message from device [tenantId: {}, deviceId: {}]",
-                                    endpointName, tenant, deviceId, t);
-                            if (commandContext != null) {
-                                commandContext.getCurrentSpan().log("failed to forward command to device in HTTP response body");
-                                TracingHelper.logError(commandContext.getCurrentSpan(), t);
-                                commandContext.release();
-                            }
-                            currentSpan.log("failed to send HTTP response to device");
-                            TracingHelper.logError(currentSpan, t);
-                            currentSpan.finish();
-                            // the command consumer is used for a single request only
-                            // we can close the consumer only AFTER we have released a
-                            // potential command
-                            Optional.ofNullable(commandConsumerTracker.result()).ifPresent(consumer -> consumer.close(null));
-                        });
-                        ctx.response().end();
-                    }
+                    });
+                } else {
+                    // this adapter is not enabled for the tenant
+                    return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_FORBIDDEN,
+                            "adapter is not enabled for tenant"));
+                }
+            });
 
+            // the time spent waiting for a command is not included in the total stage
+            timeUploadStage(MetricsTags.VALUE_STAGE_TOTAL, endpointName, qosTag, start, uploadTracker)
+            .compose(delivery -> responseReady)
+            .recover(t -> {
+                if (t instanceof ResourceConflictException) {
+                    // simply return an empty response
+                    LOG.debug("ignoring empty notification [tenant: {}, device-id: {}], command consumer is already in use",
+                            tenant, deviceId);
                     return Future.succeededFuture();
+                } else {
+                    return Future.failedFuture(t);
+                }
+            })
+            .compose(proceed -> {
 
-                })
-                .recover(t -> {
-
-                    LOG.debug("cannot process [{}] message from device [tenantId: {}, deviceId: {}]",
-                            endpointName, tenant, deviceId, t);
+                if (!ctx.response().closed()) {
                     final CommandContext commandContext = ctx.get(CommandContext.KEY_COMMAND_CONTEXT);
-                    if (commandContext != null) {
-                        commandContext.release();
-                    }
-                    // the command consumer is used for a single request only
-                    // we can close the consumer only AFTER we have released a
-                    // potential command
-                    Optional.ofNullable(commandConsumerTracker.result()).ifPresent(consumer -> consumer.close(null));
-
-                    if (ClientErrorException.class.isInstance(t)) {
-                        final ClientErrorException e = (ClientErrorException) t;
-                        ctx.fail(e);
-                    } else {
-                        metrics.incrementUndeliverableMessages(endpointName, tenant);
-                        HttpUtils.serviceUnavailable(ctx, 2, "temporarily unavailable");
-                    }
-                    TracingHelper.logError(currentSpan, t);
-                    currentSpan.finish();
-                    return Future.failedFuture(t);
-                });
+                    setResponsePayload(ctx.response(), commandContext, currentSpan);
+                    ctx.addBodyEndHandler(ok -> {
+                        LOG.trace("successfully processed [{}] message for device [tenantId: {}, deviceId: {}]",
+                                endpointName, tenant, deviceId);
+                        metrics.incrementProcessedMessages(endpointName, tenant);
+                        metrics.incrementProcessedPayload(endpointName, tenant, messagePayloadSize(ctx));
+                        if (commandContext != null) {
+                            commandContext.getCurrentSpan().log("forwarded command to device in HTTP response body");
+                            commandContext.accept();
+                            metrics.incrementCommandDeliveredToDevice(tenant);
+                        }
+                        currentSpan.finish();
+                        // the command consumer is used for a single request only
+                        // we can close the consumer only AFTER we have accepted a
+                        // potential command
+                        closeConsumer(commandConsumerTracker.result());
+                    });
+                    ctx.response().exceptionHandler(t -> {
+                        LOG.debug("failed to send http response for [{}] message from device [tenantId: {}, deviceId: {}]",
+                                endpointName, tenant, deviceId, t);
+                        if (commandContext != null) {
+                            commandContext.getCurrentSpan().log("failed to forward command to device in HTTP response body");
+                            TracingHelper.logError(commandContext.getCurrentSpan(), t);
+                            commandContext.release();
+                        }
+                        currentSpan.log("failed to send HTTP response to device");
+                        TracingHelper.logError(currentSpan, t);
+                        currentSpan.finish();
+                        // the command consumer is used for a single request only
+                        // we can close the consumer only AFTER we have released a
+                        // potential command
+                        closeConsumer(commandConsumerTracker.result());
+                    });
+                    ctx.response().end();
+                }
+
+                return Future.succeededFuture();
+
+            })
+            .recover(t -> {
+
+                LOG.debug("cannot process [{}] message from device [tenantId: {}, deviceId: {}]",
+                        endpointName, tenant, deviceId, t);
+                final CommandContext commandContext = ctx.get(CommandContext.KEY_COMMAND_CONTEXT);
+                if (commandContext != null) {
+                    commandContext.release();
+                }
+                // the command consumer is used for a single request only
+                // we can close the consumer only AFTER we have released a
+                // potential command
+                closeConsumer(commandConsumerTracker.result());
+
+                if (ClientErrorException.class.isInstance(t)) {
+                    final ClientErrorException e = (ClientErrorException) t;
+                    ctx.fail(e);
+                } else {
+                    metrics.incrementUndeliverableMessages(endpointName, tenant);
+                    HttpUtils.serviceUnavailable(ctx, 2, "temporarily unavailable");
+                }
+                TracingHelper.logError(currentSpan, t);
+                currentSpan.finish();
+                return Future.failedFuture(t);
+            });
+        }
+    }
+
+    /**
+     * Forwards the records of a bulk upload downstream while they are being parsed.
+     */
+    private final class RecordUploader implements Handler<JsonEvent> {
+
+        private final List<Future<JsonObject>> outcomes = new ArrayList<>();
+        private final RoutingContext ctx;
+        private final String tenant;
+        private final String defaultDeviceId;
+        private final Device authenticatedDevice;
+        private final MessageSender sender;
+        private final boolean waitForOutcome;
+        private final String qosTag;
+        private final Span currentSpan;
+
+        private boolean arrayExpected;
+        private int depth;
+        private boolean arrayEnded;
+        private String error;
+        private Future<Void> previousRecordSent = Future.succeededFuture();
+
+        private RecordUploader(
+                final RoutingContext ctx,
+                final String tenant,
+                final String defaultDeviceId,
+                final Device authenticatedDevice,
+                final MessageSender sender,
+                final boolean waitForOutcome,
+                final String qosTag,
+                final Span currentSpan) {
+
+            this.ctx = ctx;
+            this.tenant = tenant;
+            this.defaultDeviceId = defaultDeviceId;
+            this.authenticatedDevice = authenticatedDevice;
+            this.sender = sender;
+            this.waitForOutcome = waitForOutcome;
+            this.qosTag = qosTag;
+            this.currentSpan = currentSpan;
+        }
+
+        /**
+         * Parses a request body and uploads the records contained.
+         *
+         * @param body The request body.
+         * @param isArray {@code true} if the records are contained in a JSON array.
+         * @return A future containing the outcomes of uploading the records or failed with
+         *         a {@link ClientErrorException} if the body does not contain any records.
+         */
+        Future<JsonArray> upload(final Buffer body, final boolean isArray) {
+
+            arrayExpected = isArray;
+            final JsonParser parser = JsonParser.newParser().objectValueMode();
+            parser.exceptionHandler(t -> {
+                if (error == null) {
+                    error = "malformed request body";
+                }
+            });
+            parser.handler(this);
+            if (body != null) {
+                parser.handle(body);
+            }
+            parser.end();
+
+            if (outcomes.isEmpty()) {
+                return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_BAD_REQUEST,
+                        error == null ? "request body does not contain any records" : error));
+            }
+            if (error != null) {
+                // report the reason for ignoring the remainder of the body
+                outcomes.add(Future.succeededFuture(new JsonObject()
+                        .put(FIELD_RECORD_STATUS, HttpURLConnection.HTTP_BAD_REQUEST)
+                        .put(FIELD_RECORD_ERROR, error)));
             }
+            @SuppressWarnings("rawtypes")
+            final List<Future> results = new ArrayList<>(outcomes);
+            return CompositeFuture.all(results).map(ok -> {
+                final JsonArray result = new JsonArray();
+                outcomes.forEach(outcome -> result.add(outcome.result()));
+                return result;
+            });
+        }
+
+        @Override
+        public void handle(final JsonEvent event) {
+
+            if (error != null) {
+                return;
+            }
+            switch (event.type()) {
+            case START_ARRAY:
+                if (arrayExpected && depth == 0 && !arrayEnded) {
+                    depth++;
+                } else {
+                    error = "records must not contain nested arrays";
+                }
+                break;
+            case END_ARRAY:
+                depth--;
+                arrayEnded = true;
+                break;
+            case VALUE:
+                if (arrayExpected && depth != 1) {
+                    error = "records must be contained in a single JSON array";
+                } else {
+                    outcomes.add(uploadRecord(event.value()));
+                }
+                break;
+            default:
+                // in object value mode the parser emits objects as values
+                error = "malformed request body";
+            }
+        }
+
+        private Future<JsonObject> uploadRecord(final Object value) {
+
+            final String endpointName = TelemetryConstants.TELEMETRY_ENDPOINT;
+            final JsonObject outcome = new JsonObject();
+            if (!(value instanceof JsonObject)) {
+                return Future.succeededFuture(recordFailed(outcome, new ClientErrorException(
+                        HttpURLConnection.HTTP_BAD_REQUEST, "record must be a JSON object")));
+            }
+
+            final JsonObject record = (JsonObject) value;
+            final Object deviceIdValue = record.getValue(FIELD_RECORD_DEVICE_ID);
+            final Object contentTypeValue = record.getValue(FIELD_RECORD_CONTENT_TYPE);
+            final Object payloadValue = record.getValue(FIELD_RECORD_PAYLOAD);
+
+            if (deviceIdValue != null && !(deviceIdValue instanceof String)) {
+                return Future.succeededFuture(recordFailed(outcome, new ClientErrorException(
+                        HttpURLConnection.HTTP_BAD_REQUEST, "device ID must be a string")));
+            }
+            final String deviceId = deviceIdValue == null ? defaultDeviceId : (String) deviceIdValue;
+            outcome.put(FIELD_RECORD_DEVICE_ID, deviceId);
+
+            final String contentType;
+            final Buffer payload;
+            if (payloadValue == null) {
+                return Future.succeededFuture(recordFailed(outcome, new ClientErrorException(
+                        HttpURLConnection.HTTP_BAD_REQUEST, "record must contain payload")));
+            } else if (contentTypeValue == null) {
+                contentType = HttpUtils.CONTENT_TYPE_JSON;
+                payload = Json.encodeToBuffer(payloadValue);
+            } else if (contentTypeValue instanceof String && payloadValue instanceof String) {
+                contentType = (String) contentTypeValue;
+                payload = Buffer.buffer((String) payloadValue);
+            } else {
+                return Future.succeededFuture(recordFailed(outcome, new ClientErrorException(
+                        HttpURLConnection.HTTP_BAD_REQUEST, "content type and payload must be strings")));
+            }
+
+            // look up the assertion right away but make sure that
+            // the records are sent downstream in the original order
+            final long start = System.nanoTime();
+            final Future<JsonObject> tokenTracker = timeUploadStage(MetricsTags.VALUE_STAGE_REGISTRATION, endpointName, qosTag, start,
+                    getRegistrationAssertion(tenant, deviceId, authenticatedDevice, currentSpan.context()));
+            final Future<Void> previous = previousRecordSent;
+            final Future<Void> sent = Future.future();
+            previousRecordSent = sent;
+
+            return previous.compose(ok -> tokenTracker).compose(token -> {
+
+                final Message downstreamMessage = newMessage(
+                        ResourceIdentifier.from(endpointName, tenant, deviceId),
+                        sender.isRegistrationAssertionRequired(),
+                        ctx.request().uri(),
+                        contentType,
+                        payload,
+                        token,
+                        null);
+                customizeDownstreamMessage(downstreamMessage, ctx);
+                final Future<ProtonDelivery> delivery = timeUploadStage(MetricsTags.VALUE_STAGE_SEND, endpointName, qosTag,
+                        System.nanoTime(),
+                        waitForOutcome
+                            ? sender.sendAndWaitForOutcome(downstreamMessage, currentSpan.context())
+                            : sender.send(downstreamMessage, currentSpan.context()));
+                sent.tryComplete();
+                return delivery;
+
+            }).map(delivery -> {
+                reportUploadStage(MetricsTags.VALUE_STAGE_TOTAL, endpointName, qosTag, start);
+                metrics.incrementProcessedMessages(endpointName, tenant);
+                metrics.incrementProcessedPayload(endpointName, tenant, payload.length());
+                return outcome.put(FIELD_RECORD_STATUS, HttpURLConnection.HTTP_ACCEPTED);
+            }).otherwise(t -> {
+                reportUploadStage(MetricsTags.VALUE_STAGE_TOTAL, endpointName, qosTag, start);
+                sent.tryComplete();
+                if (!ClientErrorException.class.isInstance(t)) {
+                    metrics.incrementUndeliverableMessages(endpointName, tenant);
+                }
+                LOG.debug("cannot process [{}] record of device [tenantId: {}, deviceId: {}]",
+                        endpointName, tenant, deviceId, t);
+                return recordFailed(outcome, t);
+            });
+        }
+
+        private JsonObject recordFailed(final JsonObject outcome, final Throwable cause) {
+
+            if (ClientErrorException.class.isInstance(cause)) {
+                return outcome
+                        .put(FIELD_RECORD_STATUS, ((ClientErrorException) cause).getErrorCode())
+                        .put(FIELD_RECORD_ERROR, cause.getMessage());
+            } else {
+                return outcome
+                        .put(FIELD_RECORD_STATUS, HttpURLConnection.HTTP_UNAVAILABLE)
+                        .put(FIELD_RECORD_ERROR, "temporarily unavailable");
+            }
+        }
+    }
+
+    private static void closeConsumer(final MessageConsumer consumer) {
+        if (consumer != null) {
+            consumer.close(null);
         }
     }
 
@@ -741,7 +1318,6 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
                 ctx.response().closeHandler(v -> {
                     LOG.debug("device [tenant: {}, device-id: {}] closed connection before response could be sent",
                             tenantId, deviceId);
-                    cancelCommandReceptionTimer(ctx);
                     messageConsumer.close(null);
                     metrics.incrementNoCommandReceivedAndTTDExpired(tenantId);
                 });
@@ -768,8 +1344,35 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Forgets about the command receiver links that have been kept open for devices.
+     * Subclasses overriding this method should invoke this implementation.
+     */
+    @Override
+    protected void onCommandConnectionLost(final HonoClient commandConnection) {
+        if (commandReceivers != null) {
+            commandReceivers.clear();
+        }
+    }
+
+    private SharedCommandReceivers getCommandReceivers() {
+        if (commandReceivers == null) {
+            commandReceivers = new SharedCommandReceivers(
+                    new TimerWheel(vertx, TIMER_WHEEL_TICK_MILLIS, TIMER_WHEEL_SIZE),
+                    this::getCommandConnection,
+                    getConfig().getCommandReceiverIdleTimeout() * 1000L);
+        }
+        return commandReceivers;
+    }
+
     /**
      * Creates a consumer for command messages to be sent to a device.
+     * <p>
+     * The request is parked at a command receiver link that is shared by all requests of
+     * the device. The link is kept open after the response has been sent to the device
+     * so that subsequent requests for receiving commands do not need to open a new link.
      *
      * @param ttdSecs The number of seconds the device waits for a command.
      * @param tenantId The tenant that the device belongs to.
@@ -816,39 +1419,36 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
             return Future.succeededFuture();
         } else {
             currentSpan.setTag(MessageHelper.APP_PROPERTY_DEVICE_TTD, ttdSecs);
-            return getCommandConnection().createCommandConsumer(
+            return getCommandReceivers().park(
                     tenantId,
                     deviceId,
+                    ttdSecs * 1000L,
                     commandContext -> {
 
                         Tags.COMPONENT.set(commandContext.getCurrentSpan(), getTypeName());
                         final Command command = commandContext.getCommand();
                         if (command.isValid()) {
                             if (responseReady.isComplete()) {
-                                // the timer has already fired, release the command
+                                // the ttd has already expired, release the command
                                 commandContext.release();
                             } else {
                                 // put command context to routing context and notify
                                 ctx.put(CommandContext.KEY_COMMAND_CONTEXT, commandContext);
-                                cancelCommandReceptionTimer(ctx);
                                 responseReady.tryComplete();
                             }
                         } else {
                             commandContext.reject(new ErrorCondition(Constants.AMQP_BAD_REQUEST, "malformed command message"));
                         }
                         // we do not issue any new credit because the
-                        // consumer is supposed to deliver a single command
+                        // link is supposed to deliver a single command
                         // only per HTTP request
                     },
-                    remoteDetach -> {
-                        LOG.debug("peer closed command receiver link [tenant-id: {}, device-id: {}]", tenantId, deviceId);
-                        // command consumer is closed by closeHandler, no explicit close necessary here
-                    }).map(consumer -> {
-                        if (!responseReady.isComplete()) {
-                            // if the request was not responded already, add a timer for triggering an empty response
-                            addCommandReceptionTimer(ctx, responseReady, ttdSecs);
-                        }
-                        return consumer;
+                    expired -> {
+                        LOG.trace("time to wait [{}s] for command expired [tenant-id: {}, device-id: {}]",
+                                ttdSecs, tenantId, deviceId);
+                        // no command to be sent,
+                        // send empty response
+                        responseReady.tryComplete();
                     }).recover(t -> {
                         if (t instanceof ResourceConflictException) {
                             // another request from the same device that contains
@@ -868,53 +1468,6 @@ public abstract class AbstractVertxBasedHttpProtocolAdapter<T extends HttpProtoc
         }
     }
 
-    /**
-     * Sets a timer to trigger the sending of a (empty) response to a device
-     * if no command has been received from an application within a
-     * given amount of time.
-     * <p>
-     * The created timer's ID is put to the routing context using key {@link #KEY_TIMER_ID}.
-     *
-     * @param ctx The device's currently executing HTTP request.
-     * @param responseReady The future to complete when the time has expired.
-     * @param delaySecs The number of seconds to wait for a command.
-     */
-    private void addCommandReceptionTimer(
-            final RoutingContext ctx,
-            final Future<Void> responseReady,
-            final long delaySecs) {
-
-        final Long timerId = ctx.vertx().setTimer(delaySecs * 1000L, id -> {
-
-            LOG.trace("time to wait [{}s] for command expired [timer id: {}]", delaySecs, id);
-
-            if (responseReady.isComplete()) {
-                // a command has been sent to the device already
-                LOG.trace("response already sent, nothing to do ...");
-            } else {
-                // no command to be sent,
-                // send empty response
-                responseReady.complete();
-            }
-        });
-
-        LOG.trace("adding command reception timer [id: {}]", timerId);
-
-        ctx.put(KEY_TIMER_ID, timerId);
-    }
-
-    private void cancelCommandReceptionTimer(final RoutingContext ctx) {
-
-        final Long timerId = ctx.get(KEY_TIMER_ID);
-        if (timerId != null && timerId >= 0) {
-            if (ctx.vertx().cancelTimer(timerId)) {
-                LOG.trace("Cancelled timer id {}", timerId);
-            } else {
-                LOG.debug("Could not cancel timer id {}", timerId);
-            }
-        }
-    }
-
     /**
      * Uploads a command response message to Hono.
      *
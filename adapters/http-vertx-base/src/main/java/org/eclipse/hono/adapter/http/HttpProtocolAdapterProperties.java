@@ -28,8 +28,31 @@ public class HttpProtocolAdapterProperties extends ProtocolAdapterProperties {
      * The default name of the realm that devices need to authenticate to.
      */
     public static final String DEFAULT_REALM = "Hono";
+    /**
+     * The default maximum number of HTTP/2 streams that a client may open concurrently on a connection.
+     */
+    public static final int DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS = 100;
+    /**
+     * The default number of seconds after which an unused command receiver link is closed.
+     */
+    public static final int DEFAULT_COMMAND_RECEIVER_IDLE_TIMEOUT = 60;
+    /**
+     * The default number of seconds for which a successful authentication of a device is cached.
+     */
+    public static final int DEFAULT_AUTHENTICATION_CACHE_TIMEOUT = 30;
+    /**
+     * The default maximum number of successful authentications being cached.
+     */
+    public static final int DEFAULT_AUTHENTICATION_CACHE_MAX_SIZE = 10000;
+
     private String realm = DEFAULT_REALM;
     private String corsAllowedOrigin = "*";
+    private boolean http2Enabled = false;
+    private int http2MaxConcurrentStreams = DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS;
+    private boolean streamingUploadsEnabled = false;
+    private int commandReceiverIdleTimeout = DEFAULT_COMMAND_RECEIVER_IDLE_TIMEOUT;
+    private int authenticationCacheTimeout = DEFAULT_AUTHENTICATION_CACHE_TIMEOUT;
+    private int authenticationCacheMaxSize = DEFAULT_AUTHENTICATION_CACHE_MAX_SIZE;
 
     /**
      * Gets the name of the realm that unauthenticated devices are prompted to provide credentials for.
@@ -90,4 +113,186 @@ public class HttpProtocolAdapterProperties extends ProtocolAdapterProperties {
         this.corsAllowedOrigin = Objects.requireNonNull(corsAllowedOrigin);
     }
 
+    /**
+     * Checks whether the secure port offers HTTP/2 (h2) to clients.
+     * <p>
+     * If enabled, the protocol version is negotiated with clients during the TLS handshake
+     * using ALPN, which requires an SSL engine that supports ALPN, e.g. OpenSSL.
+     * Clients not supporting HTTP/2 may still use HTTP/1.1.
+     * <p>
+     * The insecure port always accepts HTTP/2 over clear text (h2c), either by means of
+     * an HTTP/1.1 upgrade request or with prior knowledge.
+     * <p>
+     * The default value is {@code false}.
+     *
+     * @return {@code true} if HTTP/2 is offered on the secure port.
+     */
+    public final boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+
+    /**
+     * Sets whether the secure port offers HTTP/2 (h2) to clients.
+     * <p>
+     * If enabled, the protocol version is negotiated with clients during the TLS handshake
+     * using ALPN, which requires an SSL engine that supports ALPN, e.g. OpenSSL.
+     * <p>
+     * The default value is {@code false}.
+     *
+     * @param enabled {@code true} if HTTP/2 should be offered on the secure port.
+     */
+    public final void setHttp2Enabled(final boolean enabled) {
+        this.http2Enabled = enabled;
+    }
+
+    /**
+     * Gets the maximum number of HTTP/2 streams that a client may open concurrently
+     * on a single connection.
+     * <p>
+     * Each stream carries a single request and thus requires (at most) one unit of
+     * credit from the downstream peer at a time. The number of concurrent streams
+     * therefore limits the amount of downstream credit a single connection can consume.
+     * <p>
+     * The default value is {@link #DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS}.
+     *
+     * @return The maximum number of concurrent streams.
+     */
+    public final int getHttp2MaxConcurrentStreams() {
+        return http2MaxConcurrentStreams;
+    }
+
+    /**
+     * Sets the maximum number of HTTP/2 streams that a client may open concurrently
+     * on a single connection.
+     * <p>
+     * The default value is {@link #DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS}.
+     *
+     * @param maxStreams The maximum number of concurrent streams.
+     * @throws IllegalArgumentException if max streams is &lt; 1.
+     */
+    public final void setHttp2MaxConcurrentStreams(final int maxStreams) {
+        if (maxStreams < 1) {
+            throw new IllegalArgumentException("max concurrent streams must be > 0");
+        }
+        this.http2MaxConcurrentStreams = maxStreams;
+    }
+
+    /**
+     * Checks whether the bodies of requests for uploading messages are streamed.
+     * <p>
+     * If enabled, the adapter starts processing an upload request as soon as the request's
+     * headers have been received and reads the request body only once the message can be
+     * forwarded downstream. Requests indicating a body larger than the maximum payload size
+     * are rejected without reading the body.
+     * <p>
+     * Otherwise, the adapter reads the complete request body before processing the request.
+     * <p>
+     * The default value is {@code false}.
+     *
+     * @return {@code true} if request bodies are streamed.
+     */
+    public final boolean isStreamingUploadsEnabled() {
+        return streamingUploadsEnabled;
+    }
+
+    /**
+     * Sets whether the bodies of requests for uploading messages are streamed.
+     * <p>
+     * The default value is {@code false}.
+     *
+     * @param enabled {@code true} if request bodies should be streamed.
+     */
+    public final void setStreamingUploadsEnabled(final boolean enabled) {
+        this.streamingUploadsEnabled = enabled;
+    }
+
+    /**
+     * Gets the number of seconds after which the link for receiving commands for a device
+     * is closed if no request of the device has been waiting for a command.
+     * <p>
+     * The link is kept open across requests containing a <em>hono-ttd</em> so that devices
+     * polling for commands do not cause a link to be opened and closed for every request.
+     * <p>
+     * The default value is {@link #DEFAULT_COMMAND_RECEIVER_IDLE_TIMEOUT}.
+     *
+     * @return The idle timeout in seconds.
+     */
+    public final int getCommandReceiverIdleTimeout() {
+        return commandReceiverIdleTimeout;
+    }
+
+    /**
+     * Sets the number of seconds after which the link for receiving commands for a device
+     * is closed if no request of the device has been waiting for a command.
+     * <p>
+     * The default value is {@link #DEFAULT_COMMAND_RECEIVER_IDLE_TIMEOUT}.
+     *
+     * @param timeout The idle timeout in seconds.
+     * @throws IllegalArgumentException if timeout is &lt; 0.
+     */
+    public final void setCommandReceiverIdleTimeout(final int timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("idle timeout must be >= 0");
+        }
+        this.commandReceiverIdleTimeout = timeout;
+    }
+
+    /**
+     * Gets the number of seconds for which a successful authentication of a device
+     * using username and password is cached.
+     * <p>
+     * Devices authenticating with the same username and password again within this period
+     * are authenticated without retrieving their credentials from the Credentials service
+     * and without validating the password again. Consequently, changes to a device's
+     * credentials may take effect only after this period.
+     * <p>
+     * The default value is {@link #DEFAULT_AUTHENTICATION_CACHE_TIMEOUT}.
+     *
+     * @return The timeout in seconds. A value of 0 indicates that authentications are not cached.
+     */
+    public final int getAuthenticationCacheTimeout() {
+        return authenticationCacheTimeout;
+    }
+
+    /**
+     * Sets the number of seconds for which a successful authentication of a device
+     * using username and password is cached.
+     * <p>
+     * The default value is {@link #DEFAULT_AUTHENTICATION_CACHE_TIMEOUT}.
+     *
+     * @param timeout The timeout in seconds. A value of 0 disables caching.
+     * @throws IllegalArgumentException if timeout is &lt; 0.
+     */
+    public final void setAuthenticationCacheTimeout(final int timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout must be >= 0");
+        }
+        this.authenticationCacheTimeout = timeout;
+    }
+
+    /**
+     * Gets the maximum number of successful authentications of devices being cached.
+     * <p>
+     * The default value is {@link #DEFAULT_AUTHENTICATION_CACHE_MAX_SIZE}.
+     *
+     * @return The maximum number of cache entries.
+     */
+    public final int getAuthenticationCacheMaxSize() {
+        return authenticationCacheMaxSize;
+    }
+
+    /**
+     * Sets the maximum number of successful authentications of devices being cached.
+     * <p>
+     * The default value is {@link #DEFAULT_AUTHENTICATION_CACHE_MAX_SIZE}.
+     *
+     * @param maxSize The maximum number of cache entries.
+     * @throws IllegalArgumentException if max size is &lt; 1.
+     */
+    public final void setAuthenticationCacheMaxSize(final int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("max size must be > 0");
+        }
+        this.authenticationCacheMaxSize = maxSize;
+    }
 }
@@ -0,0 +1,341 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.http;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import org.eclipse.hono.auth.Device;
+import org.eclipse.hono.client.CommandConnection;
+import org.eclipse.hono.client.CommandContext;
+import org.eclipse.hono.client.MessageConsumer;
+import org.eclipse.hono.client.ResourceConflictException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+
+/**
+ * A registry of command receiver links which are shared by the requests of a device.
+ * <p>
+ * Devices using the HTTP adapter wait for commands by means of (long-polling) requests
+ * containing a <em>hono-ttd</em>. Instead of opening a receiver link for every such request
+ * and closing it again once the response has been sent, the link for a device is kept
+ * open across requests. A request waiting for a command is <em>parked</em> at the device's
+ * link and a command received on the link is dispatched to the parked request. The link is
+ * closed once no request of the device has been parked for the configured idle timeout.
+ * <p>
+ * A link only ever has a single unit of credit. Credit is issued when a request is parked
+ * and no credit is left over from a previous request. Commands that are received while no
+ * request is parked (e.g. because the request that issued the credit has expired in the meantime)
+ * are not kept for the device's next request but are <em>released</em>, i.e. the application
+ * is notified that the command has not been delivered and may send it again.
+ * <p>
+ * The timeouts of parked requests and idle links are tracked by means of a {@link TimerWheel}.
+ * <p>
+ * Instances of this class are not thread safe. All methods must be invoked on the
+ * adapter's vert.x context.
+ */
+final class SharedCommandReceivers {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedCommandReceivers.class);
+
+    private final Map<String, Receiver> receivers = new HashMap<>();
+    private final TimerWheel timerWheel;
+    private final Supplier<CommandConnection> commandConnection;
+    private final long idleTimeoutMillis;
+
+    /**
+     * Creates a new registry.
+     *
+     * @param timerWheel The timer wheel to use for tracking timeouts.
+     * @param commandConnection The connection to create the receiver links on.
+     * @param idleTimeoutMillis The number of milliseconds after which an unused link is closed.
+     * @throws NullPointerException if timer wheel or connection are {@code null}.
+     */
+    SharedCommandReceivers(
+            final TimerWheel timerWheel,
+            final Supplier<CommandConnection> commandConnection,
+            final long idleTimeoutMillis) {
+
+        this.timerWheel = Objects.requireNonNull(timerWheel);
+        this.commandConnection = Objects.requireNonNull(commandConnection);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Parks a request at the command receiver link of a device.
+     * <p>
+     * The link is opened if it does not exist yet.
+     *
+     * @param tenantId The tenant that the device belongs to.
+     * @param deviceId The identifier of the device.
+     * @param ttdMillis The number of milliseconds the request waits for a command.
+     * @param commandHandler The handler to invoke with a command received for the device.
+     * @param expirationHandler The handler to invoke if no command has been received
+     *                          within the given time.
+     * @return A future indicating the outcome of the operation.
+     *         <p>
+     *         The future will be completed with a consumer representing the parked request
+     *         once the link has been established. The request is unparked by closing the consumer.
+     *         <p>
+     *         The future will be failed with a {@link ResourceConflictException} if another request
+     *         of the device is already parked or with a {@code ServiceInvocationException} if the
+     *         link could not be established.
+     * @throws NullPointerException if any of the parameters other than TTD are {@code null}.
+     */
+    Future<MessageConsumer> park(
+            final String tenantId,
+            final String deviceId,
+            final long ttdMillis,
+            final Handler<CommandContext> commandHandler,
+            final Handler<Void> expirationHandler) {
+
+        Objects.requireNonNull(tenantId);
+        Objects.requireNonNull(deviceId);
+        Objects.requireNonNull(commandHandler);
+        Objects.requireNonNull(expirationHandler);
+
+        final String key = Device.asAddress(tenantId, deviceId);
+        Receiver receiver = receivers.get(key);
+        if (receiver == null) {
+            receiver = new Receiver(key, tenantId, deviceId);
+            receivers.put(key, receiver);
+        } else if (receiver.waiter != null) {
+            LOG.debug("command receiver already in use [tenant-id: {}, device-id: {}]", tenantId, deviceId);
+            return Future.failedFuture(new ResourceConflictException("command receiver already in use"));
+        }
+        return receiver.park(new Waiter(receiver, ttdMillis, commandHandler, expirationHandler));
+    }
+
+    /**
+     * Gets the number of command receiver links being managed.
+     *
+     * @return The number of links.
+     */
+    int size() {
+        return receivers.size();
+    }
+
+    /**
+     * Forgets about all links.
+     * <p>
+     * This method should be invoked when the command connection has been lost.
+     * Requests that are currently parked will expire regularly.
+     */
+    void clear() {
+        new ArrayList<>(receivers.values()).forEach(Receiver::remove);
+    }
+
+    /**
+     * Closes all links and cancels all pending timeouts.
+     */
+    void close() {
+        new ArrayList<>(receivers.values()).forEach(receiver -> {
+            receiver.remove();
+            receiver.closeLink();
+        });
+        timerWheel.stop();
+    }
+
+    /**
+     * The command receiver link of a device.
+     */
+    private final class Receiver {
+
+        private final String key;
+        private final String tenantId;
+        private final String deviceId;
+        private Future<MessageConsumer> link;
+        private Waiter waiter;
+        private TimerWheel.Timeout idleTimeout;
+
+        private Receiver(final String key, final String tenantId, final String deviceId) {
+            this.key = key;
+            this.tenantId = tenantId;
+            this.deviceId = deviceId;
+        }
+
+        private Future<MessageConsumer> park(final Waiter newWaiter) {
+
+            if (idleTimeout != null) {
+                idleTimeout.cancel();
+                idleTimeout = null;
+            }
+            // the waiter needs to be in place before the link is opened
+            // because commands may be received right away
+            waiter = newWaiter;
+            if (link == null) {
+                openLink();
+            } else if (link.succeeded()) {
+                newWaiter.activate(link.result());
+            }
+            return newWaiter.result;
+        }
+
+        private void openLink() {
+
+            LOG.debug("opening command receiver link [tenant-id: {}, device-id: {}]", tenantId, deviceId);
+            link = commandConnection.get().createCommandConsumer(
+                    tenantId,
+                    deviceId,
+                    this::dispatch,
+                    remoteDetach -> {
+                        LOG.debug("peer closed command receiver link [tenant-id: {}, device-id: {}]", tenantId, deviceId);
+                        // the consumer has already been closed by the connection
+                        remove();
+                    });
+            link.setHandler(attempt -> {
+                if (attempt.failed()) {
+                    remove();
+                    if (waiter != null) {
+                        waiter.result.tryFail(attempt.cause());
+                        waiter = null;
+                    }
+                } else if (waiter != null) {
+                    waiter.activate(attempt.result());
+                } else {
+                    scheduleIdleTimeout();
+                }
+            });
+        }
+
+        private void dispatch(final CommandContext commandContext) {
+            if (waiter != null) {
+                waiter.commandHandler.handle(commandContext);
+            } else {
+                LOG.debug("no request waiting for command, releasing command [tenant-id: {}, device-id: {}]",
+                        tenantId, deviceId);
+                commandContext.release();
+            }
+        }
+
+        private void unpark(final Waiter oldWaiter) {
+            if (waiter == oldWaiter) {
+                waiter = null;
+                if (link.isComplete()) {
+                    scheduleIdleTimeout();
+                }
+            }
+        }
+
+        private void scheduleIdleTimeout() {
+            if (isRegistered()) {
+                idleTimeout = timerWheel.schedule(idleTimeoutMillis, expired -> {
+                    idleTimeout = null;
+                    if (waiter == null && isRegistered()) {
+                        LOG.debug("closing idle command receiver link [tenant-id: {}, device-id: {}]",
+                                tenantId, deviceId);
+                        remove();
+                        closeLink();
+                    }
+                });
+            }
+        }
+
+        private boolean isRegistered() {
+            return receivers.get(key) == this;
+        }
+
+        private void remove() {
+            if (isRegistered()) {
+                receivers.remove(key);
+            }
+            if (idleTimeout != null) {
+                idleTimeout.cancel();
+                idleTimeout = null;
+            }
+        }
+
+        private void closeLink() {
+            if (link != null && link.succeeded()) {
+                link.result().close(null);
+            }
+        }
+    }
+
+    /**
+     * A request that is parked at a device's command receiver link.
+     */
+    private final class Waiter implements MessageConsumer {
+
+        private final Future<MessageConsumer> result = Future.future();
+        private final Receiver receiver;
+        private final long ttdMillis;
+        private final Handler<CommandContext> commandHandler;
+        private final Handler<Void> expirationHandler;
+        private MessageConsumer consumer;
+        private TimerWheel.Timeout timeout;
+
+        private Waiter(
+                final Receiver receiver,
+                final long ttdMillis,
+                final Handler<CommandContext> commandHandler,
+                final Handler<Void> expirationHandler) {
+
+            this.receiver = receiver;
+            this.ttdMillis = ttdMillis;
+            this.commandHandler = commandHandler;
+            this.expirationHandler = expirationHandler;
+        }
+
+        private void activate(final MessageConsumer linkConsumer) {
+
+            consumer = linkConsumer;
+            if (consumer.getRemainingCredit() < 1) {
+                consumer.flow(1);
+            }
+            timeout = timerWheel.schedule(ttdMillis, expired -> {
+                timeout = null;
+                receiver.unpark(this);
+                expirationHandler.handle(null);
+            });
+            result.tryComplete(this);
+        }
+
+        /**
+         * Unparks the request.
+         * <p>
+         * The underlying link is kept open.
+         *
+         * @param closeHandler The handler to notify (may be {@code null}).
+         */
+        @Override
+        public void close(final Handler<AsyncResult<Void>> closeHandler) {
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
+            }
+            receiver.unpark(this);
+            if (closeHandler != null) {
+                closeHandler.handle(Future.succeededFuture());
+            }
+        }
+
+        @Override
+        public void flow(final int credits) {
+            consumer.flow(credits);
+        }
+
+        @Override
+        public int getRemainingCredit() {
+            return consumer.getRemainingCredit();
+        }
+    }
+}
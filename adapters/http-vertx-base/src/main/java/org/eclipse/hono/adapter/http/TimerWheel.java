@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.http;
+
+import java.util.Objects;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+/**
+ * A hashed timer wheel for scheduling a large number of timeouts.
+ * <p>
+ * In contrast to vert.x timers, scheduling and cancelling a timeout is a constant time
+ * operation that does not involve the event loop's scheduler. The wheel is driven by a
+ * single vert.x timer which is re-armed on every tick while timeouts are pending.
+ * Timeouts are executed on the vert.x context that the wheel is used on with a precision
+ * of one tick. A timeout never fires later than the given delay but may fire up to one
+ * tick earlier.
+ * <p>
+ * The timeouts of a bucket are kept in a doubly linked list so that a cancelled timeout
+ * is removed from the wheel right away and does not hold on to its task until the
+ * wheel has advanced to the timeout's bucket.
+ * <p>
+ * Instances of this class are not thread safe. All methods must be invoked on the same
+ * vert.x context.
+ */
+final class TimerWheel {
+
+    private final Vertx vertx;
+    private final long tickMillis;
+    private final Entry[] buckets;
+
+    private int cursor;
+    private int pending;
+    private long timerId;
+    private boolean armed;
+
+    /**
+     * Creates a new timer wheel.
+     *
+     * @param vertx The vert.x instance to use for driving the wheel.
+     * @param tickMillis The duration of a tick in milliseconds.
+     * @param size The number of buckets of the wheel.
+     * @throws NullPointerException if vertx is {@code null}.
+     * @throws IllegalArgumentException if tick duration or size are &lt; 1.
+     */
+    TimerWheel(final Vertx vertx, final long tickMillis, final int size) {
+
+        this.vertx = Objects.requireNonNull(vertx);
+        if (tickMillis < 1 || size < 1) {
+            throw new IllegalArgumentException("tick duration and size must be > 0");
+        }
+        this.tickMillis = tickMillis;
+        this.buckets = new Entry[size];
+    }
+
+    /**
+     * A scheduled timeout.
+     */
+    interface Timeout {
+
+        /**
+         * Cancels this timeout.
+         * <p>
+         * This method does nothing if the timeout has already fired or has been cancelled.
+         */
+        void cancel();
+    }
+
+    /**
+     * A timeout that is kept in one of the wheel's buckets.
+     */
+    private final class Entry implements Timeout {
+
+        private final int bucket;
+        private Handler<Void> task;
+        private long remainingRounds;
+        private boolean linked;
+        // the neighbours in the bucket while linked, the next expired entry while firing
+        private Entry prev;
+        private Entry next;
+
+        private Entry(final int bucket, final Handler<Void> task, final long remainingRounds) {
+            this.bucket = bucket;
+            this.task = task;
+            this.remainingRounds = remainingRounds;
+        }
+
+        private boolean isDone() {
+            return task == null;
+        }
+
+        @Override
+        public void cancel() {
+            if (!isDone()) {
+                task = null;
+                unlink(this);
+                entryDone();
+            }
+        }
+    }
+
+    /**
+     * Schedules a task to be executed after a delay.
+     *
+     * @param delayMillis The number of milliseconds after which the task should be executed.
+     * @param task The task to execute.
+     * @return The timeout which can be used to cancel the execution.
+     * @throws NullPointerException if task is {@code null}.
+     */
+    Timeout schedule(final long delayMillis, final Handler<Void> task) {
+
+        Objects.requireNonNull(task);
+        final long ticks = Math.max(1, delayMillis / tickMillis);
+        final Entry entry = new Entry(
+                (int) ((cursor + ticks - 1) % buckets.length),
+                task,
+                (ticks - 1) / buckets.length);
+        link(entry);
+        pending++;
+        armTimer();
+        return entry;
+    }
+
+    /**
+     * Gets the number of timeouts that have neither fired nor been cancelled yet.
+     *
+     * @return The number of timeouts.
+     */
+    int getPendingTimeouts() {
+        return pending;
+    }
+
+    /**
+     * Cancels all pending timeouts and stops the wheel.
+     */
+    void stop() {
+
+        for (int i = 0; i < buckets.length; i++) {
+            Entry entry = buckets[i];
+            while (entry != null) {
+                final Entry next = entry.next;
+                entry.task = null;
+                entry.linked = false;
+                entry.prev = null;
+                entry.next = null;
+                entry = next;
+            }
+            buckets[i] = null;
+        }
+        pending = 0;
+        stopTimer();
+    }
+
+    private void tick() {
+
+        armed = false;
+        Entry entry = buckets[cursor];
+        cursor = (cursor + 1) % buckets.length;
+        // collect expired entries in a chain instead of a list
+        // in order to not allocate any objects on each tick
+        Entry expiredHead = null;
+        Entry expiredTail = null;
+        while (entry != null) {
+            final Entry next = entry.next;
+            if (entry.remainingRounds > 0) {
+                entry.remainingRounds--;
+            } else {
+                unlink(entry);
+                if (expiredTail == null) {
+                    expiredHead = entry;
+                } else {
+                    expiredTail.next = entry;
+                }
+                expiredTail = entry;
+            }
+            entry = next;
+        }
+        // run tasks after the bucket has been updated because
+        // tasks may schedule or cancel timeouts
+        while (expiredHead != null) {
+            final Entry expired = expiredHead;
+            expiredHead = expired.next;
+            expired.next = null;
+            final Handler<Void> task = expired.task;
+            if (task != null) {
+                expired.task = null;
+                entryDone();
+                task.handle(null);
+            }
+        }
+        if (pending > 0) {
+            armTimer();
+        }
+    }
+
+    private void link(final Entry entry) {
+        final Entry head = buckets[entry.bucket];
+        entry.linked = true;
+        entry.next = head;
+        if (head != null) {
+            head.prev = entry;
+        }
+        buckets[entry.bucket] = entry;
+    }
+
+    private void unlink(final Entry entry) {
+        if (!entry.linked) {
+            return;
+        }
+        entry.linked = false;
+        if (entry.prev != null) {
+            entry.prev.next = entry.next;
+        } else {
+            buckets[entry.bucket] = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.prev = entry.prev;
+        }
+        entry.prev = null;
+        entry.next = null;
+    }
+
+    private void armTimer() {
+        if (!armed) {
+            armed = true;
+            timerId = vertx.setTimer(tickMillis, id -> tick());
+        }
+    }
+
+    private void entryDone() {
+        pending--;
+        if (pending == 0) {
+            stopTimer();
+        }
+    }
+
+    private void stopTimer() {
+        if (armed) {
+            armed = false;
+            vertx.cancelTimer(timerId);
+        }
+    }
+}
@@ -171,7 +171,7 @@ public class X509AuthHandler extends HonoAuthHandler {
                     return tenantTracker
                             .compose(tenant -> {
                                 try {
-                                    final TrustAnchor trustAnchor = tenant.getTrustAnchor();
+                                    final TrustAnchor trustAnchor = certPathValidator.getTrustAnchor(tenant);
                                     return certPathValidator.validate(chainToValidate, trustAnchor);
                                 } catch (final GeneralSecurityException e) {
                                     return Future.failedFuture(e);
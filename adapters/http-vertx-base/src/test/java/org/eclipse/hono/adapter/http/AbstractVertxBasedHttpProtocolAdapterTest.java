@@ -40,10 +40,12 @@ import org.eclipse.hono.client.MessageSender;
 import org.eclipse.hono.client.RegistrationClient;
 import org.eclipse.hono.client.ResourceConflictException;
 import org.eclipse.hono.client.TenantClient;
+import org.eclipse.hono.service.metric.MetricsTags;
 import org.eclipse.hono.util.Constants;
 import org.eclipse.hono.util.EventConstants;
 import org.eclipse.hono.util.MessageHelper;
 import org.eclipse.hono.util.RegistrationConstants;
+import org.eclipse.hono.util.TelemetryConstants;
 import org.eclipse.hono.util.TenantConstants;
 import org.eclipse.hono.util.TenantObject;
 import org.junit.Before;
@@ -64,6 +66,7 @@ import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
 import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
@@ -122,6 +125,8 @@ public class AbstractVertxBasedHttpProtocolAdapterTest {
 
         config = new HttpProtocolAdapterProperties();
         config.setInsecurePortEnabled(true);
+        // keep the number of timer wheel ticks being run immediately small
+        config.setCommandReceiverIdleTimeout(1);
 
         metrics = mock(HttpAdapterMetrics.class);
 
@@ -475,6 +480,67 @@ public class AbstractVertxBasedHttpProtocolAdapterTest {
         assertThat(MessageHelper.getTimeUntilDisconnect(messageCaptor.getValue()), is(20));
     }
 
+    /**
+     * Verifies that the adapter reports the stages of processing a telemetry message
+     * that contains a TTD value to its metrics.
+     */
+    @Test
+    public void testUploadTelemetryWithTtdReportsUploadStages() {
+
+        // GIVEN an adapter with a downstream telemetry consumer attached
+        final HttpServer server = getHttpServer(false);
+        final AbstractVertxBasedHttpProtocolAdapter<HttpProtocolAdapterProperties> adapter = getAdapter(server, null);
+        givenATelemetrySenderForOutcome(Future.succeededFuture());
+
+        // WHEN a device publishes a telemetry message with a TTD
+        final Buffer payload = Buffer.buffer("some payload");
+        final HttpServerResponse response = mock(HttpServerResponse.class);
+        final HttpServerRequest request = mock(HttpServerRequest.class);
+        when(request.getHeader(eq(Constants.HEADER_TIME_TIL_DISCONNECT))).thenReturn("10");
+        final RoutingContext ctx = newRoutingContext(payload, "application/text", request, response);
+
+        adapter.uploadTelemetryMessage(ctx, "tenant", "device");
+
+        // THEN the device receives a 202 response
+        verify(response).setStatusCode(202);
+        // and the look ups, the downstream send and the whole processing of the message
+        // have been reported
+        for (final String stage : new String[] {
+                MetricsTags.VALUE_STAGE_TENANT,
+                MetricsTags.VALUE_STAGE_REGISTRATION,
+                MetricsTags.VALUE_STAGE_SENDER,
+                MetricsTags.VALUE_STAGE_SEND,
+                MetricsTags.VALUE_STAGE_TOTAL }) {
+            verify(metrics).reportUploadStage(
+                    eq(stage),
+                    eq(TelemetryConstants.TELEMETRY_ENDPOINT),
+                    eq(MetricsTags.VALUE_QOS_AT_MOST_ONCE),
+                    anyLong());
+        }
+    }
+
+    /**
+     * Verifies that the options of the insecure server limit the number of concurrent HTTP/2
+     * streams and use the max payload size as the initial flow control window of a stream.
+     */
+    @Test
+    public void testInsecureHttpServerOptionsContainHttp2FlowControlSettings() {
+
+        // GIVEN an adapter that allows 10 concurrent streams and payloads of up to 1000 bytes
+        config.setHttp2MaxConcurrentStreams(10);
+        config.setMaxPayloadSize(1000);
+        final AbstractVertxBasedHttpProtocolAdapter<HttpProtocolAdapterProperties> adapter = getAdapter(getHttpServer(false), null);
+
+        // WHEN retrieving the options for the insecure server
+        final HttpServerOptions options = adapter.getInsecureHttpServerOptions();
+
+        // THEN the HTTP/2 settings reflect the configured limits
+        assertThat(options.getInitialSettings().getMaxConcurrentStreams(), is(10L));
+        assertThat(options.getInitialSettings().getInitialWindowSize(), is(1000));
+        // and the connection window can accommodate all concurrent streams
+        assertThat(options.getHttp2ConnectionWindowSize(), is(10000));
+    }
+
     private RoutingContext newRoutingContext(final Buffer payload) {
         return newRoutingContext(payload, mock(HttpServerResponse.class));
     }
@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.http;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.qpid.proton.amqp.messaging.Released;
+import org.apache.qpid.proton.message.Message;
+import org.eclipse.hono.client.Command;
+import org.eclipse.hono.client.CommandConnection;
+import org.eclipse.hono.client.CommandContext;
+import org.eclipse.hono.client.MessageConsumer;
+import org.eclipse.hono.client.ResourceConflictException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import io.opentracing.Span;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.proton.ProtonDelivery;
+import io.vertx.proton.ProtonReceiver;
+
+/**
+ * Tests verifying behavior of {@link SharedCommandReceivers}.
+ *
+ */
+public class SharedCommandReceiversTest {
+
+    private static final long TICK_MILLIS = 100;
+    private static final long IDLE_TIMEOUT_MILLIS = 5 * TICK_MILLIS;
+    private static final long TTD_MILLIS = 3 * TICK_MILLIS;
+
+    private Handler<Long> timer;
+    private CommandConnection commandConnection;
+    private MessageConsumer link;
+    private Future<MessageConsumer> linkResult;
+    private SharedCommandReceivers receivers;
+
+    /**
+     * Sets up the fixture.
+     */
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() {
+
+        final Vertx vertx = mock(Vertx.class);
+        // keep track of the timer driving the timer wheel so that
+        // the tests can advance the wheel tick by tick
+        when(vertx.setTimer(anyLong(), any(Handler.class))).thenAnswer(invocation -> {
+            timer = invocation.getArgument(1);
+            return 1L;
+        });
+
+        link = mock(MessageConsumer.class);
+        linkResult = Future.future();
+        commandConnection = mock(CommandConnection.class);
+        when(commandConnection.createCommandConsumer(eq("tenant"), eq("device"), any(Handler.class), any(Handler.class)))
+            .thenAnswer(invocation -> linkResult);
+
+        receivers = new SharedCommandReceivers(
+                new TimerWheel(vertx, TICK_MILLIS, 16),
+                () -> commandConnection,
+                IDLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Verifies that subsequent requests of a device share the same command receiver link
+     * and that credit is issued for a request only if none is left over.
+     */
+    @Test
+    public void testParkReusesLinkOfDevice() {
+
+        // GIVEN a request that has been parked and unparked again
+        final Future<MessageConsumer> firstRequest = receivers.park("tenant", "device", TTD_MILLIS, cmd -> {}, v -> {});
+        linkResult.complete(link);
+        assertTrue(firstRequest.succeeded());
+        verify(link).flow(1);
+        firstRequest.result().close(null);
+
+        // WHEN another request of the same device is parked while
+        // the credit issued for the first request is still available
+        when(link.getRemainingCredit()).thenReturn(1);
+        final Future<MessageConsumer> secondRequest = receivers.park("tenant", "device", TTD_MILLIS, cmd -> {}, v -> {});
+
+        // THEN the request is parked at the existing link
+        assertTrue(secondRequest.succeeded());
+        verify(commandConnection, times(1)).createCommandConsumer(
+                eq("tenant"), eq("device"), any(Handler.class), any(Handler.class));
+        assertThat(receivers.size(), is(1));
+        // without issuing more credit
+        verify(link, times(1)).flow(1);
+    }
+
+    /**
+     * Verifies that a request cannot be parked while another request of the same
+     * device is already parked.
+     */
+    @Test
+    public void testParkFailsForConcurrentRequestOfDevice() {
+
+        receivers.park("tenant", "device", TTD_MILLIS, cmd -> {}, v -> {});
+        linkResult.complete(link);
+
+        final Future<MessageConsumer> secondRequest = receivers.park("tenant", "device", TTD_MILLIS, cmd -> {}, v -> {});
+        assertTrue(secondRequest.failed());
+        assertThat(secondRequest.cause(), instanceOf(ResourceConflictException.class));
+    }
+
+    /**
+     * Verifies that a command received on a device's link is dispatched to the parked request.
+     */
+    @Test
+    public void testCommandIsDispatchedToParkedRequest() {
+
+        final AtomicInteger commands = new AtomicInteger();
+        receivers.park("tenant", "device", TTD_MILLIS, cmd -> commands.incrementAndGet(), v -> {});
+        linkResult.complete(link);
+
+        newCommand(getCommandHandler());
+        assertThat(commands.get(), is(1));
+    }
+
+    /**
+     * Verifies that a command which is received while no request is parked is released
+     * instead of being dispatched to a request that is no longer waiting.
+     */
+    @Test
+    public void testCommandIsReleasedIfNoRequestIsParked() {
+
+        // GIVEN a link of a device at which no request is parked anymore
+        final AtomicInteger commands = new AtomicInteger();
+        final Future<MessageConsumer> request = receivers.park("tenant", "device", TTD_MILLIS, cmd -> commands.incrementAndGet(), v -> {});
+        linkResult.complete(link);
+        request.result().close(null);
+
+        // WHEN a command is received on the link
+        final ProtonDelivery delivery = newCommand(getCommandHandler());
+
+        // THEN the command is released
+        verify(delivery).disposition(any(Released.class), eq(true));
+        assertThat(commands.get(), is(0));
+    }
+
+    /**
+     * Verifies that a parked request is unparked once its TTD has expired
+     * while the link is kept open.
+     */
+    @Test
+    public void testParkedRequestExpires() {
+
+        final AtomicInteger expirations = new AtomicInteger();
+        receivers.park("tenant", "device", TTD_MILLIS, cmd -> {}, v -> expirations.incrementAndGet());
+        linkResult.complete(link);
+
+        tick(TTD_MILLIS / TICK_MILLIS);
+        assertThat(expirations.get(), is(1));
+        verify(link, never()).close(any());
+        assertThat(receivers.size(), is(1));
+
+        // and another request can be parked
+        assertTrue(receivers.park("tenant", "device", TTD_MILLIS, cmd -> {}, v -> {}).succeeded());
+    }
+
+    /**
+     * Verifies that a link is closed once no request has been parked for the idle timeout.
+     */
+    @Test
+    public void testIdleLinkIsClosed() {
+
+        // GIVEN a link at which no request is parked anymore
+        final Future<MessageConsumer> request = receivers.park("tenant", "device", TTD_MILLIS, cmd -> {}, v -> {});
+        linkResult.complete(link);
+        request.result().close(null);
+
+        // WHEN the idle timeout has passed
+        tick(IDLE_TIMEOUT_MILLIS / TICK_MILLIS - 1);
+        verify(link, never()).close(any());
+        tick(1);
+
+        // THEN the link is closed
+        verify(link).close(any());
+        assertThat(receivers.size(), is(0));
+    }
+
+    /**
+     * Verifies that the idle timeout of a link is reset when a request is parked.
+     */
+    @Test
+    public void testParkingRequestCancelsIdleTimeout() {
+
+        final Future<MessageConsumer> request = receivers.park("tenant", "device", TTD_MILLIS, cmd -> {}, v -> {});
+        linkResult.complete(link);
+        request.result().close(null);
+        tick(IDLE_TIMEOUT_MILLIS / TICK_MILLIS - 1);
+
+        // WHEN another request is parked right before the link times out
+        receivers.park("tenant", "device", 10 * IDLE_TIMEOUT_MILLIS, cmd -> {}, v -> {});
+        tick(2);
+
+        // THEN the link is kept open
+        verify(link, never()).close(any());
+        assertThat(receivers.size(), is(1));
+    }
+
+    /**
+     * Verifies that a new link is opened for the next request of a device
+     * once the peer has closed the device's link.
+     */
+    @Test
+    public void testRemoteCloseRemovesLink() {
+
+        final Future<MessageConsumer> request = receivers.park("tenant", "device", TTD_MILLIS, cmd -> {}, v -> {});
+        linkResult.complete(link);
+        request.result().close(null);
+
+        getRemoteCloseHandler().handle(null);
+        assertThat(receivers.size(), is(0));
+
+        linkResult = Future.future();
+        receivers.park("tenant", "device", TTD_MILLIS, cmd -> {}, v -> {});
+        verify(commandConnection, times(2)).createCommandConsumer(
+                eq("tenant"), eq("device"), any(Handler.class), any(Handler.class));
+    }
+
+    /**
+     * Verifies that closing the registry closes all links.
+     */
+    @Test
+    public void testCloseClosesAllLinks() {
+
+        receivers.park("tenant", "device", TTD_MILLIS, cmd -> {}, v -> {});
+        linkResult.complete(link);
+
+        receivers.close();
+        verify(link).close(any());
+        assertThat(receivers.size(), is(0));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Handler<CommandContext> getCommandHandler() {
+        final ArgumentCaptor<Handler<CommandContext>> commandHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(commandConnection).createCommandConsumer(eq("tenant"), eq("device"), commandHandler.capture(), any(Handler.class));
+        return commandHandler.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Handler<Void> getRemoteCloseHandler() {
+        final ArgumentCaptor<Handler<Void>> closeHandler = ArgumentCaptor.forClass(Handler.class);
+        verify(commandConnection).createCommandConsumer(eq("tenant"), eq("device"), any(Handler.class), closeHandler.capture());
+        return closeHandler.getValue();
+    }
+
+    private static ProtonDelivery newCommand(final Handler<CommandContext> commandHandler) {
+
+        final Message msg = mock(Message.class);
+        when(msg.getSubject()).thenReturn("doThis");
+        when(msg.getCorrelationId()).thenReturn("the-correlation-id");
+        when(msg.getReplyTo()).thenReturn("control/tenant/device/the-reply-to-id");
+        final ProtonDelivery delivery = mock(ProtonDelivery.class);
+        commandHandler.handle(CommandContext.from(
+                Command.from(msg, "tenant", "device"), delivery, mock(ProtonReceiver.class), mock(Span.class)));
+        return delivery;
+    }
+
+    private void tick(final long ticks) {
+        for (long i = 0; i < ticks; i++) {
+            final Handler<Long> currentTimer = timer;
+            timer = null;
+            if (currentTimer != null) {
+                currentTimer.handle(1L);
+            }
+        }
+    }
+}
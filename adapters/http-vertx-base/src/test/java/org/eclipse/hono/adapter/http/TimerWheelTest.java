@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.http;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+/**
+ * Tests verifying behavior of {@link TimerWheel}.
+ *
+ */
+public class TimerWheelTest {
+
+    private static final long TICK_MILLIS = 100;
+    private static final int SIZE = 4;
+
+    private Vertx vertx;
+    private Handler<Long> timer;
+    private TimerWheel wheel;
+
+    /**
+     * Sets up the fixture.
+     */
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() {
+
+        vertx = mock(Vertx.class);
+        // keep track of the timer driving the wheel so that
+        // the tests can advance the wheel tick by tick
+        when(vertx.setTimer(anyLong(), any(Handler.class))).thenAnswer(invocation -> {
+            timer = invocation.getArgument(1);
+            return 1L;
+        });
+        wheel = new TimerWheel(vertx, TICK_MILLIS, SIZE);
+    }
+
+    /**
+     * Verifies that a timeout fires once the number of ticks corresponding to its delay have passed.
+     */
+    @Test
+    public void testTimeoutFiresAfterDelay() {
+
+        final AtomicInteger fired = new AtomicInteger();
+        wheel.schedule(3 * TICK_MILLIS, expired -> fired.incrementAndGet());
+
+        tick(2);
+        assertThat(fired.get(), is(0));
+        tick(1);
+        assertThat(fired.get(), is(1));
+        assertThat(wheel.getPendingTimeouts(), is(0));
+        // and the wheel is not advanced anymore
+        assertThat(timer, nullValue());
+    }
+
+    /**
+     * Verifies that a timeout with a delay exceeding a full round of the wheel
+     * fires after the corresponding number of rounds.
+     */
+    @Test
+    public void testTimeoutFiresAfterMultipleRounds() {
+
+        final AtomicInteger fired = new AtomicInteger();
+        wheel.schedule((2 * SIZE + 1) * TICK_MILLIS, expired -> fired.incrementAndGet());
+
+        tick(2 * SIZE);
+        assertThat(fired.get(), is(0));
+        tick(1);
+        assertThat(fired.get(), is(1));
+    }
+
+    /**
+     * Verifies that a cancelled timeout does not fire and that the wheel is stopped
+     * once no more timeouts are pending.
+     */
+    @Test
+    public void testCancelledTimeoutDoesNotFire() {
+
+        final AtomicInteger fired = new AtomicInteger();
+        final TimerWheel.Timeout timeout = wheel.schedule(TICK_MILLIS, expired -> fired.incrementAndGet());
+        final Handler<Long> armedTimer = timer;
+
+        timeout.cancel();
+        assertThat(wheel.getPendingTimeouts(), is(0));
+        verify(vertx).cancelTimer(1L);
+
+        // even if the timer has fired already
+        armedTimer.handle(1L);
+        assertThat(fired.get(), is(0));
+        // cancelling again has no effect
+        timeout.cancel();
+        assertThat(wheel.getPendingTimeouts(), is(0));
+    }
+
+    /**
+     * Verifies that a timeout which is cancelled by a task of another timeout
+     * expiring on the same tick does not fire.
+     */
+    @Test
+    public void testTimeoutCancelledByTaskOfSameTickDoesNotFire() {
+
+        final AtomicInteger fired = new AtomicInteger();
+        final AtomicReference<TimerWheel.Timeout> first = new AtomicReference<>();
+        final AtomicReference<TimerWheel.Timeout> second = new AtomicReference<>();
+        // each task cancels the other timeout
+        first.set(wheel.schedule(TICK_MILLIS, expired -> {
+            fired.incrementAndGet();
+            second.get().cancel();
+        }));
+        second.set(wheel.schedule(TICK_MILLIS, expired -> {
+            fired.incrementAndGet();
+            first.get().cancel();
+        }));
+
+        tick(1);
+        assertThat(fired.get(), is(1));
+        assertThat(wheel.getPendingTimeouts(), is(0));
+    }
+
+    /**
+     * Verifies that cancelling a timeout does not affect the other timeouts
+     * of the same bucket.
+     */
+    @Test
+    public void testCancellingTimeoutKeepsOtherTimeoutsOfBucket() {
+
+        final AtomicInteger fired = new AtomicInteger();
+        wheel.schedule(TICK_MILLIS, expired -> fired.incrementAndGet());
+        final TimerWheel.Timeout middle = wheel.schedule(TICK_MILLIS, expired -> fired.addAndGet(10));
+        wheel.schedule(TICK_MILLIS, expired -> fired.incrementAndGet());
+
+        middle.cancel();
+        assertThat(wheel.getPendingTimeouts(), is(2));
+        tick(1);
+        assertThat(fired.get(), is(2));
+    }
+
+    /**
+     * Verifies that a task may schedule a new timeout.
+     */
+    @Test
+    public void testTaskSchedulesNewTimeout() {
+
+        final AtomicInteger fired = new AtomicInteger();
+        wheel.schedule(TICK_MILLIS, expired -> {
+            fired.incrementAndGet();
+            wheel.schedule(TICK_MILLIS, again -> fired.incrementAndGet());
+        });
+
+        tick(1);
+        assertThat(fired.get(), is(1));
+        assertThat(wheel.getPendingTimeouts(), is(1));
+        tick(1);
+        assertThat(fired.get(), is(2));
+    }
+
+    /**
+     * Verifies that stopping the wheel cancels all pending timeouts.
+     */
+    @Test
+    public void testStopCancelsAllTimeouts() {
+
+        final AtomicInteger fired = new AtomicInteger();
+        wheel.schedule(TICK_MILLIS, expired -> fired.incrementAndGet());
+        wheel.schedule(3 * TICK_MILLIS, expired -> fired.incrementAndGet());
+        final Handler<Long> armedTimer = timer;
+
+        wheel.stop();
+        assertThat(wheel.getPendingTimeouts(), is(0));
+        verify(vertx).cancelTimer(1L);
+
+        for (int i = 0; i < SIZE; i++) {
+            armedTimer.handle(1L);
+        }
+        assertThat(fired.get(), is(0));
+    }
+
+    private void tick(final int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            final Handler<Long> currentTimer = timer;
+            timer = null;
+            if (currentTimer != null) {
+                currentTimer.handle(1L);
+            }
+        }
+    }
+}
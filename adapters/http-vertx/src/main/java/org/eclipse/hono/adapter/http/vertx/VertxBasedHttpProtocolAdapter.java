@@ -14,8 +14,10 @@
 package org.eclipse.hono.adapter.http.vertx;
 
 import java.net.HttpURLConnection;
+import java.time.Duration;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.regex.Pattern;
 
 import org.eclipse.hono.adapter.http.AbstractVertxBasedHttpProtocolAdapter;
 import org.eclipse.hono.adapter.http.HonoBasicAuthHandler;
@@ -35,6 +37,7 @@ import org.slf4j.LoggerFactory;
 import io.vertx.core.Handler;
 import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.ChainAuthHandler;
@@ -50,9 +53,12 @@ public final class VertxBasedHttpProtocolAdapter extends AbstractVertxBasedHttpP
     private static final String PARAM_TENANT = "tenant";
     private static final String PARAM_DEVICE_ID = "device_id";
     private static final String PARAM_COMMAND_REQUEST_ID = "cmd_req_id";
+    private static final Pattern STREAMING_UPLOAD_PATH = Pattern.compile("/(telemetry|event)(/[^/]+/[^/]+)?/?");
 
     private HonoClientBasedAuthProvider usernamePasswordAuthProvider;
     private HonoClientBasedAuthProvider clientCertAuthProvider;
+    // the provider created by this adapter which needs to be closed on shutdown
+    private UsernamePasswordAuthProvider defaultUsernamePasswordAuthProvider;
 
     /**
      * Sets the provider to use for authenticating devices based on
@@ -92,6 +98,32 @@ public final class VertxBasedHttpProtocolAdapter extends AbstractVertxBasedHttpP
         return Constants.PROTOCOL_ADAPTER_TYPE_HTTP;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@code true} if the request is a POST or PUT request for uploading
+     *         a single telemetry message or event.
+     */
+    @Override
+    protected boolean isStreamingUploadSupported(final HttpServerRequest request) {
+
+        if (request.method() == HttpMethod.POST || request.method() == HttpMethod.PUT) {
+            return STREAMING_UPLOAD_PATH.matcher(request.path()).matches();
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Releases the resources of the authentication provider created by this adapter.
+     */
+    @Override
+    protected void preShutdown() {
+        if (defaultUsernamePasswordAuthProvider != null) {
+            defaultUsernamePasswordAuthProvider.close();
+        }
+    }
+
     @Override
     protected void addRoutes(final Router router) {
 
@@ -99,13 +131,28 @@ public final class VertxBasedHttpProtocolAdapter extends AbstractVertxBasedHttpP
 
             final ChainAuthHandler authHandler = new HonoChainAuthHandler();
             authHandler.append(new X509AuthHandler(
-                    Optional.ofNullable(clientCertAuthProvider).orElse(
-                            new X509AuthProvider(getCredentialsServiceClient(), getConfig())),
+                    Optional.ofNullable(clientCertAuthProvider).orElseGet(() -> {
+                        final X509AuthProvider provider = new X509AuthProvider(getCredentialsServiceClient(), getConfig());
+                        provider.setMetrics(getMetrics());
+                        return provider;
+                    }),
                     getTenantServiceClient(),
                     tracer));
             authHandler.append(new HonoBasicAuthHandler(
-                    Optional.ofNullable(usernamePasswordAuthProvider).orElse(
-                            new UsernamePasswordAuthProvider(getCredentialsServiceClient(), getConfig())),
+                    Optional.ofNullable(usernamePasswordAuthProvider).orElseGet(() -> {
+                        final UsernamePasswordAuthProvider provider = new UsernamePasswordAuthProvider(
+                                getCredentialsServiceClient(), getConfig());
+                        provider.setMetrics(getMetrics());
+                        provider.setValidationPoolSize(getConfig().getCredentialsValidationPoolSize());
+                        provider.setValidationQueueSize(getConfig().getCredentialsValidationQueueSize());
+                        if (getConfig().getAuthenticationCacheTimeout() > 0) {
+                            provider.enableAuthenticationCache(
+                                    getConfig().getAuthenticationCacheMaxSize(),
+                                    Duration.ofSeconds(getConfig().getAuthenticationCacheTimeout()));
+                        }
+                        defaultUsernamePasswordAuthProvider = provider;
+                        return provider;
+                    }),
                     getConfig().getRealm()));
             addTelemetryApiRoutes(router, authHandler);
             addEventApiRoutes(router, authHandler);
@@ -147,16 +194,36 @@ public final class VertxBasedHttpProtocolAdapter extends AbstractVertxBasedHttpP
             // device authentication
             router.route(HttpMethod.POST, "/telemetry").handler(this::handlePostTelemetry);
 
+            // support CORS headers for POSTing bulk telemetry
+            router.route("/telemetry/bulk").handler(CorsHandler.create(getConfig().getCorsAllowedOrigin())
+                    .allowedMethod(HttpMethod.POST)
+                    .allowedHeader(Constants.HEADER_QOS_LEVEL)
+                    .allowedHeader(HttpHeaders.AUTHORIZATION.toString())
+                    .allowedHeader(HttpHeaders.CONTENT_TYPE.toString()));
+
+            // require auth for POSTing bulk telemetry
+            router.route(HttpMethod.POST, "/telemetry/bulk").handler(authHandler);
+
+            // route for posting bulk telemetry data using tenant and (default) device ID
+            // determined as part of device authentication
+            router.route(HttpMethod.POST, "/telemetry/bulk").handler(this::handlePostBulkTelemetry);
+
             // require auth for PUTing telemetry
             router.route(HttpMethod.PUT, "/telemetry/*").handler(authHandler);
             // assert that authenticated device's tenant matches tenant from path variables
             router.route(HttpMethod.PUT, String.format("/telemetry/:%s/:%s", PARAM_TENANT, PARAM_DEVICE_ID))
                 .handler(this::assertTenant);
+            router.route(HttpMethod.PUT, String.format("/telemetry/bulk/:%s/:%s", PARAM_TENANT, PARAM_DEVICE_ID))
+                .handler(this::assertTenant);
         }
 
         // route for uploading telemetry data
         router.route(HttpMethod.PUT, String.format("/telemetry/:%s/:%s", PARAM_TENANT, PARAM_DEVICE_ID))
                 .handler(ctx -> uploadTelemetryMessage(ctx, getTenantParam(ctx), getDeviceIdParam(ctx)));
+
+        // route for uploading bulk telemetry data
+        router.route(HttpMethod.PUT, String.format("/telemetry/bulk/:%s/:%s", PARAM_TENANT, PARAM_DEVICE_ID))
+                .handler(ctx -> uploadTelemetryMessages(ctx, getTenantParam(ctx), getDeviceIdParam(ctx)));
     }
 
     private void addEventApiRoutes(final Router router, final Handler<RoutingContext> authHandler) {
@@ -271,6 +338,16 @@ public final class VertxBasedHttpProtocolAdapter extends AbstractVertxBasedHttpP
         }
     }
 
+    void handlePostBulkTelemetry(final RoutingContext ctx) {
+
+        if (Device.class.isInstance(ctx.user())) {
+            final Device device = (Device) ctx.user();
+            uploadTelemetryMessages(ctx, device.getTenantId(), device.getDeviceId());
+        } else {
+            handle401(ctx);
+        }
+    }
+
     void handlePostEvent(final RoutingContext ctx) {
 
         if (Device.class.isInstance(ctx.user())) {
@@ -18,11 +18,14 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.net.HttpURLConnection;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Base64;
 
 import org.apache.qpid.proton.message.Message;
@@ -64,6 +67,7 @@ import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpClient;
 import io.vertx.core.http.HttpClientOptions;
 import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.auth.User;
 import io.vertx.ext.unit.Async;
@@ -103,11 +107,14 @@ public class VertxBasedHttpProtocolAdapterTest {
     private static HonoClientBasedAuthProvider usernamePasswordAuthProvider;
     private static HttpProtocolAdapterProperties config;
     private static VertxBasedHttpProtocolAdapter httpAdapter;
+    private static VertxBasedHttpProtocolAdapter streamingHttpAdapter;
     private static CommandConnection commandConnection;
     private static CommandResponseSender commandResponseSender;
     private static Vertx vertx;
     private static String deploymentId;
+    private static String streamingDeploymentId;
     private static HttpClient httpClient;
+    private static HttpClient streamingHttpClient;
 
     private static final String syntacticallyCorrectCmdRequestId = "12fcmd-client-c925910f-ea2a-455c-a3f9-a339171f335474f48a55-c60d-4b99-8950-a2fbb9e8f1b6";
 
@@ -174,15 +181,7 @@ public class VertxBasedHttpProtocolAdapterTest {
         config.setInsecurePortBindAddress(HOST);
         config.setAuthenticationRequired(true);
 
-        httpAdapter = new VertxBasedHttpProtocolAdapter();
-        httpAdapter.setConfig(config);
-        httpAdapter.setTenantServiceClient(tenantServiceClient);
-        httpAdapter.setCredentialsServiceClient(credentialsServiceClient);
-        httpAdapter.setHonoMessagingClient(messagingClient);
-        httpAdapter.setRegistrationServiceClient(registrationServiceClient);
-        httpAdapter.setCommandConnection(commandConnection);
-        httpAdapter.setUsernamePasswordAuthProvider(usernamePasswordAuthProvider);
-
+        httpAdapter = newAdapter(config);
         vertx.deployVerticle(httpAdapter, ctx.asyncAssertSuccess(id -> {
             deploymentId = id;
             final HttpClientOptions options = new HttpClientOptions()
@@ -190,6 +189,35 @@ public class VertxBasedHttpProtocolAdapterTest {
                     .setDefaultPort(httpAdapter.getInsecurePort());
             httpClient = vertx.createHttpClient(options);
         }));
+
+        // an adapter sharing the clients and credentials but streaming upload requests
+        final HttpProtocolAdapterProperties streamingConfig = new HttpProtocolAdapterProperties();
+        streamingConfig.setInsecurePort(0);
+        streamingConfig.setInsecurePortBindAddress(HOST);
+        streamingConfig.setAuthenticationRequired(true);
+        streamingConfig.setStreamingUploadsEnabled(true);
+
+        streamingHttpAdapter = newAdapter(streamingConfig);
+        vertx.deployVerticle(streamingHttpAdapter, ctx.asyncAssertSuccess(id -> {
+            streamingDeploymentId = id;
+            final HttpClientOptions options = new HttpClientOptions()
+                    .setDefaultHost(HOST)
+                    .setDefaultPort(streamingHttpAdapter.getInsecurePort());
+            streamingHttpClient = vertx.createHttpClient(options);
+        }));
+    }
+
+    private static VertxBasedHttpProtocolAdapter newAdapter(final HttpProtocolAdapterProperties adapterConfig) {
+
+        final VertxBasedHttpProtocolAdapter adapter = new VertxBasedHttpProtocolAdapter();
+        adapter.setConfig(adapterConfig);
+        adapter.setTenantServiceClient(tenantServiceClient);
+        adapter.setCredentialsServiceClient(credentialsServiceClient);
+        adapter.setHonoMessagingClient(messagingClient);
+        adapter.setRegistrationServiceClient(registrationServiceClient);
+        adapter.setCommandConnection(commandConnection);
+        adapter.setUsernamePasswordAuthProvider(usernamePasswordAuthProvider);
+        return adapter;
     }
 
     /**
@@ -203,6 +231,7 @@ public class VertxBasedHttpProtocolAdapterTest {
 
         final RegistrationClient regClient = mock(RegistrationClient.class);
         when(regClient.assertRegistration(anyString(), any(), (SpanContext) any())).thenReturn(Future.succeededFuture(new JsonObject()));
+        when(regClient.assertGatewayDevices(anyString(), any(), (SpanContext) any())).thenReturn(Future.succeededFuture(new JsonObject()));
         when(registrationServiceClient.getOrCreateRegistrationClient(anyString())).thenReturn(Future.succeededFuture(regClient));
 
         final TenantClient tenantClient = mock(TenantClient.class);
@@ -248,7 +277,9 @@ public class VertxBasedHttpProtocolAdapterTest {
      */
     @AfterClass
     public static void finishTest(final TestContext ctx) {
-        vertx.undeploy(deploymentId, ctx.asyncAssertSuccess(ok -> vertx.close()));
+        vertx.undeploy(streamingDeploymentId, ctx.asyncAssertSuccess(s -> {
+            vertx.undeploy(deploymentId, ctx.asyncAssertSuccess(ok -> vertx.close()));
+        }));
     }
 
     /**
@@ -442,6 +473,198 @@ public class VertxBasedHttpProtocolAdapterTest {
                 }).exceptionHandler(ctx::fail).end(new JsonObject().encode());
     }
 
+    /**
+     * Verifies that the adapter forwards a telemetry message that has been uploaded
+     * using a streamed request.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testPostTelemetrySucceedsForStreamedPayload(final TestContext ctx) {
+
+        final Async async = ctx.async();
+        final String authHeader = getBasicAuth("testuser@DEFAULT_TENANT", "password123");
+
+        mockSuccessfulAuthentication("DEFAULT_TENANT", "device_1");
+
+        streamingHttpClient.post("/telemetry")
+                .putHeader(HttpHeaders.CONTENT_TYPE, HttpUtils.CONTENT_TYPE_JSON)
+                .putHeader(HttpHeaders.AUTHORIZATION, authHeader)
+                .handler(response -> {
+                    ctx.assertEquals(HttpURLConnection.HTTP_ACCEPTED, response.statusCode());
+                    verify(telemetrySender).send(any(Message.class), any(SpanContext.class));
+                    async.complete();
+                }).exceptionHandler(ctx::fail).end(new JsonObject().put("temp", 5).encode());
+    }
+
+    /**
+     * Verifies that the adapter forwards an event that has been uploaded
+     * using a streamed request.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testPutEventSucceedsForStreamedPayload(final TestContext ctx) {
+
+        final Async async = ctx.async();
+        final String authHeader = getBasicAuth("testuser@DEFAULT_TENANT", "password123");
+
+        mockSuccessfulAuthentication("DEFAULT_TENANT", "device_1");
+
+        streamingHttpClient.put("/event/DEFAULT_TENANT/device_1")
+                .setChunked(true)
+                .putHeader(HttpHeaders.CONTENT_TYPE, HttpUtils.CONTENT_TYPE_JSON)
+                .putHeader(HttpHeaders.AUTHORIZATION, authHeader)
+                .handler(response -> {
+                    ctx.assertEquals(HttpURLConnection.HTTP_ACCEPTED, response.statusCode());
+                    verify(eventSender).send(any(Message.class), any(SpanContext.class));
+                    async.complete();
+                }).exceptionHandler(ctx::fail).end(new JsonObject().put("alarm", true).encode());
+    }
+
+    /**
+     * Verifies that the adapter rejects a streamed upload request with a 503 without
+     * forwarding the message if the downstream sender has no credit.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testPostTelemetryFailsForStreamedPayloadIfSendQueueIsFull(final TestContext ctx) {
+
+        final Async async = ctx.async();
+        final String authHeader = getBasicAuth("testuser@DEFAULT_TENANT", "password123");
+
+        mockSuccessfulAuthentication("DEFAULT_TENANT", "device_1");
+        when(telemetrySender.sendQueueFull()).thenReturn(Boolean.TRUE);
+
+        streamingHttpClient.post("/telemetry")
+                .putHeader(HttpHeaders.CONTENT_TYPE, HttpUtils.CONTENT_TYPE_JSON)
+                .putHeader(HttpHeaders.AUTHORIZATION, authHeader)
+                .handler(response -> {
+                    ctx.assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, response.statusCode());
+                    verify(telemetrySender, never()).send(any(Message.class), any(SpanContext.class));
+                    async.complete();
+                }).exceptionHandler(ctx::fail).end(new JsonObject().put("temp", 5).encode());
+    }
+
+    /**
+     * Verifies that the adapter rejects a streamed upload request with a 413 if the request's
+     * body exceeds the max payload size.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testPostTelemetryFailsForStreamedPayloadExceedingMaxSize(final TestContext ctx) {
+
+        final Async async = ctx.async();
+        final String authHeader = getBasicAuth("testuser@DEFAULT_TENANT", "password123");
+
+        mockSuccessfulAuthentication("DEFAULT_TENANT", "device_1");
+
+        final char[] payload = new char[streamingHttpAdapter.getConfig().getMaxPayloadSize() + 1];
+        Arrays.fill(payload, 'x');
+        streamingHttpClient.post("/telemetry")
+                .putHeader(HttpHeaders.CONTENT_TYPE, "text/plain")
+                .putHeader(HttpHeaders.AUTHORIZATION, authHeader)
+                .handler(response -> {
+                    ctx.assertEquals(HttpURLConnection.HTTP_ENTITY_TOO_LARGE, response.statusCode());
+                    verify(telemetrySender, never()).send(any(Message.class), any(SpanContext.class));
+                    async.complete();
+                }).exceptionHandler(ctx::fail).end(new String(payload));
+    }
+
+    /**
+     * Verifies that the adapter rejects a streamed upload request with a 413 if the
+     * chunked body of the request exceeds the max payload size.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testPutEventFailsForStreamedChunkedPayloadExceedingMaxSize(final TestContext ctx) {
+
+        final Async async = ctx.async();
+        final String authHeader = getBasicAuth("testuser@DEFAULT_TENANT", "password123");
+
+        mockSuccessfulAuthentication("DEFAULT_TENANT", "device_1");
+
+        final char[] payload = new char[streamingHttpAdapter.getConfig().getMaxPayloadSize() + 1];
+        Arrays.fill(payload, 'x');
+        streamingHttpClient.put("/event/DEFAULT_TENANT/device_1")
+                .setChunked(true)
+                .putHeader(HttpHeaders.CONTENT_TYPE, "text/plain")
+                .putHeader(HttpHeaders.AUTHORIZATION, authHeader)
+                .handler(response -> {
+                    ctx.assertEquals(HttpURLConnection.HTTP_ENTITY_TOO_LARGE, response.statusCode());
+                    verify(eventSender, never()).send(any(Message.class), any(SpanContext.class));
+                    async.complete();
+                }).exceptionHandler(ctx::fail).end(new String(payload));
+    }
+
+    /**
+     * Verifies that a POST request to the bulk telemetry URI results in a message being sent
+     * downstream for each valid record and that the response contains the outcome for each record.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testPostBulkTelemetrySendsRecordsDownstream(final TestContext ctx) {
+
+        final Async async = ctx.async();
+        final String authHeader = getBasicAuth("testuser@DEFAULT_TENANT", "password123");
+
+        mockSuccessfulAuthentication("DEFAULT_TENANT", "gw_1");
+
+        final String body = new StringBuilder()
+                .append(new JsonObject().put("payload", new JsonObject().put("temp", 5)).encode()).append("\n")
+                .append(new JsonObject().put("device-id", "device_1").put("content-type", "text/plain")
+                        .put("payload", "hello").encode()).append("\n")
+                .append("42\n")
+                .toString();
+
+        httpClient.post("/telemetry/bulk")
+                .putHeader(HttpHeaders.CONTENT_TYPE, HttpUtils.CONTENT_TYPE_NDJSON)
+                .putHeader(HttpHeaders.AUTHORIZATION, authHeader)
+                .putHeader(HttpHeaders.ORIGIN, "hono.eclipse.org")
+                .handler(response -> {
+                    ctx.assertEquals(HttpURLConnection.HTTP_OK, response.statusCode());
+                    response.bodyHandler(buffer -> {
+                        final JsonArray outcomes = buffer.toJsonArray();
+                        ctx.assertEquals(3, outcomes.size());
+                        ctx.assertEquals("gw_1", outcomes.getJsonObject(0).getString("device-id"));
+                        ctx.assertEquals(HttpURLConnection.HTTP_ACCEPTED, outcomes.getJsonObject(0).getInteger("status"));
+                        ctx.assertEquals("device_1", outcomes.getJsonObject(1).getString("device-id"));
+                        ctx.assertEquals(HttpURLConnection.HTTP_ACCEPTED, outcomes.getJsonObject(1).getInteger("status"));
+                        ctx.assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, outcomes.getJsonObject(2).getInteger("status"));
+                        verify(telemetrySender, times(2)).send(any(Message.class), any(SpanContext.class));
+                        async.complete();
+                    });
+                }).exceptionHandler(ctx::fail).end(body);
+    }
+
+    /**
+     * Verifies that a POST request to the bulk telemetry URI fails with a 400 if the body
+     * of a request with content type <em>application/json</em> is not an array.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testPostBulkTelemetryFailsForMissingArray(final TestContext ctx) {
+
+        final Async async = ctx.async();
+        final String authHeader = getBasicAuth("testuser@DEFAULT_TENANT", "password123");
+
+        mockSuccessfulAuthentication("DEFAULT_TENANT", "device_1");
+
+        httpClient.post("/telemetry/bulk")
+                .putHeader(HttpHeaders.CONTENT_TYPE, HttpUtils.CONTENT_TYPE_JSON)
+                .putHeader(HttpHeaders.AUTHORIZATION, authHeader)
+                .putHeader(HttpHeaders.ORIGIN, "hono.eclipse.org")
+                .handler(response -> {
+                    ctx.assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, response.statusCode());
+                    async.complete();
+                }).exceptionHandler(ctx::fail).end(new JsonObject().put("payload", "hello").encode());
+    }
+
     /**
      * Verifies that a POST request to the event URI results in a message that is sent downstream.
      *
@@ -468,7 +691,8 @@ public class VertxBasedHttpProtocolAdapterTest {
 
     /**
      * Verifies that the adapter includes a command for the device in the response to
-     * a POST request which contains a time-til-disconnect.
+     * a POST request which contains a time-til-disconnect and that the command receiver
+     * link is reused by subsequent requests of the device.
      *
      * @param ctx The vert.x test context.
      */
@@ -485,6 +709,8 @@ public class VertxBasedHttpProtocolAdapterTest {
         final Command pendingCommand = Command.from(msg, "DEFAULT_TENANT", "device_1");
         final CommandContext commandContext = CommandContext.from(pendingCommand, mock(ProtonDelivery.class), mock(ProtonReceiver.class), mock(Span.class));
         final MessageConsumer commandConsumer = mock(MessageConsumer.class);
+        // the link's initial credit is used up by the pending command
+        when(commandConsumer.getRemainingCredit()).thenReturn(1, 0);
         when(commandConnection.createCommandConsumer(eq("DEFAULT_TENANT"), eq("device_1"), any(Handler.class), any(Handler.class))).
                 thenAnswer(invocation -> {
                     final Handler<CommandContext> consumer = invocation.getArgument(2);
@@ -504,9 +730,23 @@ public class VertxBasedHttpProtocolAdapterTest {
                     ctx.assertNotNull(response.getHeader(Constants.HEADER_COMMAND_REQUEST_ID));
                     verify(commandConnection).createCommandConsumer(eq("DEFAULT_TENANT"), eq("device_1"),
                             any(Handler.class), any(Handler.class));
-                    // and the command consumer has been closed again
-                    verify(commandConsumer).close(any());
-                    async.complete();
+                    // and the command receiver link is kept open
+                    verify(commandConsumer, never()).close(any());
+
+                    // WHEN the device posts another telemetry message including a TTD
+                    httpClient.post("/telemetry?hono-ttd=1")
+                        .putHeader(HttpHeaders.CONTENT_TYPE, HttpUtils.CONTENT_TYPE_JSON)
+                        .putHeader(HttpHeaders.AUTHORIZATION, authHeader)
+                        .putHeader(HttpHeaders.ORIGIN, "hono.eclipse.org")
+                        .handler(secondResponse -> {
+                            // THEN the response does not contain a command
+                            ctx.assertEquals(HttpURLConnection.HTTP_ACCEPTED, secondResponse.statusCode());
+                            // and the existing link has been used for waiting for a command
+                            verify(commandConnection, times(1)).createCommandConsumer(eq("DEFAULT_TENANT"), eq("device_1"),
+                                    any(Handler.class), any(Handler.class));
+                            verify(commandConsumer).flow(1);
+                            async.complete();
+                        }).exceptionHandler(ctx::fail).end(new JsonObject().encode());
                 }).exceptionHandler(ctx::fail).end(new JsonObject().encode());
     }
 
@@ -13,14 +13,14 @@
 
 package org.eclipse.hono.adapter.kura;
 
-import org.eclipse.hono.config.ProtocolAdapterProperties;
+import org.eclipse.hono.adapter.mqtt.MqttProtocolAdapterProperties;
 
 
 /**
  * Properties for configuring a the Kura adapter.
  *
  */
-public class KuraAdapterProperties extends ProtocolAdapterProperties {
+public class KuraAdapterProperties extends MqttProtocolAdapterProperties {
 
     /**
      * The content type used for Kura <em>control</em> messages.
@@ -30,6 +30,10 @@ public class KuraAdapterProperties extends ProtocolAdapterProperties {
      * The content type used for Kura <em>data</em> messages.
      */
     public static final String DEFAULT_CONTENT_TYPE_KURA_DATA_MSG = "application/vnd.eclipse.kura-data";
+    /**
+     * The content type used for Kura <em>data</em> messages that have been decoded to JSON.
+     */
+    public static final String DEFAULT_CONTENT_TYPE_KURA_DECODED_DATA_MSG = "application/vnd.eclipse.kura-data+json";
     /**
      * The default control prefix.
      */
@@ -38,6 +42,8 @@ public class KuraAdapterProperties extends ProtocolAdapterProperties {
     private String controlPrefix = DEFAULT_CONTROL_PREFIX;
     private String ctrlMsgContentType = DEFAULT_CONTENT_TYPE_KURA_CONTROL_MSG;
     private String dataMsgContentType = DEFAULT_CONTENT_TYPE_KURA_DATA_MSG;
+    private String decodedDataMsgContentType = DEFAULT_CONTENT_TYPE_KURA_DECODED_DATA_MSG;
+    private boolean decodeDataMessages = false;
 
     /**
      * Gets the <em>topic.control-prefix</em> to use for determining if a message published
@@ -111,4 +117,51 @@ public class KuraAdapterProperties extends ProtocolAdapterProperties {
         this.dataMsgContentType = contentType;
     }
 
+    /**
+     * Checks if the Kura payload of <em>data</em> messages should be decoded to JSON
+     * before the messages are forwarded downstream.
+     * <p>
+     * The default value of this property is {@code false}.
+     * 
+     * @return {@code true} if the payload should be decoded.
+     */
+    public final boolean isDecodeDataMessages() {
+        return decodeDataMessages;
+    }
+
+    /**
+     * Sets whether the Kura payload of <em>data</em> messages should be decoded to JSON
+     * before the messages are forwarded downstream.
+     * <p>
+     * The default value of this property is {@code false}.
+     * 
+     * @param decode {@code true} if the payload should be decoded.
+     */
+    public final void setDecodeDataMessages(final boolean decode) {
+        this.decodeDataMessages = decode;
+    }
+
+    /**
+     * Gets the content type to use for Kura <em>data</em> messages being
+     * forwarded downstream with a decoded payload.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_CONTENT_TYPE_KURA_DECODED_DATA_MSG}.
+     * 
+     * @return The content type.
+     */
+    public final String getDecodedDataMsgContentType() {
+        return decodedDataMsgContentType;
+    }
+
+    /**
+     * Sets the content type to use for Kura <em>data</em> messages being
+     * forwarded downstream with a decoded payload.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_CONTENT_TYPE_KURA_DECODED_DATA_MSG}.
+     * 
+     * @param contentType The content type to set.
+     */
+    public final void setDecodedDataMsgContentType(final String contentType) {
+        this.decodedDataMsgContentType = contentType;
+    }
 }
@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.kura;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import io.netty.buffer.ByteBuf;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A decoder for the Google Protocol Buffers encoded <em>KuraPayload</em> that Kura gateways
+ * publish in <em>data</em> messages.
+ * <p>
+ * The decoder converts a payload into a JSON object of the following structure:
+ * <pre>
+ * {
+ *   "timestamp": 1538389200000,
+ *   "position": { "latitude": 49.5, "longitude": 8.4, ... },
+ *   "metrics": { "temperature": 21.5, "door-open": false, ... },
+ *   "body": "base64 encoded bytes"
+ * }
+ * </pre>
+ * Properties that are not contained in the payload are omitted. Metrics of type
+ * <em>BYTES</em> are represented as Base64 encoded strings.
+ * <p>
+ * The decoder parses the wire format in place, i.e. it reads the payload's underlying
+ * buffer directly and uses slices of it for nested messages instead of copying them.
+ * The decoder does not hold any per message state, so a single instance can be used
+ * for decoding all messages.
+ */
+final class KuraPayloadDecoder {
+
+    /**
+     * The name of the property containing the message's timestamp.
+     */
+    static final String FIELD_TIMESTAMP = "timestamp";
+    /**
+     * The name of the property containing the gateway's position.
+     */
+    static final String FIELD_POSITION = "position";
+    /**
+     * The name of the property containing the message's metrics.
+     */
+    static final String FIELD_METRICS = "metrics";
+    /**
+     * The name of the property containing the message's body.
+     */
+    static final String FIELD_BODY = "body";
+
+    private static final int WIRE_TYPE_VARINT = 0;
+    private static final int WIRE_TYPE_FIXED64 = 1;
+    private static final int WIRE_TYPE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_TYPE_FIXED32 = 5;
+
+    // field numbers of KuraPayload
+    private static final int PAYLOAD_TIMESTAMP = 1;
+    private static final int PAYLOAD_POSITION = 2;
+    private static final int PAYLOAD_METRIC = 5000;
+    private static final int PAYLOAD_BODY = 5001;
+
+    // field numbers of KuraPayload.KuraMetric
+    private static final int METRIC_NAME = 1;
+    private static final int METRIC_DOUBLE_VALUE = 3;
+    private static final int METRIC_FLOAT_VALUE = 4;
+    private static final int METRIC_LONG_VALUE = 5;
+    private static final int METRIC_INT_VALUE = 6;
+    private static final int METRIC_BOOL_VALUE = 7;
+    private static final int METRIC_STRING_VALUE = 8;
+    private static final int METRIC_BYTES_VALUE = 9;
+
+    // field numbers of KuraPayload.KuraPosition
+    private static final String[] POSITION_FIELDS = {
+            null, "latitude", "longitude", "altitude", "precision", "heading", "speed", "timestamp", "satellites", "status" };
+    private static final int POSITION_TIMESTAMP = 7;
+
+    /**
+     * Decodes a Kura payload.
+     *
+     * @param payload The payload to decode.
+     * @return The JSON representation of the payload.
+     * @throws NullPointerException if payload is {@code null}.
+     * @throws IllegalArgumentException if the payload is not a valid Kura payload.
+     */
+    JsonObject decode(final Buffer payload) {
+
+        Objects.requireNonNull(payload);
+        try {
+            return decodePayload(payload.getByteBuf());
+        } catch (final IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("truncated Kura payload", e);
+        }
+    }
+
+    private static JsonObject decodePayload(final ByteBuf buf) {
+
+        final JsonObject result = new JsonObject();
+        JsonObject metrics = null;
+
+        while (buf.isReadable()) {
+            final long tag = readVarint(buf);
+            final int fieldNumber = (int) (tag >>> 3);
+            final int wireType = (int) (tag & 0x07);
+
+            if (fieldNumber == PAYLOAD_TIMESTAMP && wireType == WIRE_TYPE_VARINT) {
+                result.put(FIELD_TIMESTAMP, readVarint(buf));
+            } else if (fieldNumber == PAYLOAD_POSITION && wireType == WIRE_TYPE_LENGTH_DELIMITED) {
+                result.put(FIELD_POSITION, decodePosition(readSlice(buf)));
+            } else if (fieldNumber == PAYLOAD_METRIC && wireType == WIRE_TYPE_LENGTH_DELIMITED) {
+                if (metrics == null) {
+                    metrics = new JsonObject();
+                    result.put(FIELD_METRICS, metrics);
+                }
+                decodeMetric(readSlice(buf), metrics);
+            } else if (fieldNumber == PAYLOAD_BODY && wireType == WIRE_TYPE_LENGTH_DELIMITED) {
+                result.put(FIELD_BODY, readBytes(buf));
+            } else {
+                // extensions and unknown fields
+                skipField(buf, wireType);
+            }
+        }
+        return result;
+    }
+
+    private static void decodeMetric(final ByteBuf buf, final JsonObject metrics) {
+
+        String name = null;
+        Object value = null;
+
+        while (buf.isReadable()) {
+            final long tag = readVarint(buf);
+            final int fieldNumber = (int) (tag >>> 3);
+            final int wireType = (int) (tag & 0x07);
+
+            if (fieldNumber == METRIC_NAME && wireType == WIRE_TYPE_LENGTH_DELIMITED) {
+                name = readString(buf);
+            } else if (fieldNumber == METRIC_DOUBLE_VALUE && wireType == WIRE_TYPE_FIXED64) {
+                value = Double.longBitsToDouble(buf.readLongLE());
+            } else if (fieldNumber == METRIC_FLOAT_VALUE && wireType == WIRE_TYPE_FIXED32) {
+                value = Float.intBitsToFloat(buf.readIntLE());
+            } else if (fieldNumber == METRIC_LONG_VALUE && wireType == WIRE_TYPE_VARINT) {
+                value = readVarint(buf);
+            } else if (fieldNumber == METRIC_INT_VALUE && wireType == WIRE_TYPE_VARINT) {
+                value = (int) readVarint(buf);
+            } else if (fieldNumber == METRIC_BOOL_VALUE && wireType == WIRE_TYPE_VARINT) {
+                value = readVarint(buf) != 0;
+            } else if (fieldNumber == METRIC_STRING_VALUE && wireType == WIRE_TYPE_LENGTH_DELIMITED) {
+                value = readString(buf);
+            } else if (fieldNumber == METRIC_BYTES_VALUE && wireType == WIRE_TYPE_LENGTH_DELIMITED) {
+                value = readBytes(buf);
+            } else {
+                // the value type is implied by the value field being set
+                skipField(buf, wireType);
+            }
+        }
+
+        if (name == null) {
+            throw new IllegalArgumentException("metric has no name");
+        } else if (value != null) {
+            metrics.put(name, value);
+        }
+    }
+
+    private static JsonObject decodePosition(final ByteBuf buf) {
+
+        final JsonObject position = new JsonObject();
+        while (buf.isReadable()) {
+            final long tag = readVarint(buf);
+            final int fieldNumber = (int) (tag >>> 3);
+            final int wireType = (int) (tag & 0x07);
+
+            if (fieldNumber > 0 && fieldNumber < POSITION_TIMESTAMP && wireType == WIRE_TYPE_FIXED64) {
+                position.put(POSITION_FIELDS[fieldNumber], Double.longBitsToDouble(buf.readLongLE()));
+            } else if (fieldNumber == POSITION_TIMESTAMP && wireType == WIRE_TYPE_VARINT) {
+                position.put(POSITION_FIELDS[fieldNumber], readVarint(buf));
+            } else if (fieldNumber > POSITION_TIMESTAMP && fieldNumber < POSITION_FIELDS.length
+                    && wireType == WIRE_TYPE_VARINT) {
+                position.put(POSITION_FIELDS[fieldNumber], (int) readVarint(buf));
+            } else {
+                skipField(buf, wireType);
+            }
+        }
+        return position;
+    }
+
+    private static long readVarint(final ByteBuf buf) {
+
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = buf.readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    private static int readLength(final ByteBuf buf) {
+
+        final long length = readVarint(buf);
+        if (length < 0 || length > buf.readableBytes()) {
+            throw new IllegalArgumentException("invalid length of field");
+        }
+        return (int) length;
+    }
+
+    private static ByteBuf readSlice(final ByteBuf buf) {
+        return buf.readSlice(readLength(buf));
+    }
+
+    private static String readString(final ByteBuf buf) {
+
+        final int length = readLength(buf);
+        final String result = buf.toString(buf.readerIndex(), length, StandardCharsets.UTF_8);
+        buf.skipBytes(length);
+        return result;
+    }
+
+    private static byte[] readBytes(final ByteBuf buf) {
+
+        final byte[] result = new byte[readLength(buf)];
+        buf.readBytes(result);
+        return result;
+    }
+
+    private static void skipField(final ByteBuf buf, final int wireType) {
+
+        switch (wireType) {
+        case WIRE_TYPE_VARINT:
+            readVarint(buf);
+            break;
+        case WIRE_TYPE_FIXED64:
+            buf.skipBytes(8);
+            break;
+        case WIRE_TYPE_LENGTH_DELIMITED:
+            buf.skipBytes(readLength(buf));
+            break;
+        case WIRE_TYPE_FIXED32:
+            buf.skipBytes(4);
+            break;
+        default:
+            throw new IllegalArgumentException("unsupported wire type: " + wireType);
+        }
+    }
+}
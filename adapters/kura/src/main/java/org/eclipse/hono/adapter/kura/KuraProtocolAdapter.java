@@ -14,7 +14,6 @@
 package org.eclipse.hono.adapter.kura;
 
 import java.net.HttpURLConnection;
-import java.util.Arrays;
 
 import org.eclipse.hono.adapter.mqtt.AbstractVertxBasedMqttProtocolAdapter;
 import org.eclipse.hono.adapter.mqtt.MqttContext;
@@ -22,17 +21,22 @@ import org.eclipse.hono.client.ClientErrorException;
 import org.eclipse.hono.util.Constants;
 import org.eclipse.hono.util.EventConstants;
 import org.eclipse.hono.util.ResourceIdentifier;
-import org.eclipse.hono.util.TelemetryConstants;
 
-import io.netty.handler.codec.mqtt.MqttQoS;
 import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
 
 /**
  * A Vert.x based Hono protocol adapter for publishing messages to Hono's Telemetry and Event APIs from
  * <a href="https://www.eclipse.org/kura">Eclipse Kura</a> gateways.
+ * <p>
+ * The adapter can optionally decode the Kura payload of <em>data</em> messages to JSON so that
+ * downstream applications do not need to be able to decode the Kura payload themselves.
  */
 public final class KuraProtocolAdapter extends AbstractVertxBasedMqttProtocolAdapter<KuraAdapterProperties> {
 
+    private final KuraPayloadDecoder payloadDecoder = new KuraPayloadDecoder();
+    private KuraTopicRouter router;
+
     /**
      * Gets this adapter's type name.
      * 
@@ -49,55 +53,76 @@ public final class KuraProtocolAdapter extends AbstractVertxBasedMqttProtocolAda
     @Override
     protected Future<Void> onPublishedMessage(final MqttContext ctx) {
 
-        return mapTopic(ctx)
+        return routeMessage(ctx)
                 .recover(t -> {
                     LOG.debug("discarding message [topic: {}] from device: {}", ctx.message().topicName(), t.getMessage());
                     return Future.failedFuture(t);
-                }).compose(targetAddress -> uploadMessage(ctx, targetAddress, ctx.message()));
+                }).compose(route -> {
+                    if (getConfig().isDecodeDataMessages() && !route.isControl()) {
+                        return uploadDecodedDataMessage(ctx, route.getTargetAddress());
+                    } else {
+                        return uploadMessage(ctx, route.getTargetAddress(), ctx.message());
+                    }
+                });
     }
 
-    Future<ResourceIdentifier> mapTopic(final MqttContext ctx) {
-
-        final Future<ResourceIdentifier> result = Future.future();
-        final ResourceIdentifier topic = ctx.topic();
-        ResourceIdentifier mappedTopic = null;
+    /**
+     * Forwards a <em>data</em> message with its Kura payload decoded to JSON.
+     * 
+     * @param ctx The context in which the message has been published.
+     * @param targetAddress The address that the message has been mapped to.
+     * @return A future indicating the outcome of the operation.
+     *         The future will fail with a {@link ClientErrorException} if the
+     *         payload is not a valid Kura payload.
+     */
+    Future<Void> uploadDecodedDataMessage(final MqttContext ctx, final ResourceIdentifier targetAddress) {
+
+        final Buffer payload;
+        try {
+            payload = payloadDecoder.decode(ctx.message().payload()).toBuffer();
+        } catch (final IllegalArgumentException e) {
+            LOG.debug("discarding message [topic: {}] from device: {}", ctx.message().topicName(), e.getMessage());
+            return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_BAD_REQUEST, "malformed Kura payload"));
+        }
 
-        if (getConfig().getControlPrefix().equals(topic.getEndpoint())) {
+        if (EventConstants.EVENT_ENDPOINT.equals(targetAddress.getEndpoint())) {
+            return uploadEventMessage(ctx, targetAddress.getTenantId(), targetAddress.getResourceId(), payload);
+        } else {
+            return uploadTelemetryMessage(ctx, targetAddress.getTenantId(), targetAddress.getResourceId(), payload);
+        }
+    }
 
-            // this is a "control" message
-            ctx.setContentType(getConfig().getCtrlMsgContentType());
-            final String[] mappedPath = Arrays.copyOf(topic.getResourcePath(), topic.getResourcePath().length);
-            mappedPath[0] = getEndpoint(ctx.message().qosLevel());
-            mappedTopic = ResourceIdentifier.fromPath(mappedPath);
+    Future<ResourceIdentifier> mapTopic(final MqttContext ctx) {
+        return routeMessage(ctx).map(KuraTopicRouter.Route::getTargetAddress);
+    }
 
-        } else {
+    private Future<KuraTopicRouter.Route> routeMessage(final MqttContext ctx) {
 
-            // map "data" messages based on QoS
-            ctx.setContentType(getConfig().getDataMsgContentType());
-            final String[] mappedPath = new String[topic.getResourcePath().length + 1];
-            System.arraycopy(topic.getResourcePath(), 0, mappedPath, 1, topic.getResourcePath().length);
-            mappedPath[0] = getEndpoint(ctx.message().qosLevel());
-            mappedTopic = ResourceIdentifier.fromPath(mappedPath);
-        }
+        final KuraTopicRouter.Route route = ctx.topic() == null ? null
+                : getRouter().getRoute(ctx.message().topicName(), ctx.topic(), ctx.message().qosLevel());
 
-        if (mappedTopic.getResourcePath().length < 3) {
-            // topic does not contain account_name and client_id
-            result.fail(new ClientErrorException(HttpURLConnection.HTTP_BAD_REQUEST, "topic does not comply with Kura format"));
+        if (route == null) {
+            return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_BAD_REQUEST, "topic does not comply with Kura format"));
         } else {
+            ctx.setContentType(route.getContentType());
             LOG.debug("mapped Kura message [topic: {}, QoS: {}] to Hono message [to: {}, device_id: {}, content-type: {}]",
-                    topic, ctx.message().qosLevel(), mappedTopic.getBasePath(), mappedTopic.getResourceId(), ctx.contentType());
-            result.complete(mappedTopic);
+                    ctx.message().topicName(), ctx.message().qosLevel(), route.getTargetAddress().getBasePath(),
+                    route.getTargetAddress().getResourceId(), ctx.contentType());
+            return Future.succeededFuture(route);
         }
-        return result;
     }
 
-    private static String getEndpoint(final MqttQoS level) {
-
-        switch(level) {
-        case AT_MOST_ONCE:
-            return TelemetryConstants.TELEMETRY_ENDPOINT;
-        default:
-            return EventConstants.EVENT_ENDPOINT;
+    /**
+     * Gets the routing table for messages published by Kura gateways.
+     * <p>
+     * The table is created from the configuration properties on first use.
+     * 
+     * @return The routing table.
+     */
+    private KuraTopicRouter getRouter() {
+        if (router == null) {
+            router = new KuraTopicRouter(getConfig(), KuraTopicRouter.DEFAULT_MAX_CACHED_ROUTES);
         }
+        return router;
     }
 }
@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.kura;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.eclipse.hono.util.EventConstants;
+import org.eclipse.hono.util.ResourceIdentifier;
+import org.eclipse.hono.util.TelemetryConstants;
+
+import io.netty.handler.codec.mqtt.MqttQoS;
+
+/**
+ * A routing table for messages published by Kura gateways.
+ * <p>
+ * The table is built once from the adapter's configuration properties. It classifies
+ * the topic of a message as a <em>control</em> or <em>data</em> topic and maps it to
+ * a Hono address based on the QoS level that the message has been published with.
+ * <p>
+ * Gateways usually publish many messages to the same topics, so the table caches the
+ * routes determined for the most recently used topics. A cached route is looked up
+ * by the message's topic name only, i.e. without splitting the topic name into its
+ * segments and without creating a new target address.
+ * <p>
+ * Instances of this class are not thread safe. All methods must be invoked on the
+ * vert.x context of the adapter.
+ */
+final class KuraTopicRouter {
+
+    /**
+     * The default maximum number of routes that are cached per QoS level.
+     */
+    static final int DEFAULT_MAX_CACHED_ROUTES = 1000;
+
+    private final String controlPrefix;
+    private final String ctrlMsgContentType;
+    private final String dataMsgContentType;
+    private final Map<String, Route> telemetryRoutes;
+    private final Map<String, Route> eventRoutes;
+
+    /**
+     * Creates a routing table for configuration properties.
+     *
+     * @param config The configuration properties.
+     * @param maxCachedRoutes The maximum number of routes to cache per QoS level.
+     * @throws NullPointerException if config is {@code null}.
+     * @throws IllegalArgumentException if the maximum number of routes is &lt; 0.
+     */
+    KuraTopicRouter(final KuraAdapterProperties config, final int maxCachedRoutes) {
+
+        Objects.requireNonNull(config);
+        if (maxCachedRoutes < 0) {
+            throw new IllegalArgumentException("maximum number of cached routes must be >= 0");
+        }
+        this.controlPrefix = config.getControlPrefix();
+        this.ctrlMsgContentType = config.getCtrlMsgContentType();
+        this.dataMsgContentType = config.isDecodeDataMessages()
+                ? config.getDecodedDataMsgContentType()
+                : config.getDataMsgContentType();
+        this.telemetryRoutes = newCache(maxCachedRoutes);
+        this.eventRoutes = newCache(maxCachedRoutes);
+    }
+
+    private static Map<String, Route> newCache(final int maxEntries) {
+        return new LinkedHashMap<String, Route>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Route> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Gets the route for a message published by a Kura gateway.
+     *
+     * @param topicName The name of the topic that the message has been published to.
+     * @param topic The topic that the message has been published to.
+     * @param qos The QoS level that the message has been published with.
+     * @return The route or {@code null} if the topic does not comply with the Kura
+     *         topic format, i.e. it does not contain an account name and client ID.
+     * @throws NullPointerException if any of the parameters are {@code null}.
+     */
+    Route getRoute(final String topicName, final ResourceIdentifier topic, final MqttQoS qos) {
+
+        Objects.requireNonNull(topicName);
+        Objects.requireNonNull(topic);
+        Objects.requireNonNull(qos);
+
+        final Map<String, Route> routes = qos == MqttQoS.AT_MOST_ONCE ? telemetryRoutes : eventRoutes;
+        Route route = routes.get(topicName);
+        if (route == null) {
+            route = newRoute(topic, qos == MqttQoS.AT_MOST_ONCE
+                    ? TelemetryConstants.TELEMETRY_ENDPOINT
+                    : EventConstants.EVENT_ENDPOINT);
+            if (route != null) {
+                routes.put(topicName, route);
+            }
+        }
+        return route;
+    }
+
+    /**
+     * Gets the number of cached routes.
+     *
+     * @return The number of routes.
+     */
+    int getNumberOfCachedRoutes() {
+        return telemetryRoutes.size() + eventRoutes.size();
+    }
+
+    private Route newRoute(final ResourceIdentifier topic, final String endpoint) {
+
+        final String[] topicPath = topic.getResourcePath();
+        final String[] mappedPath;
+        final boolean control = controlPrefix.equals(topic.getEndpoint());
+
+        if (control) {
+            // replace the control prefix with the endpoint
+            mappedPath = new String[topicPath.length];
+            System.arraycopy(topicPath, 1, mappedPath, 1, topicPath.length - 1);
+        } else {
+            // prepend the endpoint to the path of the data topic
+            mappedPath = new String[topicPath.length + 1];
+            System.arraycopy(topicPath, 0, mappedPath, 1, topicPath.length);
+        }
+        mappedPath[0] = endpoint;
+
+        if (mappedPath.length < 3) {
+            // topic does not contain account_name and client_id
+            return null;
+        }
+        return new Route(ResourceIdentifier.fromPath(mappedPath), control ? ctrlMsgContentType : dataMsgContentType, control);
+    }
+
+    /**
+     * The route of a message published by a Kura gateway.
+     */
+    static final class Route {
+
+        private final ResourceIdentifier targetAddress;
+        private final String contentType;
+        private final boolean control;
+
+        private Route(final ResourceIdentifier targetAddress, final String contentType, final boolean control) {
+            this.targetAddress = targetAddress;
+            this.contentType = contentType;
+            this.control = control;
+        }
+
+        /**
+         * Gets the address that the message is forwarded to.
+         *
+         * @return The address.
+         */
+        ResourceIdentifier getTargetAddress() {
+            return targetAddress;
+        }
+
+        /**
+         * Gets the content type to set on the message being forwarded downstream.
+         *
+         * @return The content type.
+         */
+        String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * Checks if the message is a Kura <em>control</em> message.
+         *
+         * @return {@code true} if the message is a <em>control</em> message,
+         *         {@code false} if it is a <em>data</em> message.
+         */
+        boolean isControl() {
+            return control;
+        }
+    }
+}
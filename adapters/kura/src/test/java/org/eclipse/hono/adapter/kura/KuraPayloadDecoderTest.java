@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.kura;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Tests verifying behavior of {@link KuraPayloadDecoder}.
+ *
+ */
+public class KuraPayloadDecoderTest {
+
+    /**
+     * Time out each test after 5 seconds.
+     */
+    @Rule
+    public final Timeout timeout = Timeout.seconds(5);
+
+    private final KuraPayloadDecoder decoder = new KuraPayloadDecoder();
+
+    /**
+     * Verifies that the decoder converts the timestamp, position, metrics and body
+     * of a Kura payload.
+     */
+    @Test
+    public void testDecodeConvertsAllFields() {
+
+        final ByteBuf position = Unpooled.buffer();
+        writeDouble(position, 1, 49.5);
+        writeDouble(position, 2, 8.4);
+        writeVarint(position, 8, 7);
+
+        final ByteBuf payload = Unpooled.buffer();
+        writeVarint(payload, 1, 1538389200000L);
+        writeMessage(payload, 2, position);
+        writeMessage(payload, 5000, newDoubleMetric("temperature", 21.5));
+        writeMessage(payload, 5000, newLongMetric("count", -3));
+        writeMessage(payload, 5000, newStringMetric("state", "running"));
+        writeMessage(payload, 5000, newBoolMetric("door-open", true));
+        writeBytes(payload, 5001, "raw".getBytes(StandardCharsets.UTF_8));
+
+        final JsonObject result = decoder.decode(Buffer.buffer(payload));
+
+        assertThat(result.getLong(KuraPayloadDecoder.FIELD_TIMESTAMP), is(1538389200000L));
+        final JsonObject decodedPosition = result.getJsonObject(KuraPayloadDecoder.FIELD_POSITION);
+        assertThat(decodedPosition.getDouble("latitude"), is(49.5));
+        assertThat(decodedPosition.getDouble("longitude"), is(8.4));
+        assertThat(decodedPosition.getInteger("satellites"), is(7));
+        final JsonObject metrics = result.getJsonObject(KuraPayloadDecoder.FIELD_METRICS);
+        assertThat(metrics.getDouble("temperature"), is(21.5));
+        assertThat(metrics.getLong("count"), is(-3L));
+        assertThat(metrics.getString("state"), is("running"));
+        assertThat(metrics.getBoolean("door-open"), is(true));
+        assertThat(result.getBinary(KuraPayloadDecoder.FIELD_BODY), is("raw".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Verifies that the decoder skips unknown fields and does not consume the
+     * payload buffer.
+     */
+    @Test
+    public void testDecodeSkipsUnknownFields() {
+
+        final ByteBuf payload = Unpooled.buffer();
+        writeBytes(payload, 3, new byte[] { 0x01, 0x02 });
+        writeMessage(payload, 5000, newLongMetric("count", 5));
+        final Buffer buffer = Buffer.buffer(payload);
+
+        final JsonObject result = decoder.decode(buffer);
+        assertThat(result.getJsonObject(KuraPayloadDecoder.FIELD_METRICS).getLong("count"), is(5L));
+        assertThat(result.getValue(KuraPayloadDecoder.FIELD_TIMESTAMP), nullValue());
+
+        // the same buffer can be decoded again
+        assertThat(decoder.decode(buffer), is(result));
+    }
+
+    /**
+     * Verifies that the decoder rejects a truncated payload.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeFailsForTruncatedPayload() {
+
+        final ByteBuf payload = Unpooled.buffer();
+        writeMessage(payload, 5000, newDoubleMetric("temperature", 21.5));
+        decoder.decode(Buffer.buffer(payload.slice(0, payload.readableBytes() - 3)));
+    }
+
+    private static ByteBuf newDoubleMetric(final String name, final double value) {
+        final ByteBuf metric = newMetric(name, 0);
+        writeDouble(metric, 3, value);
+        return metric;
+    }
+
+    private static ByteBuf newLongMetric(final String name, final long value) {
+        final ByteBuf metric = newMetric(name, 2);
+        writeVarint(metric, 5, value);
+        return metric;
+    }
+
+    private static ByteBuf newBoolMetric(final String name, final boolean value) {
+        final ByteBuf metric = newMetric(name, 4);
+        writeVarint(metric, 7, value ? 1 : 0);
+        return metric;
+    }
+
+    private static ByteBuf newStringMetric(final String name, final String value) {
+        final ByteBuf metric = newMetric(name, 5);
+        writeBytes(metric, 8, value.getBytes(StandardCharsets.UTF_8));
+        return metric;
+    }
+
+    private static ByteBuf newMetric(final String name, final int type) {
+        final ByteBuf metric = Unpooled.buffer();
+        writeBytes(metric, 1, name.getBytes(StandardCharsets.UTF_8));
+        writeVarint(metric, 2, type);
+        return metric;
+    }
+
+    private static void writeTag(final ByteBuf buf, final int fieldNumber, final int wireType) {
+        writeRawVarint(buf, fieldNumber << 3 | wireType);
+    }
+
+    private static void writeVarint(final ByteBuf buf, final int fieldNumber, final long value) {
+        writeTag(buf, fieldNumber, 0);
+        writeRawVarint(buf, value);
+    }
+
+    private static void writeDouble(final ByteBuf buf, final int fieldNumber, final double value) {
+        writeTag(buf, fieldNumber, 1);
+        buf.writeLongLE(Double.doubleToLongBits(value));
+    }
+
+    private static void writeBytes(final ByteBuf buf, final int fieldNumber, final byte[] value) {
+        writeTag(buf, fieldNumber, 2);
+        writeRawVarint(buf, value.length);
+        buf.writeBytes(value);
+    }
+
+    private static void writeMessage(final ByteBuf buf, final int fieldNumber, final ByteBuf message) {
+        writeTag(buf, fieldNumber, 2);
+        writeRawVarint(buf, message.readableBytes());
+        buf.writeBytes(message);
+    }
+
+    private static void writeRawVarint(final ByteBuf buf, final long value) {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            buf.writeByte((int) (remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        buf.writeByte((int) remaining);
+    }
+}
@@ -18,8 +18,11 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.net.HttpURLConnection;
+
 import org.eclipse.hono.adapter.mqtt.MqttContext;
 import org.eclipse.hono.auth.Device;
+import org.eclipse.hono.client.ClientErrorException;
 import org.eclipse.hono.util.EventConstants;
 import org.eclipse.hono.util.ResourceIdentifier;
 import org.eclipse.hono.util.TelemetryConstants;
@@ -198,6 +201,57 @@ public class KuraProtocolAdapterTest {
         assertThat(context.contentType(), is(config.getDataMsgContentType()));
     }
 
+    /**
+     * Verifies that the adapter sets the content type for decoded payloads on data
+     * messages if the adapter is configured to decode the Kura payload of data messages.
+     * 
+     * @param ctx The helper to use for running tests on vert.x.
+     */
+    @Test
+    public void testMapTopicSetsDecodedContentTypeForDataMessages(final TestContext ctx) {
+
+        // GIVEN an adapter configured to decode the payload of data messages
+        config.setDecodeDataMessages(true);
+
+        // WHEN a message is published to an application topic
+        final MqttContext context = newContext(MqttQoS.AT_MOST_ONCE, "my-scope/4711");
+        final Async determineAddressSuccess = ctx.async();
+        adapter.mapTopic(context).setHandler(ctx.asyncAssertSuccess(address -> determineAddressSuccess.complete()));
+
+        // THEN the message has the content type for decoded data messages
+        determineAddressSuccess.await();
+        assertThat(context.contentType(), is(config.getDecodedDataMsgContentType()));
+
+        // but control messages are not affected
+        final MqttContext controlContext = newContext(MqttQoS.AT_MOST_ONCE, "$EDC/my-scope/4711");
+        adapter.mapTopic(controlContext).setHandler(ctx.asyncAssertSuccess(address -> {
+            assertThat(controlContext.contentType(), is(config.getCtrlMsgContentType()));
+        }));
+    }
+
+    /**
+     * Verifies that the adapter rejects a data message containing a malformed Kura payload
+     * if the adapter is configured to decode the Kura payload of data messages.
+     * 
+     * @param ctx The helper to use for running tests on vert.x.
+     */
+    @Test
+    public void testUploadDecodedDataMessageFailsForMalformedPayload(final TestContext ctx) {
+
+        // GIVEN an adapter configured to decode the payload of data messages
+        config.setDecodeDataMessages(true);
+
+        // WHEN a data message with a payload that is not a valid Kura payload is published
+        final MqttPublishMessage message = newMessage(MqttQoS.AT_MOST_ONCE, "my-scope/4711", Buffer.buffer(new byte[] { (byte) 0xFF }));
+        final MqttContext context = newContext(message, null);
+
+        // THEN the message is rejected
+        adapter.uploadDecodedDataMessage(context, ResourceIdentifier.from(TelemetryConstants.TELEMETRY_ENDPOINT, "my-scope", "4711"))
+            .setHandler(ctx.asyncAssertFailure(t -> {
+                ctx.assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, ((ClientErrorException) t).getErrorCode());
+            }));
+    }
+
     private void assertAddress(final ResourceIdentifier address, final String endpoint, final String tenantId, final String deviceId) {
         assertThat(address.getEndpoint(), is(endpoint));
         assertThat(address.getTenantId(), is(tenantId));
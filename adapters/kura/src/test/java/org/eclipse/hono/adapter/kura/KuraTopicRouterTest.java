@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.kura;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.hono.util.EventConstants;
+import org.eclipse.hono.util.ResourceIdentifier;
+import org.eclipse.hono.util.TelemetryConstants;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import io.netty.handler.codec.mqtt.MqttQoS;
+
+/**
+ * Tests verifying behavior of {@link KuraTopicRouter}.
+ *
+ */
+public class KuraTopicRouterTest {
+
+    /**
+     * Time out each test after 5 seconds.
+     */
+    @Rule
+    public final Timeout timeout = Timeout.seconds(5);
+
+    private KuraAdapterProperties config;
+
+    /**
+     * Sets up the fixture.
+     */
+    @Before
+    public void setUp() {
+        config = new KuraAdapterProperties();
+    }
+
+    /**
+     * Verifies that the router reuses the route of a topic for subsequent messages
+     * published with the same QoS level.
+     */
+    @Test
+    public void testGetRouteReusesCachedRoute() {
+
+        final KuraTopicRouter router = new KuraTopicRouter(config, 10);
+
+        final KuraTopicRouter.Route route = getRoute(router, "my-scope/4711/app", MqttQoS.AT_MOST_ONCE);
+        assertThat(route.getTargetAddress().getEndpoint(), is(TelemetryConstants.TELEMETRY_ENDPOINT));
+        assertThat(route.getTargetAddress().getTenantId(), is("my-scope"));
+        assertThat(route.getTargetAddress().getResourceId(), is("4711"));
+        assertThat(route.getContentType(), is(config.getDataMsgContentType()));
+        assertFalse(route.isControl());
+
+        assertThat(getRoute(router, "my-scope/4711/app", MqttQoS.AT_MOST_ONCE), sameInstance(route));
+
+        // but a message published with another QoS level is routed to another endpoint
+        final KuraTopicRouter.Route eventRoute = getRoute(router, "my-scope/4711/app", MqttQoS.AT_LEAST_ONCE);
+        assertThat(eventRoute, not(sameInstance(route)));
+        assertThat(eventRoute.getTargetAddress().getEndpoint(), is(EventConstants.EVENT_ENDPOINT));
+        assertThat(router.getNumberOfCachedRoutes(), is(2));
+    }
+
+    /**
+     * Verifies that the router maps control topics using the control message content type.
+     */
+    @Test
+    public void testGetRouteRecognizesControlTopic() {
+
+        final KuraTopicRouter router = new KuraTopicRouter(config, 10);
+
+        final KuraTopicRouter.Route route = getRoute(router, "$EDC/my-scope/4711/app", MqttQoS.AT_LEAST_ONCE);
+        assertThat(route.getTargetAddress().getEndpoint(), is(EventConstants.EVENT_ENDPOINT));
+        assertThat(route.getTargetAddress().getTenantId(), is("my-scope"));
+        assertThat(route.getTargetAddress().getResourceId(), is("4711"));
+        assertThat(route.getContentType(), is(config.getCtrlMsgContentType()));
+        assertTrue(route.isControl());
+    }
+
+    /**
+     * Verifies that the router does not cache more than the configured number of
+     * routes and does not cache topics that do not comply with the Kura topic format.
+     */
+    @Test
+    public void testGetRouteLimitsNumberOfCachedRoutes() {
+
+        final KuraTopicRouter router = new KuraTopicRouter(config, 2);
+
+        assertThat(getRoute(router, "$EDC/my-scope", MqttQoS.AT_MOST_ONCE), nullValue());
+        assertThat(router.getNumberOfCachedRoutes(), is(0));
+
+        final KuraTopicRouter.Route route = getRoute(router, "my-scope/device-1", MqttQoS.AT_MOST_ONCE);
+        getRoute(router, "my-scope/device-2", MqttQoS.AT_MOST_ONCE);
+        getRoute(router, "my-scope/device-3", MqttQoS.AT_MOST_ONCE);
+        assertThat(router.getNumberOfCachedRoutes(), is(2));
+
+        // the least recently used route has been evicted
+        assertThat(getRoute(router, "my-scope/device-1", MqttQoS.AT_MOST_ONCE), not(sameInstance(route)));
+    }
+
+    private static KuraTopicRouter.Route getRoute(final KuraTopicRouter router, final String topicName, final MqttQoS qos) {
+        return router.getRoute(topicName, ResourceIdentifier.fromString(topicName), qos);
+    }
+}
@@ -14,11 +14,14 @@
 package org.eclipse.hono.adapter.mqtt;
 
 import java.net.HttpURLConnection;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.apache.qpid.proton.amqp.transport.ErrorCondition;
@@ -26,6 +29,7 @@ import org.apache.qpid.proton.message.Message;
 import org.eclipse.hono.client.ClientErrorException;
 import org.eclipse.hono.client.MessageConsumer;
 import org.eclipse.hono.client.MessageSender;
+import org.eclipse.hono.client.ServerErrorException;
 import org.eclipse.hono.client.ServiceInvocationException;
 import org.eclipse.hono.client.Command;
 import org.eclipse.hono.client.CommandContext;
@@ -39,6 +43,7 @@ import org.eclipse.hono.service.auth.device.DeviceCredentials;
 import org.eclipse.hono.service.auth.device.HonoClientBasedAuthProvider;
 import org.eclipse.hono.service.auth.device.UsernamePasswordAuthProvider;
 import org.eclipse.hono.service.auth.device.UsernamePasswordCredentials;
+import org.eclipse.hono.service.metric.MetricsTags;
 import org.eclipse.hono.tracing.TracingHelper;
 import org.eclipse.hono.util.CommandConstants;
 import org.eclipse.hono.util.Constants;
@@ -61,6 +66,7 @@ import io.opentracing.tag.Tags;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
 import io.vertx.mqtt.MqttConnectionException;
@@ -77,13 +83,20 @@ import io.vertx.mqtt.messages.MqttUnsubscribeMessage;
  * 
  * @param <T> The type of configuration properties this adapter supports/requires.
  */
-public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAdapterProperties>
+public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends MqttProtocolAdapterProperties>
         extends AbstractProtocolAdapterBase<T> {
 
     /**
      * The name of the property that holds the current span.
      */
     public static final String KEY_CURRENT_SPAN = MqttContext.class.getName() + ".serverSpan";
+    /**
+     * The number of milliseconds that a message waits for a downstream sender to be replenished with credit.
+     */
+    static final long CREDIT_WAIT_TIMEOUT_MILLIS = 1000;
+
+    private static final String SPAN_NAME_UPLOAD_TELEMETRY = "upload " + TelemetryConstants.TELEMETRY_ENDPOINT;
+    private static final String SPAN_NAME_UPLOAD_EVENT = "upload " + EventConstants.EVENT_ENDPOINT;
 
     private static final int IANA_MQTT_PORT = 1883;
     private static final int IANA_SECURE_MQTT_PORT = 8883;
@@ -95,9 +108,14 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
 
     private MqttAdapterMetrics metrics = MqttAdapterMetrics.NOOP;
 
+    private final Map<MqttEndpoint, CommandSubscriptions> commandSubscriptions = new HashMap<>();
+    private final Map<MessageSender, Deque<Future<MessageSender>>> creditWaiters = new HashMap<>();
+
     private MqttServer server;
     private MqttServer insecureServer;
     private HonoClientBasedAuthProvider usernamePasswordAuthProvider;
+    // the provider created by this adapter which needs to be closed on shutdown
+    private UsernamePasswordAuthProvider defaultUsernamePasswordAuthProvider;
 
     /**
      * Sets the provider to use for authenticating devices based on a username and password.
@@ -139,6 +157,11 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
         this.metrics = metrics;
     }
 
+    @Override
+    protected final MqttAdapterMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Sets the MQTT server to use for handling secure MQTT connections.
      * 
@@ -244,8 +267,13 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
                 return CompositeFuture.all(bindSecureMqttServer(), bindInsecureMqttServer());
             }).compose(t -> {
                 if (usernamePasswordAuthProvider == null) {
-                    usernamePasswordAuthProvider = new UsernamePasswordAuthProvider(getCredentialsServiceClient(),
-                            getConfig());
+                    final UsernamePasswordAuthProvider provider = new UsernamePasswordAuthProvider(
+                            getCredentialsServiceClient(), getConfig());
+                    provider.setMetrics(getMetrics());
+                    provider.setValidationPoolSize(getConfig().getCredentialsValidationPoolSize());
+                    provider.setValidationQueueSize(getConfig().getCredentialsValidationQueueSize());
+                    usernamePasswordAuthProvider = provider;
+                    defaultUsernamePasswordAuthProvider = provider;
                 }
                 startFuture.complete();
             }, startFuture);
@@ -254,6 +282,10 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
     @Override
     public void doStop(final Future<Void> stopFuture) {
 
+        if (defaultUsernamePasswordAuthProvider != null) {
+            defaultUsernamePasswordAuthProvider.close();
+        }
+
         final Future<Void> serverTracker = Future.future();
         if (this.server != null) {
             this.server.close(serverTracker.completer());
@@ -371,7 +403,7 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
     private Future<Device> handleEndpointConnectionWithoutAuthentication(final MqttEndpoint endpoint) {
 
         endpoint.closeHandler(v -> close(endpoint, null));
-        endpoint.publishHandler(message -> handlePublishedMessage(new MqttContext(message, endpoint)));
+        endpoint.publishHandler(newPublishHandler(endpoint, null));
 
         endpoint.subscribeHandler(subscribeMsg -> onSubscribe(endpoint, null, subscribeMsg));
         endpoint.unsubscribeHandler(unsubscribeMsg -> onUnsubscribe(endpoint, null, unsubscribeMsg));
@@ -387,11 +419,7 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
         final Future<DeviceCredentials> credentialsTracker = getCredentials(endpoint);
         return credentialsTracker
                 .compose(credentials -> authenticate(credentials, currentSpan))
-                .compose(device -> CompositeFuture.all(
-                        getTenantConfiguration(device.getTenantId(), currentSpan.context())
-                                .compose(tenant -> isAdapterEnabled(tenant)),
-                        checkDeviceRegistration(device, currentSpan.context()))
-                        .map(ok -> device))
+                .compose(device -> checkDeviceContext(device, currentSpan))
                 .compose(device -> createLinks(device, currentSpan))
                 .compose(device -> registerHandlers(endpoint, device))
                 .recover(t -> {
@@ -473,19 +501,7 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
                     // we do not support subscribing to commands using QoS 2
                     result = Future.failedFuture(new IllegalArgumentException("QoS 2 not supported for command subscription"));
                 } else {
-                    result = createCommandConsumer(endpoint, cmdSub).map(consumer -> {
-                        // make sure that we close the consumer and notify downstream
-                        // applications when the connection is closed
-                        endpoint.closeHandler(c -> {
-                            // do not use the current span for sending the disconnected event
-                            // because that span will (usually) be finished long before the
-                            // connection is closed
-                            sendDisconnectedTtdEvent(cmdSub.getTenant(), cmdSub.getDeviceId(), authenticatedDevice, null)
-                            .setHandler(sendAttempt -> {
-                                consumer.close(null);
-                                close(endpoint, authenticatedDevice);
-                            });
-                        });
+                    result = subscribeToCommands(endpoint, authenticatedDevice, cmdSub).map(consumer -> {
                         final Map<String, Object> items = new HashMap<>(4);
                         items.put(Fields.EVENT, "accepting subscription");
                         items.put("filter", subscription.topicName());
@@ -587,8 +603,15 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
                 span.log(items);
                 LOG.debug("unsubscribing device [tenant-id: {}, device-id: {}] from topic [{}]",
                         tenantId, deviceId, topic);
-                closeCommandConsumer(tenantId, deviceId);
-                sendDisconnectedTtdEvent(tenantId, deviceId, authenticatedDevice, span.context());
+                final CommandSubscriptions subscriptions = commandSubscriptions.get(endpoint);
+                if (subscriptions != null && !subscriptions.remove(cmdSub)) {
+                    // the device is still subscribed using another topic filter
+                    LOG.debug("keeping command consumer for device [tenant-id: {}, device-id: {}]",
+                            tenantId, deviceId);
+                } else {
+                    closeCommandConsumer(tenantId, deviceId);
+                    sendDisconnectedTtdEvent(tenantId, deviceId, authenticatedDevice, span.context());
+                }
             }
         });
         if (endpoint.isConnected()) {
@@ -597,20 +620,70 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
         span.finish();
     }
 
-    private Future<MessageConsumer> createCommandConsumer(final MqttEndpoint mqttEndpoint, final CommandSubscription sub) {
+    private Future<MessageConsumer> subscribeToCommands(
+            final MqttEndpoint endpoint,
+            final Device authenticatedDevice,
+            final CommandSubscription sub) {
+
+        final CommandSubscriptions subscriptions = commandSubscriptions.computeIfAbsent(endpoint, ep -> {
+            // make sure that we close the consumers and notify downstream
+            // applications when the connection is closed
+            ep.closeHandler(c -> onCommandSubscriberDisconnected(ep, authenticatedDevice));
+            return new CommandSubscriptions();
+        });
+        final Future<MessageConsumer> consumer = subscriptions.getConsumer(
+                sub,
+                () -> createCommandConsumer(endpoint, subscriptions, sub.getTenant(), sub.getDeviceId()));
+        return consumer.map(c -> {
+            subscriptions.add(sub);
+            return c;
+        });
+    }
+
+    private void onCommandSubscriberDisconnected(final MqttEndpoint endpoint, final Device authenticatedDevice) {
+
+        final CommandSubscriptions subscriptions = commandSubscriptions.remove(endpoint);
+        @SuppressWarnings("rawtypes")
+        final List<Future> disconnectedEvents = new ArrayList<>();
+        if (subscriptions != null) {
+            subscriptions.getConsumers().forEach(deviceConsumer -> {
+                // do not use the current span for sending the disconnected event
+                // because that span will (usually) be finished long before the
+                // connection is closed
+                disconnectedEvents.add(sendDisconnectedTtdEvent(
+                        deviceConsumer.getTenantId(), deviceConsumer.getDeviceId(), authenticatedDevice, null)
+                        .recover(t -> Future.succeededFuture())
+                        .map(sent -> {
+                            deviceConsumer.close();
+                            return null;
+                        }));
+            });
+        }
+        CompositeFuture.join(disconnectedEvents).setHandler(sendAttempts -> close(endpoint, authenticatedDevice));
+    }
+
+    private Future<MessageConsumer> createCommandConsumer(
+            final MqttEndpoint mqttEndpoint,
+            final CommandSubscriptions subscriptions,
+            final String tenantId,
+            final String deviceId) {
 
         // if a device does not specify a keep alive in its CONNECT packet then
         // the default value of the CommandConnection will be used
         final long livenessCheckInterval = mqttEndpoint.keepAliveTimeSeconds() * 1000 / 2;
 
         return getCommandConnection().createCommandConsumer(
-                sub.getTenant(),
-                sub.getDeviceId(),
+                tenantId,
+                deviceId,
                 commandContext -> {
 
                     Tags.COMPONENT.set(commandContext.getCurrentSpan(), getTypeName());
                     final Command command = commandContext.getCommand();
-                    if (command.isValid()) {
+                    final CommandSubscription sub = subscriptions.match(tenantId, deviceId);
+                    if (sub == null) {
+                        // the device has unsubscribed in the meantime
+                        commandContext.release(1);
+                    } else if (command.isValid()) {
                         onCommandReceived(mqttEndpoint, sub, commandContext);
                     } else {
                         // issue credit so that application(s) can send the next command
@@ -621,7 +694,32 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
                 livenessCheckInterval);
     }
 
-    void handlePublishedMessage(final MqttContext context) {
+    private Handler<MqttPublishMessage> newPublishHandler(final MqttEndpoint endpoint, final Device authenticatedDevice) {
+
+        final PublishFlowController flowController = new PublishFlowController(
+                getConfig().getMaxInFlightMessages(), this::handlePublishedMessage);
+        return message -> {
+            final MqttContext context = new MqttContext(message, endpoint, authenticatedDevice);
+            if (!flowController.submit(context)) {
+                LOG.debug("discarding message [topic: {}, QoS: {}] from device [client-id: {}]: too many messages in flight",
+                        message.topicName(), message.qosLevel(), endpoint.clientIdentifier());
+                final String tenant = authenticatedDevice == null ? context.tenant() : authenticatedDevice.getTenantId();
+                if (context.endpoint() != null && tenant != null) {
+                    metrics.incrementUndeliverableMessages(context.endpoint(), tenant);
+                }
+                onMessageUndeliverable(context);
+            }
+        };
+    }
+
+    /**
+     * Processes a message that has been published by a device.
+     *
+     * @param context The context in which the message has been published.
+     * @return A future which is completed once the message has been processed,
+     *         regardless of the outcome.
+     */
+    Future<Void> handlePublishedMessage(final MqttContext context) {
         // there is no way to extract a SpanContext from an MQTT 3.1 message
         // so we start a new one for every message
         final MqttQoS qos = context.message().qosLevel();
@@ -635,6 +733,7 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
             .start();
         context.put(KEY_CURRENT_SPAN, span);
 
+        final Future<Void> result = Future.future();
         checkTopic(context)
             .compose(ok -> onPublishedMessage(context))
             .setHandler(processing -> {
@@ -656,7 +755,9 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
                     }
                 }
                 span.finish();
+                result.complete();
             });
+        return result;
     }
 
     private Future<Void> checkTopic(final MqttContext context) {
@@ -736,13 +837,9 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
                 Objects.requireNonNull(tenant),
                 Objects.requireNonNull(deviceId),
                 Objects.requireNonNull(payload),
-                getTelemetrySender(tenant),
-                TelemetryConstants.TELEMETRY_ENDPOINT
-        ).map(success -> {
-            metrics.incrementProcessedMessages(TelemetryConstants.TELEMETRY_ENDPOINT, tenant);
-            metrics.incrementProcessedPayload(TelemetryConstants.TELEMETRY_ENDPOINT, tenant, messagePayloadSize(ctx.message()));
-            return (Void) null;
-        });
+                () -> getTelemetrySender(tenant),
+                TelemetryConstants.TELEMETRY_ENDPOINT,
+                SPAN_NAME_UPLOAD_TELEMETRY);
     }
 
     /**
@@ -770,13 +867,9 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
                 Objects.requireNonNull(tenant),
                 Objects.requireNonNull(deviceId),
                 Objects.requireNonNull(payload),
-                getEventSender(tenant),
-                EventConstants.EVENT_ENDPOINT
-        ).map(success -> {
-            metrics.incrementProcessedMessages(EventConstants.EVENT_ENDPOINT, tenant);
-            metrics.incrementProcessedPayload(EventConstants.EVENT_ENDPOINT, tenant, messagePayloadSize(ctx.message()));
-            return (Void) null;
-        });
+                () -> getEventSender(tenant),
+                EventConstants.EVENT_ENDPOINT,
+                SPAN_NAME_UPLOAD_EVENT);
     }
 
     /**
@@ -853,15 +946,16 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
             final String tenant,
             final String deviceId,
             final Buffer payload,
-            final Future<? extends MessageSender> senderTracker,
-            final String endpointName) {
+            final Supplier<Future<MessageSender>> senderSupplier,
+            final String endpointName,
+            final String spanName) {
 
         if (!isPayloadOfIndicatedType(payload, ctx.contentType())) {
             return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_BAD_REQUEST,
                     String.format("Content-Type %s does not match payload", ctx.contentType())));
         } else {
 
-            final Span currentSpan = tracer.buildSpan("upload " + endpointName)
+            final Span currentSpan = tracer.buildSpan(spanName)
                     .asChildOf(getCurrentSpan(ctx))
                     .ignoreActiveSpan()
                     .withTag(Tags.COMPONENT.getKey(), getTypeName())
@@ -871,40 +965,53 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
                     .withTag(TracingHelper.TAG_AUTHENTICATED.getKey(), ctx.authenticatedDevice() != null)
                     .start();
 
-            final Future<JsonObject> tokenTracker = getRegistrationAssertion(tenant, deviceId,
-                    ctx.authenticatedDevice(), currentSpan.context());
-            final Future<TenantObject> tenantConfigTracker = getTenantConfiguration(tenant, currentSpan.context());
+            final String qos = ctx.message().qosLevel() == MqttQoS.AT_LEAST_ONCE
+                    ? MetricsTags.VALUE_QOS_AT_LEAST_ONCE
+                    : MetricsTags.VALUE_QOS_AT_MOST_ONCE;
+            final long start = System.nanoTime();
+            final Future<JsonObject> tokenTracker = timeUploadStage(MetricsTags.VALUE_STAGE_REGISTRATION, endpointName, qos, start,
+                    getRegistrationAssertion(tenant, deviceId, ctx.authenticatedDevice(), currentSpan.context()));
+            final Future<TenantObject> tenantConfigTracker = timeUploadStage(MetricsTags.VALUE_STAGE_TENANT, endpointName, qos, start,
+                    getTenantConfiguration(tenant, currentSpan.context()));
+            final Future<MessageSender> senderTracker = timeUploadStage(MetricsTags.VALUE_STAGE_SENDER, endpointName, qos, start,
+                    senderSupplier.get());
 
             return CompositeFuture.all(tokenTracker, tenantConfigTracker, senderTracker).compose(ok -> {
 
                 if (tenantConfigTracker.result().isAdapterEnabled(getTypeName())) {
-
-                    final MessageSender sender = senderTracker.result();
-                    final Message downstreamMessage = newMessage(
-                            ResourceIdentifier.from(endpointName, tenant, deviceId),
-                            sender.isRegistrationAssertionRequired(),
-                            ctx.message().topicName(),
-                            ctx.contentType(),
-                            payload,
-                            tokenTracker.result(),
-                            null);
-
-                    addRetainAnnotation(ctx, downstreamMessage, currentSpan);
-                    customizeDownstreamMessage(downstreamMessage, ctx);
-
-                    if (ctx.message().qosLevel() == MqttQoS.AT_LEAST_ONCE) {
-                        return sender.sendAndWaitForOutcome(downstreamMessage, currentSpan.context());
-                    } else {
-                        return sender.send(downstreamMessage, currentSpan.context());
-                    }
+                    return waitForCredit(senderTracker.result());
                 } else {
                     // this adapter is not enabled for the tenant
                     return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_FORBIDDEN,
                             "adapter is not enabled for tenant"));
                 }
 
+            }).compose(sender -> {
+
+                final Message downstreamMessage = newMessage(
+                        ResourceIdentifier.from(endpointName, tenant, deviceId),
+                        sender.isRegistrationAssertionRequired(),
+                        ctx.message().topicName(),
+                        ctx.contentType(),
+                        payload,
+                        tokenTracker.result(),
+                        null);
+
+                addRetainAnnotation(ctx, downstreamMessage, currentSpan);
+                customizeDownstreamMessage(downstreamMessage, ctx);
+
+                final long sendStart = System.nanoTime();
+                if (ctx.message().qosLevel() == MqttQoS.AT_LEAST_ONCE) {
+                    return timeUploadStage(MetricsTags.VALUE_STAGE_SEND, endpointName, qos, sendStart,
+                            sender.sendAndWaitForOutcome(downstreamMessage, currentSpan.context()));
+                } else {
+                    return timeUploadStage(MetricsTags.VALUE_STAGE_SEND, endpointName, qos, sendStart,
+                            sender.send(downstreamMessage, currentSpan.context()));
+                }
+
             }).compose(delivery -> {
 
+                reportUploadStage(MetricsTags.VALUE_STAGE_TOTAL, endpointName, qos, start);
                 LOG.trace("successfully processed message [topic: {}, QoS: {}] from device [tenantId: {}, deviceId: {}]",
                         ctx.message().topicName(), ctx.message().qosLevel(), tenant, deviceId);
                 // check that the remote MQTT client is still connected before sending PUBACK
@@ -912,11 +1019,14 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
                     currentSpan.log("sending PUBACK");
                     ctx.deviceEndpoint().publishAcknowledge(ctx.message().messageId());
                 }
+                metrics.incrementProcessedMessages(endpointName, tenant);
+                metrics.incrementProcessedPayload(endpointName, tenant, messagePayloadSize(ctx.message()));
                 currentSpan.finish();
                 return Future.<Void> succeededFuture();
 
             }).recover(t -> {
 
+                reportUploadStage(MetricsTags.VALUE_STAGE_TOTAL, endpointName, qos, start);
                 if (ClientErrorException.class.isInstance(t)) {
                     final ClientErrorException e = (ClientErrorException) t;
                     LOG.debug("cannot process message [endpoint: {}] from device [tenantId: {}, deviceId: {}]: {} - {}",
@@ -932,6 +1042,113 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
         }
     }
 
+    /**
+     * Waits for a sender to have credit available for sending a message.
+     * <p>
+     * Messages waiting for credit occupy a slot of the device connection's in-flight window
+     * which causes subsequent messages published by the device to be queued. Waiting messages
+     * are resumed in the order of their arrival once the sender has been replenished.
+     * Waiting messages are also resumed once the sender has been closed so that sending
+     * them fails right away.
+     *
+     * @param sender The sender.
+     * @return A future that will be completed with the sender once credit is available or
+     *         that will be failed with a {@link ServerErrorException} if the sender has not
+     *         been replenished within a second.
+     */
+    private Future<MessageSender> waitForCredit(final MessageSender sender) {
+
+        if (!sender.isOpen()) {
+            // a closed sender will not be replenished anymore,
+            // sending the message will fail right away
+            removeCreditWaiters(sender);
+            return Future.succeededFuture(sender);
+        } else if (sender.getCredit() > 0) {
+            return Future.succeededFuture(sender);
+        }
+        Deque<Future<MessageSender>> waiters = creditWaiters.get(sender);
+        if (waiters == null) {
+            waiters = new ArrayDeque<>();
+            creditWaiters.put(sender, waiters);
+            try {
+                sender.sendQueueDrainHandler(replenished -> onCreditReplenished(sender));
+            } catch (final IllegalStateException e) {
+                // the drain handler registered for waiters that have timed out
+                // already is still pending, it will resume the new waiters
+                LOG.trace("sender is already waiting for replenishment with credit");
+            }
+        }
+        final Future<MessageSender> result = Future.future();
+        waiters.add(result);
+        final long timerId = vertx.setTimer(CREDIT_WAIT_TIMEOUT_MILLIS, id -> {
+            final Deque<Future<MessageSender>> currentWaiters = creditWaiters.get(sender);
+            if (currentWaiters != null) {
+                currentWaiters.remove(result);
+                if (currentWaiters.isEmpty() || !sender.isOpen()) {
+                    removeCreditWaiters(sender);
+                }
+            }
+            result.tryFail(new ServerErrorException(HttpURLConnection.HTTP_UNAVAILABLE,
+                    "no credit available for sending message"));
+        });
+        return result.map(s -> {
+            vertx.cancelTimer(timerId);
+            return s;
+        });
+    }
+
+    /**
+     * Checks if messages are waiting for a sender to be replenished with credit.
+     *
+     * @param sender The sender.
+     * @return {@code true} if messages are waiting for the sender.
+     */
+    final boolean isWaitingForCredit(final MessageSender sender) {
+        return creditWaiters.containsKey(sender);
+    }
+
+    /**
+     * Stops waiting for a sender to be replenished with credit.
+     * <p>
+     * Messages still waiting for credit are resumed so that sending them
+     * fails right away if the sender has been closed.
+     *
+     * @param sender The sender.
+     */
+    private void removeCreditWaiters(final MessageSender sender) {
+
+        final Deque<Future<MessageSender>> waiters = creditWaiters.remove(sender);
+        if (waiters != null) {
+            waiters.forEach(waiter -> waiter.tryComplete(sender));
+        }
+    }
+
+    private void onCreditReplenished(final MessageSender sender) {
+
+        final Deque<Future<MessageSender>> waiters = creditWaiters.remove(sender);
+        if (waiters == null) {
+            return;
+        }
+        int credit = sender.getCredit();
+        while (credit > 0 && !waiters.isEmpty()) {
+            if (waiters.poll().tryComplete(sender)) {
+                credit--;
+            }
+        }
+        if (!waiters.isEmpty()) {
+            final Deque<Future<MessageSender>> newWaiters = creditWaiters.get(sender);
+            if (newWaiters == null) {
+                creditWaiters.put(sender, waiters);
+                sender.sendQueueDrainHandler(replenished -> onCreditReplenished(sender));
+            } else {
+                // messages that started waiting while the previous waiters have been
+                // resumed need to wait for their turn
+                waiters.addAll(newWaiters);
+                creditWaiters.put(sender, waiters);
+            }
+        }
+    }
+
     /**
      * Measure the size of the payload for using in the metrics system.
      * <p>
@@ -1190,6 +1407,20 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
         return result;
     }
 
+    private Future<Device> checkDeviceContext(final DeviceUser device, final Span currentSpan) {
+
+        if (device.getDeviceContext() != null) {
+            // the tenant and the registration status have been looked up along with the credentials
+            currentSpan.log("using device context retrieved during authentication");
+            return isAdapterEnabled(device.getDeviceContext().getTenant()).map(tenant -> device);
+        }
+        return CompositeFuture.all(
+                getTenantConfiguration(device.getTenantId(), currentSpan.context())
+                        .compose(tenant -> isAdapterEnabled(tenant)),
+                checkDeviceRegistration(device, currentSpan.context()))
+                .map(ok -> device);
+    }
+
     private Future<Device> createLinks(final Device authenticatedDevice, final Span currentSpan) {
 
         final Future<MessageSender> telemetrySender = getTelemetrySender(authenticatedDevice.getTenantId());
@@ -1210,8 +1441,7 @@ public abstract class AbstractVertxBasedMqttProtocolAdapter<T extends ProtocolAd
     private Future<Device> registerHandlers(final MqttEndpoint endpoint, final Device authenticatedDevice) {
 
         endpoint.closeHandler(v -> close(endpoint, authenticatedDevice));
-        endpoint.publishHandler(
-                message -> handlePublishedMessage(new MqttContext(message, endpoint, authenticatedDevice)));
+        endpoint.publishHandler(newPublishHandler(endpoint, authenticatedDevice));
         endpoint.subscribeHandler(subscribeMsg -> onSubscribe(endpoint, authenticatedDevice, subscribeMsg));
         endpoint.unsubscribeHandler(unsubscribeMsg -> onUnsubscribe(endpoint, authenticatedDevice, unsubscribeMsg));
         metrics.incrementConnections(authenticatedDevice.getTenantId());
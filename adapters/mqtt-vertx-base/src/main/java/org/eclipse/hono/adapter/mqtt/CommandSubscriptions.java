@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.mqtt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.eclipse.hono.auth.Device;
+import org.eclipse.hono.client.CommandSubscription;
+import org.eclipse.hono.client.MessageConsumer;
+import org.eclipse.hono.util.CommandConstants;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+
+/**
+ * The command subscriptions of a connection to a device.
+ * <p>
+ * The topic filters that the device has subscribed to are kept in a {@link TopicFilterTrie}.
+ * Filters are registered in the trie using the long format of the command endpoint and
+ * request part. The tenant and device ID levels of the filters are registered as given
+ * by the device, i.e. an authenticated device's subscription to {@code c/+/+/q/#} is
+ * registered as {@code control/+/+/req/#}. A command received for a device is then matched
+ * against the device's subscriptions by means of its canonical topic name.
+ * <p>
+ * All subscriptions of a device share a single command consumer.
+ * <p>
+ * Instances of this class are not thread safe.
+ */
+final class CommandSubscriptions {
+
+    private final TopicFilterTrie<CommandSubscription> filters = new TopicFilterTrie<>();
+    private final Map<String, DeviceConsumer> consumers = new HashMap<>();
+
+    /**
+     * The command consumer of a device.
+     */
+    static final class DeviceConsumer {
+
+        private final String tenantId;
+        private final String deviceId;
+        private final List<Future<MessageConsumer>> waiters = new ArrayList<>(1);
+        private Future<MessageConsumer> consumer;
+
+        private DeviceConsumer(final String tenantId, final String deviceId) {
+            this.tenantId = tenantId;
+            this.deviceId = deviceId;
+        }
+
+        private void setConsumer(final Future<MessageConsumer> consumer) {
+            this.consumer = consumer;
+            // a future supports a single handler only, so the outcome
+            // is propagated to all subscriptions waiting for the consumer
+            consumer.setHandler(this::onConsumerCreated);
+        }
+
+        private void onConsumerCreated(final AsyncResult<MessageConsumer> creationAttempt) {
+            final List<Future<MessageConsumer>> completed = new ArrayList<>(waiters);
+            waiters.clear();
+            completed.forEach(waiter -> waiter.handle(creationAttempt));
+        }
+
+        private Future<MessageConsumer> getConsumer() {
+            final Future<MessageConsumer> result = Future.future();
+            if (consumer.isComplete()) {
+                result.handle(consumer);
+            } else {
+                waiters.add(result);
+            }
+            return result;
+        }
+
+        /**
+         * Gets the identifier of the tenant that the device belongs to.
+         *
+         * @return The tenant ID.
+         */
+        String getTenantId() {
+            return tenantId;
+        }
+
+        /**
+         * Gets the identifier of the device.
+         *
+         * @return The device ID.
+         */
+        String getDeviceId() {
+            return deviceId;
+        }
+
+        /**
+         * Closes the command consumer.
+         */
+        void close() {
+            if (consumer.succeeded()) {
+                consumer.result().close(null);
+            }
+        }
+    }
+
+    /**
+     * Gets the command consumer for the device of a subscription.
+     * <p>
+     * The consumer is created if the device does not have a consumer yet.
+     *
+     * @param subscription The subscription.
+     * @param consumerFactory The factory to use for creating the consumer.
+     * @return A future indicating the outcome of creating the consumer.
+     */
+    Future<MessageConsumer> getConsumer(
+            final CommandSubscription subscription,
+            final Supplier<Future<MessageConsumer>> consumerFactory) {
+
+        final String key = Device.asAddress(subscription.getTenant(), subscription.getDeviceId());
+        DeviceConsumer deviceConsumer = consumers.get(key);
+        if (deviceConsumer == null || deviceConsumer.consumer.failed()) {
+            deviceConsumer = new DeviceConsumer(subscription.getTenant(), subscription.getDeviceId());
+            consumers.put(key, deviceConsumer);
+            final Future<MessageConsumer> result = Future.future();
+            deviceConsumer.waiters.add(result);
+            deviceConsumer.setConsumer(consumerFactory.get());
+            return result;
+        }
+        return deviceConsumer.getConsumer();
+    }
+
+    /**
+     * Adds a subscription.
+     * <p>
+     * A subscription using the same topic filter replaces the existing subscription.
+     *
+     * @param subscription The subscription.
+     */
+    void add(final CommandSubscription subscription) {
+        final String filter = getFilter(subscription);
+        final CommandSubscription existing = find(filter, subscription);
+        if (existing != null) {
+            filters.remove(filter, existing);
+        }
+        filters.add(filter, subscription);
+    }
+
+    /**
+     * Removes a subscription.
+     * <p>
+     * The device's command consumer is forgotten about if the device has no
+     * other subscription left. It is the responsibility of the caller to close
+     * the consumer in this case.
+     *
+     * @param subscription The subscription.
+     * @return {@code true} if the device has no subscriptions left.
+     */
+    boolean remove(final CommandSubscription subscription) {
+        final String filter = getFilter(subscription);
+        final CommandSubscription existing = find(filter, subscription);
+        if (existing != null) {
+            filters.remove(filter, existing);
+        }
+        if (match(subscription.getTenant(), subscription.getDeviceId()) == null) {
+            consumers.remove(Device.asAddress(subscription.getTenant(), subscription.getDeviceId()));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets a subscription matching the commands for a device.
+     *
+     * @param tenantId The tenant that the device belongs to.
+     * @param deviceId The device.
+     * @return The subscription or {@code null} if the device has no subscription.
+     */
+    CommandSubscription match(final String tenantId, final String deviceId) {
+        final List<CommandSubscription> matches = filters.match(getTopic(tenantId, deviceId));
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    /**
+     * Gets the command consumers of all devices that have subscribed.
+     *
+     * @return The consumers.
+     */
+    Collection<DeviceConsumer> getConsumers() {
+        return consumers.values();
+    }
+
+    private CommandSubscription find(final String filter, final CommandSubscription subscription) {
+        for (final CommandSubscription existing : filters.get(filter)) {
+            if (existing.getEndpoint().equals(subscription.getEndpoint())
+                    && existing.getRequestPart().equals(subscription.getRequestPart())) {
+                return existing;
+            }
+        }
+        return null;
+    }
+
+    private static String getFilter(final CommandSubscription subscription) {
+        if (subscription.isAuthenticated()) {
+            // the tenant and device ID can be omitted by authenticated devices
+            // in which case the subscription matches the authenticated device only
+            return getTopic("+", "+") + "/#";
+        } else {
+            return getTopic(subscription.getTenant(), subscription.getDeviceId()) + "/#";
+        }
+    }
+
+    private static String getTopic(final String tenantId, final String deviceId) {
+        return String.format("%s/%s/%s/%s", CommandConstants.COMMAND_ENDPOINT, tenantId, deviceId,
+                CommandConstants.COMMAND_RESPONSE_REQUEST_PART);
+    }
+}
@@ -14,7 +14,6 @@
 package org.eclipse.hono.adapter.mqtt;
 
 import java.util.Objects;
-import java.util.Optional;
 
 import org.eclipse.hono.auth.Device;
 import org.eclipse.hono.util.MapBasedExecutionContext;
@@ -143,7 +142,7 @@ public final class MqttContext extends MapBasedExecutionContext {
      *         be determined from the message's topic.
      */
     public String tenant() {
-        return Optional.ofNullable(topic).map(t -> t.getTenantId()).orElse(null);
+        return topic == null ? null : topic.getTenantId();
     }
 
     /**
@@ -153,6 +152,6 @@ public final class MqttContext extends MapBasedExecutionContext {
      *         be determined from the message's topic.
      */
     public String endpoint() {
-        return Optional.ofNullable(topic).map(t -> t.getEndpoint()).orElse(null);
+        return topic == null ? null : topic.getEndpoint();
     }
 }
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.mqtt;
+
+import org.eclipse.hono.config.ProtocolAdapterProperties;
+
+
+/**
+ * Properties for configuring an MQTT based protocol adapter.
+ *
+ */
+public class MqttProtocolAdapterProperties extends ProtocolAdapterProperties {
+
+    /**
+     * The default maximum number of messages published by a device over a single
+     * connection that are being processed concurrently.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT_MESSAGES = 100;
+
+    private int maxInFlightMessages = DEFAULT_MAX_IN_FLIGHT_MESSAGES;
+
+    /**
+     * Gets the maximum number of messages published by a device over a single
+     * connection that are being processed concurrently.
+     * <p>
+     * The protocol adapter queues up to the same number of additional messages.
+     * Messages that arrive while the queue is full are discarded.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_MAX_IN_FLIGHT_MESSAGES}.
+     *
+     * @return The maximum number of messages.
+     */
+    public final int getMaxInFlightMessages() {
+        return maxInFlightMessages;
+    }
+
+    /**
+     * Sets the maximum number of messages published by a device over a single
+     * connection that are being processed concurrently.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_MAX_IN_FLIGHT_MESSAGES}.
+     *
+     * @param maxInFlightMessages The maximum number of messages.
+     * @throws IllegalArgumentException if the number is &lt; 1.
+     */
+    public final void setMaxInFlightMessages(final int maxInFlightMessages) {
+        if (maxInFlightMessages < 1) {
+            throw new IllegalArgumentException("max in-flight messages must be > 0");
+        }
+        this.maxInFlightMessages = maxInFlightMessages;
+    }
+}
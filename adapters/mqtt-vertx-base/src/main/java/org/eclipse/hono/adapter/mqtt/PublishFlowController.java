@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.mqtt;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.function.Function;
+
+import io.vertx.core.Future;
+
+/**
+ * Limits the number of messages published by a device over a single connection
+ * that are being processed concurrently.
+ * <p>
+ * Messages exceeding the limit are queued and are processed in the order of their
+ * arrival once the processing of previous messages has completed. The queue can hold
+ * as many messages as are allowed to be in flight. Messages that arrive while the queue
+ * is full are rejected.
+ * <p>
+ * The adapter sends the PUBACK for a QoS 1 message only after the message has been
+ * processed. A device that has a bounded number of unacknowledged messages is therefore
+ * slowed down to the rate at which its messages can be forwarded downstream.
+ * <p>
+ * Instances of this class are not thread safe. All methods must be invoked on the
+ * vert.x context of the connection.
+ */
+final class PublishFlowController {
+
+    private final int maxInFlight;
+    private final Function<MqttContext, Future<Void>> processor;
+    private final Deque<MqttContext> queue = new ArrayDeque<>();
+    private int inFlight;
+
+    /**
+     * Creates a new controller.
+     *
+     * @param maxInFlight The maximum number of messages being processed concurrently.
+     * @param processor The function to invoke for processing a message. The returned future
+     *                  needs to be completed once the processing of the message has finished.
+     * @throws NullPointerException if processor is {@code null}.
+     * @throws IllegalArgumentException if the maximum number of messages is &lt; 1.
+     */
+    PublishFlowController(final int maxInFlight, final Function<MqttContext, Future<Void>> processor) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("max in-flight messages must be > 0");
+        }
+        this.maxInFlight = maxInFlight;
+        this.processor = Objects.requireNonNull(processor);
+    }
+
+    /**
+     * Submits a message for processing.
+     *
+     * @param context The context of the message.
+     * @return {@code true} if the message is being processed or has been queued,
+     *         {@code false} if the message has been rejected because the queue is full.
+     */
+    boolean submit(final MqttContext context) {
+
+        if (inFlight < maxInFlight) {
+            process(context);
+            return true;
+        } else if (queue.size() < maxInFlight) {
+            queue.add(context);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Gets the number of messages that are currently being processed.
+     *
+     * @return The number of messages.
+     */
+    int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Gets the number of messages that are waiting to be processed.
+     *
+     * @return The number of messages.
+     */
+    int getQueued() {
+        return queue.size();
+    }
+
+    private void process(final MqttContext context) {
+
+        inFlight++;
+        final Future<Void> processing;
+        try {
+            processing = processor.apply(context);
+        } catch (final RuntimeException e) {
+            onProcessed();
+            throw e;
+        }
+        processing.setHandler(done -> onProcessed());
+    }
+
+    private void onProcessed() {
+        inFlight--;
+        final MqttContext next = queue.poll();
+        if (next != null) {
+            process(next);
+        }
+    }
+}
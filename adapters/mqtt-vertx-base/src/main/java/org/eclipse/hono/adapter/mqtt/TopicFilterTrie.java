@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.mqtt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A trie of MQTT topic filters.
+ * <p>
+ * Each level of a topic filter is represented by a node of the trie. Values are registered
+ * for topic filters which may contain the <em>single-level</em> ({@code +}) and
+ * <em>multi-level</em> ({@code #}) wildcards as defined by the
+ * <a href="http://docs.oasis-open.org/mqtt/mqtt/v3.1.1/os/mqtt-v3.1.1-os.html#_Toc398718106">
+ * MQTT 3.1.1 specification</a>. Finding the values of all filters matching a topic name
+ * requires a number of steps that is proportional to the number of levels of the topic name
+ * rather than to the number of registered filters.
+ * <p>
+ * Instances of this class are not thread safe.
+ *
+ * @param <T> The type of values registered for topic filters.
+ */
+final class TopicFilterTrie<T> {
+
+    private static final char LEVEL_SEPARATOR = '/';
+    private static final String SINGLE_LEVEL_WILDCARD = "+";
+    private static final String MULTI_LEVEL_WILDCARD = "#";
+
+    private final Node<T> root = new Node<>();
+    private int size;
+
+    /**
+     * A node of the trie representing a single level of a topic filter.
+     *
+     * @param <T> The type of values registered for topic filters.
+     */
+    private static final class Node<T> {
+
+        private Map<String, Node<T>> children;
+        private List<T> values;
+
+        private Node<T> getChild(final String level) {
+            return children == null ? null : children.get(level);
+        }
+
+        private Node<T> getOrCreateChild(final String level) {
+            if (children == null) {
+                children = new HashMap<>(4);
+            }
+            return children.computeIfAbsent(level, l -> new Node<>());
+        }
+
+        private boolean isEmpty() {
+            return (children == null || children.isEmpty()) && (values == null || values.isEmpty());
+        }
+    }
+
+    /**
+     * Registers a value for a topic filter.
+     * <p>
+     * A filter may have multiple values registered.
+     *
+     * @param filter The topic filter.
+     * @param value The value to register.
+     * @throws NullPointerException if any of the parameters are {@code null}.
+     * @throws IllegalArgumentException if the filter is not a valid MQTT topic filter.
+     */
+    void add(final String filter, final T value) {
+
+        Objects.requireNonNull(filter);
+        Objects.requireNonNull(value);
+
+        final List<String> levels = getFilterLevels(filter);
+        Node<T> node = root;
+        for (final String level : levels) {
+            node = node.getOrCreateChild(level);
+        }
+        if (node.values == null) {
+            node.values = new ArrayList<>(1);
+        }
+        node.values.add(value);
+        size++;
+    }
+
+    /**
+     * Removes a value that has been registered for a topic filter.
+     * <p>
+     * Nodes that are no longer needed are removed from the trie.
+     *
+     * @param filter The topic filter.
+     * @param value The value to remove.
+     * @return {@code true} if the value had been registered for the filter.
+     * @throws NullPointerException if any of the parameters are {@code null}.
+     * @throws IllegalArgumentException if the filter is not a valid MQTT topic filter.
+     */
+    boolean remove(final String filter, final T value) {
+
+        Objects.requireNonNull(filter);
+        Objects.requireNonNull(value);
+
+        final List<String> levels = getFilterLevels(filter);
+        final List<Node<T>> path = new ArrayList<>(levels.size() + 1);
+        Node<T> node = root;
+        path.add(node);
+        for (final String level : levels) {
+            node = node.getChild(level);
+            if (node == null) {
+                return false;
+            }
+            path.add(node);
+        }
+        if (node.values == null || !node.values.remove(value)) {
+            return false;
+        }
+        size--;
+        // prune the nodes that are no longer needed
+        for (int i = levels.size(); i > 0 && path.get(i).isEmpty(); i--) {
+            path.get(i - 1).children.remove(levels.get(i - 1));
+        }
+        return true;
+    }
+
+    /**
+     * Gets the values that have been registered for a topic filter.
+     * <p>
+     * In contrast to {@link #match(String)}, the given filter is not matched
+     * against the registered filters but needs to be equal to a registered filter.
+     *
+     * @param filter The topic filter.
+     * @return The values (may be empty).
+     * @throws NullPointerException if filter is {@code null}.
+     * @throws IllegalArgumentException if the filter is not a valid MQTT topic filter.
+     */
+    List<T> get(final String filter) {
+
+        Objects.requireNonNull(filter);
+
+        Node<T> node = root;
+        for (final String level : getFilterLevels(filter)) {
+            node = node.getChild(level);
+            if (node == null) {
+                return Collections.emptyList();
+            }
+        }
+        return node.values == null ? Collections.emptyList() : new ArrayList<>(node.values);
+    }
+
+    /**
+     * Gets the values of all topic filters that match a topic name.
+     * <p>
+     * Topic names starting with a {@code $} character are not matched by filters
+     * starting with a wildcard.
+     *
+     * @param topic The topic name. The name must not contain any wildcards.
+     * @return The values (may be empty).
+     * @throws NullPointerException if topic is {@code null}.
+     */
+    List<T> match(final String topic) {
+
+        Objects.requireNonNull(topic);
+
+        final List<T> result = new ArrayList<>();
+        final boolean skipRootWildcards = !topic.isEmpty() && topic.charAt(0) == '$';
+        match(root, topic, 0, skipRootWildcards, result);
+        return result;
+    }
+
+    private void match(
+            final Node<T> node,
+            final String topic,
+            final int levelStart,
+            final boolean skipWildcards,
+            final List<T> result) {
+
+        if (!skipWildcards) {
+            // a multi-level wildcard also matches the parent level
+            addValues(node.getChild(MULTI_LEVEL_WILDCARD), result);
+        }
+        if (levelStart > topic.length()) {
+            // all levels have been consumed
+            addValues(node, result);
+            return;
+        }
+        int levelEnd = topic.indexOf(LEVEL_SEPARATOR, levelStart);
+        if (levelEnd < 0) {
+            levelEnd = topic.length();
+        }
+        final Node<T> exact = node.getChild(topic.substring(levelStart, levelEnd));
+        if (exact != null) {
+            match(exact, topic, levelEnd + 1, false, result);
+        }
+        if (!skipWildcards) {
+            final Node<T> any = node.getChild(SINGLE_LEVEL_WILDCARD);
+            if (any != null) {
+                match(any, topic, levelEnd + 1, false, result);
+            }
+        }
+    }
+
+    private void addValues(final Node<T> node, final List<T> result) {
+        if (node != null && node.values != null) {
+            result.addAll(node.values);
+        }
+    }
+
+    /**
+     * Gets the number of values registered in this trie.
+     *
+     * @return The number of values.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Checks if any values are registered in this trie.
+     *
+     * @return {@code true} if no values are registered.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static List<String> getFilterLevels(final String filter) {
+
+        if (filter.isEmpty()) {
+            throw new IllegalArgumentException("topic filter must not be empty");
+        }
+        final List<String> levels = new ArrayList<>();
+        int levelStart = 0;
+        while (levelStart <= filter.length()) {
+            int levelEnd = filter.indexOf(LEVEL_SEPARATOR, levelStart);
+            if (levelEnd < 0) {
+                levelEnd = filter.length();
+            }
+            final String level = filter.substring(levelStart, levelEnd);
+            if (level.length() > 1 && (level.contains(SINGLE_LEVEL_WILDCARD) || level.contains(MULTI_LEVEL_WILDCARD))) {
+                throw new IllegalArgumentException("wildcards must occupy an entire level of the topic filter");
+            } else if (MULTI_LEVEL_WILDCARD.equals(level) && levelEnd < filter.length()) {
+                throw new IllegalArgumentException("multi-level wildcard must be the last level of the topic filter");
+            }
+            levels.add(level);
+            levelStart = levelEnd + 1;
+        }
+        return levels;
+    }
+}
@@ -31,6 +31,7 @@ import static org.mockito.Mockito.when;
 
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -42,13 +43,16 @@ import org.eclipse.hono.client.HonoClient;
 import org.eclipse.hono.client.MessageConsumer;
 import org.eclipse.hono.client.MessageSender;
 import org.eclipse.hono.client.RegistrationClient;
+import org.eclipse.hono.client.ServerErrorException;
 import org.eclipse.hono.client.TenantClient;
 import org.eclipse.hono.client.CommandConnection;
-import org.eclipse.hono.config.ProtocolAdapterProperties;
 import org.eclipse.hono.service.auth.DeviceUser;
 import org.eclipse.hono.service.auth.device.DeviceCredentials;
 import org.eclipse.hono.service.auth.device.HonoClientBasedAuthProvider;
 import org.eclipse.hono.service.auth.device.UsernamePasswordCredentials;
+import org.eclipse.hono.util.CredentialsConstants;
+import org.eclipse.hono.util.CredentialsObject;
+import org.eclipse.hono.util.DeviceContext;
 import org.eclipse.hono.util.EventConstants;
 import org.eclipse.hono.util.MessageHelper;
 import org.eclipse.hono.util.RegistrationConstants;
@@ -84,6 +88,7 @@ import io.vertx.mqtt.MqttServer;
 import io.vertx.mqtt.MqttTopicSubscription;
 import io.vertx.mqtt.messages.MqttPublishMessage;
 import io.vertx.mqtt.messages.MqttSubscribeMessage;
+import io.vertx.mqtt.messages.MqttUnsubscribeMessage;
 import io.vertx.proton.ProtonDelivery;
 
 /**
@@ -110,7 +115,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
     private RegistrationClient regClient;
     private TenantClient tenantClient;
     private HonoClientBasedAuthProvider usernamePasswordAuthProvider;
-    private ProtocolAdapterProperties config;
+    private MqttProtocolAdapterProperties config;
     private MqttAdapterMetrics metrics;
     private CommandConnection commandConnection;
     private Context context;
@@ -129,7 +134,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
             return null;
         }).when(context).runOnContext(any(Handler.class));
 
-        config = new ProtocolAdapterProperties();
+        config = new MqttProtocolAdapterProperties();
         config.setInsecurePortEnabled(true);
 
         metrics = mock(MqttAdapterMetrics.class);
@@ -206,7 +211,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
     public void testStartup(final TestContext ctx) {
 
         final MqttServer server = getMqttServer(false);
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
 
         final Async startup = ctx.async();
 
@@ -234,7 +239,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
         // GIVEN an adapter that is not connected to
         // all of its required services
         final MqttServer server = getMqttServer(false);
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
 
         // WHEN a client tries to connect
         final MqttAuth deviceCredentials = new MqttAuth("device@my-tenant", "irrelevant");
@@ -255,7 +260,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
         // GIVEN an adapter that does not require devices to authenticate
         config.setAuthenticationRequired(false);
         final MqttServer server = getMqttServer(false);
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
         forceClientMocksToConnected();
 
         // WHEN a device connects without providing credentials
@@ -287,7 +292,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
             resultHandler.handle(Future.succeededFuture(new DeviceUser("my-tenant", "4711")));
             return null;
         }).when(usernamePasswordAuthProvider).authenticate(any(DeviceCredentials.class), any(Handler.class));
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
         forceClientMocksToConnected();
 
         // WHEN a device of "my-tenant" tries to connect
@@ -309,7 +314,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
 
         // GIVEN an adapter that does require devices to authenticate
         final MqttServer server = getMqttServer(false);
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
 
         forceClientMocksToConnected();
 
@@ -334,7 +339,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
         // GIVEN an adapter requiring devices to authenticate endpoint
         final MqttServer server = getMqttServer(false);
         config.setAuthenticationRequired(true);
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
 
         forceClientMocksToConnected();
 
@@ -354,7 +359,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
 
         // GIVEN an adapter
         final MqttServer server = getMqttServer(false);
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
         forceClientMocksToConnected();
         doAnswer(invocation -> {
             final Handler<AsyncResult<DeviceUser>> resultHandler = invocation.getArgument(1);
@@ -376,6 +381,40 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
         verify(endpoint).closeHandler(any(Handler.class));
     }
 
+    /**
+     * Verifies that the adapter does not look up the tenant and the registration status
+     * of a device that have already been retrieved along with the device's credentials.
+     */
+    @SuppressWarnings({ "unchecked" })
+    @Test
+    public void testAuthenticatedMqttAdapterUsesDeviceContextRetrievedDuringAuthentication() {
+
+        // GIVEN an adapter
+        final MqttServer server = getMqttServer(false);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
+        forceClientMocksToConnected();
+        // which is connected to a Credentials service supporting the combined look up
+        final DeviceContext deviceContext = DeviceContext.from(
+                new CredentialsObject("4711", "sensor1", CredentialsConstants.SECRETS_TYPE_HASHED_PASSWORD),
+                TenantObject.from("DEFAULT_TENANT", true),
+                new JsonObject().put(RegistrationConstants.FIELD_ASSERTION, "token"));
+        doAnswer(invocation -> {
+            final Handler<AsyncResult<DeviceUser>> resultHandler = invocation.getArgument(1);
+            resultHandler.handle(Future.succeededFuture(new DeviceUser("DEFAULT_TENANT", "4711", deviceContext)));
+            return null;
+        }).when(usernamePasswordAuthProvider).authenticate(any(DeviceCredentials.class), any(Handler.class));
+
+        // WHEN a device tries to connect with valid credentials
+        final MqttEndpoint endpoint = getMqttEndpointAuthenticated();
+        adapter.handleEndpointConnection(endpoint);
+
+        // THEN the connection is established
+        verify(endpoint).accept(false);
+        // without looking up the tenant and the registration status again
+        verify(tenantClient, never()).get(anyString(), (SpanContext) any());
+        verify(regClient, never()).assertRegistration(anyString(), (String) any(), (SpanContext) any());
+    }
+
     /**
      * Verifies that unregistered devices with valid credentials cannot establish connection.
      */
@@ -385,7 +424,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
 
         // GIVEN an adapter
         final MqttServer server = getMqttServer(false);
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
         forceClientMocksToConnected();
         // which is connected to a Credentials service that has credentials on record for device 9999
         doAnswer(invocation -> {
@@ -421,7 +460,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
         // GIVEN an adapter that does not require devices to authenticate
         config.setAuthenticationRequired(false);
         final MqttServer server = getMqttServer(false);
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
 
         forceClientMocksToConnected();
 
@@ -447,7 +486,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
 
         // GIVEN an adapter
         final MqttServer server = getMqttServer(false);
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
 
         // WHEN a device publishes a message with a malformed topic
         final MqttPublishMessage msg = mock(MqttPublishMessage.class);
@@ -473,7 +512,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
 
         // GIVEN an adapter
         final MqttServer server = getMqttServer(false);
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
         givenAQoS0TelemetrySender();
 
         // WHEN an unknown device publishes a telemetry message
@@ -516,7 +555,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
                 .put(TenantConstants.FIELD_ADAPTERS_TYPE, ADAPTER_TYPE)
                 .put(TenantConstants.FIELD_ENABLED, false));
         when(tenantClient.get(eq("my-tenant"), (SpanContext) any())).thenReturn(Future.succeededFuture(myTenantConfig));
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
         forceClientMocksToConnected();
         final MessageSender sender = mock(MessageSender.class);
         when(messagingClient.getOrCreateTelemetrySender(anyString())).thenReturn(Future.succeededFuture(sender));
@@ -539,6 +578,143 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
                 }));
     }
 
+    /**
+     * Verifies that the adapter does not fail a message if the downstream sender has no
+     * credit but instead forwards the message once the sender has been replenished.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testUploadTelemetryMessageWaitsForCredit(final TestContext ctx) {
+
+        // GIVEN an adapter with a downstream telemetry sender that has no credit
+        final MqttServer server = getMqttServer(false);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
+        forceClientMocksToConnected();
+        final MessageSender sender = givenAQoS0TelemetrySender();
+        when(sender.isOpen()).thenReturn(true);
+        when(sender.getCredit()).thenReturn(0);
+
+        // WHEN a device publishes a telemetry message
+        final MqttPublishMessage msg = mock(MqttPublishMessage.class);
+        when(msg.topicName()).thenReturn(TelemetryConstants.TELEMETRY_ENDPOINT);
+        when(msg.qosLevel()).thenReturn(MqttQoS.AT_MOST_ONCE);
+        final Async upload = ctx.async();
+        final Future<Void> result = Future.future();
+        result.setHandler(ctx.asyncAssertSuccess(ok -> upload.complete()));
+        vertx.runOnContext(go -> {
+            adapter.uploadTelemetryMessage(
+                    newMqttContext(msg, mockEndpoint()),
+                    "my-tenant",
+                    "the-device",
+                    Buffer.buffer("test")).setHandler(result);
+
+            // THEN the message is not sent
+            verify(sender, never()).send(any(Message.class), (SpanContext) any());
+            // but waits for the sender to be replenished
+            final ArgumentCaptor<Handler<Void>> drainHandler = ArgumentCaptor.forClass(Handler.class);
+            verify(sender).sendQueueDrainHandler(drainHandler.capture());
+
+            // and WHEN the sender is replenished
+            when(sender.getCredit()).thenReturn(1);
+            drainHandler.getValue().handle(null);
+        });
+
+        // THEN the message is sent downstream
+        upload.await();
+        verify(sender).send(any(Message.class), (SpanContext) any());
+    }
+
+    /**
+     * Verifies that the adapter fails a message with a 503 if the downstream sender is not
+     * replenished with credit in time and that it stops waiting for the sender afterwards.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testUploadTelemetryMessageFailsIfSenderIsNotReplenished(final TestContext ctx) {
+
+        // GIVEN an adapter with a downstream telemetry sender that has no credit
+        final MqttServer server = getMqttServer(false);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
+        forceClientMocksToConnected();
+        final MessageSender sender = givenAQoS0TelemetrySender();
+        when(sender.isOpen()).thenReturn(true);
+        when(sender.getCredit()).thenReturn(0);
+
+        // WHEN a device publishes a telemetry message
+        final MqttPublishMessage msg = mock(MqttPublishMessage.class);
+        when(msg.topicName()).thenReturn(TelemetryConstants.TELEMETRY_ENDPOINT);
+        when(msg.qosLevel()).thenReturn(MqttQoS.AT_MOST_ONCE);
+        final Async upload = ctx.async();
+        vertx.runOnContext(go -> {
+            adapter.uploadTelemetryMessage(
+                    newMqttContext(msg, mockEndpoint()),
+                    "my-tenant",
+                    "the-device",
+                    Buffer.buffer("test")).setHandler(ctx.asyncAssertFailure(t -> {
+                        // THEN the upload fails once the sender has not been replenished in time
+                        ctx.assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, ((ServerErrorException) t).getErrorCode());
+                        // and the adapter no longer waits for the sender
+                        ctx.assertFalse(adapter.isWaitingForCredit(sender));
+                        upload.complete();
+                    }));
+            ctx.assertTrue(adapter.isWaitingForCredit(sender));
+        });
+
+        upload.await(3 * AbstractVertxBasedMqttProtocolAdapter.CREDIT_WAIT_TIMEOUT_MILLIS);
+        verify(sender, never()).send(any(Message.class), (SpanContext) any());
+    }
+
+    /**
+     * Verifies that the adapter stops waiting for a downstream sender to be replenished
+     * with credit once the sender has been closed.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testUploadTelemetryMessageStopsWaitingForClosedSender(final TestContext ctx) {
+
+        // GIVEN an adapter with a downstream telemetry sender that has no credit
+        final MqttServer server = getMqttServer(false);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
+        forceClientMocksToConnected();
+        final MessageSender sender = givenAQoS0TelemetrySender();
+        when(sender.isOpen()).thenReturn(true);
+        when(sender.getCredit()).thenReturn(0);
+
+        final MqttPublishMessage msg = mock(MqttPublishMessage.class);
+        when(msg.topicName()).thenReturn(TelemetryConstants.TELEMETRY_ENDPOINT);
+        when(msg.qosLevel()).thenReturn(MqttQoS.AT_MOST_ONCE);
+        final Async uploads = ctx.async(2);
+        vertx.runOnContext(go -> {
+            // and a message waiting for the sender to be replenished
+            adapter.uploadTelemetryMessage(
+                    newMqttContext(msg, mockEndpoint()),
+                    "my-tenant",
+                    "the-device",
+                    Buffer.buffer("test")).setHandler(ctx.asyncAssertSuccess(ok -> uploads.countDown()));
+            ctx.assertTrue(adapter.isWaitingForCredit(sender));
+
+            // WHEN the sender is closed
+            when(sender.isOpen()).thenReturn(false);
+            // and the device publishes another message
+            adapter.uploadTelemetryMessage(
+                    newMqttContext(msg, mockEndpoint()),
+                    "my-tenant",
+                    "the-device",
+                    Buffer.buffer("test")).setHandler(ctx.asyncAssertSuccess(ok -> uploads.countDown()));
+
+            // THEN the adapter no longer waits for the sender
+            ctx.assertFalse(adapter.isWaitingForCredit(sender));
+        });
+
+        // and both messages are passed on to the sender right away
+        uploads.await(AbstractVertxBasedMqttProtocolAdapter.CREDIT_WAIT_TIMEOUT_MILLIS / 2);
+        verify(sender, times(2)).send(any(Message.class), (SpanContext) any());
+    }
+
     /**
      * Verifies that the adapter waits for an event being settled and accepted by a downstream peer before sending a
      * PUBACK package to the device.
@@ -582,7 +758,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
             final BiConsumer<AbstractVertxBasedMqttProtocolAdapter<?>, MqttContext> upload) {
 
         final MqttServer server = getMqttServer(false);
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
 
         // WHEN a device publishes a message using QoS 1
         final MqttEndpoint endpoint = mockEndpoint();
@@ -620,7 +796,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
         final Future<ProtonDelivery> outcome = Future.future();
         givenAnEventSenderForOutcome(outcome);
         final MqttServer server = getMqttServer(false);
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
 
         // WHEN a device publishes an event
         final Buffer payload = Buffer.buffer("some payload");
@@ -656,7 +832,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
         // GIVEN an adapter with a downstream telemetry consumer
         final MessageSender sender = givenAQoS1TelemetrySender(Future.succeededFuture());
         final MqttServer server = getMqttServer(false);
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
 
         // WHEN a device publishes a message with its retain flag set
         final MqttEndpoint endpoint = mockEndpoint();
@@ -696,7 +872,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
         final Future<ProtonDelivery> outcome = Future.succeededFuture(mock(ProtonDelivery.class));
         final MessageSender sender = givenAnEventSenderForOutcome(outcome);
         final MqttServer server = getMqttServer(false);
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
         final MqttEndpoint endpoint = mockEndpoint();
         when(endpoint.keepAliveTimeSeconds()).thenReturn(10); // 10 seconds
 
@@ -741,7 +917,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
         final Future<ProtonDelivery> outcome = Future.succeededFuture(mock(ProtonDelivery.class));
         final MessageSender sender = givenAnEventSenderForOutcome(outcome);
         final MqttServer server = getMqttServer(false);
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
         final MqttEndpoint endpoint = mockEndpoint();
         when(endpoint.isConnected()).thenReturn(true);
 
@@ -780,6 +956,61 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
 
     }
 
+    /**
+     * Verifies that the adapter uses a single command consumer for a device
+     * that subscribes to commands using multiple topic filters and that the
+     * consumer is closed once the device has unsubscribed from all of them.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testOnSubscribeSharesCommandConsumerAmongTopicFilters(final TestContext ctx) {
+
+        // GIVEN a device connected to an adapter
+        givenAnEventSenderForOutcome(Future.succeededFuture(mock(ProtonDelivery.class)));
+        final MqttServer server = getMqttServer(false);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
+        final MqttEndpoint endpoint = mockEndpoint();
+        when(endpoint.isConnected()).thenReturn(true);
+
+        // WHEN the device subscribes to commands using the verbose and the short topic filter
+        when(commandConnection.createCommandConsumer(eq("tenant"), eq("deviceId"), any(Handler.class), any(Handler.class), anyLong()))
+            .thenReturn(Future.succeededFuture(mock(MessageConsumer.class)));
+        final List<MqttTopicSubscription> subscriptions = new ArrayList<>();
+        subscriptions.add(newMockTopicSubscription("control/tenant/deviceId/req/#", MqttQoS.AT_MOST_ONCE));
+        subscriptions.add(newMockTopicSubscription("c/tenant/deviceId/q/#", MqttQoS.AT_MOST_ONCE));
+        final MqttSubscribeMessage msg = mock(MqttSubscribeMessage.class);
+        when(msg.messageId()).thenReturn(15);
+        when(msg.topicSubscriptions()).thenReturn(subscriptions);
+
+        adapter.onSubscribe(endpoint, null, msg);
+
+        // THEN both subscriptions are accepted
+        final ArgumentCaptor<List<MqttQoS>> codeCaptor = ArgumentCaptor.forClass(List.class);
+        verify(endpoint).subscribeAcknowledge(eq(15), codeCaptor.capture());
+        assertThat(codeCaptor.getValue(), is(Arrays.asList(MqttQoS.AT_MOST_ONCE, MqttQoS.AT_MOST_ONCE)));
+        // using a single command consumer
+        verify(commandConnection).createCommandConsumer(eq("tenant"), eq("deviceId"), any(Handler.class), any(Handler.class), anyLong());
+
+        // and WHEN the device unsubscribes from one of the filters
+        adapter.onUnsubscribe(endpoint, null, newUnsubscribeMessage(16, "c/tenant/deviceId/q/#"));
+        // THEN the command consumer is kept open
+        verify(commandConnection, never()).closeCommandConsumer(anyString(), anyString());
+
+        // and WHEN the device unsubscribes from the other filter as well
+        adapter.onUnsubscribe(endpoint, null, newUnsubscribeMessage(17, "control/tenant/deviceId/req/#"));
+        // THEN the command consumer is closed
+        verify(commandConnection).closeCommandConsumer("tenant", "deviceId");
+    }
+
+    private static MqttUnsubscribeMessage newUnsubscribeMessage(final int messageId, final String filter) {
+        final MqttUnsubscribeMessage result = mock(MqttUnsubscribeMessage.class);
+        when(result.messageId()).thenReturn(messageId);
+        when(result.topics()).thenReturn(Collections.singletonList(filter));
+        return result;
+    }
+
     private static MqttTopicSubscription newMockTopicSubscription(final String filter, final MqttQoS qos) {
         final MqttTopicSubscription result = mock(MqttTopicSubscription.class);
         when(result.qualityOfService()).thenReturn(qos);
@@ -799,7 +1030,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
 
         // GIVEN an adapter with downstream telemetry & event consumers
         final MqttServer server = getMqttServer(false);
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
         givenAQoS1TelemetrySender(Future.succeededFuture(mock(ProtonDelivery.class)));
         givenAnEventSenderForOutcome(Future.succeededFuture(mock(ProtonDelivery.class)));
 
@@ -872,9 +1103,9 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
         return server;
     }
 
-    private AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> getAdapter(final MqttServer server) {
+    private AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> getAdapter(final MqttServer server) {
 
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = new AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties>() {
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = new AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties>() {
 
             @Override
             protected String getTypeName() {
@@ -948,7 +1179,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
     public void testConnectionMetrics() {
 
         final MqttServer server = getMqttServer(false);
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
 
         forceClientMocksToConnected();
         doAnswer(invocation -> {
@@ -980,7 +1211,7 @@ public class AbstractVertxBasedMqttProtocolAdapterTest {
         config.setAuthenticationRequired(false);
 
         final MqttServer server = getMqttServer(false);
-        final AbstractVertxBasedMqttProtocolAdapter<ProtocolAdapterProperties> adapter = getAdapter(server);
+        final AbstractVertxBasedMqttProtocolAdapter<MqttProtocolAdapterProperties> adapter = getAdapter(server);
 
         forceClientMocksToConnected();
 
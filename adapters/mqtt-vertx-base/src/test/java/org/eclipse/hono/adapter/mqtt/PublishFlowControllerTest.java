@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.mqtt;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import io.vertx.core.Future;
+import io.vertx.mqtt.MqttEndpoint;
+import io.vertx.mqtt.messages.MqttPublishMessage;
+
+/**
+ * Tests verifying behavior of {@link PublishFlowController}.
+ *
+ */
+public class PublishFlowControllerTest {
+
+    /**
+     * Time out each test after 5 seconds.
+     */
+    @Rule
+    public final Timeout timeout = Timeout.seconds(5);
+
+    /**
+     * Verifies that the controller processes no more than the configured number
+     * of messages concurrently, queues up to the same number of additional messages
+     * and rejects messages once the queue is full.
+     */
+    @Test
+    public void testSubmitLimitsNumberOfMessagesInFlight() {
+
+        final Map<MqttContext, Future<Void>> processing = new LinkedHashMap<>();
+        final PublishFlowController controller = new PublishFlowController(2, ctx -> {
+            final Future<Void> result = Future.future();
+            processing.put(ctx, result);
+            return result;
+        });
+        final List<MqttContext> messages = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            messages.add(new MqttContext(mock(MqttPublishMessage.class), mock(MqttEndpoint.class)));
+        }
+
+        // WHEN a device publishes more messages than are allowed to be in flight
+        assertTrue(controller.submit(messages.get(0)));
+        assertTrue(controller.submit(messages.get(1)));
+        assertTrue(controller.submit(messages.get(2)));
+        assertTrue(controller.submit(messages.get(3)));
+
+        // THEN only the allowed number of messages are being processed
+        assertThat(controller.getInFlight(), is(2));
+        assertThat(controller.getQueued(), is(2));
+        assertThat(new ArrayList<>(processing.keySet()), is(Arrays.asList(messages.get(0), messages.get(1))));
+        // and messages are rejected once the queue is full
+        assertFalse(controller.submit(messages.get(4)));
+
+        // and WHEN the processing of a message fails
+        processing.get(messages.get(0)).fail("downstream unavailable");
+
+        // THEN the next message is processed
+        assertThat(controller.getInFlight(), is(2));
+        assertThat(controller.getQueued(), is(1));
+        assertThat(new ArrayList<>(processing.keySet()),
+                is(Arrays.asList(messages.get(0), messages.get(1), messages.get(2))));
+        // and the remaining messages are processed in order
+        processing.get(messages.get(1)).complete();
+        processing.get(messages.get(2)).complete();
+        processing.get(messages.get(3)).complete();
+        assertThat(controller.getInFlight(), is(0));
+        assertThat(controller.getQueued(), is(0));
+        assertThat(new ArrayList<>(processing.keySet()), is(messages.subList(0, 4)));
+    }
+}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.adapter.mqtt;
+
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+/**
+ * Tests verifying behavior of {@link TopicFilterTrie}.
+ *
+ */
+public class TopicFilterTrieTest {
+
+    /**
+     * Time out each test after 10 seconds.
+     */
+    @Rule
+    public final Timeout timeout = Timeout.seconds(10);
+
+    private TopicFilterTrie<String> trie;
+
+    /**
+     * Sets up the fixture.
+     */
+    @Before
+    public void setUp() {
+        trie = new TopicFilterTrie<>();
+    }
+
+    /**
+     * Verifies that the single-level wildcard matches exactly one level
+     * and that the multi-level wildcard matches any number of levels including
+     * the parent level.
+     */
+    @Test
+    public void testMatchSupportsWildcards() {
+
+        trie.add("control/+/+/req/#", "any-device");
+        trie.add("control/tenant/device/req/#", "device");
+        trie.add("control/tenant/+/req", "tenant");
+        trie.add("#", "all");
+
+        assertThat(trie.match("control/tenant/device/req/1234/light"), hasItems("any-device", "device", "all"));
+        assertThat(trie.match("control/tenant/device/req/1234/light").size(), is(3));
+        assertThat(trie.match("control/tenant/other/req"), hasItems("any-device", "tenant", "all"));
+        assertThat(trie.match("control/tenant/other/req").size(), is(3));
+        assertThat(trie.match("control/tenant/other"), is(Collections.singletonList("all")));
+        // empty levels are matched by the single-level wildcard
+        assertThat(trie.match("control///req/").size(), is(2));
+    }
+
+    /**
+     * Verifies that topic names starting with a <em>$</em> character are not matched
+     * by filters starting with a wildcard.
+     */
+    @Test
+    public void testMatchIgnoresLeadingWildcardsForSystemTopics() {
+
+        trie.add("#", "all");
+        trie.add("+/status", "status");
+        trie.add("$SYS/#", "system");
+
+        assertThat(trie.match("$SYS/status"), is(Collections.singletonList("system")));
+    }
+
+    /**
+     * Verifies that invalid topic filters are rejected.
+     */
+    @Test
+    public void testAddRejectsInvalidFilters() {
+
+        for (final String filter : new String[] { "", "control/#/req", "control/tenant+/#", "control/#req" }) {
+            try {
+                trie.add(filter, "value");
+                throw new AssertionError("should have rejected filter: " + filter);
+            } catch (final IllegalArgumentException e) {
+                // expected
+            }
+        }
+        assertTrue(trie.isEmpty());
+    }
+
+    /**
+     * Verifies that removing values prunes the trie so that subscriptions
+     * of a large number of devices can be added and removed repeatedly.
+     */
+    @Test
+    public void testRemoveSupportsSubscriptionChurn() {
+
+        final int devices = 100_000;
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < devices; i++) {
+                trie.add("control/tenant/device-" + i + "/req/#", "device-" + i);
+            }
+            assertThat(trie.size(), is(devices));
+            assertThat(trie.match("control/tenant/device-4711/req/1/light"), is(Collections.singletonList("device-4711")));
+            for (int i = 0; i < devices; i++) {
+                assertTrue(trie.remove("control/tenant/device-" + i + "/req/#", "device-" + i));
+            }
+            assertTrue(trie.isEmpty());
+            assertTrue(trie.match("control/tenant/device-4711/req/1/light").isEmpty());
+        }
+        assertFalse(trie.remove("control/tenant/device-1/req/#", "device-1"));
+        assertTrue(trie.get("control/tenant/device-1/req/#").isEmpty());
+    }
+}
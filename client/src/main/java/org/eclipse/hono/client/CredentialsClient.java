@@ -13,8 +13,11 @@
 
 package org.eclipse.hono.client;
 
+import java.net.HttpURLConnection;
+
 import io.vertx.core.json.JsonObject;
 import org.eclipse.hono.util.CredentialsObject;
+import org.eclipse.hono.util.DeviceContext;
 
 import io.vertx.core.Future;
 
@@ -68,4 +71,42 @@ public interface CredentialsClient extends RequestResponseClient {
      * @see RequestResponseClient#setRequestTimeout(long)
      */
     Future<CredentialsObject> get(String type, String authId, JsonObject clientContext);
+
+    /**
+     * Gets the credentials, tenant configuration and registration assertion for a device
+     * in a single request.
+     * <p>
+     * This is equivalent to retrieving the credentials by type and authentication identifier,
+     * retrieving the configuration of the tenant and asserting the registration status of
+     * the device that the credentials belong to, but requires a single round trip only.
+     * <p>
+     * This default implementation returns a future that is failed with a {@link ServerErrorException}
+     * having a 501 status code, which indicates to callers that they need to fall back to retrieving
+     * the credentials using {@link #get(String, String, JsonObject)}, the tenant using the
+     * {@link TenantClient} and the registration assertion using the {@link RegistrationClient}.
+     *
+     * @param type The type of credentials to retrieve.
+     * @param authId The authentication identifier used in the credentials to retrieve.
+     * @param clientContext Optional bag of properties that can be used to identify the device
+     *                      (may be {@code null}).
+     * @return A future indicating the result of the operation.
+     *         <p>
+     *         The future will succeed if a response with status 200 has been received from the
+     *         credentials service.
+     *         <p>
+     *         Otherwise, the future will fail with a {@link ServiceInvocationException} containing
+     *         the (error) status code returned by the service. A status code of 501 indicates that
+     *         the service does not support the combined look up so that the information needs to
+     *         be retrieved from the individual services instead.
+     * @throws NullPointerException if type or authentication identifier are {@code null}.
+     * @see RequestResponseClient#setRequestTimeout(long)
+     */
+    default Future<DeviceContext> getDeviceContext(
+            final String type,
+            final String authId,
+            final JsonObject clientContext) {
+
+        return Future.failedFuture(new ServerErrorException(HttpURLConnection.HTTP_NOT_IMPLEMENTED,
+                "combined look up not supported"));
+    }
 }
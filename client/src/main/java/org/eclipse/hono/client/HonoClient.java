@@ -13,6 +13,7 @@
 
 package org.eclipse.hono.client;
 
+import java.util.Objects;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -20,10 +21,12 @@ import org.apache.qpid.proton.amqp.Symbol;
 import org.apache.qpid.proton.message.Message;
 import org.eclipse.hono.client.impl.HonoClientImpl;
 import org.eclipse.hono.config.ClientConfigProperties;
+import org.eclipse.hono.util.DeviceContext;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
 import io.vertx.proton.ProtonClientOptions;
 import io.vertx.proton.ProtonConnection;
 import io.vertx.proton.ProtonDelivery;
@@ -363,6 +366,35 @@ public interface HonoClient {
      */
     Future<CredentialsClient> getOrCreateCredentialsClient(String tenantId);
 
+    /**
+     * Gets the credentials, tenant configuration and registration assertion for a device
+     * using a single request to the <em>Credentials</em> service.
+     * <p>
+     * This default implementation sends the request using the client returned by
+     * {@link #getOrCreateCredentialsClient(String)}.
+     *
+     * @param tenantId The tenant that the device belongs to.
+     * @param type The type of credentials to retrieve.
+     * @param authId The authentication identifier used in the credentials to retrieve.
+     * @param clientContext Optional bag of properties that can be used to identify the device
+     *                      (may be {@code null}).
+     * @return A future indicating the outcome of the operation.
+     * @throws NullPointerException if any of tenant, type or authentication identifier are {@code null}.
+     * @see CredentialsClient#getDeviceContext(String, String, JsonObject)
+     */
+    default Future<DeviceContext> getDeviceContext(
+            final String tenantId,
+            final String type,
+            final String authId,
+            final JsonObject clientContext) {
+
+        Objects.requireNonNull(tenantId);
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(authId);
+        return getOrCreateCredentialsClient(tenantId)
+                .compose(client -> client.getDeviceContext(type, authId, clientContext));
+    }
+
     /**
      * Gets a client for interacting with Hono's <em>Tenant</em> API.
      * <p>
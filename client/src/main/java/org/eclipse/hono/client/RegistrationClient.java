@@ -13,6 +13,10 @@
 
 package org.eclipse.hono.client;
 
+import java.net.HttpURLConnection;
+
+import org.eclipse.hono.util.RegistrationConstants;
+
 import io.opentracing.SpanContext;
 import io.vertx.core.Future;
 import io.vertx.core.json.JsonObject;
@@ -102,6 +106,53 @@ public interface RegistrationClient extends RequestResponseClient {
         return assertRegistration(deviceId, gatewayId);
     }
 
+    /**
+     * Asserts the registration status of all devices that a gateway is authorized
+     * to act on behalf of.
+     * <p>
+     * Protocol adapters can use this operation to retrieve the assertions for all devices
+     * connected via a gateway with a single request instead of asserting each device's
+     * registration status individually.
+     * <p>
+     * The service may limit the number of devices included in a response. In this case
+     * the response contains the identifier of the first device that has been left out
+     * and the remaining devices can be retrieved by invoking this method again using
+     * that identifier as the first device ID.
+     * <p>
+     * This default implementation returns a future that is failed with a
+     * {@link ServerErrorException} with status <em>501 Not Implemented</em>.
+     *
+     * @param gatewayId The ID of the gateway.
+     * @param firstDeviceId The ID of the device to start with or {@code null} to start with
+     *         the device having the lowest identifier.
+     * @param context The currently active OpenTracing span. An implementation
+     *         should use this as the parent for any span it creates for tracing
+     *         the execution of this operation.
+     * @return A future indicating the result of the operation.
+     *         <p>
+     *         The future will succeed if a response with status 200 has been received from the
+     *         registration service. The JSON object will then contain a JSON object under key
+     *         {@link RegistrationConstants#FIELD_DEVICES} which maps the identifiers of the
+     *         gateway's (enabled) devices to the same values that are returned by
+     *         {@link #assertRegistration(String, String, SpanContext)} for the device.
+     *         If the service has left out any devices, the JSON object also contains the
+     *         identifier of the first device that has been left out under key
+     *         {@link RegistrationConstants#FIELD_NEXT_DEVICE_ID}.
+     *         <p>
+     *         Otherwise, the future will fail with a {@link ServiceInvocationException} containing
+     *         the (error) status code returned by the service. Status <em>501</em> indicates
+     *         that the service does not support this operation.
+     * @throws NullPointerException if gateway ID is {@code null}.
+     * @see RequestResponseClient#setRequestTimeout(long)
+     */
+    default Future<JsonObject> assertGatewayDevices(
+            final String gatewayId,
+            final String firstDeviceId,
+            final SpanContext context) {
+
+        return Future.failedFuture(new ServerErrorException(HttpURLConnection.HTTP_NOT_IMPLEMENTED));
+    }
+
     /**
      * Gets registration information for a device.
      *
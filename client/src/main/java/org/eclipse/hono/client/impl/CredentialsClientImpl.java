@@ -13,7 +13,6 @@
 
 package org.eclipse.hono.client.impl;
 
-import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.util.Objects;
 import java.util.UUID;
@@ -22,21 +21,22 @@ import io.vertx.core.buffer.Buffer;
 
 import org.eclipse.hono.client.ClientErrorException;
 import org.eclipse.hono.client.CredentialsClient;
+import org.eclipse.hono.client.ServerErrorException;
 import org.eclipse.hono.client.StatusCodeMapper;
 import org.eclipse.hono.config.ClientConfigProperties;
 import org.eclipse.hono.util.CacheDirective;
 import org.eclipse.hono.util.CredentialsConstants;
 import org.eclipse.hono.util.CredentialsObject;
 import org.eclipse.hono.util.CredentialsResult;
+import org.eclipse.hono.util.DeviceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.json.DecodeException;
 import io.vertx.core.json.JsonObject;
 import io.vertx.proton.ProtonConnection;
 
@@ -44,10 +44,9 @@ import io.vertx.proton.ProtonConnection;
  * A Vertx-Proton based client for Hono's Credentials API.
  *
  */
-public class CredentialsClientImpl extends AbstractRequestResponseClient<CredentialsResult<CredentialsObject>> implements CredentialsClient {
+public class CredentialsClientImpl extends AbstractRequestResponseClient<CredentialsResult<JsonObject>> implements CredentialsClient {
 
     private static Logger LOG = LoggerFactory.getLogger(CredentialsClientImpl.class);
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
     /**
      * Creates a new client for accessing the Credentials service.
@@ -72,8 +71,14 @@ public class CredentialsClientImpl extends AbstractRequestResponseClient<Credent
         return String.format("cred-client-%s", UUID.randomUUID());
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The payload is kept as JSON because its structure depends on the
+     * operation that the response belongs to.
+     */
     @Override
-    protected final CredentialsResult<CredentialsObject> getResult(
+    protected final CredentialsResult<JsonObject> getResult(
             final int status,
             final String contentType,
             final Buffer payload,
@@ -83,11 +88,8 @@ public class CredentialsClientImpl extends AbstractRequestResponseClient<Credent
             return CredentialsResult.from(status);
         } else {
             try {
-                return CredentialsResult.from(
-                        status,
-                        OBJECT_MAPPER.readValue(payload.getBytes(), CredentialsObject.class),
-                        cacheDirective);
-            } catch (final IOException e) {
+                return CredentialsResult.from(status, new JsonObject(payload), cacheDirective);
+            } catch (final DecodeException e) {
                 LOG.warn("received malformed payload from Credentials service", e);
                 return CredentialsResult.from(HttpURLConnection.HTTP_INTERNAL_ERROR);
             }
@@ -160,17 +162,15 @@ public class CredentialsClientImpl extends AbstractRequestResponseClient<Credent
         Objects.requireNonNull(type);
         Objects.requireNonNull(authId);
 
-        final Future<CredentialsResult<CredentialsObject>> responseTracker = Future.future();
-        final JsonObject specification = new JsonObject()
-                .put(CredentialsConstants.FIELD_TYPE, type)
-                .put(CredentialsConstants.FIELD_AUTH_ID, authId)
-                .mergeIn(clientContext);
-
-        createAndSendRequest(CredentialsConstants.CredentialsAction.get.toString(), specification.toBuffer(), responseTracker.completer());
+        final Future<CredentialsResult<JsonObject>> responseTracker = Future.future();
+        createAndSendRequest(
+                CredentialsConstants.CredentialsAction.get.toString(),
+                getSearchCriteria(type, authId, clientContext).toBuffer(),
+                responseTracker.completer());
         return responseTracker.map(response -> {
             switch(response.getStatus()) {
             case HttpURLConnection.HTTP_OK:
-                return response.getPayload();
+                return mapPayload(response, CredentialsObject.class);
             case HttpURLConnection.HTTP_NOT_FOUND:
                 throw new ClientErrorException(response.getStatus(), "no such credentials");
             default:
@@ -178,4 +178,61 @@ public class CredentialsClientImpl extends AbstractRequestResponseClient<Credent
             }
         });
     }
+
+    /**
+     * Invokes the <em>Get Device Context</em> operation of Hono's
+     * <a href="https://www.eclipse.org/hono/api/Credentials-API">Credentials API</a>
+     * on the service represented by the <em>sender</em> and <em>receiver</em> links.
+     */
+    @Override
+    public final Future<DeviceContext> getDeviceContext(final String type, final String authId, final JsonObject clientContext) {
+
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(authId);
+
+        final Future<CredentialsResult<JsonObject>> responseTracker = Future.future();
+        createAndSendRequest(
+                CredentialsConstants.CredentialsAction.getDeviceContext.toString(),
+                getSearchCriteria(type, authId, clientContext).toBuffer(),
+                responseTracker.completer());
+        return responseTracker.map(response -> {
+            switch(response.getStatus()) {
+            case HttpURLConnection.HTTP_OK:
+                try {
+                    return DeviceContext.fromJson(response.getPayload());
+                } catch (final IllegalArgumentException e) {
+                    LOG.debug("received malformed device context from Credentials service", e);
+                    throw new ServerErrorException(HttpURLConnection.HTTP_INTERNAL_ERROR, "malformed device context");
+                }
+            case HttpURLConnection.HTTP_NOT_FOUND:
+                throw new ClientErrorException(response.getStatus(), "no such device");
+            default:
+                throw StatusCodeMapper.from(response);
+            }
+        });
+    }
+
+    private static JsonObject getSearchCriteria(final String type, final String authId, final JsonObject clientContext) {
+
+        final JsonObject specification = new JsonObject()
+                .put(CredentialsConstants.FIELD_TYPE, type)
+                .put(CredentialsConstants.FIELD_AUTH_ID, authId);
+        if (clientContext != null) {
+            specification.mergeIn(clientContext);
+        }
+        return specification;
+    }
+
+    private static <T> T mapPayload(final CredentialsResult<JsonObject> response, final Class<T> type) {
+
+        if (response.getPayload() == null) {
+            return null;
+        }
+        try {
+            return response.getPayload().mapTo(type);
+        } catch (final IllegalArgumentException e) {
+            LOG.debug("received malformed payload from Credentials service", e);
+            throw new ServerErrorException(HttpURLConnection.HTTP_INTERNAL_ERROR, "malformed payload");
+        }
+    }
 }
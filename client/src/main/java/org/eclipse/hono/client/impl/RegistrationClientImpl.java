@@ -14,7 +14,9 @@
 package org.eclipse.hono.client.impl;
 
 import java.net.HttpURLConnection;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
@@ -56,6 +58,14 @@ public class RegistrationClientImpl extends AbstractRequestResponseClient<Regist
 
     private static final Logger LOG = LoggerFactory.getLogger(RegistrationClientImpl.class);
 
+    /**
+     * The requests waiting for the outcome of an <em>assert gateway devices</em>
+     * request that is already in flight, indexed by gateway ID.
+     * <p>
+     * Only accessed on this client's context.
+     */
+    private final Map<TriTuple<String, String, String>, List<Future<RegistrationResult>>> pendingGatewayDevicesRequests = new HashMap<>();
+
     /**
      * Creates a new client for accessing the Device Registration service.
      * 
@@ -360,4 +370,66 @@ public class RegistrationClientImpl extends AbstractRequestResponseClient<Regist
             }
         });
     }
+
+    /**
+     * Invokes the <em>Assert Gateway Devices</em> operation of Hono's
+     * <a href="https://www.eclipse.org/hono/api/Device-Registration-API">Device Registration API</a>
+     * on the service represented by the <em>sender</em> and <em>receiver</em> links.
+     * <p>
+     * The response is cached (if a cache is configured) according to the cache directive
+     * returned by the service, using a separate cache entry for each first device ID.
+     * Concurrent invocations for the same gateway and first device ID are served
+     * by a single request to the service.
+     */
+    @Override
+    public final Future<JsonObject> assertGatewayDevices(
+            final String gatewayId,
+            final String firstDeviceId,
+            final SpanContext parent) {
+
+        Objects.requireNonNull(gatewayId);
+
+        final TriTuple<String, String, String> key = TriTuple.of(RegistrationConstants.ACTION_ASSERT_GATEWAY_DEVICES, gatewayId, firstDeviceId);
+        final Span span = newChildSpan(parent, "assert Gateway Devices");
+        span.setTag(MessageHelper.APP_PROPERTY_TENANT_ID, getTenantId());
+        span.setTag(MessageHelper.APP_PROPERTY_GATEWAY_ID, gatewayId);
+        final AtomicBoolean cacheHit = new AtomicBoolean(true);
+        return getResponseFromCache(key).recover(t -> {
+            cacheHit.set(false);
+            return this.<RegistrationResult> executeOrRunOnContext(regResult -> {
+                final List<Future<RegistrationResult>> pendingRequests = pendingGatewayDevicesRequests.get(key);
+                if (pendingRequests != null) {
+                    LOG.trace("waiting for outcome of pending request [gateway: {}, first device: {}]", gatewayId, firstDeviceId);
+                    pendingRequests.add(regResult);
+                } else {
+                    final List<Future<RegistrationResult>> newPendingRequests = new ArrayList<>();
+                    newPendingRequests.add(regResult);
+                    pendingGatewayDevicesRequests.put(key, newPendingRequests);
+                    final Buffer payload = firstDeviceId == null ? null
+                            : new JsonObject().put(RegistrationConstants.FIELD_FIRST_DEVICE_ID, firstDeviceId).toBuffer();
+                    createAndSendRequest(
+                            RegistrationConstants.ACTION_ASSERT_GATEWAY_DEVICES,
+                            createDeviceIdProperties(gatewayId),
+                            payload,
+                            RegistrationConstants.CONTENT_TYPE_APPLICATION_JSON,
+                            response -> {
+                                pendingGatewayDevicesRequests.remove(key).forEach(request -> request.handle(response));
+                            },
+                            key,
+                            span);
+                }
+            });
+        }).map(result -> {
+            TracingHelper.TAG_CACHE_HIT.set(span, cacheHit.get());
+            span.finish();
+            switch(result.getStatus()) {
+            case HttpURLConnection.HTTP_OK:
+                return result.getPayload();
+            case HttpURLConnection.HTTP_FORBIDDEN:
+                throw new ClientErrorException(result.getStatus(), "gateway unknown or disabled");
+            default:
+                throw StatusCodeMapper.from(result);
+            }
+        });
+    }
 }
@@ -19,10 +19,28 @@ package org.eclipse.hono.config;
  */
 public class ProtocolAdapterProperties extends ServiceConfigProperties {
 
+    /**
+     * The minimum number of milliseconds after which an event loop can be considered
+     * blocked for the purpose of sampling its stack.
+     * <p>
+     * The event loop is checked using a heartbeat that is sent every <em>threshold / 2</em>
+     * milliseconds, so the threshold needs to be at least 2 milliseconds.
+     */
+    public static final long MIN_EVENT_LOOP_BLOCKED_SAMPLING_THRESHOLD = 2L;
+    /**
+     * The default maximum number of credentials validations that may be waiting
+     * for a thread of the validation pool.
+     */
+    public static final int DEFAULT_CREDENTIALS_VALIDATION_QUEUE_SIZE = 1000;
+
     private boolean authenticationRequired = true;
     private boolean jmsVendorPropsEnabled = false;
     private boolean defaultsEnabled = true;
     private long eventLoopBlockedCheckTimeout = 5000L;
+    private long eventLoopBlockedSamplingThreshold = 1000L;
+    private String eventLoopBlockedSamplesPath;
+    private int credentialsValidationPoolSize = Runtime.getRuntime().availableProcessors();
+    private int credentialsValidationQueueSize = DEFAULT_CREDENTIALS_VALIDATION_QUEUE_SIZE;
 
     /**
      * Checks whether the protocol adapter always authenticates devices using their provided credentials as defined
@@ -154,4 +172,122 @@ public class ProtocolAdapterProperties extends ServiceConfigProperties {
     public final void setEventLoopBlockedCheckTimeout(final long eventLoopBlockedCheckTimeout) {
         this.eventLoopBlockedCheckTimeout = eventLoopBlockedCheckTimeout;
     }
+
+    /**
+     * Gets the amount of time after which the protocol adapter's vert.x event loop
+     * is considered blocked for the purpose of sampling its stack.
+     * <p>
+     * Default value of the threshold is 1000 milliseconds.
+     *
+     * @return The threshold in milliseconds.
+     */
+    public final long getEventLoopBlockedSamplingThreshold() {
+        return eventLoopBlockedSamplingThreshold;
+    }
+
+    /**
+     * Sets the amount of time after which the protocol adapter's vert.x event loop
+     * is considered blocked for the purpose of sampling its stack.
+     * <p>
+     * Default value of the threshold is 1000 milliseconds. The threshold must be at least
+     * {@link #MIN_EVENT_LOOP_BLOCKED_SAMPLING_THRESHOLD} milliseconds because the event loop
+     * is checked using a heartbeat that is sent every <em>threshold / 2</em> milliseconds.
+     *
+     * @param threshold The threshold in milliseconds.
+     * @throws IllegalArgumentException if threshold is &lt; {@link #MIN_EVENT_LOOP_BLOCKED_SAMPLING_THRESHOLD}.
+     */
+    public final void setEventLoopBlockedSamplingThreshold(final long threshold) {
+        if (threshold < MIN_EVENT_LOOP_BLOCKED_SAMPLING_THRESHOLD) {
+            throw new IllegalArgumentException("threshold must be >= " + MIN_EVENT_LOOP_BLOCKED_SAMPLING_THRESHOLD);
+        }
+        this.eventLoopBlockedSamplingThreshold = threshold;
+    }
+
+    /**
+     * Gets the path to the directory that the stack samples of a blocked
+     * vert.x event loop are written to.
+     * <p>
+     * The samples are written in the <em>collapsed stack</em> format which
+     * can be rendered into a flame graph. The default value of this property is
+     * {@code null} which means that the event loop is not being sampled.
+     *
+     * @return The path to the directory or {@code null} if sampling is disabled.
+     */
+    public final String getEventLoopBlockedSamplesPath() {
+        return eventLoopBlockedSamplesPath;
+    }
+
+    /**
+     * Sets the path to the directory that the stack samples of a blocked
+     * vert.x event loop are written to.
+     * <p>
+     * The samples are written in the <em>collapsed stack</em> format which
+     * can be rendered into a flame graph. The default value of this property is
+     * {@code null} which means that the event loop is not being sampled.
+     *
+     * @param path The path to the directory or {@code null} to disable sampling.
+     */
+    public final void setEventLoopBlockedSamplesPath(final String path) {
+        this.eventLoopBlockedSamplesPath = path;
+    }
+
+    /**
+     * Gets the number of threads used for validating credentials provided by devices.
+     * <p>
+     * Validations that are expensive in terms of CPU, e.g. verifying a password hash,
+     * are executed on a dedicated pool of worker threads.
+     * <p>
+     * The default value of this property is the number of available processors.
+     *
+     * @return The number of threads.
+     */
+    public final int getCredentialsValidationPoolSize() {
+        return credentialsValidationPoolSize;
+    }
+
+    /**
+     * Sets the number of threads used for validating credentials provided by devices.
+     * <p>
+     * The default value of this property is the number of available processors.
+     *
+     * @param poolSize The number of threads.
+     * @throws IllegalArgumentException if the pool size is &lt; 1.
+     */
+    public final void setCredentialsValidationPoolSize(final int poolSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("pool size must be > 0");
+        }
+        this.credentialsValidationPoolSize = poolSize;
+    }
+
+    /**
+     * Gets the maximum number of credentials validations that may be waiting
+     * for a thread of the validation pool.
+     * <p>
+     * Authentication attempts of devices are rejected right away if the maximum
+     * number of waiting validations has been reached.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_CREDENTIALS_VALIDATION_QUEUE_SIZE}.
+     *
+     * @return The maximum number of waiting validations.
+     */
+    public final int getCredentialsValidationQueueSize() {
+        return credentialsValidationQueueSize;
+    }
+
+    /**
+     * Sets the maximum number of credentials validations that may be waiting
+     * for a thread of the validation pool.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_CREDENTIALS_VALIDATION_QUEUE_SIZE}.
+     *
+     * @param queueSize The maximum number of waiting validations.
+     * @throws IllegalArgumentException if the queue size is &lt; 0.
+     */
+    public final void setCredentialsValidationQueueSize(final int queueSize) {
+        if (queueSize < 0) {
+            throw new IllegalArgumentException("queue size must be >= 0");
+        }
+        this.credentialsValidationQueueSize = queueSize;
+    }
 }
@@ -27,6 +27,20 @@ public final class CredentialsConstants extends RequestResponseApiConstants {
     public static final String FIELD_SECRETS                     = "secrets";
     public static final String FIELD_CREDENTIALS_TOTAL           = "total";
 
+    /* device context fields */
+    /**
+     * The name of the field that contains the credentials in a <em>get device context</em> response.
+     */
+    public static final String FIELD_CONTEXT_CREDENTIALS         = "credentials";
+    /**
+     * The name of the field that contains the tenant configuration in a <em>get device context</em> response.
+     */
+    public static final String FIELD_CONTEXT_TENANT              = "tenant";
+    /**
+     * The name of the field that contains the registration assertion in a <em>get device context</em> response.
+     */
+    public static final String FIELD_CONTEXT_REGISTRATION        = "registration";
+
     /* secrets fields */
     public static final String FIELD_SECRETS_PWD_HASH            = "pwd-hash";
     public static final String FIELD_SECRETS_SALT                = "salt";
@@ -74,9 +88,13 @@ public final class CredentialsConstants extends RequestResponseApiConstants {
 
     /**
      * Request actions that belong to the Credentials API.
+     * <p>
+     * The <em>getDeviceContext</em> action retrieves a device's credentials together with
+     * its tenant's configuration and an assertion of the device's registration status
+     * in a single request.
      */
     public enum CredentialsAction {
-        get, add, update, remove, unknown;
+        get, getDeviceContext, add, update, remove, unknown;
 
         /**
          * Construct a CredentialsAction from a subject.
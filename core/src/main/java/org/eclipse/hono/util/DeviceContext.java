@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.util;
+
+import java.util.Objects;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The information a protocol adapter needs for connecting a device.
+ * <p>
+ * A device context consists of the credentials on record for an authentication
+ * identifier, the configuration of the tenant that the device belongs to and
+ * an assertion of the device's registration status. It is the result of the
+ * <em>get device context</em> operation of the Credentials API.
+ */
+public final class DeviceContext {
+
+    private final CredentialsObject credentials;
+    private final TenantObject tenant;
+    private final JsonObject registrationAssertion;
+
+    private DeviceContext(
+            final CredentialsObject credentials,
+            final TenantObject tenant,
+            final JsonObject registrationAssertion) {
+
+        this.credentials = credentials;
+        this.tenant = tenant;
+        this.registrationAssertion = registrationAssertion;
+    }
+
+    /**
+     * Creates a new device context from its constituents.
+     *
+     * @param credentials The credentials on record for the device.
+     * @param tenant The configuration of the tenant that the device belongs to.
+     * @param registrationAssertion The assertion of the device's registration status
+     *                              as returned by the Device Registration API's
+     *                              <em>assert</em> operation.
+     * @return The device context.
+     * @throws NullPointerException if any of the parameters is {@code null}.
+     */
+    public static DeviceContext from(
+            final CredentialsObject credentials,
+            final TenantObject tenant,
+            final JsonObject registrationAssertion) {
+
+        Objects.requireNonNull(credentials);
+        Objects.requireNonNull(tenant);
+        Objects.requireNonNull(registrationAssertion);
+        return new DeviceContext(credentials, tenant, registrationAssertion);
+    }
+
+    /**
+     * Creates a new device context from the JSON payload of a
+     * <em>get device context</em> response.
+     *
+     * @param json The payload of the response.
+     * @return The device context.
+     * @throws NullPointerException if json is {@code null}.
+     * @throws IllegalArgumentException if the payload does not contain all of
+     *         the device context's constituents or if any of them is malformed.
+     */
+    public static DeviceContext fromJson(final JsonObject json) {
+
+        Objects.requireNonNull(json);
+
+        final Object credentials = json.getValue(CredentialsConstants.FIELD_CONTEXT_CREDENTIALS);
+        final Object tenant = json.getValue(CredentialsConstants.FIELD_CONTEXT_TENANT);
+        final Object registration = json.getValue(CredentialsConstants.FIELD_CONTEXT_REGISTRATION);
+
+        if (credentials instanceof JsonObject && tenant instanceof JsonObject && registration instanceof JsonObject) {
+            return new DeviceContext(
+                    ((JsonObject) credentials).mapTo(CredentialsObject.class),
+                    ((JsonObject) tenant).mapTo(TenantObject.class),
+                    (JsonObject) registration);
+        } else {
+            throw new IllegalArgumentException("device context is incomplete");
+        }
+    }
+
+    /**
+     * Gets the identifier of the device that this context belongs to.
+     *
+     * @return The device identifier.
+     */
+    public String getDeviceId() {
+        return credentials.getDeviceId();
+    }
+
+    /**
+     * Gets the credentials on record for the device.
+     *
+     * @return The credentials.
+     */
+    public CredentialsObject getCredentials() {
+        return credentials;
+    }
+
+    /**
+     * Gets the configuration of the tenant that the device belongs to.
+     *
+     * @return The tenant.
+     */
+    public TenantObject getTenant() {
+        return tenant;
+    }
+
+    /**
+     * Gets the assertion of the device's registration status.
+     *
+     * @return The payload of the Device Registration API's <em>assert</em>
+     *         operation, containing the signed assertion token and the
+     *         device's default properties (if any).
+     */
+    public JsonObject getRegistrationAssertion() {
+        return registrationAssertion;
+    }
+}
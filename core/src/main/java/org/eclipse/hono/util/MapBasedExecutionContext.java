@@ -15,7 +15,6 @@ package org.eclipse.hono.util;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Optional;
 
 /**
  * An execution context that stores properties in a {@code Map}.
@@ -23,6 +22,14 @@ import java.util.Optional;
  */
 public class MapBasedExecutionContext implements ExecutionContext {
 
+    /**
+     * The initial capacity of the map backing a context.
+     * <p>
+     * Contexts are created for every message being processed and
+     * usually hold a handful of entries only.
+     */
+    private static final int INITIAL_CAPACITY = 4;
+
     private Map<String, Object> data;
 
     /**
@@ -54,9 +61,11 @@ public class MapBasedExecutionContext implements ExecutionContext {
     @Override
     @SuppressWarnings("unchecked")
     public final <T> T get(final String key, final T defaultValue) {
-        return Optional.ofNullable(getData().get(key)).map(value -> {
-            return (T) value;
-        }).orElse(defaultValue);
+        if (data == null) {
+            return defaultValue;
+        }
+        final Object value = data.get(key);
+        return value == null ? defaultValue : (T) value;
     }
 
     @Override
@@ -74,9 +83,9 @@ public class MapBasedExecutionContext implements ExecutionContext {
     }
 
     private Map<String, Object> getData() {
-        return Optional.ofNullable(data).orElseGet(() -> {
-            data = new HashMap<>();
-            return data;
-        });
+        if (data == null) {
+            data = new HashMap<>(INITIAL_CAPACITY);
+        }
+        return data;
     }
 }
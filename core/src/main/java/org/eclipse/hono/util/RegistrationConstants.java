@@ -40,6 +40,10 @@ public final class RegistrationConstants extends RequestResponseApiConstants {
      * The AMQP 1.0 <em>subject</em> to use for the <em>update device registration</em> operation.
      */
     public static final String ACTION_UPDATE     = "update";
+    /**
+     * The AMQP 1.0 <em>subject</em> to use for the <em>assert gateway devices</em> operation.
+     */
+    public static final String ACTION_ASSERT_GATEWAY_DEVICES = "assertGatewayDevices";
 
     /**
      * The name of the field in a response to the <em>assert device registration</em> operation
@@ -57,6 +61,24 @@ public final class RegistrationConstants extends RequestResponseApiConstants {
      * by the device.
      */
     public static final String FIELD_DEFAULTS     = "defaults";
+    /**
+     * The name of the field in a response to the <em>assert gateway devices</em> operation
+     * that contains the registration status assertions of the devices connected via the gateway,
+     * indexed by device identifier.
+     */
+    public static final String FIELD_DEVICES      = "devices";
+    /**
+     * The name of the field in a request for the <em>assert gateway devices</em> operation
+     * that contains the identifier of the device to start the (sorted) list of included
+     * devices with.
+     */
+    public static final String FIELD_FIRST_DEVICE_ID = "first-device-id";
+    /**
+     * The name of the field in a response to the <em>assert gateway devices</em> operation
+     * that contains the identifier of the first device that has been left out of the response.
+     * The field is not included if the response contains the assertions of all remaining devices.
+     */
+    public static final String FIELD_NEXT_DEVICE_ID = "next-device-id";
 
     /**
      * The name of the Device Registration API endpoint.
@@ -64,7 +86,7 @@ public final class RegistrationConstants extends RequestResponseApiConstants {
     public static final String REGISTRATION_ENDPOINT = "registration";
 
     private static final List<String> ACTIONS = Arrays.asList(ACTION_ASSERT, ACTION_REGISTER,
-            ACTION_GET, ACTION_DEREGISTER, ACTION_UPDATE);
+            ACTION_GET, ACTION_DEREGISTER, ACTION_UPDATE, ACTION_ASSERT_GATEWAY_DEVICES);
 
     /**
      * The vert.x event bus address to which inbound registration messages are published.
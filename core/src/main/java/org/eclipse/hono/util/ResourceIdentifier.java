@@ -12,9 +12,7 @@
  *******************************************************************************/
 package org.eclipse.hono.util;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import java.util.Objects;
 
 /**
@@ -43,6 +41,10 @@ import java.util.Objects;
  * <li>telemetry/DEFAULT_TENANT</li>
  * <li>telemetry/DEFAULT_TENANT/</li>
  * </ol>
+ * <p>
+ * The <em>endpoint</em> and <em>tenant</em> segments of identifiers that are parsed from
+ * strings are taken from a cache of recently parsed segments if possible. Identifiers for the
+ * same endpoint and tenant therefore usually share the same string instances for these segments.
  *
  */
 public final class ResourceIdentifier {
@@ -50,17 +52,27 @@ public final class ResourceIdentifier {
     private static final int IDX_ENDPOINT = 0;
     private static final int IDX_TENANT_ID = 1;
     private static final int IDX_RESOURCE_ID = 2;
+    private static final char SEPARATOR = '/';
+    /**
+     * The number of slots of the segment cache (must be a power of two).
+     */
+    private static final int SEGMENT_CACHE_SIZE = 1024;
+    private static final int MAX_CACHED_SEGMENT_LENGTH = 64;
+    /**
+     * A direct-mapped cache of endpoint and tenant segments.
+     * <p>
+     * The cache is accessed without synchronization. This is safe because
+     * strings are immutable and a stale or lost entry only results in a
+     * new string being created for a segment.
+     */
+    private static final String[] SEGMENT_CACHE = new String[SEGMENT_CACHE_SIZE];
+
     private String[] resourcePath;
     private String resource;
     private String basePath;
 
     private ResourceIdentifier(final String resource, final boolean assumeDefaultTenant) {
-        final String[] path = resource.split("\\/");
-        final List<String> pathSegments = new ArrayList<>(Arrays.asList(path));
-        if (assumeDefaultTenant) {
-            pathSegments.add(1, Constants.DEFAULT_TENANT);
-        }
-        setResourcePath(pathSegments.toArray(new String[pathSegments.size()]));
+        setResourcePath(parse(resource, assumeDefaultTenant));
     }
 
     private ResourceIdentifier(final String endpoint, final String tenantId, final String resourceId) {
@@ -79,11 +91,11 @@ public final class ResourceIdentifier {
     }
 
     private ResourceIdentifier(final String[] path) {
-        setResourcePath(path);
+        setResourcePath(Arrays.copyOf(path, path.length));
     }
 
     private void setResourcePath(final String[] path) {
-        final List<String> pathSegments = new ArrayList<>();
+        int length = 0;
         boolean pathContainsNullSegment = false;
         for (final String segment : path) {
             if (segment == null) {
@@ -91,17 +103,85 @@ public final class ResourceIdentifier {
             } else if (pathContainsNullSegment) {
                 throw new IllegalArgumentException("path may contain trailing null segments only");
             } else {
-                pathSegments.add(segment);
+                length++;
             }
         }
-        this.resourcePath = pathSegments.toArray(new String[pathSegments.size()]);
+        // the given array is always owned by this identifier
+        // so we only need to copy it if it contains trailing null segments
+        this.resourcePath = length == path.length ? path : Arrays.copyOf(path, length);
         if (resourcePath.length > IDX_TENANT_ID && resourcePath[IDX_TENANT_ID].length() == 0) {
             resourcePath[IDX_TENANT_ID] = null;
         }
         if (resourcePath.length > IDX_RESOURCE_ID && resourcePath[IDX_RESOURCE_ID].length() == 0) {
             resourcePath[IDX_RESOURCE_ID] = null;
         }
-        createStringRepresentation();
+    }
+
+    /**
+     * Splits a resource string into its path segments.
+     * <p>
+     * The string is split at forward slashes in a single pass. Like {@link String#split(String)},
+     * trailing empty segments are discarded.
+     *
+     * @param resource The resource string.
+     * @param assumeDefaultTenant {@code true} if the default tenant should be inserted
+     *                            as the second segment.
+     * @return The segments.
+     * @throws IllegalArgumentException if the string consists of separators only.
+     */
+    private static String[] parse(final String resource, final boolean assumeDefaultTenant) {
+
+        int end = resource.length();
+        while (end > 0 && resource.charAt(end - 1) == SEPARATOR) {
+            end--;
+        }
+        if (end == 0 && !resource.isEmpty()) {
+            throw new IllegalArgumentException("resource must contain a non-empty segment");
+        }
+        int segments = 1;
+        for (int i = 0; i < end; i++) {
+            if (resource.charAt(i) == SEPARATOR) {
+                segments++;
+            }
+        }
+        final String[] path = new String[assumeDefaultTenant ? segments + 1 : segments];
+        int idx = 0;
+        int segmentStart = 0;
+        for (int i = 0; i <= end; i++) {
+            if (i == end || resource.charAt(i) == SEPARATOR) {
+                if (idx <= IDX_TENANT_ID) {
+                    path[idx++] = getCachedSegment(resource, segmentStart, i);
+                } else {
+                    path[idx++] = resource.substring(segmentStart, i);
+                }
+                if (idx == IDX_TENANT_ID && assumeDefaultTenant) {
+                    path[idx++] = Constants.DEFAULT_TENANT;
+                }
+                segmentStart = i + 1;
+            }
+        }
+        return path;
+    }
+
+    private static String getCachedSegment(final String resource, final int start, final int end) {
+
+        final int length = end - start;
+        if (length > MAX_CACHED_SEGMENT_LENGTH) {
+            return resource.substring(start, end);
+        }
+        // same hash code as String.hashCode() but without creating the substring
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + resource.charAt(i);
+        }
+        final int slot = (hash ^ (hash >>> 16)) & (SEGMENT_CACHE_SIZE - 1);
+        final String cached = SEGMENT_CACHE[slot];
+        if (cached != null && cached.length() == length && resource.regionMatches(start, cached, 0, length)) {
+            return cached;
+        }
+        final String segment = resource.substring(start, end);
+        SEGMENT_CACHE[slot] = segment;
+        return segment;
     }
 
     /**
@@ -125,14 +205,12 @@ public final class ResourceIdentifier {
         return b.toString();
     }
 
-    private void createStringRepresentation() {
-        resource = createStringRepresentation(0);
-
+    private String createBasePath() {
         final StringBuilder b = new StringBuilder(getEndpoint());
         if (getTenantId() != null) {
             b.append("/").append(getTenantId());
         }
-        basePath = b.toString();
+        return b.toString();
     }
 
     /**
@@ -271,6 +349,11 @@ public final class ResourceIdentifier {
      */
     @Override
     public String toString() {
+        // the string representation is created lazily because it is not needed
+        // for most of the identifiers parsed from addresses and topic names
+        if (resource == null) {
+            resource = createStringRepresentation(0);
+        }
         return resource;
     }
 
@@ -281,6 +364,9 @@ public final class ResourceIdentifier {
      * @return A string consisting of the properties separated by a forward slash.
      */
     public String getBasePath() {
+        if (basePath == null) {
+            basePath = createBasePath();
+        }
         return basePath;
     }
 
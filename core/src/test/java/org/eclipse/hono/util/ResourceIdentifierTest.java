@@ -184,6 +184,20 @@ public class ResourceIdentifierTest {
         assertThat(id.toPath()[1], is("second"));
     }
 
+    /**
+     * Verifies that a resource identifier created from a path
+     * does not modify nor share the given array.
+     */
+    @Test
+    public void testFromPathDoesNotShareGivenPath() {
+        final String[] path = new String[]{"telemetry", "", "4711"};
+        final ResourceIdentifier id = ResourceIdentifier.fromPath(path);
+        assertNull(id.getTenantId());
+        assertThat(path[1], is(""));
+        path[2] = "other";
+        assertThat(id.getResourceId(), is("4711"));
+    }
+
     /**
      * Verifies that a resource identifier cannot be created from
      * a path that contains non-trailing {@code null} segments.
@@ -201,4 +215,52 @@ public class ResourceIdentifierTest {
     public void testFromPathFailsForPathStartingWithNullSegment() {
         ResourceIdentifier.fromPath(new String[]{null, "second", "last"});
     }
+
+    /**
+     * Verifies that a resource string is split into the same segments
+     * as by means of a regular expression.
+     */
+    @Test
+    public void testFromStringSplitsSegmentsLikeRegex() {
+
+        for (final String resource : new String[] {
+                "", "telemetry", "telemetry/", "telemetry//", "telemetry//4711", "/telemetry/tenant",
+                "telemetry/tenant/4711/", "control///req/cmd-req-id/light", "a/b/c/d/e/f/" }) {
+            final String[] expected = resource.split("\\/");
+            final String[] path = ResourceIdentifier.fromString(resource).toPath();
+            assertThat(resource, path.length, is(expected.length));
+            for (int i = 0; i < path.length; i++) {
+                if ((i == 1 || i == 2) && expected[i].isEmpty()) {
+                    assertNull(resource, path[i]);
+                } else {
+                    assertThat(resource, path[i], is(expected[i]));
+                }
+            }
+        }
+    }
+
+    /**
+     * Verifies that resource identifiers parsed from strings share the
+     * instances of their endpoint and tenant segments.
+     */
+    @Test
+    public void testFromStringSharesEndpointAndTenantSegments() {
+
+        final ResourceIdentifier first = ResourceIdentifier.fromString(new String("telemetry/my-tenant/4711"));
+        final ResourceIdentifier second = ResourceIdentifier.fromString(new String("telemetry/my-tenant/4712"));
+        assertSame(first.getEndpoint(), second.getEndpoint());
+        assertSame(first.getTenantId(), second.getTenantId());
+        assertThat(second.getResourceId(), is("4712"));
+        assertThat(second.toString(), is("telemetry/my-tenant/4712"));
+        assertThat(second.getBasePath(), is("telemetry/my-tenant"));
+    }
+
+    /**
+     * Verifies that a resource identifier cannot be created from a string
+     * that consists of separators only.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromStringFailsForSeparatorsOnly() {
+        ResourceIdentifier.fromString("///");
+    }
 }
@@ -13,6 +13,7 @@
 package org.eclipse.hono.service;
 
 import java.net.HttpURLConnection;
+import java.nio.file.Paths;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.BiConsumer;
@@ -35,6 +36,8 @@ import org.eclipse.hono.client.TenantClient;
 import org.eclipse.hono.config.AbstractConfig;
 import org.eclipse.hono.config.ProtocolAdapterProperties;
 import org.eclipse.hono.service.auth.ValidityBasedTrustOptions;
+import org.eclipse.hono.service.metric.Metrics;
+import org.eclipse.hono.service.metric.NoopBasedMetrics;
 import org.eclipse.hono.service.monitoring.ConnectionEventProducer;
 import org.eclipse.hono.util.Constants;
 import org.eclipse.hono.util.CredentialsConstants;
@@ -78,14 +81,23 @@ public abstract class AbstractProtocolAdapterBase<T extends ProtocolAdapterPrope
      */
     protected static final String CONTENT_TYPE_OCTET_STREAM = "application/octet-stream";
 
+    private static final Metrics NOOP_METRICS = new NoopBasedMetrics();
+
     private HonoClient messagingClient;
     private HonoClient registrationServiceClient;
     private HonoClient tenantServiceClient;
     private HonoClient credentialsServiceClient;
     private CommandConnection commandConnection;
+    /**
+     * Indicates whether the Device Registration service supports asserting
+     * all devices connected via a gateway with a single request.
+     */
+    private boolean gatewayDevicesAssertionSupported = true;
 
     private ConnectionEventProducer connectionEventProducer;
 
+    private EventLoopBlockedSampler eventLoopBlockedSampler;
+
     private final ConnectionEventProducer.Context connectionEventProducerContext = new ConnectionEventProducer.Context() {
 
         @Override
@@ -325,11 +337,24 @@ public abstract class AbstractProtocolAdapterBase<T extends ProtocolAdapterPrope
                     "Command and Control service",
                     this::onCommandConnectionEstablished,
                     this::onCommandConnectionLost);
+            startEventLoopBlockedSampler();
             doStart(result);
         }
         return result;
     }
 
+    private void startEventLoopBlockedSampler() {
+
+        final String samplesPath = getConfig().getEventLoopBlockedSamplesPath();
+        if (!Strings.isNullOrEmpty(samplesPath) && Context.isOnEventLoopThread()) {
+            eventLoopBlockedSampler = new EventLoopBlockedSampler(
+                    vertx,
+                    getConfig().getEventLoopBlockedSamplingThreshold(),
+                    Paths.get(samplesPath));
+            eventLoopBlockedSampler.start();
+        }
+    }
+
     /**
      * Invoked after the adapter has started up.
      * <p>
@@ -347,6 +372,9 @@ public abstract class AbstractProtocolAdapterBase<T extends ProtocolAdapterPrope
     protected final Future<Void> stopInternal() {
 
         LOG.info("stopping protocol adapter");
+        if (eventLoopBlockedSampler != null) {
+            eventLoopBlockedSampler.stop();
+        }
         final Future<Void> result = Future.future();
         final Future<Void> doStopResult = Future.future();
         doStop(doStopResult);
@@ -681,6 +709,86 @@ public abstract class AbstractProtocolAdapterBase<T extends ProtocolAdapterPrope
                 });
     }
 
+    /**
+     * Gets the metrics that this adapter reports to.
+     * <p>
+     * This default implementation returns a no-op implementation.
+     * Subclasses collecting metrics should override this method.
+     *
+     * @return The metrics.
+     */
+    protected Metrics getMetrics() {
+        return NOOP_METRICS;
+    }
+
+    /**
+     * Reports the time it took to complete a stage of processing a message uploaded
+     * by a device to this adapter's metrics.
+     * <p>
+     * Adapters invoke this method from the callbacks that they register on the outcome
+     * of a stage anyway, so that timing a message does not require any additional objects
+     * on the upload path.
+     *
+     * @param stage The name of the processing stage, e.g.
+     *              {@link org.eclipse.hono.service.metric.MetricsTags#VALUE_STAGE_TOTAL}.
+     * @param endpoint The endpoint that the message has been uploaded to.
+     * @param qos The delivery semantics requested by the device.
+     * @param startNanos The value of {@link System#nanoTime()} at the start of the stage.
+     * @throws NullPointerException if any of stage, endpoint or qos is {@code null}.
+     */
+    protected final void reportUploadStage(
+            final String stage,
+            final String endpoint,
+            final String qos,
+            final long startNanos) {
+
+        Objects.requireNonNull(stage);
+        Objects.requireNonNull(endpoint);
+        Objects.requireNonNull(qos);
+
+        getMetrics().reportUploadStage(stage, endpoint, qos, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Reports the time it takes to complete a stage of processing a message uploaded
+     * by a device to this adapter's metrics once the stage has completed.
+     * <p>
+     * The time is reported regardless of the outcome of the stage. Stages that are
+     * executed concurrently, e.g. the look ups of the tenant configuration, the registration
+     * assertion and the downstream sender, should use the same start time so that
+     * their durations can be compared.
+     *
+     * @param <R> The type of the stage's result.
+     * @param stage The name of the processing stage, e.g.
+     *              {@link org.eclipse.hono.service.metric.MetricsTags#VALUE_STAGE_TENANT}.
+     * @param endpoint The endpoint that the message has been uploaded to.
+     * @param qos The delivery semantics requested by the device.
+     * @param startNanos The value of {@link System#nanoTime()} at the start of the stage.
+     * @param stageTracker The future that will be completed with the outcome of the stage.
+     * @return A future that is completed with the outcome of the stage after its duration
+     *         has been reported.
+     * @throws NullPointerException if any of stage, endpoint, qos or tracker is {@code null}.
+     */
+    protected final <R> Future<R> timeUploadStage(
+            final String stage,
+            final String endpoint,
+            final String qos,
+            final long startNanos,
+            final Future<R> stageTracker) {
+
+        Objects.requireNonNull(stage);
+        Objects.requireNonNull(endpoint);
+        Objects.requireNonNull(qos);
+        Objects.requireNonNull(stageTracker);
+
+        final Future<R> result = Future.future();
+        stageTracker.setHandler(outcome -> {
+            getMetrics().reportUploadStage(stage, endpoint, qos, System.nanoTime() - startNanos);
+            result.handle(outcome);
+        });
+        return result;
+    }
+
     /**
      * Gets a client for sending telemetry data for a tenant.
      *
@@ -783,28 +891,104 @@ public abstract class AbstractProtocolAdapterBase<T extends ProtocolAdapterPrope
 
         final Future<String> gatewayId = getGatewayId(tenantId, deviceId, authenticatedDevice);
 
-        return gatewayId
-                .compose(gwId -> getRegistrationClient(tenantId))
-                .compose(client -> client.assertRegistration(deviceId, gatewayId.result(), context));
+        if (gatewayId.failed()) {
+            return Future.failedFuture(gatewayId.cause());
+        } else if (gatewayId.result() == null) {
+            return getRegistrationClient(tenantId)
+                    .compose(client -> client.assertRegistration(deviceId, null, context));
+        } else {
+            return getRegistrationClient(tenantId)
+                    .compose(client -> getRegistrationAssertionForGateway(client, deviceId, gatewayId.result(), context));
+        }
+    }
+
+    /**
+     * Gets an assertion for the registration status of a device that is connected via a gateway.
+     * <p>
+     * The assertions of all devices connected via the gateway are retrieved in pages of
+     * (sorted) devices and are cached by the registration client, so that the number of requests
+     * scales with the number of gateways instead of the number of devices.
+     * Falls back to asserting the device's registration status individually if the device
+     * is not included in the gateway's assertions (e.g. because it has been registered
+     * recently) or if the Device Registration service does not support the bulk operation.
+     * Any other error is propagated to the caller.
+     */
+    private Future<JsonObject> getRegistrationAssertionForGateway(
+            final RegistrationClient client,
+            final String deviceId,
+            final String gatewayId,
+            final SpanContext context) {
+
+        if (!gatewayDevicesAssertionSupported) {
+            return client.assertRegistration(deviceId, gatewayId, context);
+        }
+
+        return findGatewayDeviceAssertion(client, deviceId, gatewayId, null, context).recover(t -> {
+            if (ServiceInvocationException.extractStatusCode(t) == HttpURLConnection.HTTP_NOT_IMPLEMENTED) {
+                LOG.info("Device Registration service does not support asserting gateway devices, falling back to individual assertions");
+                gatewayDevicesAssertionSupported = false;
+                return Future.succeededFuture();
+            } else {
+                return Future.failedFuture(t);
+            }
+        }).compose(assertion -> {
+            if (assertion == null) {
+                return client.assertRegistration(deviceId, gatewayId, context);
+            } else {
+                return Future.succeededFuture(assertion);
+            }
+        });
+    }
+
+    /**
+     * Looks up a device's assertion in the pages of assertions for the devices connected via a gateway.
+     * <p>
+     * Each page contains the assertions of the devices with the lowest identifiers that are
+     * not lower than the page's first device ID. The next page is only retrieved if the device's
+     * identifier is not lower than the first device that has been left out of the current page.
+     *
+     * @return A future containing the assertion or {@code null} if the device is not included.
+     */
+    private Future<JsonObject> findGatewayDeviceAssertion(
+            final RegistrationClient client,
+            final String deviceId,
+            final String gatewayId,
+            final String firstDeviceId,
+            final SpanContext context) {
+
+        return client.assertGatewayDevices(gatewayId, firstDeviceId, context).compose(page -> {
+            final JsonObject assertions = page.getJsonObject(RegistrationConstants.FIELD_DEVICES, new JsonObject());
+            final Object assertion = assertions.getValue(deviceId);
+            final String nextDeviceId = page.getString(RegistrationConstants.FIELD_NEXT_DEVICE_ID);
+            if (assertion instanceof JsonObject) {
+                return Future.succeededFuture((JsonObject) assertion);
+            } else if (nextDeviceId == null || deviceId.compareTo(nextDeviceId) < 0
+                    || (firstDeviceId != null && nextDeviceId.compareTo(firstDeviceId) <= 0)) {
+                // device is not included in any of the pages
+                return Future.succeededFuture();
+            } else {
+                return findGatewayDeviceAssertion(client, deviceId, gatewayId, nextDeviceId, context);
+            }
+        });
     }
 
     private Future<String> getGatewayId(final String tenantId, final String deviceId,
             final Device authenticatedDevice) {
 
-        final Future<String> result = Future.future();
+        // this method is invoked for every message being uploaded
+        // so we use the (shared) empty future wherever possible
         if (authenticatedDevice == null) {
-            result.complete(null);
+            return Future.succeededFuture();
         } else if (tenantId.equals(authenticatedDevice.getTenantId())) {
             if (deviceId.equals(authenticatedDevice.getDeviceId())) {
-                result.complete(null);
+                return Future.succeededFuture();
             } else {
-                result.complete(authenticatedDevice.getDeviceId());
+                return Future.succeededFuture(authenticatedDevice.getDeviceId());
             }
         } else {
-            result.fail(new ClientErrorException(HttpURLConnection.HTTP_FORBIDDEN,
+            return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_FORBIDDEN,
                     "cannot publish data for device of other tenant"));
         }
-        return result;
     }
 
     /**
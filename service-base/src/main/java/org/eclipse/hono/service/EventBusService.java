@@ -13,9 +13,11 @@
 
 package org.eclipse.hono.service;
 
+import java.net.HttpURLConnection;
 import java.util.Objects;
 import java.util.Optional;
 
+import org.eclipse.hono.client.ServerErrorException;
 import org.eclipse.hono.client.ServiceInvocationException;
 import org.eclipse.hono.util.ConfigurationSupportingVerticle;
 import org.eclipse.hono.util.EventBusMessage;
@@ -26,6 +28,8 @@ import org.slf4j.LoggerFactory;
 import io.vertx.core.Future;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
 import io.vertx.core.json.JsonObject;
 
 /**
@@ -167,6 +171,44 @@ public abstract class EventBusService<C> extends ConfigurationSupportingVerticle
      */
     protected abstract Future<EventBusMessage> processRequest(EventBusMessage request);
 
+    /**
+     * Sends a request to another service running in the same vert.x instance.
+     * <p>
+     * The request is sent via the event bus to the given address. The target
+     * service processes the request like any other request received via the
+     * event bus and replies directly.
+     *
+     * @param address The event bus address that the other service listens on.
+     * @param request The request message.
+     * @return A future indicating the outcome of the invocation.
+     *         The future will succeed with the (possibly non-2xx) response
+     *         returned by the other service. Otherwise the future will fail with a
+     *         {@link ServerErrorException} with status <em>501 Not Implemented</em>
+     *         if no service listens on the address or with status
+     *         <em>503 Service Unavailable</em> if the request could not be
+     *         processed.
+     * @throws NullPointerException if any of the parameters is {@code null}.
+     */
+    protected final Future<EventBusMessage> sendServiceRequest(final String address, final EventBusMessage request) {
+
+        Objects.requireNonNull(address);
+        Objects.requireNonNull(request);
+
+        final Future<Message<JsonObject>> reply = Future.future();
+        vertx.eventBus().send(address, request.toJson(), reply.completer());
+        return reply.recover(t -> {
+            log.debug("cannot invoke service [address: {}, operation: {}]: {}",
+                    address, request.getOperation(), t.getMessage());
+            if (t instanceof ReplyException && ((ReplyException) t).failureType() == ReplyFailure.NO_HANDLERS) {
+                return Future.failedFuture(new ServerErrorException(HttpURLConnection.HTTP_NOT_IMPLEMENTED,
+                        "no service listening on " + address));
+            } else {
+                return Future.failedFuture(new ServerErrorException(HttpURLConnection.HTTP_UNAVAILABLE,
+                        t.getMessage()));
+            }
+        }).map(msg -> EventBusMessage.fromJson(msg.body()));
+    }
+
     /**
      * Gets a property value of a given type from a JSON object.
      * 
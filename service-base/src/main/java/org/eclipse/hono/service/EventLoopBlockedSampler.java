@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.hono.config.ProtocolAdapterProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+/**
+ * A watchdog which samples the stack of a vert.x event loop thread while it is blocked.
+ * <p>
+ * The watchdog periodically schedules a heartbeat on the vert.x context that it has been
+ * started on. A dedicated (daemon) thread checks the time of the last heartbeat and
+ * considers the context's event loop thread blocked if the heartbeat is overdue by more
+ * than the configured threshold. As long as the event loop is blocked, the watchdog
+ * takes a sample of the thread's stack every {@value #SAMPLING_INTERVAL_MILLIS} milliseconds.
+ * When the event loop recovers, the samples collected during the blocked period are written
+ * to a file (replacing the samples of any previous period) in the <em>collapsed stack</em> format, i.e. one line per distinct stack consisting of the
+ * semicolon separated frames (starting at the outermost frame) followed by the number of
+ * samples. The file can be rendered into a flame graph using e.g. Brendan Gregg's
+ * <em>flamegraph.pl</em>.
+ * <p>
+ * While the event loop is not blocked, the overhead of the watchdog is limited to one
+ * heartbeat on the event loop and one wake up of the watchdog thread per half threshold.
+ * The number of distinct stacks being kept is limited to {@value #MAX_STACKS}, samples of
+ * additional stacks are counted but not recorded.
+ */
+public final class EventLoopBlockedSampler {
+
+    /**
+     * The number of milliseconds between two samples taken from a blocked thread.
+     */
+    static final long SAMPLING_INTERVAL_MILLIS = 10;
+    /**
+     * The maximum number of distinct stacks being recorded.
+     */
+    static final int MAX_STACKS = 1000;
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventLoopBlockedSampler.class);
+    private static final int MAX_DEPTH = 256;
+    private static final String FILE_SUFFIX = ".collapsed";
+
+    private final Vertx vertx;
+    private final long thresholdNanos;
+    private final long heartbeatIntervalMillis;
+    private final Path outputDirectory;
+    // only accessed by the watchdog thread
+    private final Map<String, Long> samples = new HashMap<>();
+    private long discardedSamples;
+
+    private volatile long lastHeartbeat;
+    private volatile boolean running;
+    private Thread eventLoopThread;
+    private Thread watchdog;
+    private long timerId = -1;
+
+    /**
+     * Creates a new sampler.
+     *
+     * @param vertx The vert.x instance to use for scheduling the heartbeat.
+     * @param threshold The number of milliseconds after which the event loop
+     *                  is considered blocked.
+     * @param outputDirectory The directory to write the samples to.
+     * @throws NullPointerException if vertx or output directory are {@code null}.
+     * @throws IllegalArgumentException if threshold is &lt;
+     *         {@link ProtocolAdapterProperties#MIN_EVENT_LOOP_BLOCKED_SAMPLING_THRESHOLD}.
+     */
+    public EventLoopBlockedSampler(final Vertx vertx, final long threshold, final Path outputDirectory) {
+        this.vertx = Objects.requireNonNull(vertx);
+        this.outputDirectory = Objects.requireNonNull(outputDirectory);
+        if (threshold < ProtocolAdapterProperties.MIN_EVENT_LOOP_BLOCKED_SAMPLING_THRESHOLD) {
+            throw new IllegalArgumentException("threshold must be >= "
+                    + ProtocolAdapterProperties.MIN_EVENT_LOOP_BLOCKED_SAMPLING_THRESHOLD);
+        }
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(threshold);
+        this.heartbeatIntervalMillis = threshold / 2;
+    }
+
+    /**
+     * Starts monitoring the event loop thread of the current vert.x context.
+     * <p>
+     * The samples will be written to a file in the output directory that is named after
+     * the event loop thread. This method does nothing if the sampler has already been started.
+     *
+     * @throws IllegalStateException if this method is not invoked on a vert.x event loop thread.
+     */
+    public void start() {
+
+        if (!Context.isOnEventLoopThread()) {
+            throw new IllegalStateException("sampler must be started on event loop thread");
+        } else if (running) {
+            return;
+        }
+
+        eventLoopThread = Thread.currentThread();
+        lastHeartbeat = System.nanoTime();
+        timerId = vertx.setPeriodic(heartbeatIntervalMillis, id -> lastHeartbeat = System.nanoTime());
+        running = true;
+        watchdog = new Thread(this::watch, "blocked-sampler-" + eventLoopThread.getName());
+        watchdog.setDaemon(true);
+        watchdog.start();
+        LOG.info("sampling stack of event loop thread [{}] when blocked for more than {}ms",
+                eventLoopThread.getName(), TimeUnit.NANOSECONDS.toMillis(thresholdNanos));
+    }
+
+    /**
+     * Stops monitoring the event loop thread.
+     * <p>
+     * Samples that have been taken during a period of the event loop being blocked
+     * that has not ended yet, are discarded.
+     */
+    public void stop() {
+
+        if (running) {
+            running = false;
+            vertx.cancelTimer(timerId);
+            watchdog.interrupt();
+        }
+    }
+
+    /**
+     * Gets the file that the samples are written to.
+     *
+     * @return The path to the file or {@code null} if the sampler has not been started yet.
+     */
+    public Path getOutputFile() {
+        if (eventLoopThread == null) {
+            return null;
+        } else {
+            return outputDirectory.resolve(eventLoopThread.getName() + FILE_SUFFIX);
+        }
+    }
+
+    private void watch() {
+
+        long samplesTaken = 0;
+        try {
+            while (running) {
+                final long blockedFor = System.nanoTime() - lastHeartbeat;
+                if (blockedFor > thresholdNanos) {
+                    if (samplesTaken == 0) {
+                        LOG.warn("event loop thread [{}] seems to be blocked, sampling stack ...",
+                                eventLoopThread.getName());
+                    }
+                    addSample(eventLoopThread.getStackTrace());
+                    samplesTaken++;
+                    Thread.sleep(SAMPLING_INTERVAL_MILLIS);
+                } else {
+                    if (samplesTaken > 0) {
+                        LOG.warn("event loop thread [{}] has been blocked for approx. {}ms, took {} samples",
+                                eventLoopThread.getName(), samplesTaken * SAMPLING_INTERVAL_MILLIS, samplesTaken);
+                        writeSamples();
+                        samplesTaken = 0;
+                    }
+                    Thread.sleep(heartbeatIntervalMillis);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // discard the samples of a blocked period that has not ended yet
+            clearSamples();
+        }
+    }
+
+    private void addSample(final StackTraceElement[] stack) {
+
+        if (stack.length == 0) {
+            // thread has terminated
+            return;
+        }
+        final StringBuilder b = new StringBuilder();
+        final int outermost = Math.min(stack.length, MAX_DEPTH) - 1;
+        for (int i = outermost; i >= 0; i--) {
+            b.append(stack[i].getClassName()).append('.').append(stack[i].getMethodName());
+            if (i > 0) {
+                b.append(';');
+            }
+        }
+        final String key = b.toString();
+        final Long count = samples.get(key);
+        if (count != null) {
+            samples.put(key, count + 1);
+        } else if (samples.size() < MAX_STACKS) {
+            samples.put(key, 1L);
+        } else {
+            discardedSamples++;
+        }
+    }
+
+    private void writeSamples() {
+
+        final List<String> lines = new ArrayList<>(samples.size());
+        samples.forEach((stack, count) -> lines.add(stack + " " + count));
+        if (discardedSamples > 0) {
+            LOG.info("discarded {} samples of event loop thread [{}] exceeding max number of distinct stacks",
+                    discardedSamples, eventLoopThread.getName());
+        }
+        final Path target = getOutputFile();
+        try {
+            Files.createDirectories(outputDirectory);
+            final Path tmp = Files.createTempFile(outputDirectory, eventLoopThread.getName(), ".tmp");
+            Files.write(tmp, lines, StandardCharsets.UTF_8);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOG.info("wrote {} distinct stacks of event loop thread [{}] to {}",
+                    lines.size(), eventLoopThread.getName(), target);
+        } catch (final IOException e) {
+            LOG.warn("cannot write samples of event loop thread [{}] to {}", eventLoopThread.getName(), target, e);
+        } finally {
+            clearSamples();
+        }
+    }
+
+    private void clearSamples() {
+        samples.clear();
+        discardedSamples = 0;
+    }
+}
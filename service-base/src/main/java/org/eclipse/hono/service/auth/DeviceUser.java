@@ -19,6 +19,7 @@ import io.vertx.core.Handler;
 import io.vertx.ext.auth.AuthProvider;
 import io.vertx.ext.auth.User;
 import org.eclipse.hono.auth.Device;
+import org.eclipse.hono.util.DeviceContext;
 
 /**
  * A class that implements the {@link User} interface for devices that then can be used for authorization validation.
@@ -26,6 +27,8 @@ import org.eclipse.hono.auth.Device;
 */
 public class DeviceUser extends Device implements User {
 
+    private final DeviceContext deviceContext;
+
     /**
      * Creates a new device (usable as a {@link User}) for a tenant and device identifier.
      *
@@ -34,7 +37,35 @@ public class DeviceUser extends Device implements User {
      * @throws NullPointerException if any of the params is {@code null}.
      */
     public DeviceUser(final String tenantId, final String deviceId) {
+        this(tenantId, deviceId, null);
+    }
+
+    /**
+     * Creates a new device (usable as a {@link User}) for a tenant and device identifier
+     * along with the information that has been looked up while authenticating the device.
+     *
+     * @param tenantId The tenant.
+     * @param deviceId The device identifier.
+     * @param deviceContext The tenant configuration and registration assertion of the device
+     *                      or {@code null} if they have not been looked up.
+     * @throws NullPointerException if tenant or device identifier are {@code null}.
+     */
+    public DeviceUser(final String tenantId, final String deviceId, final DeviceContext deviceContext) {
         super(tenantId, deviceId);
+        this.deviceContext = deviceContext;
+    }
+
+    /**
+     * Gets the information that has been looked up while authenticating the device.
+     * <p>
+     * Protocol adapters may use the context instead of retrieving the tenant configuration
+     * and the registration assertion of the device from the Tenant and Device Registration
+     * services when the device connects.
+     *
+     * @return The context or {@code null} if it has not been looked up.
+     */
+    public final DeviceContext getDeviceContext() {
+        return deviceContext;
     }
 
     /**
@@ -14,21 +14,41 @@
 package org.eclipse.hono.service.auth.device;
 
 import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 
 import org.eclipse.hono.auth.Device;
 import org.eclipse.hono.client.ClientErrorException;
 import org.eclipse.hono.client.CredentialsClient;
 import org.eclipse.hono.client.HonoClient;
+import org.eclipse.hono.client.ServerErrorException;
 import org.eclipse.hono.client.ServiceInvocationException;
+import org.eclipse.hono.config.ProtocolAdapterProperties;
 import org.eclipse.hono.service.auth.DeviceUser;
+import org.eclipse.hono.service.metric.Metrics;
 import org.eclipse.hono.util.CredentialsObject;
+import org.eclipse.hono.util.DeviceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.auth.User;
 
@@ -44,7 +64,32 @@ public abstract class CredentialsApiAuthProvider implements HonoClientBasedAuthP
      * A logger to be used by subclasses.
      */
     protected final Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * The name of the thread pool used for validating credentials.
+     */
+    public static final String VALIDATION_POOL_NAME = "hono-credentials-validation";
+    /**
+     * The default maximum number of validations that may be waiting for a thread of the pool.
+     */
+    public static final int DEFAULT_VALIDATION_QUEUE_SIZE = ProtocolAdapterProperties.DEFAULT_CREDENTIALS_VALIDATION_QUEUE_SIZE;
+
+    private static final String CACHE_KEY_ALGORITHM = "HmacSHA256";
+    /**
+     * The number of validations waiting for a thread of the validation pool.
+     * <p>
+     * The counter is shared by all providers because they share the pool as well.
+     */
+    private static final AtomicInteger QUEUED_VALIDATIONS = new AtomicInteger();
+
     private final HonoClient credentialsServiceClient;
+    private Metrics metrics;
+    private Cache<String, CachedAuthentication> authenticationCache;
+    private ThreadLocal<Mac> cacheKeyMac;
+    private int validationPoolSize = Runtime.getRuntime().availableProcessors();
+    private int validationQueueSize = DEFAULT_VALIDATION_QUEUE_SIZE;
+    private volatile WorkerExecutor validationExecutor;
+    private volatile boolean deviceContextSupported = true;
 
     /**
      * Creates a new authentication provider for a credentials service client.
@@ -56,6 +101,118 @@ public abstract class CredentialsApiAuthProvider implements HonoClientBasedAuthP
         this.credentialsServiceClient = Objects.requireNonNull(credentialsServiceClient);
     }
 
+    /**
+     * Sets the metrics to report the duration of authenticating devices to.
+     *
+     * @param metrics The metrics or {@code null} if the duration should not be reported.
+     */
+    public final void setMetrics(final Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Enables caching of successful authentications.
+     * <p>
+     * Once a device has been authenticated successfully, subsequent authentication attempts
+     * of the device using the same credentials succeed without retrieving the credentials
+     * on record from the Credentials service and without validating the credentials again,
+     * as long as the cache entry has not expired.
+     * <p>
+     * The cache contains at most one entry per authentication identifier. The secret provided
+     * by the device is not stored in plain text but only as a keyed hash (HMAC) using a random
+     * key that is created when the cache is enabled. An entry is removed as soon as an attempt
+     * to authenticate using the entry's authentication identifier fails. It is replaced when
+     * the device successfully authenticates using other credentials.
+     * <p>
+     * Note that changes to the credentials on record, e.g. the removal of a secret, will only
+     * be detected once the cache entry has expired.
+     * <p>
+     * Caching is only supported for credentials for which {@link #getSecret(DeviceCredentials)}
+     * returns a value.
+     *
+     * @param maxSize The maximum number of entries to keep in the cache.
+     * @param timeToLive The duration after which an entry expires.
+     * @throws NullPointerException if time to live is {@code null}.
+     * @throws IllegalArgumentException if max size is &lt; 1 or time to live is not positive.
+     * @throws IllegalStateException if no random key can be created for hashing secrets.
+     */
+    public final void enableAuthenticationCache(final long maxSize, final Duration timeToLive) {
+
+        Objects.requireNonNull(timeToLive);
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("max size must be > 0");
+        } else if (timeToLive.isZero() || timeToLive.isNegative()) {
+            throw new IllegalArgumentException("time to live must be positive");
+        }
+
+        final byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        final SecretKeySpec keySpec = new SecretKeySpec(key, CACHE_KEY_ALGORITHM);
+        try {
+            // make sure that the algorithm is supported
+            Mac.getInstance(CACHE_KEY_ALGORITHM).init(keySpec);
+        } catch (final GeneralSecurityException e) {
+            throw new IllegalStateException("cannot create key for hashing secrets", e);
+        }
+        cacheKeyMac = ThreadLocal.withInitial(() -> {
+            try {
+                final Mac mac = Mac.getInstance(CACHE_KEY_ALGORITHM);
+                mac.init(keySpec);
+                return mac;
+            } catch (final GeneralSecurityException e) {
+                // already verified above
+                throw new IllegalStateException(e);
+            }
+        });
+        authenticationCache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(timeToLive.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Sets the size of the thread pool used for validating credentials.
+     * <p>
+     * Validations that are expensive in terms of CPU, e.g. verifying a password hash, are
+     * executed on a dedicated pool of worker threads (see {@link #validateOnWorkerPool(DeviceCredentials, CredentialsObject)}).
+     * The pool is shared by all providers running on the same vert.x instance. It is created
+     * with the size configured for the provider that first validates credentials on the pool.
+     * The sizes configured for other providers are ignored as long as the pool exists. All
+     * providers should therefore be configured with the same size, e.g. using
+     * {@link ProtocolAdapterProperties#getCredentialsValidationPoolSize()}.
+     * <p>
+     * The default value is the number of available processors.
+     *
+     * @param poolSize The number of threads.
+     * @throws IllegalArgumentException if pool size is &lt; 1.
+     */
+    public final void setValidationPoolSize(final int poolSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("pool size must be > 0");
+        }
+        this.validationPoolSize = poolSize;
+    }
+
+    /**
+     * Sets the maximum number of validations that may be waiting for a thread
+     * of the validation pool.
+     * <p>
+     * Authentication attempts of devices are rejected right away with a 503 if the
+     * maximum number of waiting validations has been reached. The number of waiting
+     * validations is counted across all providers because they share the validation pool.
+     * <p>
+     * The default value is {@link #DEFAULT_VALIDATION_QUEUE_SIZE}.
+     *
+     * @param queueSize The maximum number of waiting validations.
+     * @throws IllegalArgumentException if queue size is &lt; 0.
+     */
+    public final void setValidationQueueSize(final int queueSize) {
+        if (queueSize < 0) {
+            throw new IllegalArgumentException("queue size must be >= 0");
+        }
+        this.validationQueueSize = queueSize;
+    }
+
     /**
      * Gets a client for the Credentials service.
      * 
@@ -89,6 +246,35 @@ public abstract class CredentialsApiAuthProvider implements HonoClientBasedAuthP
         }
     }
 
+    /**
+     * Retrieves the credentials of a device together with its tenant's configuration and
+     * the assertion of its registration status using a single request to the Credentials service.
+     * <p>
+     * Once the Credentials service has indicated that it does not support the combined
+     * look up by means of a 501 status code, the look up is not attempted anymore.
+     *
+     * @param deviceCredentials The credentials provided by the device.
+     * @return A future containing the device context or {@code null} if the
+     *         Credentials service does not support the combined look up.
+     */
+    private Future<DeviceContext> getDeviceContext(final DeviceCredentials deviceCredentials) {
+
+        if (!deviceContextSupported) {
+            return Future.succeededFuture();
+        }
+        return getCredentialsClient(deviceCredentials.getTenantId())
+                .compose(client -> client.getDeviceContext(deviceCredentials.getType(), deviceCredentials.getAuthId(), null))
+                .recover(t -> {
+                    if (t instanceof ServiceInvocationException
+                            && ((ServiceInvocationException) t).getErrorCode() == HttpURLConnection.HTTP_NOT_IMPLEMENTED) {
+                        log.debug("Credentials service does not support device context look up, falling back to individual look ups");
+                        deviceContextSupported = false;
+                        return Future.succeededFuture();
+                    }
+                    return Future.failedFuture(t);
+                });
+    }
+
     @Override
     public final void authenticate(
             final DeviceCredentials deviceCredentials,
@@ -97,8 +283,30 @@ public abstract class CredentialsApiAuthProvider implements HonoClientBasedAuthP
         Objects.requireNonNull(deviceCredentials);
         Objects.requireNonNull(resultHandler);
 
-        getCredentialsForDevice(deviceCredentials)
-        .recover(t -> {
+        final long start = System.nanoTime();
+        final String cacheKey = getCacheKey(deviceCredentials);
+        final byte[] secretHash = cacheKey == null ? null : hashSecret(cacheKey, getSecret(deviceCredentials));
+        if (secretHash != null) {
+            final CachedAuthentication cachedAuthentication = authenticationCache.getIfPresent(cacheKey);
+            if (cachedAuthentication != null && MessageDigest.isEqual(cachedAuthentication.secretHash, secretHash)) {
+                log.trace("using cached authentication of device [tenant-id: {}, auth-id: {}]",
+                        deviceCredentials.getTenantId(), deviceCredentials.getAuthId());
+                if (metrics != null) {
+                    metrics.reportAuthentication(deviceCredentials.getType(), System.nanoTime() - start);
+                }
+                resultHandler.handle(Future.succeededFuture(cachedAuthentication.device));
+                return;
+            }
+        }
+
+        final Future<DeviceContext> deviceContextTracker = getDeviceContext(deviceCredentials);
+        deviceContextTracker.compose(deviceContext -> {
+            if (deviceContext == null) {
+                return getCredentialsForDevice(deviceCredentials);
+            } else {
+                return Future.succeededFuture(deviceContext.getCredentials());
+            }
+        }).recover(t -> {
 
             if (!(t instanceof ServiceInvocationException)) {
                 return Future.failedFuture(t);
@@ -112,8 +320,74 @@ public abstract class CredentialsApiAuthProvider implements HonoClientBasedAuthP
                 return Future.failedFuture(t);
             }
         }).compose(credentialsOnRecord -> validateCredentials(deviceCredentials, credentialsOnRecord))
-        .compose(d -> Future.succeededFuture(new DeviceUser(d.getTenantId(), d.getDeviceId())))
-        .setHandler(resultHandler);
+        .compose(d -> Future.succeededFuture(new DeviceUser(d.getTenantId(), d.getDeviceId(), deviceContextTracker.result())))
+        .setHandler(authAttempt -> {
+            if (secretHash != null) {
+                if (authAttempt.succeeded()) {
+                    // do not cache the device context, the tenant and registration status may change
+                    final DeviceUser device = new DeviceUser(authAttempt.result().getTenantId(), authAttempt.result().getDeviceId());
+                    authenticationCache.put(cacheKey, new CachedAuthentication(secretHash, device));
+                } else if (authAttempt.cause() instanceof ClientErrorException) {
+                    authenticationCache.invalidate(cacheKey);
+                }
+            }
+            if (metrics != null) {
+                metrics.reportAuthentication(deviceCredentials.getType(), System.nanoTime() - start);
+            }
+            resultHandler.handle(authAttempt);
+        });
+    }
+
+    /**
+     * Gets the secret that a device has provided as part of its credentials.
+     * <p>
+     * The secret is used for caching successful authentications.
+     * <p>
+     * This default implementation returns {@code null}, i.e. authentications are not cached.
+     * Subclasses should override this method for types of credentials for which the
+     * validation is expensive.
+     *
+     * @param deviceCredentials The credentials provided by the device.
+     * @return The secret or {@code null} if authentications using the credentials
+     *         should not be cached.
+     */
+    protected String getSecret(final DeviceCredentials deviceCredentials) {
+        return null;
+    }
+
+    private String getCacheKey(final DeviceCredentials deviceCredentials) {
+
+        if (authenticationCache == null || getSecret(deviceCredentials) == null) {
+            return null;
+        } else {
+            return new StringBuilder(deviceCredentials.getType())
+                    .append('/').append(deviceCredentials.getTenantId())
+                    .append('/').append(deviceCredentials.getAuthId())
+                    .toString();
+        }
+    }
+
+    private byte[] hashSecret(final String cacheKey, final String secret) {
+
+        final Mac mac = cacheKeyMac.get();
+        mac.update(cacheKey.getBytes(StandardCharsets.UTF_8));
+        // separate key from secret
+        mac.update((byte) 0);
+        return mac.doFinal(secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A successful authentication of a device.
+     */
+    private static final class CachedAuthentication {
+
+        private final byte[] secretHash;
+        private final DeviceUser device;
+
+        private CachedAuthentication(final byte[] secretHash, final DeviceUser device) {
+            this.secretHash = secretHash;
+            this.device = device;
+        }
     }
 
     /**
@@ -145,6 +419,111 @@ public abstract class CredentialsApiAuthProvider implements HonoClientBasedAuthP
         return result;
     }
 
+    /**
+     * Validates credentials provided by a device on a dedicated pool of worker threads.
+     * <p>
+     * This method invokes the {@link DeviceCredentials#validate(CredentialsObject)}
+     * method on a thread of the validation pool and should be used by subclasses for
+     * types of credentials for which the validation is expensive, e.g. hashed passwords.
+     * The event loop thread is therefore not blocked and multiple validations may be
+     * executed in parallel, depending on the size of the pool.
+     * <p>
+     * The number of validations waiting for a thread of the pool is limited. If the limit
+     * has been reached, the validation is rejected without waiting.
+     *
+     * @param deviceCredentials The credentials provided by the device.
+     * @param credentialsOnRecord The credentials on record.
+     * @return A future that is succeeded with the authenticated device if the
+     *         credentials have been validated successfully. Otherwise, the
+     *         future is failed with a {@link ClientErrorException} or with a
+     *         {@link ServerErrorException} having a 503 status code if too many
+     *         validations are waiting to be executed.
+     * @throws NullPointerException if any of the parameters are {@code null}.
+     */
+    protected final Future<Device> validateOnWorkerPool(
+            final DeviceCredentials deviceCredentials,
+            final CredentialsObject credentialsOnRecord) {
+
+        Objects.requireNonNull(deviceCredentials);
+        Objects.requireNonNull(credentialsOnRecord);
+
+        final Context currentContext = Vertx.currentContext();
+        if (currentContext == null) {
+            return Future.failedFuture(new IllegalStateException("not running on vert.x Context"));
+        }
+
+        final int queued = QUEUED_VALIDATIONS.incrementAndGet();
+        if (queued > validationQueueSize) {
+            QUEUED_VALIDATIONS.decrementAndGet();
+            log.debug("rejecting validation of credentials [tenant-id: {}, auth-id: {}], too many pending validations",
+                    deviceCredentials.getTenantId(), deviceCredentials.getAuthId());
+            if (metrics != null) {
+                metrics.incrementRejectedCredentialsValidations(deviceCredentials.getType());
+            }
+            return Future.failedFuture(new ServerErrorException(
+                    HttpURLConnection.HTTP_UNAVAILABLE, "too many pending authentication requests"));
+        }
+        reportValidationQueueSize(queued);
+
+        final Future<Device> result = Future.future();
+        getValidationExecutor(currentContext.owner()).<Device>executeBlocking(validation -> {
+            reportValidationQueueSize(QUEUED_VALIDATIONS.decrementAndGet());
+            final long start = System.nanoTime();
+            log.debug("validating credentials on worker thread [{}]", Thread.currentThread().getName());
+            final boolean valid = deviceCredentials.validate(credentialsOnRecord);
+            if (metrics != null) {
+                metrics.reportCredentialsValidation(deviceCredentials.getType(), System.nanoTime() - start);
+            }
+            if (valid) {
+                validation.complete(new Device(deviceCredentials.getTenantId(), credentialsOnRecord.getDeviceId()));
+            } else {
+                validation.fail(new ClientErrorException(HttpURLConnection.HTTP_UNAUTHORIZED, "bad credentials"));
+            }
+        }, false, result);
+        return result;
+    }
+
+    private WorkerExecutor getValidationExecutor(final Vertx vertx) {
+
+        WorkerExecutor executor = validationExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = validationExecutor;
+                if (executor == null) {
+                    executor = vertx.createSharedWorkerExecutor(VALIDATION_POOL_NAME, validationPoolSize);
+                    validationExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Releases the pool of worker threads used for validating credentials.
+     * <p>
+     * The pool itself is shut down once it is no longer used by any provider.
+     * A subsequent validation acquires the pool again.
+     * <p>
+     * This method should be invoked when the protocol adapter using this provider is stopped.
+     */
+    public final void close() {
+
+        final WorkerExecutor executor;
+        synchronized (this) {
+            executor = validationExecutor;
+            validationExecutor = null;
+        }
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    private void reportValidationQueueSize(final int size) {
+        if (metrics != null) {
+            metrics.reportCredentialsValidationQueueSize(size);
+        }
+    }
+
     @Override
     public final void authenticate(final JsonObject authInfo, final Handler<AsyncResult<User>> resultHandler) {
 
@@ -13,31 +13,82 @@
 
 package org.eclipse.hono.service.auth.device;
 
+import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 import java.security.cert.CertPath;
 import java.security.cert.CertPathValidator;
 import java.security.cert.CertificateFactory;
 import java.security.cert.PKIXParameters;
 import java.security.cert.TrustAnchor;
 import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.hono.service.auth.X509CertificateChainValidator;
+import org.eclipse.hono.util.TenantConstants;
+import org.eclipse.hono.util.TenantObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
 
 
 /**
  * Validates a device's certificate chain using a {@link CertPathValidator}.
- *
+ * <p>
+ * The outcome of successful validations is cached, keyed by the fingerprints of the
+ * certificate chain and of the trust anchor. A cached outcome is used until the earliest
+ * expiration date of the certificates in the chain has been reached. Devices re-connecting
+ * with the same certificate therefore do not require the certificate path to be built and
+ * validated again.
+ * <p>
+ * The validator also caches the trust anchors of tenants (see {@link #getTrustAnchor(TenantObject)}).
  */
 public class DeviceCertificateValidator implements X509CertificateChainValidator {
 
+    /**
+     * The maximum number of validation results and trust anchors being cached.
+     */
+    public static final int MAX_CACHE_SIZE = 10000;
+    /**
+     * The maximum number of minutes after which a cached validation result expires.
+     */
+    public static final long MAX_CACHE_AGE_MINUTES = 60;
+
     private static final Logger LOG = LoggerFactory.getLogger(DeviceCertificateValidator.class);
+    private static final String FINGERPRINT_ALGORITHM = "SHA-256";
+
+    private final Cache<String, Long> validChains = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHE_SIZE)
+            .expireAfterWrite(MAX_CACHE_AGE_MINUTES, TimeUnit.MINUTES)
+            .build();
+    private final Cache<String, CachedTrustAnchor> trustAnchors = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHE_SIZE)
+            .build();
+
+    private Clock clock = Clock.systemUTC();
+
+    /**
+     * Sets the clock to use for determining the point in time at which certificates are validated.
+     * <p>
+     * This method is intended for testing purposes only.
+     *
+     * @param clock The clock.
+     * @throws NullPointerException if clock is {@code null}.
+     */
+    void setClock(final Clock clock) {
+        this.clock = Objects.requireNonNull(clock);
+    }
 
     /**
      * {@inheritDoc}
@@ -55,13 +106,17 @@ public class DeviceCertificateValidator implements X509CertificateChainValidator
         final Future<Void> result = Future.future();
 
         try {
-            final PKIXParameters params = new PKIXParameters(Collections.singleton(trustAnchor));
-            // TODO do we need to check for revocation?
-            params.setRevocationEnabled(false);
-            final CertificateFactory factory = CertificateFactory.getInstance("X.509");
-            final CertPath path = factory.generateCertPath(chain);
-            final CertPathValidator validator = CertPathValidator.getInstance("PKIX");
-            validator.validate(path, params);
+            final String fingerprint = getFingerprint(chain, trustAnchor);
+            final Long validUntil = validChains.getIfPresent(fingerprint);
+            if (validUntil != null && clock.millis() < validUntil) {
+                LOG.trace("using cached validation result for device certificate [subject DN: {}]",
+                        chain.get(0).getSubjectX500Principal().getName());
+                result.complete();
+                return result;
+            }
+
+            validateCertPath(chain, trustAnchor);
+            validChains.put(fingerprint, getEarliestExpiration(chain));
             LOG.debug("validation of device certificate [subject DN: {}] succeeded",
                     chain.get(0).getSubjectX500Principal().getName());
             result.complete();
@@ -72,4 +127,98 @@ public class DeviceCertificateValidator implements X509CertificateChainValidator
         }
         return result;
     }
+
+    /**
+     * Builds and validates the certificate path of a chain.
+     *
+     * @param chain The certificate chain to validate.
+     * @param trustAnchor The trust anchor to validate the chain against.
+     * @throws GeneralSecurityException if the chain is invalid.
+     */
+    void validateCertPath(final List<X509Certificate> chain, final TrustAnchor trustAnchor)
+            throws GeneralSecurityException {
+
+        final PKIXParameters params = new PKIXParameters(Collections.singleton(trustAnchor));
+        // TODO do we need to check for revocation?
+        params.setRevocationEnabled(false);
+        params.setDate(new Date(clock.millis()));
+        final CertificateFactory factory = CertificateFactory.getInstance("X.509");
+        final CertPath path = factory.generateCertPath(chain);
+        final CertPathValidator validator = CertPathValidator.getInstance("PKIX");
+        validator.validate(path, params);
+    }
+
+    /**
+     * Gets the trust anchor for a tenant.
+     * <p>
+     * The trust anchor is created by means of {@link TenantObject#getTrustAnchor()} and
+     * is cached for the tenant. A cached trust anchor is used as long as the tenant's
+     * <em>trusted-ca</em> property has not changed. This prevents the trusted CA's
+     * certificate or public key from being parsed again for every new instance of
+     * the tenant's configuration retrieved from the Tenant service.
+     *
+     * @param tenant The tenant.
+     * @return The trust anchor or {@code null} if no trusted certificate authority
+     *         has been set for the tenant.
+     * @throws NullPointerException if tenant is {@code null}.
+     * @throws GeneralSecurityException if the trusted CA cannot be parsed into a trust anchor.
+     */
+    public TrustAnchor getTrustAnchor(final TenantObject tenant) throws GeneralSecurityException {
+
+        Objects.requireNonNull(tenant);
+
+        final JsonObject trustedCa = tenant.getProperty(TenantConstants.FIELD_PAYLOAD_TRUSTED_CA);
+        if (trustedCa == null || tenant.getTenantId() == null) {
+            return tenant.getTrustAnchor();
+        }
+        final CachedTrustAnchor cachedTrustAnchor = trustAnchors.getIfPresent(tenant.getTenantId());
+        if (cachedTrustAnchor != null && cachedTrustAnchor.trustedCa.equals(trustedCa)) {
+            return cachedTrustAnchor.trustAnchor;
+        }
+        final TrustAnchor trustAnchor = tenant.getTrustAnchor();
+        if (trustAnchor != null) {
+            trustAnchors.put(tenant.getTenantId(), new CachedTrustAnchor(trustedCa.copy(), trustAnchor));
+        }
+        return trustAnchor;
+    }
+
+    private static String getFingerprint(
+            final List<X509Certificate> chain,
+            final TrustAnchor trustAnchor) throws GeneralSecurityException {
+
+        final MessageDigest digest = MessageDigest.getInstance(FINGERPRINT_ALGORITHM);
+        if (trustAnchor.getTrustedCert() != null) {
+            digest.update(trustAnchor.getTrustedCert().getEncoded());
+        } else {
+            digest.update(trustAnchor.getCAName().getBytes(StandardCharsets.UTF_8));
+            digest.update(trustAnchor.getCAPublicKey().getEncoded());
+        }
+        for (final X509Certificate cert : chain) {
+            digest.update(cert.getEncoded());
+        }
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    private static long getEarliestExpiration(final List<X509Certificate> chain) {
+
+        long result = Long.MAX_VALUE;
+        for (final X509Certificate cert : chain) {
+            result = Math.min(result, cert.getNotAfter().getTime());
+        }
+        return result;
+    }
+
+    /**
+     * A trust anchor along with the tenant configuration it has been created from.
+     */
+    private static final class CachedTrustAnchor {
+
+        private final JsonObject trustedCa;
+        private final TrustAnchor trustAnchor;
+
+        private CachedTrustAnchor(final JsonObject trustedCa, final TrustAnchor trustAnchor) {
+            this.trustedCa = trustedCa;
+            this.trustAnchor = trustAnchor;
+        }
+    }
 }
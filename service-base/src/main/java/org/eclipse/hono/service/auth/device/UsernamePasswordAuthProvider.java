@@ -13,19 +13,15 @@
 
 package org.eclipse.hono.service.auth.device;
 
-import java.net.HttpURLConnection;
 import java.util.Objects;
 
 import org.eclipse.hono.auth.Device;
-import org.eclipse.hono.client.ClientErrorException;
 import org.eclipse.hono.client.HonoClient;
 import org.eclipse.hono.config.ServiceConfigProperties;
 import org.eclipse.hono.util.CredentialsObject;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import io.vertx.core.Context;
 import io.vertx.core.Future;
-import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 
 
@@ -79,25 +75,30 @@ public final class UsernamePasswordAuthProvider extends CredentialsApiAuthProvid
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @return The password if the credentials are {@link UsernamePasswordCredentials}.
+     */
+    @Override
+    protected String getSecret(final DeviceCredentials deviceCredentials) {
+        if (deviceCredentials instanceof UsernamePasswordCredentials) {
+            return ((UsernamePasswordCredentials) deviceCredentials).getPassword();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Verifies the password hash on the dedicated validation pool.
+     */
     @Override
     protected Future<Device> validateCredentials(
             final DeviceCredentials deviceCredentials,
             final CredentialsObject credentialsOnRecord) {
 
-        final Context currentContext = Vertx.currentContext();
-        if (currentContext == null) {
-            return Future.failedFuture(new IllegalStateException("not running on vert.x Context"));
-        } else {
-            final Future<Device> resultHandler = Future.future();
-            currentContext.executeBlocking(blockingCodeHandler -> {
-                log.debug("validating password hash on vert.x worker thread [{}]", Thread.currentThread().getName());
-                if (deviceCredentials.validate(credentialsOnRecord)) {
-                    blockingCodeHandler.complete(new Device(deviceCredentials.getTenantId(), credentialsOnRecord.getDeviceId()));
-                } else {
-                    blockingCodeHandler.fail(new ClientErrorException(HttpURLConnection.HTTP_UNAUTHORIZED, "bad credentials"));
-                }
-            }, false, resultHandler);
-            return resultHandler;
-        }
+        return validateOnWorkerPool(deviceCredentials, credentialsOnRecord);
     }
 }
@@ -17,13 +17,16 @@ import java.util.Objects;
 import java.util.Optional;
 
 import org.eclipse.hono.client.ClientErrorException;
+import org.eclipse.hono.client.ServerErrorException;
 import org.eclipse.hono.service.EventBusService;
 import org.eclipse.hono.util.CredentialsConstants;
 import org.eclipse.hono.util.CredentialsResult;
 import org.eclipse.hono.util.EventBusMessage;
+import org.eclipse.hono.util.RegistrationConstants;
 import org.eclipse.hono.util.TenantConstants;
 
 import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.json.JsonObject;
@@ -34,6 +37,11 @@ import io.vertx.core.json.JsonObject;
  * This base class provides support for receiving <em>Get</em> request messages
  * via vert.x' event bus and routing them to specific methods accepting the
  * query parameters contained in the request message.
+ * <p>
+ * <em>Get Device Context</em> requests are served by combining the outcome of
+ * this service's <em>get</em> method with the tenant configuration and the
+ * registration assertion retrieved from the Tenant and Device Registration services
+ * running in the same vert.x instance.
  *
  * @param <T> The type of configuration class this service supports.
  */
@@ -64,6 +72,8 @@ public abstract class BaseCredentialsService<T> extends EventBusService<T> imple
         switch (CredentialsConstants.CredentialsAction.from(operation)) {
             case get:
                 return processGetRequest(request);
+            case getDeviceContext:
+                return processGetDeviceContextRequest(request);
             default:
                 return processCustomCredentialsMessage(request);
         }
@@ -123,6 +133,92 @@ public abstract class BaseCredentialsService<T> extends EventBusService<T> imple
         }
     }
 
+    /**
+     * Processes a <em>get Device Context</em> request message.
+     * <p>
+     * The credentials are looked up using this service's <em>get</em> method.
+     * The configuration of the device's tenant and the assertion of the device's
+     * registration status are then retrieved in parallel from the Tenant and
+     * Device Registration services listening on the local event bus.
+     * <p>
+     * The response has status <em>200 OK</em> only if all three look ups have
+     * succeeded. Otherwise, the response contains the (error) status of the
+     * first look up that has failed. A <em>501 Not Implemented</em> status
+     * indicates that the Tenant or Device Registration service is not running
+     * in the same vert.x instance so that clients should fall back to invoking
+     * the services individually.
+     *
+     * @param request The request message.
+     * @return The response to send to the client via the event bus.
+     */
+    protected Future<EventBusMessage> processGetDeviceContextRequest(final EventBusMessage request) {
+
+        final String tenantId = request.getTenant();
+        final JsonObject payload = request.getJsonPayload();
+
+        if (tenantId == null || payload == null) {
+            return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_BAD_REQUEST));
+        }
+
+        final String type = removeTypesafeValueForField(String.class, payload, CredentialsConstants.FIELD_TYPE);
+        final String authId = removeTypesafeValueForField(String.class, payload, CredentialsConstants.FIELD_AUTH_ID);
+
+        if (type == null || authId == null) {
+            log.debug("get device context request contains invalid search criteria [type: {}, auth-id: {}]",
+                    type, authId);
+            return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_BAD_REQUEST));
+        }
+
+        log.debug("getting device context [tenant: {}, type: {}, auth-id: {}]", tenantId, type, authId);
+        final Future<CredentialsResult<JsonObject>> credentialsResult = Future.future();
+        get(tenantId, type, authId, payload, credentialsResult.completer());
+
+        return credentialsResult.compose(credentials -> {
+
+            final String deviceId = Optional.ofNullable(credentials.getPayload())
+                    .map(p -> getTypesafeValueForField(String.class, p, CredentialsConstants.FIELD_PAYLOAD_DEVICE_ID))
+                    .orElse(null);
+
+            if (!credentials.isOk()) {
+                return Future.succeededFuture(request.getResponse(credentials.getStatus()));
+            } else if (deviceId == null) {
+                log.debug("credentials on record do not contain device ID [tenant: {}, auth-id: {}]", tenantId, authId);
+                return Future.failedFuture(new ServerErrorException(HttpURLConnection.HTTP_INTERNAL_ERROR));
+            }
+
+            final Future<EventBusMessage> tenantResponse = sendServiceRequest(
+                    TenantConstants.EVENT_BUS_ADDRESS_TENANT_IN,
+                    EventBusMessage.forOperation(TenantConstants.TenantAction.get.toString())
+                        .setJsonPayload(new JsonObject().put(TenantConstants.FIELD_PAYLOAD_TENANT_ID, tenantId)));
+            final Future<EventBusMessage> assertionResponse = sendServiceRequest(
+                    RegistrationConstants.EVENT_BUS_ADDRESS_REGISTRATION_IN,
+                    EventBusMessage.forOperation(RegistrationConstants.ACTION_ASSERT)
+                        .setTenant(tenantId)
+                        .setDeviceId(deviceId));
+
+            return CompositeFuture.all(tenantResponse, assertionResponse).map(ok -> {
+
+                final int tenantStatus = tenantResponse.result().getStatus();
+                final int assertionStatus = assertionResponse.result().getStatus();
+
+                if (tenantStatus != HttpURLConnection.HTTP_OK) {
+                    return request.getResponse(tenantStatus);
+                } else if (assertionStatus != HttpURLConnection.HTTP_OK) {
+                    return request.getResponse(assertionStatus);
+                } else {
+                    return request.getResponse(HttpURLConnection.HTTP_OK)
+                            .setDeviceId(deviceId)
+                            .setJsonPayload(new JsonObject()
+                                    .put(CredentialsConstants.FIELD_CONTEXT_CREDENTIALS, credentials.getPayload())
+                                    .put(CredentialsConstants.FIELD_CONTEXT_TENANT,
+                                            tenantResponse.result().getJsonPayload())
+                                    .put(CredentialsConstants.FIELD_CONTEXT_REGISTRATION,
+                                            assertionResponse.result().getJsonPayload()));
+                }
+            });
+        });
+    }
+
     /**
      * Processes a request for a non-standard operation.
      * <p>
@@ -63,6 +63,8 @@ public abstract class CompleteBaseCredentialsService<T> extends BaseCredentialsS
         switch (CredentialsConstants.CredentialsAction.from(operation)) {
             case get:
                 return processGetRequest(request);
+            case getDeviceContext:
+                return processGetDeviceContextRequest(request);
             case add:
                 return processAddRequest(request);
             case update:
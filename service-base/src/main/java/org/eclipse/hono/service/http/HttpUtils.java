@@ -46,6 +46,10 @@ public final class HttpUtils {
      * The <em>application/json; charset=utf-8</em> content type.
      */
     public static final String CONTENT_TYPE_JSON_UTF8 = "application/json; charset=utf-8";
+    /**
+     * The <em>application/x-ndjson</em> content type (newline delimited JSON).
+     */
+    public static final String CONTENT_TYPE_NDJSON = "application/x-ndjson";
     /**
      * The <em>application/json; charset=utf-8</em> content type.
      */
@@ -242,14 +246,14 @@ public final class HttpUtils {
         Objects.requireNonNull(ctx);
 
         try {
-            Optional<String> timeTilDisconnectHeader = Optional.ofNullable(ctx.request().getHeader(Constants.HEADER_TIME_TIL_DISCONNECT));
+            String timeTilDisconnectHeader = ctx.request().getHeader(Constants.HEADER_TIME_TIL_DISCONNECT);
 
-            if (!timeTilDisconnectHeader.isPresent()) {
-                timeTilDisconnectHeader = Optional.ofNullable(ctx.request().getParam(Constants.HEADER_TIME_TIL_DISCONNECT));
+            if (timeTilDisconnectHeader == null) {
+                timeTilDisconnectHeader = ctx.request().getParam(Constants.HEADER_TIME_TIL_DISCONNECT);
             }
 
-            if (timeTilDisconnectHeader.isPresent()) {
-                return Integer.parseInt(timeTilDisconnectHeader.get());
+            if (timeTilDisconnectHeader != null) {
+                return Integer.parseInt(timeTilDisconnectHeader);
             }
         } catch (final NumberFormatException e) {
         }
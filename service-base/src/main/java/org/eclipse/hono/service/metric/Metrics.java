@@ -95,4 +95,48 @@ public interface Metrics {
      *                 has been received.
      */
     void incrementCommandResponseDeliveredToApplication(String tenantId);
+
+    /**
+     * Reports the time it took to complete a stage of processing a message
+     * that has been uploaded by a device.
+     *
+     * @param stage The processing stage, e.g. {@link MetricsTags#VALUE_STAGE_TENANT}.
+     * @param type The type of message received, e.g. <em>telemetry</em> or <em>event</em>.
+     * @param qos The delivery semantics requested by the device, either
+     *            {@link MetricsTags#VALUE_QOS_AT_MOST_ONCE} or {@link MetricsTags#VALUE_QOS_AT_LEAST_ONCE}.
+     * @param durationNanos The duration of the stage in nanoseconds.
+     */
+    void reportUploadStage(String stage, String type, String qos, long durationNanos);
+
+    /**
+     * Reports the time it took to authenticate a device.
+     *
+     * @param credentialsType The type of credentials that the device has presented.
+     * @param durationNanos The duration of the authentication in nanoseconds.
+     */
+    void reportAuthentication(String credentialsType, long durationNanos);
+
+    /**
+     * Reports the time it took to validate the credentials presented by a device
+     * against the credentials on record, e.g. by verifying a password hash.
+     *
+     * @param credentialsType The type of credentials that the device has presented.
+     * @param durationNanos The duration of the validation in nanoseconds.
+     */
+    void reportCredentialsValidation(String credentialsType, long durationNanos);
+
+    /**
+     * Reports the number of credentials validations that are waiting to be executed.
+     *
+     * @param size The number of waiting validations.
+     */
+    void reportCredentialsValidationQueueSize(int size);
+
+    /**
+     * Reports a credentials validation that has been rejected because too many
+     * validations have been waiting to be executed.
+     *
+     * @param credentialsType The type of credentials that the device has presented.
+     */
+    void incrementRejectedCredentialsValidations(String credentialsType);
 }
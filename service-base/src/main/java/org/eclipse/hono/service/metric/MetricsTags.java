@@ -26,7 +26,9 @@ public final class MetricsTags {
     public static final String TAG_HOST = "host";
     public static final String TAG_COMPONENT = "component";
     public static final String TAG_PROTOCOL = "protocol";
+    public static final String TAG_QOS = "qos";
     public static final String TAG_SERVICE = "service";
+    public static final String TAG_STAGE = "stage";
     public static final String TAG_TENANT = "tenant";
     public static final String TAG_TYPE = "type";
 
@@ -38,10 +40,20 @@ public final class MetricsTags {
     public static final String VALUE_PROTOCOL_HTTP = "http";
     public static final String VALUE_PROTOCOL_MQTT = "mqtt";
 
+    public static final String VALUE_QOS_AT_MOST_ONCE = "0";
+    public static final String VALUE_QOS_AT_LEAST_ONCE = "1";
+
     public static final String VALUE_SERVICE_AUTH = "auth";
     public static final String VALUE_SERVICE_MESSAGING = "messaging";
     public static final String VALUE_SERVICE_REGISTRY = "registry";
 
+    public static final String VALUE_STAGE_AUTHENTICATION = "authentication";
+    public static final String VALUE_STAGE_TENANT = "tenant";
+    public static final String VALUE_STAGE_REGISTRATION = "registration";
+    public static final String VALUE_STAGE_SENDER = "sender";
+    public static final String VALUE_STAGE_SEND = "send";
+    public static final String VALUE_STAGE_TOTAL = "total";
+
     private MetricsTags() {
     }
 
@@ -16,11 +16,14 @@ package org.eclipse.hono.service.metric;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 
 /**
  * Micrometer based metrics implementation.
@@ -33,7 +36,14 @@ public abstract class MicrometerBasedMetrics implements Metrics {
     protected final MeterRegistry registry;
 
     private final Map<String, AtomicLong> authenticatedConnections = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Counter>> processedMessages = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Counter>> undeliverableMessages = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Counter>> processedPayload = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Map<String, Timer>>> uploadStageTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> authenticationTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> credentialsValidationTimers = new ConcurrentHashMap<>();
     private final AtomicLong unauthenticatedConnections;
+    private final AtomicLong credentialsValidationQueueSize;
 
     /**
      * Create a new metrics instance.
@@ -48,6 +58,7 @@ public abstract class MicrometerBasedMetrics implements Metrics {
         this.registry = registry;
 
         this.unauthenticatedConnections = registry.gauge("hono.connections.unauthenticated", new AtomicLong());
+        this.credentialsValidationQueueSize = registry.gauge("hono.authentication.validation.queue", new AtomicLong());
     }
 
     @Override
@@ -79,10 +90,7 @@ public abstract class MicrometerBasedMetrics implements Metrics {
     @Override
     public final void incrementProcessedMessages(final String type, final String tenantId) {
 
-        this.registry.counter("hono.messages.processed",
-                Tags
-                        .of("tenant", tenantId)
-                        .and("type", type))
+        counterForTenantAndType("hono.messages.processed", this.processedMessages, tenantId, type)
                 .increment();
 
     }
@@ -90,10 +98,7 @@ public abstract class MicrometerBasedMetrics implements Metrics {
     @Override
     public final void incrementUndeliverableMessages(final String type, final String tenantId) {
 
-        this.registry.counter("hono.messages.undeliverable",
-                Tags
-                        .of("tenant", tenantId)
-                        .and("type", type))
+        counterForTenantAndType("hono.messages.undeliverable", this.undeliverableMessages, tenantId, type)
                 .increment();
 
     }
@@ -107,10 +112,7 @@ public abstract class MicrometerBasedMetrics implements Metrics {
             return;
         }
 
-        this.registry.counter("hono.messages.processed.payload",
-                Tags
-                        .of("tenant", tenantId)
-                        .and("type", type))
+        counterForTenantAndType("hono.messages.processed.payload", this.processedPayload, tenantId, type)
                 .increment(payloadSize);
     }
 
@@ -144,6 +146,119 @@ public abstract class MicrometerBasedMetrics implements Metrics {
 
     }
 
+    @Override
+    public final void reportUploadStage(final String stage, final String type, final String qos,
+            final long durationNanos) {
+
+        timerForStage(stage, type, qos).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public final void reportAuthentication(final String credentialsType, final long durationNanos) {
+
+        Timer timer = authenticationTimers.get(credentialsType);
+        if (timer == null) {
+            timer = authenticationTimers.computeIfAbsent(credentialsType, t -> Timer
+                    .builder("hono.authentication.duration")
+                    .tags(Tags.of("credentials-type", credentialsType))
+                    .publishPercentileHistogram()
+                    .register(this.registry));
+        }
+        timer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public final void reportCredentialsValidation(final String credentialsType, final long durationNanos) {
+
+        Timer timer = credentialsValidationTimers.get(credentialsType);
+        if (timer == null) {
+            timer = credentialsValidationTimers.computeIfAbsent(credentialsType, t -> Timer
+                    .builder("hono.authentication.validation.duration")
+                    .tags(Tags.of("credentials-type", credentialsType))
+                    .publishPercentileHistogram()
+                    .register(this.registry));
+        }
+        timer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public final void reportCredentialsValidationQueueSize(final int size) {
+        credentialsValidationQueueSize.set(size);
+    }
+
+    @Override
+    public final void incrementRejectedCredentialsValidations(final String credentialsType) {
+
+        this.registry.counter("hono.authentication.validation.rejected",
+                Tags
+                        .of("credentials-type", credentialsType))
+                .increment();
+    }
+
+    /**
+     * Gets a timer for a stage of processing an uploaded message.
+     * <p>
+     * The timers are cached so that the hot path of processing a message
+     * does not need to create tags and meter identifiers for every message.
+     *
+     * @param stage The processing stage.
+     * @param type The message type.
+     * @param qos The delivery semantics requested by the device.
+     * @return The timer.
+     */
+    private Timer timerForStage(final String stage, final String type, final String qos) {
+
+        Map<String, Map<String, Timer>> timersForStage = uploadStageTimers.get(stage);
+        if (timersForStage == null) {
+            timersForStage = uploadStageTimers.computeIfAbsent(stage, s -> new ConcurrentHashMap<>());
+        }
+        Map<String, Timer> timersForType = timersForStage.get(type);
+        if (timersForType == null) {
+            timersForType = timersForStage.computeIfAbsent(type, t -> new ConcurrentHashMap<>());
+        }
+        Timer timer = timersForType.get(qos);
+        if (timer == null) {
+            timer = timersForType.computeIfAbsent(qos, q -> Timer
+                    .builder("hono.upload.duration")
+                    .tags(Tags
+                            .of(MetricsTags.TAG_STAGE, stage)
+                            .and(MetricsTags.TAG_TYPE, type)
+                            .and(MetricsTags.TAG_QOS, qos))
+                    .publishPercentileHistogram()
+                    .register(this.registry));
+        }
+        return timer;
+    }
+
+    /**
+     * Gets a counter for a tenant and message type.
+     * <p>
+     * The counters are cached so that the hot path of processing a message
+     * does not need to create tags and meter identifiers for every message.
+     *
+     * @param name The name of the counter.
+     * @param cache The counters created already, keyed by type and tenant.
+     * @param tenantId The tenant to get the counter for.
+     * @param type The message type to get the counter for.
+     * @return The counter.
+     */
+    protected final Counter counterForTenantAndType(final String name, final Map<String, Map<String, Counter>> cache,
+            final String tenantId, final String type) {
+
+        Map<String, Counter> countersForType = cache.get(type);
+        if (countersForType == null) {
+            countersForType = cache.computeIfAbsent(type, t -> new ConcurrentHashMap<>());
+        }
+        Counter counter = countersForType.get(tenantId);
+        if (counter == null) {
+            counter = countersForType.computeIfAbsent(tenantId, t -> this.registry.counter(name,
+                    Tags
+                            .of("tenant", tenantId)
+                            .and("type", type)));
+        }
+        return counter;
+    }
+
     protected <K, V extends Number> V gaugeForKey(final String name, final Map<K, V> map, final K key,
             final Tags tags, final Supplier<V> instanceSupplier) {
 
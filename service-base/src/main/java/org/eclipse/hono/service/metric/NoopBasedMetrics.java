@@ -18,7 +18,10 @@ package org.eclipse.hono.service.metric;
  */
 public class NoopBasedMetrics implements Metrics {
 
-    protected NoopBasedMetrics() {
+    /**
+     * Creates a new instance.
+     */
+    public NoopBasedMetrics() {
     }
 
     @Override
@@ -60,4 +63,24 @@ public class NoopBasedMetrics implements Metrics {
     @Override
     public void decrementConnections(final String tenantId) {
     }
+
+    @Override
+    public void reportUploadStage(final String stage, final String type, final String qos, final long durationNanos) {
+    }
+
+    @Override
+    public void reportAuthentication(final String credentialsType, final long durationNanos) {
+    }
+
+    @Override
+    public void reportCredentialsValidation(final String credentialsType, final long durationNanos) {
+    }
+
+    @Override
+    public void reportCredentialsValidationQueueSize(final int size) {
+    }
+
+    @Override
+    public void incrementRejectedCredentialsValidations(final String credentialsType) {
+    }
 }
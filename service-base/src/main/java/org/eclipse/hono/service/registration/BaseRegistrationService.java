@@ -13,7 +13,10 @@
 package org.eclipse.hono.service.registration;
 
 import java.net.HttpURLConnection;
+import java.util.Map;
 import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import org.eclipse.hono.client.ClientErrorException;
 import org.eclipse.hono.service.EventBusService;
@@ -28,6 +31,7 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
 /**
@@ -45,6 +49,10 @@ import io.vertx.core.json.JsonObject;
  * to retrieve a device's registration information from persistent storage. Thus, subclasses need
  * to override (and implement) this method in order to get a working implementation of the default
  * assertion mechanism.
+ * <p>
+ * The optional <em>assert gateway devices</em> operation additionally relies on
+ * {@link #getDevicesForGateway(String, String, Handler)} to look up the devices that are
+ * connected via a gateway.
  * 
  * @param <T> The type of configuration properties this service requires.
  */
@@ -55,8 +63,14 @@ public abstract class BaseRegistrationService<T> extends EventBusService<T> impl
      * the identifier of the gateway that it is connected to.
      */
     public static final String PROPERTY_VIA = "via";
+    /**
+     * The default maximum number of devices included in the response to an
+     * <em>assert gateway devices</em> request.
+     */
+    public static final int DEFAULT_MAX_GATEWAY_DEVICES = 1000;
 
     private RegistrationAssertionHelper assertionFactory;
+    private int maxGatewayDevices = DEFAULT_MAX_GATEWAY_DEVICES;
 
     /**
      * Sets the factory to use for creating tokens asserting a device's registration status.
@@ -70,6 +84,27 @@ public abstract class BaseRegistrationService<T> extends EventBusService<T> impl
         this.assertionFactory = Objects.requireNonNull(assertionFactory);
     }
 
+    /**
+     * Sets the maximum number of devices to include in the response to an
+     * <em>assert gateway devices</em> request.
+     * <p>
+     * Signing an assertion is expensive, so this limit bounds the effort spent on
+     * and the size of a single response. If a gateway is connected to more devices,
+     * the response contains the identifier of the first device that has been left out
+     * so that the client can request the remaining devices.
+     * <p>
+     * The default value of this property is {@link #DEFAULT_MAX_GATEWAY_DEVICES}.
+     *
+     * @param maxDevices The maximum number of devices.
+     * @throws IllegalArgumentException if the number is &lt; 1.
+     */
+    public final void setMaxGatewayDevices(final int maxDevices) {
+        if (maxDevices < 1) {
+            throw new IllegalArgumentException("maximum number of gateway devices must be at least 1");
+        }
+        this.maxGatewayDevices = maxDevices;
+    }
+
     /**
      * Asserts that the <em>assertionFactory</em> property is set.
      * <p>
@@ -111,6 +146,8 @@ public abstract class BaseRegistrationService<T> extends EventBusService<T> impl
         switch (requestMessage.getOperation()) {
         case RegistrationConstants.ACTION_ASSERT:
             return processAssertRequest(requestMessage);
+        case RegistrationConstants.ACTION_ASSERT_GATEWAY_DEVICES:
+            return processAssertGatewayDevicesRequest(requestMessage);
         default:
             return processCustomRegistrationMessage(requestMessage);
         }
@@ -148,6 +185,30 @@ public abstract class BaseRegistrationService<T> extends EventBusService<T> impl
         }
     }
 
+    private Future<EventBusMessage> processAssertGatewayDevicesRequest(final EventBusMessage request) {
+
+        final String tenantId = request.getTenant();
+        final String gatewayId = request.getDeviceId();
+
+        if (tenantId == null || gatewayId == null) {
+            return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_BAD_REQUEST));
+        } else {
+            log.debug("asserting registration of devices connected via gateway [{}] with tenant [{}]",
+                    gatewayId, tenantId);
+            final JsonObject payload = request.getJsonPayload();
+            final String firstDeviceId = payload == null ? null
+                    : payload.getString(RegistrationConstants.FIELD_FIRST_DEVICE_ID);
+            final Future<RegistrationResult> result = Future.future();
+            assertGatewayDevices(tenantId, gatewayId, firstDeviceId, result.completer());
+            return result.map(res -> {
+                return request.getResponse(res.getStatus())
+                        .setDeviceId(gatewayId)
+                        .setJsonPayload(res.getPayload())
+                        .setCacheDirective(res.getCacheDirective());
+            });
+        }
+    }
+
     /**
      * Processes a request for a non-standard operation.
      * <p>
@@ -267,6 +328,128 @@ public abstract class BaseRegistrationService<T> extends EventBusService<T> impl
         }).setHandler(resultHandler);
     }
 
+    /**
+     * Gets the registration data of all devices that are connected via a gateway.
+     * <p>
+     * This method is invoked by {@link #assertGatewayDevices(String, String, String, Handler)} to
+     * look up the devices that a gateway may act on behalf of. Implementations should
+     * maintain an index of the devices' {@link #PROPERTY_VIA} property instead of scanning
+     * all devices of the tenant.
+     * <p>
+     * The payload of a successful result must contain a JSON array under key
+     * {@link RegistrationConstants#FIELD_DEVICES} with an entry for each device as
+     * returned by {@link #getResultPayload(String, JsonObject)}. An empty array
+     * indicates that no devices are connected via the gateway.
+     * <p>
+     * This default implementation simply returns an empty result with status code 501 (Not Implemented).
+     *
+     * @param tenantId The tenant the gateway belongs to.
+     * @param gatewayId The ID of the gateway.
+     * @param resultHandler The handler to invoke with the registration information.
+     */
+    public void getDevicesForGateway(final String tenantId, final String gatewayId,
+            final Handler<AsyncResult<RegistrationResult>> resultHandler) {
+        handleUnimplementedOperation(resultHandler);
+    }
+
+    /**
+     * Asserts the registration status of all devices that are connected via a gateway.
+     * <p>
+     * This allows a protocol adapter to retrieve assertions for all devices that a gateway
+     * acts on behalf of using a single request instead of one request per device.
+     * <p>
+     * The payload of a successful result contains a JSON object under key
+     * {@link RegistrationConstants#FIELD_DEVICES} which maps the identifier of each enabled
+     * device that the gateway is authorized to act on behalf of to the same payload as returned by
+     * {@link #assertRegistration(String, String, String, Handler)} for that device.
+     * The devices are included in the order of their identifiers. The response contains at most
+     * the number of devices set using {@link #setMaxGatewayDevices(int)}. If there are more devices,
+     * the payload contains the identifier of the first device that has been left out under key
+     * {@link RegistrationConstants#FIELD_NEXT_DEVICE_ID}. The remaining devices can then be
+     * asserted by invoking this method again using that identifier as the first device ID.
+     * <p>
+     * This method requires functional {@link #getDevice(String, String, Handler) getDevice} and
+     * {@link #getDevicesForGateway(String, String, Handler) getDevicesForGateway} methods to work.
+     *
+     * @param tenantId The tenant the gateway belongs to.
+     * @param gatewayId The ID of the gateway.
+     * @param firstDeviceId The ID of the device to start with or {@code null} to start with the
+     *         device having the lowest identifier.
+     * @param resultHandler The handler to invoke with the result of the operation. The status will be
+     *         <ul>
+     *         <li><em>200 OK</em> if the gateway is registered and enabled,</li>
+     *         <li><em>403 Forbidden</em> if the gateway is not registered or disabled or</li>
+     *         <li><em>501 Not Implemented</em> if this service does not support the operation.</li>
+     *         </ul>
+     * @throws NullPointerException if any of the parameters is {@code null}.
+     */
+    public void assertGatewayDevices(
+            final String tenantId,
+            final String gatewayId,
+            final String firstDeviceId,
+            final Handler<AsyncResult<RegistrationResult>> resultHandler) {
+
+        Objects.requireNonNull(tenantId);
+        Objects.requireNonNull(gatewayId);
+        Objects.requireNonNull(resultHandler);
+
+        final Future<RegistrationResult> gatewayInfoTracker = Future.future();
+        final Future<RegistrationResult> devicesTracker = Future.future();
+
+        getDevice(tenantId, gatewayId, gatewayInfoTracker.completer());
+        getDevicesForGateway(tenantId, gatewayId, devicesTracker.completer());
+
+        CompositeFuture.all(gatewayInfoTracker, devicesTracker).map(ok -> {
+
+            final RegistrationResult gatewayResult = gatewayInfoTracker.result();
+            final RegistrationResult devicesResult = devicesTracker.result();
+
+            if (!devicesResult.isOk()) {
+                return RegistrationResult.from(devicesResult.getStatus());
+            } else if (!isDeviceEnabled(gatewayResult)) {
+                return RegistrationResult.from(HttpURLConnection.HTTP_FORBIDDEN);
+            }
+
+            final JsonObject gatewayData = gatewayResult.getPayload().getJsonObject(RegistrationConstants.FIELD_DATA, new JsonObject());
+            final JsonArray devices = devicesResult.getPayload().getJsonArray(RegistrationConstants.FIELD_DEVICES, new JsonArray());
+            final SortedMap<String, JsonObject> candidates = new TreeMap<>();
+
+            for (final Object obj : devices) {
+                if (obj instanceof JsonObject) {
+                    final JsonObject device = (JsonObject) obj;
+                    final String deviceId = device.getString(RegistrationConstants.FIELD_PAYLOAD_DEVICE_ID);
+                    final JsonObject deviceData = device.getJsonObject(RegistrationConstants.FIELD_DATA, new JsonObject());
+                    if (deviceId != null && (firstDeviceId == null || deviceId.compareTo(firstDeviceId) >= 0)
+                            && isDeviceEnabled(deviceData)
+                            && isGatewayAuthorized(gatewayId, gatewayData, deviceId, deviceData)) {
+                        candidates.put(deviceId, deviceData);
+                    }
+                }
+            }
+
+            final JsonObject assertions = new JsonObject();
+            final JsonObject payload = new JsonObject()
+                    .put(RegistrationConstants.FIELD_PAYLOAD_DEVICE_ID, gatewayId)
+                    .put(RegistrationConstants.FIELD_DEVICES, assertions);
+
+            for (final Map.Entry<String, JsonObject> candidate : candidates.entrySet()) {
+                if (assertions.size() >= maxGatewayDevices) {
+                    log.debug("gateway [tenant: {}, gateway-id: {}] is connected to more than {} devices, next device is [{}]",
+                            tenantId, gatewayId, maxGatewayDevices, candidate.getKey());
+                    payload.put(RegistrationConstants.FIELD_NEXT_DEVICE_ID, candidate.getKey());
+                    break;
+                }
+                assertions.put(candidate.getKey(), getAssertionPayload(tenantId, candidate.getKey(), candidate.getValue()));
+            }
+            log.debug("asserted registration of {} devices connected via gateway [tenant: {}, gateway-id: {}]",
+                    assertions.size(), tenantId, gatewayId);
+            return RegistrationResult.from(
+                    HttpURLConnection.HTTP_OK,
+                    payload,
+                    CacheDirective.maxAgeDirective(assertionFactory.getAssertionLifetime()));
+        }).setHandler(resultHandler);
+    }
+
     /**
      * Handles an unimplemented operation by failing the given handler
      * with a {@link ClientErrorException} having a <em>501 Not Implemented</em> status code.
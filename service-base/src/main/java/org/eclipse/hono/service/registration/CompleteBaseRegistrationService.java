@@ -55,6 +55,7 @@ public abstract class CompleteBaseRegistrationService<T> extends BaseRegistratio
         case RegistrationConstants.ACTION_REGISTER:
             return processRegisterRequest(requestMessage);
         case RegistrationConstants.ACTION_ASSERT:
+        case RegistrationConstants.ACTION_ASSERT_GATEWAY_DEVICES:
             return super.processRequest(requestMessage);
         case RegistrationConstants.ACTION_GET:
             return processGetRequest(requestMessage);
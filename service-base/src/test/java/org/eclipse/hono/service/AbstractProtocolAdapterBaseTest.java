@@ -19,18 +19,24 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.qpid.proton.message.Message;
 import org.eclipse.hono.client.ClientErrorException;
 import org.eclipse.hono.client.HonoClient;
 import org.eclipse.hono.client.RegistrationClient;
+import org.eclipse.hono.client.ServerErrorException;
 import org.eclipse.hono.client.ServiceInvocationException;
 import org.eclipse.hono.client.CommandConnection;
 import org.eclipse.hono.auth.Device;
 import org.eclipse.hono.config.ProtocolAdapterProperties;
+import org.eclipse.hono.service.metric.Metrics;
+import org.eclipse.hono.service.metric.MetricsTags;
 import org.eclipse.hono.util.EventConstants;
 import org.eclipse.hono.util.MessageHelper;
 import org.eclipse.hono.util.RegistrationConstants;
+import org.eclipse.hono.util.TelemetryConstants;
+import org.eclipse.hono.util.TenantObject;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -72,6 +78,7 @@ public class AbstractProtocolAdapterBaseTest {
     private HonoClient credentialsService;
     private HonoClient messagingService;
     private CommandConnection commandConnection;
+    private Metrics metrics;
 
     /**
      * Sets up the fixture.
@@ -98,6 +105,8 @@ public class AbstractProtocolAdapterBaseTest {
         commandConnection = mock(CommandConnection.class);
         when(commandConnection.connect(any(Handler.class))).thenReturn(Future.succeededFuture(commandConnection));
 
+        metrics = mock(Metrics.class);
+
         properties = new ProtocolAdapterProperties();
         adapter = newProtocolAdapter(properties);
         adapter.setTenantServiceClient(tenantService);
@@ -328,6 +337,90 @@ public class AbstractProtocolAdapterBaseTest {
         }));
     }
 
+    /**
+     * Verifies that the adapter retrieves the next page of a gateway's device assertions
+     * if the device has been left out of the first page.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testGetRegistrationAssertionForGatewayRetrievesNextPage(final TestContext ctx) {
+
+        // GIVEN a registration service that includes a single device per page of gateway device assertions
+        final JsonObject assertionResult = newRegistrationAssertionResult("token");
+        when(registrationClient.assertGatewayDevices(eq("gw"), isNull(), any())).thenReturn(Future.succeededFuture(
+                new JsonObject()
+                    .put(RegistrationConstants.FIELD_DEVICES, new JsonObject().put("device-a", newRegistrationAssertionResult("other")))
+                    .put(RegistrationConstants.FIELD_NEXT_DEVICE_ID, "device-b")));
+        when(registrationClient.assertGatewayDevices(eq("gw"), eq("device-b"), any())).thenReturn(Future.succeededFuture(
+                new JsonObject()
+                    .put(RegistrationConstants.FIELD_DEVICES, new JsonObject().put("device-b", assertionResult))));
+
+        // WHEN the gateway retrieves an assertion for the device that has been left out of the first page
+        adapter.getRegistrationAssertion(
+                "tenant",
+                "device-b",
+                new Device("tenant", "gw"),
+                mock(SpanContext.class)).setHandler(ctx.asyncAssertSuccess(result -> {
+                    // THEN the result contains the assertion from the second page
+                    ctx.assertEquals(assertionResult, result);
+                    // without the device's registration status having been asserted individually
+                    verify(registrationClient, never()).assertRegistration(anyString(), any(), any());
+                }));
+    }
+
+    /**
+     * Verifies that the adapter falls back to asserting a device's registration status
+     * individually if the registration service does not support asserting a gateway's devices.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testGetRegistrationAssertionForGatewayFallsBackToIndividualAssertionOn501(final TestContext ctx) {
+
+        // GIVEN a registration service that does not support asserting a gateway's devices
+        final JsonObject assertionResult = newRegistrationAssertionResult("token");
+        when(registrationClient.assertGatewayDevices(eq("gw"), any(), any())).thenReturn(
+                Future.failedFuture(new ServerErrorException(HttpURLConnection.HTTP_NOT_IMPLEMENTED)));
+        when(registrationClient.assertRegistration(eq("device"), eq("gw"), any())).thenReturn(Future.succeededFuture(assertionResult));
+
+        // WHEN the gateway retrieves an assertion for a device
+        adapter.getRegistrationAssertion(
+                "tenant",
+                "device",
+                new Device("tenant", "gw"),
+                mock(SpanContext.class)).setHandler(ctx.asyncAssertSuccess(result -> {
+                    // THEN the device's registration status has been asserted individually
+                    ctx.assertEquals(assertionResult, result);
+                }));
+    }
+
+    /**
+     * Verifies that the adapter fails a request to retrieve a token for a gateway's device
+     * if the assertion of the gateway's devices fails with an error other than 501.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testGetRegistrationAssertionForGatewayFailsIfGatewayIsNotAuthorized(final TestContext ctx) {
+
+        // GIVEN a registration service that does not know the gateway
+        when(registrationClient.assertGatewayDevices(eq("gw"), any(), any())).thenReturn(
+                Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_FORBIDDEN)));
+
+        // WHEN the gateway retrieves an assertion for a device
+        adapter.getRegistrationAssertion(
+                "tenant",
+                "device",
+                new Device("tenant", "gw"),
+                mock(SpanContext.class)).setHandler(ctx.asyncAssertFailure(t -> {
+                    // THEN the request fails with a 403 Forbidden error
+                    ctx.assertEquals(HttpURLConnection.HTTP_FORBIDDEN, ((ClientErrorException) t).getErrorCode());
+                    // without the device's registration status having been asserted individually
+                    verify(registrationClient, never()).assertRegistration(anyString(), any(), any());
+                }));
+    }
+
     /**
      * Verifies that the adapter fails a request to retrieve a token for a gateway that does not
      * belong to the same tenant as the device it wants to act on behalf of.
@@ -351,6 +444,67 @@ public class AbstractProtocolAdapterBaseTest {
                 }));
     }
 
+    /**
+     * Verifies that the adapter reports the time elapsed since the start of
+     * an upload stage to its metrics.
+     */
+    @Test
+    public void testReportUploadStageReportsElapsedTime() {
+
+        // GIVEN a stage of processing a telemetry message that has been started a second ago
+        final long start = System.nanoTime() - TimeUnit.SECONDS.toNanos(1);
+
+        // WHEN the stage is reported
+        adapter.reportUploadStage(
+                MetricsTags.VALUE_STAGE_TOTAL,
+                TelemetryConstants.TELEMETRY_ENDPOINT,
+                MetricsTags.VALUE_QOS_AT_MOST_ONCE,
+                start);
+
+        // THEN the time elapsed since the start of the stage is reported
+        final ArgumentCaptor<Long> duration = ArgumentCaptor.forClass(Long.class);
+        verify(metrics).reportUploadStage(
+                eq(MetricsTags.VALUE_STAGE_TOTAL),
+                eq(TelemetryConstants.TELEMETRY_ENDPOINT),
+                eq(MetricsTags.VALUE_QOS_AT_MOST_ONCE),
+                duration.capture());
+        assertTrue(duration.getValue() >= TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Verifies that the adapter reports the duration of a failed upload stage
+     * to its metrics once the stage has completed.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testTimeUploadStageReportsDurationOfFailedStage(final TestContext ctx) {
+
+        // GIVEN a stage of processing a telemetry message that has not completed yet
+        final Future<TenantObject> stageTracker = Future.future();
+        final Future<TenantObject> result = adapter.timeUploadStage(
+                MetricsTags.VALUE_STAGE_TENANT,
+                TelemetryConstants.TELEMETRY_ENDPOINT,
+                MetricsTags.VALUE_QOS_AT_MOST_ONCE,
+                System.nanoTime(),
+                stageTracker);
+        verify(metrics, never()).reportUploadStage(anyString(), anyString(), anyString(), anyLong());
+
+        // WHEN the stage fails
+        stageTracker.fail(new ClientErrorException(HttpURLConnection.HTTP_NOT_FOUND));
+
+        // THEN the failure is propagated
+        result.setHandler(ctx.asyncAssertFailure(t -> {
+            ctx.assertEquals(HttpURLConnection.HTTP_NOT_FOUND, ((ServiceInvocationException) t).getErrorCode());
+            // and the duration of the stage has been reported
+            verify(metrics).reportUploadStage(
+                    eq(MetricsTags.VALUE_STAGE_TENANT),
+                    eq(TelemetryConstants.TELEMETRY_ENDPOINT),
+                    eq(MetricsTags.VALUE_QOS_AT_MOST_ONCE),
+                    anyLong());
+        }));
+    }
+
     private AbstractProtocolAdapterBase<ProtocolAdapterProperties> newProtocolAdapter(final ProtocolAdapterProperties props) {
 
         return newProtocolAdapter(props, ADAPTER_NAME);
@@ -381,6 +535,11 @@ public class AbstractProtocolAdapterBaseTest {
                 return typeName;
             }
 
+            @Override
+            protected Metrics getMetrics() {
+                return metrics;
+            }
+
             @Override
             public int getPortDefaultValue() {
                 return 0;
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.eclipse.hono.config.ProtocolAdapterProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+import org.junit.runner.RunWith;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+
+/**
+ * Tests verifying behavior of {@link EventLoopBlockedSampler}.
+ *
+ */
+@RunWith(VertxUnitRunner.class)
+public class EventLoopBlockedSamplerTest {
+
+    /**
+     * Time out each test after 10 seconds.
+     */
+    @Rule
+    public final Timeout timeout = Timeout.seconds(10);
+    /**
+     * The folder to write samples to.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Vertx vertx;
+    private EventLoopBlockedSampler sampler;
+
+    /**
+     * Sets up the fixture.
+     */
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    /**
+     * Cleans up the fixture.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @After
+    public void tearDown(final TestContext ctx) {
+        if (sampler != null) {
+            sampler.stop();
+        }
+        vertx.close(ctx.asyncAssertSuccess());
+    }
+
+    /**
+     * Verifies that the sampler writes the stack of a blocked event loop
+     * thread in collapsed stack format once the event loop recovers.
+     *
+     * @param ctx The vert.x test context.
+     * @throws Exception if the samples cannot be read.
+     */
+    @Test
+    public void testSamplerWritesStacksOfBlockedEventLoop(final TestContext ctx) throws Exception {
+
+        final Path dir = folder.getRoot().toPath();
+        sampler = new EventLoopBlockedSampler(vertx, 50, dir);
+        final Async blocked = ctx.async();
+        vertx.runOnContext(go -> {
+            sampler.start();
+            vertx.runOnContext(block -> {
+                // GIVEN an event loop that is being blocked
+                blockEventLoop(500);
+                blocked.complete();
+            });
+        });
+        blocked.await();
+
+        // WHEN the event loop recovers
+        final Path samples = dir.resolve(sampler.getOutputFile().getFileName());
+        while (!Files.exists(samples)) {
+            Thread.sleep(EventLoopBlockedSampler.SAMPLING_INTERVAL_MILLIS);
+        }
+
+        // THEN the samples contain the blocking method
+        final List<String> lines = Files.readAllLines(samples, StandardCharsets.UTF_8);
+        assertTrue(lines.stream().anyMatch(line -> line.contains(
+                EventLoopBlockedSamplerTest.class.getName() + ".blockEventLoop;java.lang.Thread.sleep ")));
+        // and each line ends with the number of samples
+        assertThat(lines.stream().allMatch(line -> line.matches("\\S+ \\d+")), is(true));
+    }
+
+    /**
+     * Verifies that the sampler writes only the stacks of the most recent
+     * blocked period.
+     *
+     * @param ctx The vert.x test context.
+     * @throws Exception if the samples cannot be read.
+     */
+    @Test
+    public void testSamplerDiscardsSamplesOfPreviousBlockedPeriod(final TestContext ctx) throws Exception {
+
+        final Path dir = folder.getRoot().toPath();
+        sampler = new EventLoopBlockedSampler(vertx, 50, dir);
+        final Context context = vertx.getOrCreateContext();
+        final Async started = ctx.async();
+        context.runOnContext(go -> {
+            sampler.start();
+            started.complete();
+        });
+        started.await();
+        final Path samples = dir.resolve(sampler.getOutputFile().getFileName());
+
+        // GIVEN a sampler that has written the samples of a blocked period
+        blockAndAwaitSamples(ctx, context, samples, () -> blockEventLoop(300));
+        Files.delete(samples);
+
+        // WHEN the event loop is blocked again by another method
+        blockAndAwaitSamples(ctx, context, samples, () -> blockEventLoopAgain(300));
+
+        // THEN the samples contain the stacks of the second period only
+        final List<String> lines = Files.readAllLines(samples, StandardCharsets.UTF_8);
+        assertTrue(lines.stream().anyMatch(line -> line.contains(".blockEventLoopAgain;")));
+        assertFalse(lines.stream().anyMatch(line -> line.contains(".blockEventLoop;")));
+    }
+
+    /**
+     * Verifies that the sampler cannot be started on a non event loop thread.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testStartFailsOnNonEventLoopThread() {
+        new EventLoopBlockedSampler(vertx, 50, folder.getRoot().toPath()).start();
+    }
+
+    /**
+     * Verifies that the sampler accepts every threshold that passes validation
+     * of the protocol adapter configuration.
+     */
+    @Test
+    public void testSamplerAcceptsMinimumConfigurableThreshold() {
+
+        final ProtocolAdapterProperties config = new ProtocolAdapterProperties();
+        config.setEventLoopBlockedSamplingThreshold(ProtocolAdapterProperties.MIN_EVENT_LOOP_BLOCKED_SAMPLING_THRESHOLD);
+        new EventLoopBlockedSampler(vertx, config.getEventLoopBlockedSamplingThreshold(), folder.getRoot().toPath());
+    }
+
+    /**
+     * Verifies that the protocol adapter configuration rejects a threshold
+     * that the sampler does not support.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testConfigRejectsUnsupportedThreshold() {
+
+        new ProtocolAdapterProperties().setEventLoopBlockedSamplingThreshold(
+                ProtocolAdapterProperties.MIN_EVENT_LOOP_BLOCKED_SAMPLING_THRESHOLD - 1);
+    }
+
+    private static void blockAndAwaitSamples(
+            final TestContext ctx,
+            final Context context,
+            final Path samples,
+            final Runnable blocker) throws InterruptedException {
+
+        final Async blocked = ctx.async();
+        context.runOnContext(block -> {
+            blocker.run();
+            blocked.complete();
+        });
+        blocked.await();
+        while (!Files.exists(samples)) {
+            Thread.sleep(EventLoopBlockedSampler.SAMPLING_INTERVAL_MILLIS);
+        }
+    }
+
+    private static void blockEventLoopAgain(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void blockEventLoop(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.service;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.eclipse.hono.config.ProtocolAdapterProperties;
+import org.eclipse.hono.service.metric.Metrics;
+import org.eclipse.hono.service.metric.MetricsTags;
+import org.eclipse.hono.service.metric.MicrometerBasedMetrics;
+import org.eclipse.hono.util.MapBasedExecutionContext;
+import org.eclipse.hono.util.TelemetryConstants;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
+
+/**
+ * Guards against allocations being (re-)introduced on the steady state path of
+ * processing messages uploaded by devices.
+ * <p>
+ * The tests measure the bytes allocated by the current thread while repeatedly
+ * invoking an operation that is executed for every uploaded message. The operations
+ * are expected not to allocate any memory once they have been warmed up. The tests
+ * are skipped on JVMs that do not support measuring a thread's allocations.
+ */
+public class UploadPathAllocationTest {
+
+    /**
+     * Time out each test after 10 seconds.
+     */
+    @Rule
+    public final Timeout timeout = Timeout.seconds(10);
+
+    private static final int ITERATIONS = 100_000;
+    /**
+     * The number of bytes that may be allocated per invocation on average.
+     * <p>
+     * The budget accounts for the few bytes allocated by measuring the
+     * allocations itself.
+     */
+    private static final double BUDGET_BYTES_PER_INVOCATION = 1.0;
+
+    private com.sun.management.ThreadMXBean threadBean;
+    private Metrics metrics;
+
+    /**
+     * Sets up the fixture.
+     */
+    @Before
+    public void setUp() {
+
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        metrics = new MicrometerBasedMetrics(new SimpleMeterRegistry()) {
+        };
+    }
+
+    /**
+     * Verifies that counting a processed message does not allocate memory.
+     */
+    @Test
+    public void testCountingProcessedMessageDoesNotAllocate() {
+
+        assertWithinBudget("counting processed message", () -> {
+            metrics.incrementProcessedMessages(TelemetryConstants.TELEMETRY_ENDPOINT, "tenant");
+            metrics.incrementProcessedPayload(TelemetryConstants.TELEMETRY_ENDPOINT, "tenant", 128);
+        });
+    }
+
+    /**
+     * Verifies that reporting the duration of an upload stage does not allocate memory.
+     */
+    @Test
+    public void testReportingUploadStageDoesNotAllocate() {
+
+        final AbstractProtocolAdapterBase<ProtocolAdapterProperties> adapter = newProtocolAdapter(metrics);
+        final long start = System.nanoTime();
+
+        assertWithinBudget("reporting upload stage", () -> {
+            adapter.reportUploadStage(MetricsTags.VALUE_STAGE_TOTAL, TelemetryConstants.TELEMETRY_ENDPOINT,
+                    MetricsTags.VALUE_QOS_AT_MOST_ONCE, start);
+        });
+    }
+
+    /**
+     * Verifies that looking up a value of a message's execution context does not allocate memory.
+     */
+    @Test
+    public void testExecutionContextLookupDoesNotAllocate() {
+
+        final MapBasedExecutionContext ctx = new MapBasedExecutionContext() {
+        };
+        ctx.put("key", "value");
+
+        assertWithinBudget("execution context lookup", () -> {
+            ctx.get("key");
+            ctx.get("unknown", "default");
+        });
+    }
+
+    private void assertWithinBudget(final String operation, final Runnable invocation) {
+
+        // warm up
+        for (int i = 0; i < ITERATIONS; i++) {
+            invocation.run();
+        }
+        final long threadId = Thread.currentThread().getId();
+        final long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            invocation.run();
+        }
+        final long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+        final double perInvocation = (double) allocated / ITERATIONS;
+        assertTrue(String.format("%s allocates %.2f bytes per invocation", operation, perInvocation),
+                perInvocation <= BUDGET_BYTES_PER_INVOCATION);
+    }
+
+    private static AbstractProtocolAdapterBase<ProtocolAdapterProperties> newProtocolAdapter(final Metrics metrics) {
+
+        return new AbstractProtocolAdapterBase<ProtocolAdapterProperties>() {
+
+            @Override
+            protected String getTypeName() {
+                return "test";
+            }
+
+            @Override
+            protected Metrics getMetrics() {
+                return metrics;
+            }
+
+            @Override
+            public int getPortDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public int getInsecurePortDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            protected int getActualPort() {
+                return 0;
+            }
+
+            @Override
+            protected int getActualInsecurePort() {
+                return 0;
+            }
+
+            @Override
+            protected void doStart(final Future<Void> startFuture) {
+                startFuture.complete();
+            }
+        };
+    }
+}
@@ -13,18 +13,29 @@
 
 package org.eclipse.hono.service.auth.device;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.net.HttpURLConnection;
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 
+import org.eclipse.hono.auth.Device;
 import org.eclipse.hono.client.ClientErrorException;
 import org.eclipse.hono.client.CredentialsClient;
 import org.eclipse.hono.client.HonoClient;
 import org.eclipse.hono.client.ServerErrorException;
+import org.eclipse.hono.util.CredentialsConstants;
+import org.eclipse.hono.util.CredentialsObject;
+import org.eclipse.hono.util.DeviceContext;
+import org.eclipse.hono.util.RegistrationConstants;
+import org.eclipse.hono.util.TenantObject;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -61,6 +72,9 @@ public class CredentialsApiAuthProviderTest {
     public void setUp() {
 
         credentialsClient = mock(CredentialsClient.class);
+        // by default, the Credentials service does not support the combined look up
+        when(credentialsClient.getDeviceContext(anyString(), anyString(), any()))
+            .thenReturn(Future.failedFuture(new ServerErrorException(HttpURLConnection.HTTP_NOT_IMPLEMENTED)));
         honoClient = mock(HonoClient.class);
         when(honoClient.getOrCreateCredentialsClient(anyString())).thenReturn(Future.succeededFuture(credentialsClient));
 
@@ -128,4 +142,147 @@ public class CredentialsApiAuthProviderTest {
         }));
     }
 
+    /**
+     * Verifies that the auth provider does not retrieve and validate the credentials
+     * on record again if a device has already been authenticated successfully using
+     * the same credentials.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testAuthenticateUsesCachedAuthentication(final TestContext ctx) {
+
+        // GIVEN an auth provider with authentication caching enabled
+        final CredentialsApiAuthProvider cachingProvider = newCachingProvider();
+        final CredentialsObject credentialsOnRecord = new CredentialsObject("device", "user", CredentialsConstants.SECRETS_TYPE_HASHED_PASSWORD);
+        when(credentialsClient.get(anyString(), eq("user"))).thenReturn(Future.succeededFuture(credentialsOnRecord));
+
+        // WHEN a device authenticates twice using the same credentials
+        cachingProvider.authenticate(UsernamePasswordCredentials.create("user@TENANT", "secret", false), ctx.asyncAssertSuccess(device -> {
+            cachingProvider.authenticate(UsernamePasswordCredentials.create("user@TENANT", "secret", false), ctx.asyncAssertSuccess(cached -> {
+                // THEN both attempts succeed
+                ctx.assertEquals("TENANT", cached.getTenantId());
+                ctx.assertEquals("device", cached.getDeviceId());
+                // but the credentials on record have been retrieved once only
+                verify(credentialsClient, times(1)).get(anyString(), eq("user"));
+            }));
+        }));
+    }
+
+    /**
+     * Verifies that the auth provider validates the credentials provided by a device
+     * if they differ from the ones that the device has been authenticated with before
+     * and that the cached authentication is discarded if the validation fails.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testAuthenticateDiscardsCachedAuthenticationForWrongPassword(final TestContext ctx) {
+
+        // GIVEN an auth provider with authentication caching enabled
+        final CredentialsApiAuthProvider cachingProvider = newCachingProvider();
+        final CredentialsObject credentialsOnRecord = new CredentialsObject("device", "user", CredentialsConstants.SECRETS_TYPE_HASHED_PASSWORD);
+        when(credentialsClient.get(anyString(), eq("user"))).thenReturn(Future.succeededFuture(credentialsOnRecord));
+
+        // and a device that has been authenticated successfully
+        cachingProvider.authenticate(UsernamePasswordCredentials.create("user@TENANT", "secret", false), ctx.asyncAssertSuccess(device -> {
+            // WHEN the device tries to authenticate using a wrong password
+            cachingProvider.authenticate(UsernamePasswordCredentials.create("user@TENANT", "wrong", false), ctx.asyncAssertFailure(t -> {
+                // THEN authentication fails with a 401
+                ctx.assertEquals(HttpURLConnection.HTTP_UNAUTHORIZED, ((ClientErrorException) t).getErrorCode());
+                // and a subsequent authentication using the original password validates the credentials again
+                cachingProvider.authenticate(UsernamePasswordCredentials.create("user@TENANT", "secret", false), ctx.asyncAssertSuccess(d -> {
+                    verify(credentialsClient, times(3)).get(anyString(), eq("user"));
+                }));
+            }));
+        }));
+    }
+
+    /**
+     * Verifies that the auth provider retrieves the credentials on record together with
+     * the tenant and the registration status of the device using a single request
+     * and that the authenticated device contains this information.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testAuthenticateRetrievesDeviceContextUsingSingleRequest(final TestContext ctx) {
+
+        // GIVEN a Credentials service supporting the combined look up
+        final CredentialsApiAuthProvider cachingProvider = newCachingProvider();
+        final DeviceContext deviceContext = DeviceContext.from(
+                new CredentialsObject("device", "user", CredentialsConstants.SECRETS_TYPE_HASHED_PASSWORD),
+                TenantObject.from("TENANT", true),
+                new JsonObject().put(RegistrationConstants.FIELD_ASSERTION, "token"));
+        when(credentialsClient.getDeviceContext(anyString(), eq("user"), any()))
+            .thenReturn(Future.succeededFuture(deviceContext));
+
+        // WHEN a device authenticates
+        cachingProvider.authenticate(UsernamePasswordCredentials.create("user@TENANT", "secret", false), ctx.asyncAssertSuccess(device -> {
+            // THEN the authenticated device contains the device context
+            ctx.assertEquals("device", device.getDeviceId());
+            ctx.assertEquals(deviceContext, device.getDeviceContext());
+            // which has been retrieved using a single request
+            verify(credentialsClient).getDeviceContext(anyString(), eq("user"), any());
+            verify(credentialsClient, never()).get(anyString(), anyString());
+        }));
+    }
+
+    /**
+     * Verifies that the auth provider falls back to retrieving the credentials on record
+     * only if the Credentials service does not support the combined look up and that
+     * the combined look up is not attempted again afterwards.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testAuthenticateFallsBackToCredentialsLookupIfDeviceContextIsNotSupported(final TestContext ctx) {
+
+        // GIVEN a Credentials service that does not support the combined look up
+        final CredentialsApiAuthProvider cachingProvider = newCachingProvider();
+        final CredentialsObject credentialsOnRecord = new CredentialsObject("device", "user", CredentialsConstants.SECRETS_TYPE_HASHED_PASSWORD);
+        when(credentialsClient.get(anyString(), eq("user"))).thenReturn(Future.succeededFuture(credentialsOnRecord));
+
+        // WHEN a device authenticates
+        cachingProvider.authenticate(UsernamePasswordCredentials.create("user@TENANT", "secret", false), ctx.asyncAssertSuccess(device -> {
+            // THEN the credentials on record are retrieved individually
+            ctx.assertNull(device.getDeviceContext());
+            verify(credentialsClient).get(anyString(), eq("user"));
+            // and a subsequent authentication does not attempt the combined look up again
+            cachingProvider.authenticate(UsernamePasswordCredentials.create("user@TENANT", "wrong", false), ctx.asyncAssertFailure(t -> {
+                verify(credentialsClient, times(1)).getDeviceContext(anyString(), anyString(), any());
+                verify(credentialsClient, times(2)).get(anyString(), eq("user"));
+            }));
+        }));
+    }
+
+    private CredentialsApiAuthProvider newCachingProvider() {
+
+        final CredentialsApiAuthProvider cachingProvider = new CredentialsApiAuthProvider(honoClient) {
+
+            @Override
+            protected DeviceCredentials getCredentials(final JsonObject authInfo) {
+                return null;
+            }
+
+            @Override
+            protected String getSecret(final DeviceCredentials deviceCredentials) {
+                return ((UsernamePasswordCredentials) deviceCredentials).getPassword();
+            }
+
+            @Override
+            protected Future<Device> validateCredentials(
+                    final DeviceCredentials deviceCredentials,
+                    final CredentialsObject credentialsOnRecord) {
+
+                if ("secret".equals(getSecret(deviceCredentials))) {
+                    return Future.succeededFuture(new Device(deviceCredentials.getTenantId(), credentialsOnRecord.getDeviceId()));
+                } else {
+                    return Future.failedFuture(new ClientErrorException(HttpURLConnection.HTTP_UNAUTHORIZED, "bad credentials"));
+                }
+            }
+        };
+        cachingProvider.enableAuthenticationCache(100, Duration.ofMinutes(1));
+        return cachingProvider;
+    }
 }
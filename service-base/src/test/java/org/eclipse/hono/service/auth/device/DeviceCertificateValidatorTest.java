@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.hono.service.auth.device;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.eclipse.hono.util.TenantObject;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.vertx.core.Future;
+import io.vertx.core.net.SelfSignedCertificate;
+
+/**
+ * Tests verifying behavior of {@link DeviceCertificateValidator}.
+ *
+ */
+public class DeviceCertificateValidatorTest {
+
+    private static X509Certificate deviceCert;
+    private static X509Certificate otherCert;
+
+    private DeviceCertificateValidator validator;
+
+    /**
+     * Creates the certificates used by the tests.
+     *
+     * @throws GeneralSecurityException if the certificates cannot be created.
+     * @throws IOException if the certificates cannot be read.
+     */
+    @BeforeClass
+    public static void createCertificates() throws GeneralSecurityException, IOException {
+
+        deviceCert = createCertificate();
+        otherCert = createCertificate();
+    }
+
+    /**
+     * Sets up the fixture.
+     */
+    @Before
+    public void setUp() {
+        validator = spy(new DeviceCertificateValidator());
+    }
+
+    /**
+     * Verifies that the outcome of a successful validation is used for subsequent
+     * validations of the same chain without validating the certificate path again.
+     *
+     * @throws GeneralSecurityException if the certificate path cannot be validated.
+     */
+    @Test
+    public void testValidateUsesCachedResult() throws GeneralSecurityException {
+
+        final List<X509Certificate> chain = Collections.singletonList(deviceCert);
+        final TrustAnchor trustAnchor = new TrustAnchor(deviceCert, null);
+
+        assertTrue(validator.validate(chain, trustAnchor).succeeded());
+        assertTrue(validator.validate(chain, trustAnchor).succeeded());
+        verify(validator, times(1)).validateCertPath(any(), any());
+    }
+
+    /**
+     * Verifies that the outcome of a failed validation is not cached.
+     *
+     * @throws GeneralSecurityException if the certificate path cannot be validated.
+     */
+    @Test
+    public void testValidateDoesNotCacheFailedValidation() throws GeneralSecurityException {
+
+        // GIVEN a device certificate which has not been issued by the trust anchor
+        final List<X509Certificate> chain = Collections.singletonList(deviceCert);
+        final TrustAnchor trustAnchor = new TrustAnchor(otherCert, null);
+
+        // WHEN validating the chain twice
+        final Future<Void> firstResult = validator.validate(chain, trustAnchor);
+        final Future<Void> secondResult = validator.validate(chain, trustAnchor);
+
+        // THEN both validations fail
+        assertTrue(firstResult.failed());
+        assertTrue(secondResult.failed());
+        // and the certificate path has been validated each time
+        verify(validator, times(2)).validateCertPath(any(), any());
+    }
+
+    /**
+     * Verifies that a cached validation result is not used anymore once the
+     * device certificate has expired.
+     *
+     * @throws GeneralSecurityException if the certificate path cannot be validated.
+     */
+    @Test
+    public void testValidateFailsForExpiredCertificateWithCachedResult() throws GeneralSecurityException {
+
+        // GIVEN a chain that has been validated successfully
+        final List<X509Certificate> chain = Collections.singletonList(deviceCert);
+        final TrustAnchor trustAnchor = new TrustAnchor(deviceCert, null);
+        assertTrue(validator.validate(chain, trustAnchor).succeeded());
+
+        // WHEN the device certificate's notAfter date has passed
+        validator.setClock(Clock.fixed(
+                Instant.ofEpochMilli(deviceCert.getNotAfter().getTime() + 1), ZoneOffset.UTC));
+
+        // THEN the chain is validated again and is rejected
+        assertTrue(validator.validate(chain, trustAnchor).failed());
+        verify(validator, times(2)).validateCertPath(any(), any());
+    }
+
+    /**
+     * Verifies that the trust anchor of a tenant is cached as long as the
+     * tenant's trusted CA does not change.
+     *
+     * @throws GeneralSecurityException if the trust anchor cannot be created.
+     */
+    @Test
+    public void testGetTrustAnchorUsesCachedTrustAnchor() throws GeneralSecurityException {
+
+        final TrustAnchor trustAnchor = validator.getTrustAnchor(
+                TenantObject.from("tenant", true).setTrustAnchor(deviceCert));
+        final TrustAnchor cachedTrustAnchor = validator.getTrustAnchor(
+                TenantObject.from("tenant", true).setTrustAnchor(deviceCert));
+
+        assertThat(cachedTrustAnchor, sameInstance(trustAnchor));
+    }
+
+    /**
+     * Verifies that a cached trust anchor is not used anymore once the
+     * tenant's trusted CA has changed.
+     *
+     * @throws GeneralSecurityException if the trust anchor cannot be created.
+     */
+    @Test
+    public void testGetTrustAnchorDetectsChangedTrustedCa() throws GeneralSecurityException {
+
+        // GIVEN a trust anchor that has been cached for a tenant
+        final TrustAnchor trustAnchor = validator.getTrustAnchor(
+                TenantObject.from("tenant", true).setTrustAnchor(deviceCert));
+
+        // WHEN the tenant's trusted CA is changed
+        final TrustAnchor updatedTrustAnchor = validator.getTrustAnchor(
+                TenantObject.from("tenant", true).setTrustAnchor(otherCert));
+
+        // THEN the trust anchor for the new CA is returned
+        assertThat(updatedTrustAnchor, not(sameInstance(trustAnchor)));
+        assertThat(updatedTrustAnchor.getTrustedCert(), is(otherCert));
+    }
+
+    private static X509Certificate createCertificate() throws GeneralSecurityException, IOException {
+
+        final SelfSignedCertificate selfSignedCert = SelfSignedCertificate.create(UUID.randomUUID().toString());
+        try (InputStream is = new FileInputStream(selfSignedCert.certificatePath())) {
+            return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(is);
+        } finally {
+            selfSignedCert.delete();
+        }
+    }
+}
@@ -14,16 +14,19 @@
 
 package org.eclipse.hono.service.auth.device;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.net.HttpURLConnection;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.hono.client.ClientErrorException;
 import org.eclipse.hono.client.CredentialsClient;
 import org.eclipse.hono.client.HonoClient;
+import org.eclipse.hono.client.ServerErrorException;
 import org.eclipse.hono.config.ServiceConfigProperties;
 import org.eclipse.hono.util.ClearTextPassword;
 import org.eclipse.hono.util.CredentialsConstants;
@@ -36,6 +39,7 @@ import org.junit.runner.RunWith;
 
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 
@@ -77,6 +81,8 @@ public class UsernamePasswordAuthProviderTest {
 
         credentialsClient = mock(CredentialsClient.class);
         when(credentialsClient.get(anyString(), anyString())).thenReturn(Future.succeededFuture(credentialsOnRecord));
+        when(credentialsClient.getDeviceContext(anyString(), anyString(), any()))
+            .thenReturn(Future.failedFuture(new ServerErrorException(HttpURLConnection.HTTP_NOT_IMPLEMENTED)));
         credentialsServiceClient = mock(HonoClient.class);
         when(credentialsServiceClient.getOrCreateCredentialsClient(anyString())).thenReturn(Future.succeededFuture(credentialsClient));
 
@@ -131,4 +137,80 @@ public class UsernamePasswordAuthProviderTest {
         });
     }
 
+    /**
+     * Verifies that the provider rejects an authentication attempt with a 503 if
+     * the maximum number of validations waiting to be executed has been reached.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testAuthenticateFailsWith503IfValidationQueueIsFull(final TestContext ctx) {
+
+        // GIVEN a provider that does not allow any validations to wait for execution
+        provider.setValidationQueueSize(0);
+        vertx.runOnContext(go -> {
+            // WHEN a device tries to authenticate
+            provider.authenticate(deviceCredentials, ctx.asyncAssertFailure(e -> {
+                // THEN the attempt is rejected with a 503
+                ctx.assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, ((ServerErrorException) e).getErrorCode());
+            }));
+        });
+    }
+
+    /**
+     * Verifies that the maximum number of validations waiting to be executed applies
+     * to the validations of all providers because they share the validation pool.
+     *
+     * @param ctx The vert.x test context.
+     * @throws InterruptedException if the test is interrupted while waiting for the pool.
+     */
+    @Test
+    public void testValidationQueueIsSharedByProviders(final TestContext ctx) throws InterruptedException {
+
+        // GIVEN two providers sharing a validation pool with a single thread
+        // that allows a single validation to wait for execution
+        final Vertx otherVertx = Vertx.vertx();
+        final UsernamePasswordAuthProvider otherProvider = new UsernamePasswordAuthProvider(
+                credentialsServiceClient, new ServiceConfigProperties());
+        provider.setValidationPoolSize(1);
+        provider.setValidationQueueSize(1);
+        otherProvider.setValidationPoolSize(1);
+        otherProvider.setValidationQueueSize(1);
+
+        // and a validation that blocks the pool's thread
+        final CountDownLatch validationStarted = new CountDownLatch(1);
+        final CountDownLatch releaseValidation = new CountDownLatch(1);
+        final DeviceCredentials blockingCredentials = mock(DeviceCredentials.class);
+        when(blockingCredentials.getTenantId()).thenReturn("DEFAULT_TENANT");
+        when(blockingCredentials.validate(any(CredentialsObject.class))).thenAnswer(invocation -> {
+            validationStarted.countDown();
+            releaseValidation.await();
+            return true;
+        });
+        otherVertx.runOnContext(go -> provider.validateOnWorkerPool(blockingCredentials, credentialsOnRecord));
+        validationStarted.await();
+
+        // and a validation of the first provider that is waiting for the thread
+        final Async rejected = ctx.async();
+        final Async queuedValidationDone = ctx.async();
+        otherVertx.runOnContext(go -> {
+            provider.validateOnWorkerPool(blockingCredentials, credentialsOnRecord)
+                .setHandler(ctx.asyncAssertSuccess(device -> queuedValidationDone.complete()));
+
+            // WHEN a validation is submitted by the other provider
+            otherProvider.validateOnWorkerPool(blockingCredentials, credentialsOnRecord).setHandler(ctx.asyncAssertFailure(e -> {
+                // THEN it is rejected with a 503
+                ctx.assertEquals(HttpURLConnection.HTTP_UNAVAILABLE, ((ServerErrorException) e).getErrorCode());
+                rejected.complete();
+            }));
+        });
+        rejected.await();
+
+        // make sure that the waiting validation is executed before the pool is closed
+        releaseValidation.countDown();
+        queuedValidationDone.await();
+        provider.close();
+        otherProvider.close();
+        otherVertx.close(ctx.asyncAssertSuccess());
+    }
 }
@@ -15,19 +15,28 @@ package org.eclipse.hono.service.credentials;
 import java.net.HttpURLConnection;
 
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
 import org.eclipse.hono.client.ServiceInvocationException;
 import org.eclipse.hono.config.ServiceConfigProperties;
 import org.eclipse.hono.util.CredentialsConstants;
 import org.eclipse.hono.util.CredentialsObject;
 import org.eclipse.hono.util.CredentialsResult;
+import org.eclipse.hono.util.DeviceContext;
 import org.eclipse.hono.util.EventBusMessage;
+import org.eclipse.hono.util.RegistrationConstants;
+import org.eclipse.hono.util.TenantConstants;
+import org.eclipse.hono.util.TenantObject;
+import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.rules.Timeout;
 import org.junit.runner.RunWith;
 
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 
@@ -38,6 +47,7 @@ import io.vertx.ext.unit.junit.VertxUnitRunner;
 public class BaseCredentialsServiceTest {
 
     private static BaseCredentialsService<ServiceConfigProperties> service;
+    private static Vertx vertx;
 
     private static final String TEST_TENANT = "dummy";
 
@@ -51,7 +61,19 @@ public class BaseCredentialsServiceTest {
      */
     @BeforeClass
     public static void setUp() {
+        vertx = Vertx.vertx();
         service = createBaseCredentialsService();
+        service.init(vertx, vertx.getOrCreateContext());
+    }
+
+    /**
+     * Shuts down vert.x.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @AfterClass
+    public static void shutDown(final TestContext ctx) {
+        vertx.close(ctx.asyncAssertSuccess());
     }
 
     /**
@@ -102,6 +124,81 @@ public class BaseCredentialsServiceTest {
         }));
     }
 
+    /**
+     * Verifies that the base service combines the credentials, the tenant
+     * configuration and the registration assertion retrieved from the services
+     * listening on the local event bus into a single response.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testGetDeviceContextCombinesLookups(final TestContext ctx) {
+
+        // GIVEN a tenant and a registration service listening on the event bus
+        final MessageConsumer<JsonObject> tenantService = vertx.eventBus().consumer(
+                TenantConstants.EVENT_BUS_ADDRESS_TENANT_IN,
+                msg -> {
+                    final EventBusMessage request = EventBusMessage.fromJson(msg.body());
+                    ctx.assertEquals(TEST_TENANT, request.getJsonPayload().getString(TenantConstants.FIELD_PAYLOAD_TENANT_ID));
+                    msg.reply(request.getResponse(HttpURLConnection.HTTP_OK)
+                            .setJsonPayload(JsonObject.mapFrom(TenantObject.from(TEST_TENANT, true)))
+                            .toJson());
+                });
+        final MessageConsumer<JsonObject> registrationService = vertx.eventBus().consumer(
+                RegistrationConstants.EVENT_BUS_ADDRESS_REGISTRATION_IN,
+                msg -> {
+                    final EventBusMessage request = EventBusMessage.fromJson(msg.body());
+                    ctx.assertEquals(TEST_TENANT, request.getTenant());
+                    ctx.assertEquals("4711", request.getDeviceId());
+                    msg.reply(request.getResponse(HttpURLConnection.HTTP_OK)
+                            .setJsonPayload(new JsonObject().put(RegistrationConstants.FIELD_ASSERTION, "token"))
+                            .toJson());
+                });
+
+        // WHEN processing a request for the context of a device
+        final EventBusMessage request = createRequestForPayload(
+                CredentialsConstants.CredentialsAction.getDeviceContext,
+                new JsonObject()
+                    .put(CredentialsConstants.FIELD_TYPE, "my-type")
+                    .put(CredentialsConstants.FIELD_AUTH_ID, "device"));
+
+        final Async unregistration = ctx.async();
+        service.processRequest(request).setHandler(ctx.asyncAssertSuccess(response -> {
+            tenantService.unregister(ok -> registrationService.unregister(done -> unregistration.complete()));
+            // THEN the response contains the credentials, the tenant and the assertion
+            ctx.assertEquals(HttpURLConnection.HTTP_OK, response.getStatus());
+            ctx.assertEquals("4711", response.getDeviceId());
+            final DeviceContext context = DeviceContext.fromJson(response.getJsonPayload());
+            ctx.assertEquals("4711", context.getDeviceId());
+            ctx.assertEquals(TEST_TENANT, context.getTenant().getTenantId());
+            ctx.assertEquals("token", context.getRegistrationAssertion().getString(RegistrationConstants.FIELD_ASSERTION));
+        }));
+    }
+
+    /**
+     * Verifies that the base service fails a request for getting a device's context
+     * with a 501 error code if the tenant and registration services are not running
+     * in the same vert.x instance.
+     *
+     * @param ctx The vert.x test context.
+     */
+    @Test
+    public void testGetDeviceContextFailsForMissingServices(final TestContext ctx) {
+
+        // GIVEN a credentials service without tenant and registration services
+        final EventBusMessage request = createRequestForPayload(
+                CredentialsConstants.CredentialsAction.getDeviceContext,
+                new JsonObject()
+                    .put(CredentialsConstants.FIELD_TYPE, "my-type")
+                    .put(CredentialsConstants.FIELD_AUTH_ID, "device"));
+
+        // WHEN processing a request for the context of a device
+        service.processRequest(request).setHandler(ctx.asyncAssertFailure(t -> {
+            // THEN the request fails with a 501 error code
+            ctx.assertEquals(HttpURLConnection.HTTP_NOT_IMPLEMENTED, ((ServiceInvocationException) t).getErrorCode());
+        }));
+    }
+
     private static EventBusMessage createRequestForPayload(final CredentialsConstants.CredentialsAction operation, final JsonObject payload) {
 
         return EventBusMessage.forOperation(operation.name())
@@ -117,6 +214,14 @@ public class BaseCredentialsServiceTest {
             public void setConfig(final ServiceConfigProperties configuration) {
             }
 
+            @Override
+            public void get(final String tenantId, final String type, final String authId, final JsonObject clientContext,
+                    final Handler<AsyncResult<CredentialsResult<JsonObject>>> resultHandler) {
+                final CredentialsObject credentials = new CredentialsObject("4711", authId, type);
+                resultHandler.handle(Future.succeededFuture(
+                        CredentialsResult.from(HttpURLConnection.HTTP_OK, JsonObject.mapFrom(credentials))));
+            }
+
             @Override
             public void getAll(final String tenantId, final String deviceId, final Handler<AsyncResult<CredentialsResult<JsonObject>>> resultHandler){
             }
@@ -34,6 +34,7 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
@@ -248,6 +249,98 @@ public class BaseRegistrationServiceTest {
         }));
     }
 
+    /**
+     * Verifies that the assertions for a gateway's devices contain only enabled devices
+     * which are configured to be connected via the gateway.
+     *
+     * @param ctx The vertx unit test context.
+     */
+    @Test
+    public void testAssertGatewayDevicesReturnsTokensForAuthorizedDevices(final TestContext ctx) {
+
+        // GIVEN a registry that contains an enabled device connected to an enabled gateway,
+        // a disabled device and a device connected to another gateway
+        final BaseRegistrationService<ServiceConfigProperties> registrationService = newRegistrationService();
+        registrationService.setRegistrationAssertionFactory(RegistrationAssertionHelperImpl.forSigning(vertx, props));
+
+        // WHEN asserting the registration status of the gateway's devices
+        registrationService.assertGatewayDevices(Constants.DEFAULT_TENANT, "gw-1", null, ctx.asyncAssertSuccess(result -> {
+            // THEN the response contains a 200 status
+            ctx.assertEquals(HttpURLConnection.HTTP_OK, result.getStatus());
+            // and contains a JWT token for the connected devices only
+            final JsonObject devices = result.getPayload().getJsonObject(RegistrationConstants.FIELD_DEVICES);
+            ctx.assertEquals(2, devices.size());
+            ctx.assertNotNull(devices.getJsonObject("4711").getString(RegistrationConstants.FIELD_ASSERTION));
+            ctx.assertNotNull(devices.getJsonObject("4714").getString(RegistrationConstants.FIELD_ASSERTION));
+            ctx.assertNull(result.getPayload().getString(RegistrationConstants.FIELD_NEXT_DEVICE_ID));
+            // which may be cached
+            ctx.assertNotNull(result.getCacheDirective());
+        }));
+    }
+
+    /**
+     * Verifies that the assertions for a gateway's devices contain no more than
+     * the configured maximum number of devices and that the response indicates
+     * the device to continue with.
+     *
+     * @param ctx The vertx unit test context.
+     */
+    @Test
+    public void testAssertGatewayDevicesLimitsNumberOfDevices(final TestContext ctx) {
+
+        // GIVEN a registry that contains two enabled devices connected to an enabled gateway
+        // and which includes a single device only in a bulk assertion
+        final BaseRegistrationService<ServiceConfigProperties> registrationService = newRegistrationService();
+        registrationService.setRegistrationAssertionFactory(RegistrationAssertionHelperImpl.forSigning(vertx, props));
+        registrationService.setMaxGatewayDevices(1);
+
+        // WHEN asserting the registration status of the gateway's devices
+        final Future<RegistrationResult> firstPage = Future.future();
+        registrationService.assertGatewayDevices(Constants.DEFAULT_TENANT, "gw-1", null, firstPage.completer());
+        firstPage.compose(result -> {
+            // THEN the response contains a 200 status
+            ctx.assertEquals(HttpURLConnection.HTTP_OK, result.getStatus());
+            // and contains a JWT token for the device with the lowest ID only
+            final JsonObject devices = result.getPayload().getJsonObject(RegistrationConstants.FIELD_DEVICES);
+            ctx.assertEquals(1, devices.size());
+            ctx.assertTrue(devices.containsKey("4711"));
+            // and indicates the device that has been left out
+            ctx.assertEquals("4714", result.getPayload().getString(RegistrationConstants.FIELD_NEXT_DEVICE_ID));
+            // AND WHEN asserting the remaining devices
+            final Future<RegistrationResult> secondPage = Future.future();
+            registrationService.assertGatewayDevices(Constants.DEFAULT_TENANT, "gw-1", "4714", secondPage.completer());
+            return secondPage;
+        }).setHandler(ctx.asyncAssertSuccess(result -> {
+            // THEN the response contains the remaining device
+            ctx.assertEquals(HttpURLConnection.HTTP_OK, result.getStatus());
+            final JsonObject devices = result.getPayload().getJsonObject(RegistrationConstants.FIELD_DEVICES);
+            ctx.assertEquals(1, devices.size());
+            ctx.assertTrue(devices.containsKey("4714"));
+            // and indicates that there are no more devices
+            ctx.assertNull(result.getPayload().getString(RegistrationConstants.FIELD_NEXT_DEVICE_ID));
+        }));
+    }
+
+    /**
+     * Verifies that the devices connected via a disabled gateway cannot be asserted.
+     *
+     * @param ctx The vertx unit test context.
+     */
+    @Test
+    public void testAssertGatewayDevicesFailsForDisabledGateway(final TestContext ctx) {
+
+        // GIVEN a registry that contains an enabled device connected to a disabled gateway
+        final BaseRegistrationService<ServiceConfigProperties> registrationService = newRegistrationService();
+        registrationService.setRegistrationAssertionFactory(RegistrationAssertionHelperImpl.forSigning(vertx, props));
+
+        // WHEN asserting the registration status of the gateway's devices
+        registrationService.assertGatewayDevices(Constants.DEFAULT_TENANT, "gw-3", null, ctx.asyncAssertSuccess(result -> {
+            // THEN the response contains a 403 status
+            ctx.assertEquals(HttpURLConnection.HTTP_FORBIDDEN, result.getStatus());
+            ctx.assertNull(result.getPayload());
+        }));
+    }
+
     private BaseRegistrationService<ServiceConfigProperties> newRegistrationService() {
         return newRegistrationService(this::getDevice);
     }
@@ -270,6 +363,21 @@ public class BaseRegistrationServiceTest {
             public void getDevice(final String tenantId, final String deviceId, final Handler<AsyncResult<RegistrationResult>> resultHandler) {
                 devices.apply(deviceId).setHandler(resultHandler);
             }
+
+            @Override
+            public void getDevicesForGateway(final String tenantId, final String gatewayId,
+                    final Handler<AsyncResult<RegistrationResult>> resultHandler) {
+                // simulate a coarse index that returns all devices
+                final JsonArray result = new JsonArray();
+                for (final String deviceId : new String[] { "4711", "4712", "4713", "4714" }) {
+                    final JsonObject data = devices.apply(deviceId).result().getPayload()
+                            .getJsonObject(RegistrationConstants.FIELD_DATA);
+                    result.add(BaseRegistrationService.getResultPayload(deviceId, data));
+                }
+                resultHandler.handle(Future.succeededFuture(RegistrationResult.from(
+                        HttpURLConnection.HTTP_OK,
+                        new JsonObject().put(RegistrationConstants.FIELD_DEVICES, result))));
+            }
         };
     }
 
@@ -296,6 +404,13 @@ public class BaseRegistrationServiceTest {
                         .put(RegistrationConstants.FIELD_ENABLED, true)
                         .put(BaseRegistrationService.PROPERTY_VIA, "gw-3"));
             return Future.succeededFuture(RegistrationResult.from(HttpURLConnection.HTTP_OK, responsePayload));
+        } else if ("4714".equals(deviceId)) {
+            final JsonObject responsePayload = BaseRegistrationService.getResultPayload(
+                    "4714",
+                    new JsonObject()
+                        .put(RegistrationConstants.FIELD_ENABLED, true)
+                        .put(BaseRegistrationService.PROPERTY_VIA, "gw-1"));
+            return Future.succeededFuture(RegistrationResult.from(HttpURLConnection.HTTP_OK, responsePayload));
         } else if ("gw-1".equals(deviceId)) {
             final JsonObject responsePayload = BaseRegistrationService.getResultPayload(
                     "gw-1",
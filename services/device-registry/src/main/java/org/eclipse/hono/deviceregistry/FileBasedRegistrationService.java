@@ -18,14 +18,18 @@ import static org.eclipse.hono.util.RegistrationConstants.FIELD_DATA;
 import static org.eclipse.hono.util.RequestResponseApiConstants.FIELD_PAYLOAD_DEVICE_ID;
 import static org.eclipse.hono.util.RequestResponseApiConstants.FIELD_ENABLED;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.hono.service.registration.CompleteBaseRegistrationService;
+import org.eclipse.hono.util.RegistrationConstants;
 import org.eclipse.hono.util.RegistrationResult;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -60,6 +64,8 @@ public final class FileBasedRegistrationService extends CompleteBaseRegistration
 
     // <tenantId, <deviceId, registrationData>>
     private final Map<String, Map<String, JsonObject>> identities = new HashMap<>();
+    // <tenantId, <gatewayId, deviceIds>>
+    private final Map<String, Map<String, Set<String>>> gatewayMembers = new HashMap<>();
     private boolean running = false;
     private boolean dirty = false;
 
@@ -175,6 +181,8 @@ public final class FileBasedRegistrationService extends CompleteBaseRegistration
                 }
             }
             identities.put(tenantId, deviceMap);
+            gatewayMembers.remove(tenantId);
+            deviceMap.forEach((deviceId, data) -> addToGatewayIndex(tenantId, deviceId, data));
         }
         log.debug("Loaded {} devices for tenant {}", count, tenantId);
         return count;
@@ -260,6 +268,64 @@ public final class FileBasedRegistrationService extends CompleteBaseRegistration
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation looks up the devices in an index of the devices'
+     * <em>via</em> property which is maintained whenever devices are added,
+     * updated or removed.
+     */
+    @Override
+    public void getDevicesForGateway(final String tenantId, final String gatewayId,
+            final Handler<AsyncResult<RegistrationResult>> resultHandler) {
+
+        Objects.requireNonNull(tenantId);
+        Objects.requireNonNull(gatewayId);
+        Objects.requireNonNull(resultHandler);
+
+        resultHandler.handle(Future.succeededFuture(getDevicesForGateway(tenantId, gatewayId)));
+    }
+
+    RegistrationResult getDevicesForGateway(final String tenantId, final String gatewayId) {
+
+        final JsonArray devices = new JsonArray();
+        final Map<String, Set<String>> gateways = gatewayMembers.get(tenantId);
+        if (gateways != null) {
+            for (final String deviceId : gateways.getOrDefault(gatewayId, Collections.emptySet())) {
+                final JsonObject data = getRegistrationData(tenantId, deviceId);
+                if (data != null) {
+                    devices.add(getResultPayload(deviceId, data));
+                }
+            }
+        }
+        return RegistrationResult.from(HTTP_OK, new JsonObject().put(RegistrationConstants.FIELD_DEVICES, devices));
+    }
+
+    private void addToGatewayIndex(final String tenantId, final String deviceId, final JsonObject data) {
+
+        final Object gatewayId = data.getValue(PROPERTY_VIA);
+        if (gatewayId instanceof String) {
+            gatewayMembers.computeIfAbsent(tenantId, id -> new HashMap<>())
+                .computeIfAbsent((String) gatewayId, id -> new HashSet<>())
+                .add(deviceId);
+        }
+    }
+
+    private void removeFromGatewayIndex(final String tenantId, final String deviceId, final JsonObject data) {
+
+        final Object gatewayId = data.getValue(PROPERTY_VIA);
+        final Map<String, Set<String>> gateways = gatewayMembers.get(tenantId);
+        if (gatewayId instanceof String && gateways != null) {
+            final Set<String> members = gateways.get(gatewayId);
+            if (members != null) {
+                members.remove(deviceId);
+                if (members.isEmpty()) {
+                    gateways.remove(gatewayId);
+                }
+            }
+        }
+    }
+
     @Override
     public void removeDevice(final String tenantId, final String deviceId, final Handler<AsyncResult<RegistrationResult>> resultHandler) {
 
@@ -277,7 +343,9 @@ public final class FileBasedRegistrationService extends CompleteBaseRegistration
 
         if (getConfig().isModificationEnabled()) {
             final Map<String, JsonObject> devices = identities.get(tenantId);
-            if (devices != null && devices.remove(deviceId) != null) {
+            final JsonObject removedData = devices == null ? null : devices.remove(deviceId);
+            if (removedData != null) {
+                removeFromGatewayIndex(tenantId, deviceId, removedData);
                 dirty = true;
                 return RegistrationResult.from(HTTP_NO_CONTENT);
             } else {
@@ -315,6 +383,7 @@ public final class FileBasedRegistrationService extends CompleteBaseRegistration
         final Map<String, JsonObject> devices = getDevicesForTenant(tenantId);
         if (devices.size() < getConfig().getMaxDevicesPerTenant()) {
             if (devices.putIfAbsent(deviceId, obj) == null) {
+                addToGatewayIndex(tenantId, deviceId, obj);
                 dirty = true;
                 return RegistrationResult.from(HTTP_CREATED);
             } else {
@@ -344,7 +413,8 @@ public final class FileBasedRegistrationService extends CompleteBaseRegistration
             final JsonObject obj = data != null ? data : new JsonObject().put(FIELD_ENABLED, Boolean.TRUE);
             final Map<String, JsonObject> devices = identities.get(tenantId);
             if (devices != null && devices.containsKey(deviceId)) {
-                devices.put(deviceId, obj);
+                removeFromGatewayIndex(tenantId, deviceId, devices.put(deviceId, obj));
+                addToGatewayIndex(tenantId, deviceId, obj);
                 dirty = true;
                 return RegistrationResult.from(HTTP_NO_CONTENT);
             } else {
@@ -365,6 +435,7 @@ public final class FileBasedRegistrationService extends CompleteBaseRegistration
     public void clear() {
         dirty = true;
         identities.clear();
+        gatewayMembers.clear();
     }
 
     @Override
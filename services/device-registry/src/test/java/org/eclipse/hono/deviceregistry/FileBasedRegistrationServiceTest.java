@@ -15,11 +15,16 @@ package org.eclipse.hono.deviceregistry;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 import java.net.HttpURLConnection;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.eclipse.hono.client.ServiceInvocationException;
 import org.eclipse.hono.util.Constants;
@@ -422,6 +427,39 @@ public class FileBasedRegistrationServiceTest {
         }));
     }
 
+    /**
+     * Verifies that the registry keeps track of the devices connected via a gateway
+     * when devices are added, updated and removed.
+     */
+    @Test
+    public void testGetDevicesForGatewayReflectsViaProperty() {
+
+        // GIVEN two devices connected via the same gateway
+        registrationService.addDevice(TENANT, GW, new JsonObject());
+        registrationService.addDevice(TENANT, DEVICE, new JsonObject().put(FileBasedRegistrationService.PROPERTY_VIA, GW));
+        registrationService.addDevice(TENANT, "4712", new JsonObject().put(FileBasedRegistrationService.PROPERTY_VIA, GW));
+        assertThat(getDeviceIdsForGateway(GW), is(new HashSet<>(Arrays.asList(DEVICE, "4712"))));
+
+        // WHEN one of the devices is moved to another gateway and the other one is removed
+        registrationService.updateDevice(TENANT, DEVICE, new JsonObject().put(FileBasedRegistrationService.PROPERTY_VIA, "gw-2"));
+        registrationService.removeDevice(TENANT, "4712");
+
+        // THEN the gateways' devices reflect the changes
+        assertTrue(getDeviceIdsForGateway(GW).isEmpty());
+        assertThat(getDeviceIdsForGateway("gw-2"), is(Collections.singleton(DEVICE)));
+    }
+
+    private Set<String> getDeviceIdsForGateway(final String gatewayId) {
+
+        final RegistrationResult result = registrationService.getDevicesForGateway(TENANT, gatewayId);
+        assertThat(result.getStatus(), is(HttpURLConnection.HTTP_OK));
+        final Set<String> deviceIds = new HashSet<>();
+        result.getPayload().getJsonArray(RegistrationConstants.FIELD_DEVICES).forEach(device -> {
+            deviceIds.add(((JsonObject) device).getString(RegistrationConstants.FIELD_PAYLOAD_DEVICE_ID));
+        });
+        return deviceIds;
+    }
+
     /**
      * Verifies that setting the <em>saveToFile</em> configuration property to <em>false</em> prevents
      * the registration service to write its content to the file system periodically.